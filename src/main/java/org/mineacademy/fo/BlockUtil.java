@@ -3,7 +3,11 @@ package org.mineacademy.fo;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -19,6 +23,8 @@ import org.bukkit.entity.FallingBlock;
 import org.bukkit.util.BlockIterator;
 import org.bukkit.util.Vector;
 import org.mineacademy.fo.MinecraftVersion.V;
+import org.mineacademy.fo.model.BlockShape;
+import org.mineacademy.fo.model.CuboidScanner;
 import org.mineacademy.fo.remain.CompMaterial;
 import org.mineacademy.fo.remain.Remain;
 
@@ -66,6 +72,20 @@ public final class BlockUtil {
 	 */
 	public static double BOUNDING_HORIZONTAL_GAP = 1;
 
+	/**
+	 * Recently plotted bounding box outlines by their size and gaps,
+	 * see {@link #getBoundingBoxPoints(Location, Location)}
+	 */
+	private static final Map<String, double[]> BOUNDING_BOX_CACHE = new LinkedHashMap<String, double[]>(16, 0.75F, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, double[]> eldest) {
+			return this.size() > 32;
+		}
+	};
+
 	// ------------------------------------------------------------------------------------------------------------
 	// Cuboid region manipulation
 	// ------------------------------------------------------------------------------------------------------------
@@ -130,19 +150,71 @@ public final class BlockUtil {
 	 * @return
 	 */
 	public static Set<Location> getBoundingBox(final Location primary, final Location secondary) {
-		final List<VectorHelper> shape = new ArrayList<>();
+		final double[] points = getBoundingBoxPoints(primary, secondary);
+		final Set<Location> locations = new HashSet<>();
+
+		for (int index = 0; index < points.length; index += 3)
+			locations.add(new Location(primary.getWorld(), points[index], points[index + 1], points[index + 2]));
+
+		return locations;
+	}
 
+	/**
+	 * Return points representing the bounding box of a cuboid region as x, y and z
+	 * one after another, used when rendering particle effects.
+	 * <p>
+	 * The outline is cached by the region size and gaps and only moved to the region here,
+	 * so repeated calls for equally sized regions skip plotting the lines.
+	 *
+	 * @param primary
+	 * @param secondary
+	 * @return
+	 */
+	public static double[] getBoundingBoxPoints(final Location primary, final Location secondary) {
 		final VectorHelper min = getMinimumPoint(primary, secondary);
 		final VectorHelper max = getMaximumPoint(primary, secondary).add(1, 0, 1);
 
+		final double sizeX = max.getX() - min.getX();
+		final double sizeZ = max.getZ() - min.getZ();
 		final int height = getHeight(primary, secondary);
 
+		final String key = sizeX + ":" + height + ":" + sizeZ + ":" + BOUNDING_HORIZONTAL_GAP + ":" + BOUNDING_VERTICAL_GAP;
+		double[] outline;
+
+		synchronized (BOUNDING_BOX_CACHE) {
+			outline = BOUNDING_BOX_CACHE.get(key);
+		}
+
+		if (outline == null) {
+			outline = plotBoundingBox(sizeX, height, sizeZ);
+
+			synchronized (BOUNDING_BOX_CACHE) {
+				BOUNDING_BOX_CACHE.put(key, outline);
+			}
+		}
+
+		final double[] points = new double[outline.length];
+
+		for (int index = 0; index < points.length; index += 3) {
+			points[index] = outline[index] + min.getX();
+			points[index + 1] = outline[index + 1] + min.getY();
+			points[index + 2] = outline[index + 2] + min.getZ();
+		}
+
+		return points;
+	}
+
+	/*
+	 * Plot the unique outline points of a box of the given size starting at 0, 0, 0
+	 */
+	private static double[] plotBoundingBox(final double sizeX, final int height, final double sizeZ) {
+		final Set<VectorHelper> shape = new LinkedHashSet<>();
 		final List<VectorHelper> bottomCorners = new ArrayList<>();
 
-		bottomCorners.add(new VectorHelper(min.getX(), min.getY(), min.getZ()));
-		bottomCorners.add(new VectorHelper(max.getX(), min.getY(), min.getZ()));
-		bottomCorners.add(new VectorHelper(max.getX(), min.getY(), max.getZ()));
-		bottomCorners.add(new VectorHelper(min.getX(), min.getY(), max.getZ()));
+		bottomCorners.add(new VectorHelper(0, 0, 0));
+		bottomCorners.add(new VectorHelper(sizeX, 0, 0));
+		bottomCorners.add(new VectorHelper(sizeX, 0, sizeZ));
+		bottomCorners.add(new VectorHelper(0, 0, sizeZ));
 
 		for (int i = 0; i < bottomCorners.size(); i++) {
 			final VectorHelper p1 = bottomCorners.get(i);
@@ -161,12 +233,16 @@ public final class BlockUtil {
 			}
 		}
 
-		final Set<Location> locations = new HashSet<>();
+		final double[] points = new double[shape.size() * 3];
+		int index = 0;
 
-		for (final VectorHelper vector : shape)
-			locations.add(new Location(primary.getWorld(), vector.getX(), vector.getY(), vector.getZ()));
+		for (final VectorHelper vector : shape) {
+			points[index++] = vector.getX();
+			points[index++] = vector.getY();
+			points[index++] = vector.getZ();
+		}
 
-		return locations;
+		return points;
 	}
 
 	private static List<VectorHelper> plotLine(final VectorHelper p1, final VectorHelper p2) {
@@ -223,7 +299,8 @@ public final class BlockUtil {
 	/**
 	 * Get all locations within the given 3D spherical radius, hollow or not
 	 * <p>
-	 * NOTE: Calling this operation causes performance penaulty (>100ms for 30 radius!), be careful.
+	 * NOTE: This creates a new location for each block, use {@link BlockShape#sphere(int, boolean)}
+	 * to iterate the cached shape without creating any objects.
 	 *
 	 * @param location
 	 * @param radius
@@ -231,36 +308,14 @@ public final class BlockUtil {
 	 * @return
 	 */
 	public static Set<Location> getSphere(final Location location, final int radius, final boolean hollow) {
-		final Set<Location> blocks = new HashSet<>();
-		final World world = location.getWorld();
-		final int X = location.getBlockX();
-		final int Y = location.getBlockY();
-		final int Z = location.getBlockZ();
-		final int radiusSquared = radius * radius;
-
-		if (hollow) {
-			for (int x = X - radius; x <= X + radius; x++)
-				for (int y = Y - radius; y <= Y + radius; y++)
-					for (int z = Z - radius; z <= Z + radius; z++)
-						if ((X - x) * (X - x) + (Y - y) * (Y - y) + (Z - z) * (Z - z) <= radiusSquared)
-							blocks.add(new Location(world, x, y, z));
-
-			return makeHollow(blocks, true);
-		}
-
-		for (int x = X - radius; x <= X + radius; x++)
-			for (int y = Y - radius; y <= Y + radius; y++)
-				for (int z = Z - radius; z <= Z + radius; z++)
-					if ((X - x) * (X - x) + (Y - y) * (Y - y) + (Z - z) * (Z - z) <= radiusSquared)
-						blocks.add(new Location(world, x, y, z));
-
-		return blocks;
+		return radius < 0 ? new HashSet<>() : BlockShape.sphere(radius, hollow).toLocations(location);
 	}
 
 	/**
 	 * Get all locations within the given 2D circle radius, hollow or full circle
 	 * <p>
-	 * NOTE: Calling this operation causes performance penaulty (>100ms for 30 radius!), be careful.
+	 * NOTE: This creates a new location for each block, use {@link BlockShape#circle(int, boolean)}
+	 * to iterate the cached shape without creating any objects.
 	 *
 	 * @param location
 	 * @param radius
@@ -268,80 +323,7 @@ public final class BlockUtil {
 	 * @return
 	 */
 	public static Set<Location> getCircle(final Location location, final int radius, final boolean hollow) {
-		final Set<Location> blocks = new HashSet<>();
-		final World world = location.getWorld();
-
-		final int initialX = location.getBlockX();
-		final int initialY = location.getBlockY();
-		final int initialZ = location.getBlockZ();
-		final int radiusSquared = radius * radius;
-
-		if (hollow) {
-			for (int x = initialX - radius; x <= initialX + radius; x++)
-				for (int z = initialZ - radius; z <= initialZ + radius; z++)
-					if ((initialX - x) * (initialX - x) + (initialZ - z) * (initialZ - z) <= radiusSquared)
-						blocks.add(new Location(world, x, initialY, z));
-
-			return makeHollow(blocks, false);
-		}
-
-		for (int x = initialX - radius; x <= initialX + radius; x++)
-			for (int z = initialZ - radius; z <= initialZ + radius; z++)
-				if ((initialX - x) * (initialX - x) + (initialZ - z) * (initialZ - z) <= radiusSquared)
-					blocks.add(new Location(world, x, initialY, z));
-
-		return blocks;
-	}
-
-	/**
-	 * Creates a new list of outer location points from all given points
-	 *
-	 * @param blocks
-	 * @param sphere
-	 * @return
-	 */
-	private static Set<Location> makeHollow(final Set<Location> blocks, final boolean sphere) {
-		final Set<Location> edge = new HashSet<>();
-
-		if (!sphere) {
-			for (final Location location : blocks) {
-				final World world = location.getWorld();
-				final int x = location.getBlockX();
-				final int y = location.getBlockY();
-				final int z = location.getBlockZ();
-
-				final Location front = new Location(world, x + 1, y, z);
-				final Location back = new Location(world, x - 1, y, z);
-				final Location left = new Location(world, x, y, z + 1);
-				final Location right = new Location(world, x, y, z - 1);
-
-				if (!(blocks.contains(front) && blocks.contains(back) && blocks.contains(left) && blocks.contains(right)))
-					edge.add(location);
-
-			}
-			return edge;
-		}
-
-		for (final Location location : blocks) {
-			final World world = location.getWorld();
-
-			final int x = location.getBlockX();
-			final int y = location.getBlockY();
-			final int z = location.getBlockZ();
-
-			final Location front = new Location(world, x + 1, y, z);
-			final Location back = new Location(world, x - 1, y, z);
-			final Location left = new Location(world, x, y, z + 1);
-			final Location right = new Location(world, x, y, z - 1);
-			final Location top = new Location(world, x, y + 1, z);
-			final Location bottom = new Location(world, x, y - 1, z);
-
-			if (!(blocks.contains(front) && blocks.contains(back) && blocks.contains(left) && blocks.contains(right) && blocks.contains(top) && blocks.contains(bottom)))
-				edge.add(location);
-		}
-
-		return edge;
-
+		return radius < 0 ? new HashSet<>() : BlockShape.circle(radius, hollow).toLocations(location);
 	}
 
 	// ------------------------------------------------------------------------------------------------------------
@@ -349,7 +331,8 @@ public final class BlockUtil {
 	// ------------------------------------------------------------------------------------------------------------
 
 	/**
-	 * Returns all blocks within the two cuboid bounds (may take a while)
+	 * Returns all blocks within the two cuboid bounds (may take a while),
+	 * see {@link #scanBlocks(Location, Location)} for large areas
 	 *
 	 * @param primary
 	 * @param secondary
@@ -383,7 +366,8 @@ public final class BlockUtil {
 	}
 
 	/**
-	 * Return all blocks in the given chunk
+	 * Return all blocks in the given chunk, see {@link #scanBlocks(Chunk)}
+	 * to read them without creating a {@link Block} for each
 	 *
 	 * @param chunk
 	 * @return
@@ -406,6 +390,29 @@ public final class BlockUtil {
 		return blocks;
 	}
 
+	/**
+	 * Return a scanner walking all blocks within the two cuboid bounds chunk by chunk,
+	 * optionally off the main thread, without creating a {@link Block} for each
+	 *
+	 * @param primary
+	 * @param secondary
+	 * @return
+	 */
+	public static CuboidScanner scanBlocks(@NonNull Location primary, @NonNull Location secondary) {
+		return new CuboidScanner(primary, secondary);
+	}
+
+	/**
+	 * Return a scanner walking all blocks in the given chunk, optionally off
+	 * the main thread, without creating a {@link Block} for each
+	 *
+	 * @param chunk
+	 * @return
+	 */
+	public static CuboidScanner scanBlocks(@NonNull Chunk chunk) {
+		return new CuboidScanner(chunk);
+	}
+
 	/**
 	 * Get all the blocks in a specific area centered around the Location passed in
 	 *
@@ -964,6 +971,11 @@ public final class BlockUtil {
 			return other.x == this.x && other.y == this.y && other.z == this.z;
 		}
 
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.x, this.y, this.z);
+		}
+
 		@Override
 		public String toString() {
 			return "(" + this.x + ", " + this.y + ", " + this.z + ")";
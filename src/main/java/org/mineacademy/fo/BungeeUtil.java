@@ -8,9 +8,13 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.messaging.ChannelNotRegisteredException;
 import org.bukkit.plugin.messaging.MessageTooLargeException;
+import org.bukkit.plugin.messaging.PluginMessageListener;
 import org.mineacademy.fo.Common.Stringer;
+import org.mineacademy.fo.bungee.BungeeFragmenter;
 import org.mineacademy.fo.bungee.BungeeListener;
 import org.mineacademy.fo.bungee.BungeeMessageType;
+import org.mineacademy.fo.bungee.BungeeOutbox;
+import org.mineacademy.fo.bungee.BungeeProtocol;
 import org.mineacademy.fo.collection.SerializedMap;
 import org.mineacademy.fo.debug.Debugger;
 import org.mineacademy.fo.exception.FoException;
@@ -30,14 +34,19 @@ import lombok.NonNull;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class BungeeUtil {
 
+	/**
+	 * The listener receiving our own messages instead of the proxy, see {@link #setLoopback(PluginMessageListener)}
+	 */
+	private static PluginMessageListener loopback;
+
 	/**
 	 * See {@link #sendPluginMessage(String, BungeeMessageType, Object...)}
 	 * <p>
 	 * NB: This one uses the default channel name specified in {@link SimplePlugin}. By
 	 * default, nothing is specified there and so an exception will be thrown.
 	 *
-	 * We find a random player through which we will send the message. If the server is
-	 * empty, nothing will happen.
+	 * We pick the next online player through which we will send the message. If the server is
+	 * empty, the message is queued until a player joins, see {@link BungeeOutbox}.
 	 *
 	 * @param <T>
 	 * @param action
@@ -80,8 +89,8 @@ public final class BungeeUtil {
 	 * 2. {@link Remain#getServerName()}
 	 * 3. The action parameter
 	 *
-	 * We find a random player through which we will send the message. If the server is
-	 * empty, nothing will happen.
+	 * We pick the next online player through which we will send the message. If the server is
+	 * empty, the message is queued until a player joins, see {@link BungeeOutbox}.
 	 *
 	 * @param <T>
 	 * @param channel
@@ -104,8 +113,12 @@ public final class BungeeUtil {
 	 * 3. {@link Remain#getServerName()} (String)
 	 * 4. The action parameter (enum to String)
 	 *
+	 * If the listener of the channel uses {@link BungeeListener#isBinaryProtocol()},
+	 * the header and data are written in the compact {@link BungeeProtocol} format instead,
+	 * and messages over 1 KB are compressed and split if needed, see {@link BungeeFragmenter}.
+	 *
 	 * @param <T>
-	 * @param sender through which sender to send, if empty, we find a random player, or if server is empty, no message is sent
+	 * @param sender through which sender to send, if empty, we pick the next online player, or if server is empty, the message is queued
 	 * @param channel
 	 * @param action
 	 * @param data
@@ -119,22 +132,23 @@ public final class BungeeUtil {
 			Debugger.put("bungee", "Server '" + Remain.getServerName() + "' sent bungee message [" + channel + ", " + action + "]: ");
 
 		if (sender == null)
-			sender = findFirstPlayer();
-
-		// This server is empty, do not send
-		if (sender == null) {
-			Debugger.debug("bungee", "&eWarning: Cannot send " + action + " bungee message to channel '" + channel + "' because this server has no players");
-
-			return;
-		}
+			sender = BungeeOutbox.nextPlayer();
 
 		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+		final BungeeListener listener = BungeeListener.findListener(channel);
+		final UUID senderUid = sender != null ? sender.getUniqueId() : new UUID(0, 0);
+		final boolean binary = listener != null && listener.isBinaryProtocol();
 
 		// Write Foundation header
-		out.writeUTF(channel);
-		out.writeUTF(sender.getUniqueId().toString());
-		out.writeUTF(Remain.getServerName());
-		out.writeUTF(action.toString());
+		if (binary)
+			BungeeProtocol.writeHeader(out, listener, senderUid, Remain.getServerName(), action);
+
+		else {
+			out.writeUTF(channel);
+			out.writeUTF(senderUid.toString());
+			out.writeUTF(Remain.getServerName());
+			out.writeUTF(action.toString());
+		}
 
 		int actionHead = 0;
 
@@ -145,6 +159,16 @@ public final class BungeeUtil {
 				if (datum instanceof CommandSender)
 					datum = ((CommandSender) datum).getName();
 
+				if (binary) {
+					Debugger.put("bungee", datum.toString() + ", ");
+
+					moveHead(actionHead, action, datum.getClass(), data);
+					BungeeProtocol.writeValue(out, datum);
+
+					actionHead++;
+					continue;
+				}
+
 				if (datum instanceof Integer) {
 					Debugger.put("bungee", datum.toString() + ", ");
 
@@ -222,27 +246,96 @@ public final class BungeeUtil {
 
 		Debugger.push("bungee");
 
-		final byte[] byteArray = out.toByteArray();
+		sendPluginMessageData(sender, channel, action.name(), out.toByteArray());
+	}
+
+	/**
+	 * Send an already written plugin message on the channel. Messages for listeners using
+	 * {@link BungeeListener#isBinaryProtocol()} are compressed and split when large, see {@link BungeeFragmenter},
+	 * other messages over 30,000 bytes are not sent. If the server is empty, the message is queued
+	 * until a player joins, see {@link BungeeOutbox}.
+	 *
+	 * @param sender the player to send through, or null to pick the next online player
+	 * @param channel
+	 * @param label the name of the message used in console messages, such as its action
+	 * @param byteArray
+	 */
+	public static void sendPluginMessageData(@Nullable Player sender, @NonNull String channel, @NonNull String label, @NonNull byte[] byteArray) {
+		if (sender == null)
+			sender = BungeeOutbox.nextPlayer();
+
+		final BungeeListener listener = BungeeListener.findListener(channel);
+
+		// Compress and split large messages, binary receivers put them back together
+		if (listener != null && listener.isBinaryProtocol() && BungeeFragmenter.needsSplitting(byteArray)) {
+			for (final byte[] fragment : BungeeFragmenter.split(byteArray))
+				if (!send(sender, channel, label, fragment))
+					break;
+
+			return;
+		}
 
 		if (byteArray.length > 30_000) { // Safety margin
-			Common.log("Outgoing bungee message '" + action + "' was oversized, not sending. Max length: 32766 bytes, got " + byteArray.length + " bytes.");
+			Common.log("Outgoing bungee message '" + label + "' was oversized, not sending. Max length: 32766 bytes, got " + byteArray.length + " bytes.");
 
-			actionHead = 0;
 			return;
 		}
 
+		send(sender, channel, label, byteArray);
+	}
+
+	/*
+	 * Send the finished message through the player or the loopback, returning false on failure
+	 */
+	private static boolean send(@Nullable Player sender, String channel, String label, byte[] byteArray) {
+		if (loopback != null) {
+			loopback.onPluginMessageReceived(channel, sender, byteArray);
+
+			return true;
+		}
+
+		// This server is empty, send once a player joins
+		if (sender == null) {
+			BungeeOutbox.queue(channel, label, byteArray);
+
+			return true;
+		}
+
+		// Keep the order if messages are still waiting, they are sent once the player can carry them
+		if (BungeeOutbox.hasQueued()) {
+			BungeeOutbox.queue(channel, label, byteArray);
+			BungeeOutbox.onJoin();
+
+			return true;
+		}
+
 		try {
 			sender.sendPluginMessage(SimplePlugin.getInstance(), channel, byteArray);
 
+			return true;
+
 		} catch (final ChannelNotRegisteredException ex) {
-			Common.log("Cannot send Bungee '" + action + "' message because channel '" + channel + "' is not registered. "
+			Common.log("Cannot send Bungee '" + label + "' message because channel '" + channel + "' is not registered. "
 					+ "Use @AutoRegister above your class extending BungeeListener and return its instance in getBungeeCord in your main plugin class.");
 
 		} catch (final MessageTooLargeException ex) {
-			Common.log("Outgoing bungee message '" + action + "' was oversized, not sending. Max length: 32,766 bytes, got " + byteArray.length + " bytes.");
+			Common.log("Outgoing bungee message '" + label + "' was oversized, not sending. Max length: 32,766 bytes, got " + byteArray.length + " bytes.");
 		}
 
-		actionHead = 0;
+		return false;
+	}
+
+	/**
+	 * Pass all messages sent by {@link #sendPluginMessage(Player, String, BungeeMessageType, Object...)}
+	 * straight to the given listener instead of the proxy, even when the server is empty.
+	 * <p>
+	 * Use {@link BungeeListener.BungeeListenerImpl#getInstance()} to receive your own messages on this
+	 * server, for example to test a channel without a network. Set to null to send to the proxy again.
+	 *
+	 * @param listener
+	 */
+	public static void setLoopback(@Nullable PluginMessageListener listener) {
+		loopback = listener;
 	}
 
 	/**
@@ -295,14 +388,6 @@ public final class BungeeUtil {
 		sender.sendPluginMessage(SimplePlugin.getInstance(), "BungeeCord", out.toByteArray());
 	}
 
-	/*
-	 * Return either the first online player or the server itself
-	 * through which we send the bungee message as
-	 */
-	private static Player findFirstPlayer() {
-		return Remain.getOnlinePlayers().isEmpty() ? null : Remain.getOnlinePlayers().iterator().next();
-	}
-
 	/*
 	 * Ensures we are reading in the correct order as the given {@link BungeeMessageType}
 	 * specifies in its {@link BungeeMessageType#getContent()} getter.
@@ -44,6 +44,7 @@ import org.mineacademy.fo.jsonsimple.JSONObject;
 import org.mineacademy.fo.jsonsimple.JSONParser;
 import org.mineacademy.fo.menu.Menu;
 import org.mineacademy.fo.model.HookManager;
+import org.mineacademy.fo.model.ItemFingerprint;
 import org.mineacademy.fo.plugin.SimplePlugin;
 import org.mineacademy.fo.remain.CompAttribute;
 import org.mineacademy.fo.remain.CompMaterial;
@@ -895,11 +896,13 @@ public final class PlayerUtil {
 	 * @return
 	 */
 	public static ItemStack getFirstItem(final Player player, final ItemStack item) {
-		for (final ItemStack otherItem : player.getInventory().getContents())
-			if (otherItem != null && ItemUtil.isSimilar(otherItem, item))
-				return otherItem;
+		if (item == null)
+			return null;
+
+		final ItemStack[] content = player.getInventory().getContents();
+		final int index = ItemFingerprint.of(item).indexIn(content);
 
-		return null;
+		return index != -1 ? content[index] : null;
 	}
 
 	/**
@@ -1008,10 +1011,15 @@ public final class PlayerUtil {
 	public static boolean updateInvSlot(final Inventory inv, final ItemStack search, final ItemStack replaceWith) {
 		Valid.checkNotNull(inv, "Inv = null");
 
+		if (search == null)
+			return false;
+
+		final ItemFingerprint fingerprint = ItemFingerprint.of(search);
+
 		for (int i = 0; i < inv.getSize(); i++) {
 			final ItemStack slot = inv.getItem(i);
 
-			if (slot != null && ItemUtil.isSimilar(slot, search)) {
+			if (slot != null && fingerprint.matches(slot)) {
 				inv.setItem(i, replaceWith);
 
 				return true;
@@ -1,6 +1,9 @@
 package org.mineacademy.fo;
 
 import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -13,6 +16,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
@@ -20,6 +24,7 @@ import java.util.jar.JarFile;
 
 import javax.annotation.Nullable;
 
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.EntityType;
@@ -63,11 +68,23 @@ public final class ReflectionUtil {
 
 	/**
 	 * Reflection utilizes a simple cache for fastest performance
+	 * <p>
+	 * Classes by name are only cached for the server, Java and our plugin, see {@link #isCacheable(Class)},
+	 * lookups are stored in a {@link ClassValue} so that classes of other plugins can still unload
 	 */
 	private static final Map<String, Class<?>> classCache = new ConcurrentHashMap<>();
-	private static final Map<Class<?>, ReflectionData<?>> reflectionDataCache = new ConcurrentHashMap<>();
-	private static final Map<Class<?>, Method[]> methodCache = new ConcurrentHashMap<>();
-	private static final Collection<String> classNameGuard = ConcurrentHashMap.newKeySet();
+	private static final ClassValue<ReflectionData<?>> reflectionDataCache = new ClassValue<ReflectionData<?>>() {
+
+		@Override
+		protected ReflectionData<?> computeValue(final Class<?> type) {
+			return new ReflectionData<>(type);
+		}
+	};
+
+	/**
+	 * Server classes we know are missing, see {@link #isServerClass(String)}
+	 */
+	private static final Collection<String> missingClasses = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Maps primitive <code>Class</code>es to their corresponding wrapper <code>Class</code>.
@@ -161,26 +178,12 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static Constructor<?> getConstructor(@NonNull final Class<?> clazz, final Class<?>... params) {
-		try {
-			if (reflectionDataCache.containsKey(clazz))
-				return reflectionDataCache.get(clazz).getConstructor(params);
-
-			Constructor<?> constructor;
-
-			try {
-				constructor = clazz.getConstructor(params);
-
-			} catch (final NoSuchMethodException err) {
-				constructor = clazz.getDeclaredConstructor(params);
-			}
+		final Constructor<?> constructor = getReflectionData(clazz).getConstructor(params);
 
-			constructor.setAccessible(true);
-
-			return constructor;
+		if (constructor == null)
+			throw new FoException("Could not get constructor of " + clazz + " with parameters " + Common.join(params));
 
-		} catch (final ReflectiveOperationException ex) {
-			throw new FoException(ex, "Could not get constructor of " + clazz + " with parameters " + Common.join(params));
-		}
+		return constructor;
 	}
 
 	/**
@@ -204,17 +207,12 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static <T> T getFieldContent(Class<?> clazz, final String field, final Object instance) {
-		final String originalClassName = new String(clazz.getName());
-
-		do
-			// note: getDeclaredFields() fails if any of the fields are classes that cannot be loaded
-			for (final Field f : clazz.getDeclaredFields())
-				if (f.getName().equals(field))
-					return (T) getFieldContent(f, instance);
+		final Field found = getReflectionData(clazz).findField(field);
 
-		while (!(clazz = clazz.getSuperclass()).isAssignableFrom(Object.class));
+		if (found == null)
+			throw new ReflectionException("No such field " + field + " in " + clazz.getName() + " or its superclasses");
 
-		throw new ReflectionException("No such field " + field + " in " + originalClassName + " or its superclasses");
+		return (T) getFieldContent(found, instance);
 	}
 
 	/**
@@ -265,21 +263,12 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static Field getDeclaredField(final Class<?> clazz, final String fieldName) {
-		try {
+		final Field field = getReflectionData(clazz).getDeclaredField(fieldName);
 
-			if (reflectionDataCache.containsKey(clazz))
-				return reflectionDataCache.get(clazz).getDeclaredField(fieldName);
-
-			final Field field = clazz.getDeclaredField(fieldName);
-			field.setAccessible(true);
-
-			return field;
-
-		} catch (final ReflectiveOperationException ex) {
-			Remain.sneaky(ex);
-		}
+		if (field == null)
+			Remain.sneaky(new NoSuchFieldException(fieldName));
 
-		return null;
+		return field;
 	}
 
 	/**
@@ -339,34 +328,7 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static Method getMethod(final Class<?> clazz, final String methodName, final Class<?>... args) {
-		try {
-			final Method method = clazz.getMethod(methodName, args);
-			method.setAccessible(true);
-			return method;
-		} catch (final NoSuchMethodException e) {
-		}
-
-		final Method[] methods = methodCache.computeIfAbsent(clazz, k -> clazz.getMethods());
-		for (final Method method : methods)
-			if (method.getName().equals(methodName) && isClassListEqual(args, method.getParameterTypes())) {
-				method.setAccessible(true);
-
-				return method;
-			}
-
-		return null;
-	}
-
-	// Compares class lists
-	private static boolean isClassListEqual(final Class<?>[] first, final Class<?>[] second) {
-		if (first.length != second.length)
-			return false;
-
-		for (int i = 0; i < first.length; i++)
-			if (first[i] != second[i])
-				return false;
-
-		return true;
+		return getReflectionData(clazz).getMethod(methodName, args);
 	}
 
 	/**
@@ -377,14 +339,7 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static Method getMethod(final Class<?> clazz, final String methodName) {
-		for (final Method method : clazz.getMethods())
-			if (method.getName().equals(methodName) && method.getParameterCount() == 0) {
-				method.setAccessible(true);
-
-				return method;
-			}
-
-		return null;
+		return getReflectionData(clazz).getMethod(methodName);
 	}
 
 	/**
@@ -396,23 +351,19 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static Method getDeclaredMethod(Class<?> clazz, final String methodName, Class<?>... args) {
-		final Class<?> originalClass = clazz;
-
-		while (!clazz.equals(Object.class))
-			try {
-				final Method method = clazz.getDeclaredMethod(methodName, args);
-				method.setAccessible(true);
+		final Method method;
 
-				return method;
+		try {
+			method = getReflectionData(clazz).findDeclaredMethod(methodName, args);
 
-			} catch (final NoSuchMethodException ex) {
-				clazz = clazz.getSuperclass();
+		} catch (final Throwable t) {
+			throw new ReflectionException(t, "Error lookup up method " + methodName + " in class " + clazz + " and her subclasses");
+		}
 
-			} catch (final Throwable t) {
-				throw new ReflectionException(t, "Error lookup up method " + methodName + " in class " + originalClass + " and her subclasses");
-			}
+		if (method == null)
+			throw new ReflectionException("Unable to find method " + methodName + " with params " + Common.join(args) + " in class " + clazz + " and her subclasses");
 
-		throw new ReflectionException("Unable to find method " + methodName + " with params " + Common.join(args) + " in class " + originalClass + " and her subclasses");
+		return method;
 	}
 
 	/**
@@ -506,13 +457,10 @@ public final class ReflectionUtil {
 	 */
 	public static <T> T instantiate(final Class<T> clazz) {
 		try {
-			final Constructor<T> constructor;
-
-			if (reflectionDataCache.containsKey(clazz))
-				constructor = ((ReflectionData<T>) reflectionDataCache.get(clazz)).getDeclaredConstructor();
+			final Constructor<T> constructor = getReflectionData(clazz).getConstructor();
 
-			else
-				constructor = (Constructor<T>) ReflectionUtil.getConstructor(clazz);
+			if (constructor == null)
+				throw new NoSuchMethodException("No constructor without parameters in " + clazz);
 
 			return constructor.newInstance();
 
@@ -552,18 +500,10 @@ public final class ReflectionUtil {
 			}
 
 			final Class<?>[] paramArr = classes.toArray(new Class<?>[0]);
-			final Constructor<T> constructor;
+			final Constructor<T> constructor = getReflectionData(clazz).getDeclaredConstructor(paramArr);
 
-			if (reflectionDataCache.containsKey(clazz))
-				constructor = ((ReflectionData<T>) reflectionDataCache.get(clazz)).getDeclaredConstructor(paramArr);
-
-			else {
-				classCache.put(clazz.getCanonicalName(), clazz);
-
-				constructor = (Constructor<T>) reflectionDataCache.computeIfAbsent(clazz, ReflectionData::new).getDeclaredConstructor(paramArr);
-			}
-
-			constructor.setAccessible(true);
+			if (constructor == null)
+				throw new NoSuchMethodException("No constructor with parameters " + Common.join(paramArr) + " in " + clazz);
 
 			return constructor.newInstance(params);
 
@@ -599,11 +539,14 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static boolean isClassAvailable(final String path) {
-		try {
-			if (classCache.containsKey(path))
-				return true;
+		if (classCache.containsKey(path))
+			return true;
 
-			Class.forName(path);
+		if (missingClasses.contains(path))
+			return false;
+
+		try {
+			lookupClass(path);
 
 			return true;
 
@@ -620,35 +563,56 @@ public final class ReflectionUtil {
 	 * @return
 	 */
 	public static <T> Class<T> lookupClass(final String path) {
-		if (classCache.containsKey(path))
-			return (Class<T>) classCache.get(path);
+		final Class<?> cached = classCache.get(path);
 
-		if (classNameGuard.contains(path)) {
-			while (classNameGuard.contains(path)) {
-				// Wait for other thread
-			}
+		if (cached != null)
+			return (Class<T>) cached;
 
-			return lookupClass(path); // Re run method to see if the cached value now exists.
-		}
+		if (missingClasses.contains(path))
+			throw new ReflectionException("Could not find class: " + path);
 
 		try {
-			classNameGuard.add(path);
-
 			final Class<?> clazz = Class.forName(path);
 
-			classCache.put(path, clazz);
-			reflectionDataCache.computeIfAbsent(clazz, ReflectionData::new);
+			if (isCacheable(clazz))
+				classCache.put(path, clazz);
 
 			return (Class<T>) clazz;
 
 		} catch (final ClassNotFoundException ex) {
-			throw new ReflectionException("Could not find class: " + path);
+			if (isServerClass(path))
+				missingClasses.add(path);
 
-		} finally {
-			classNameGuard.remove(path);
+			throw new ReflectionException("Could not find class: " + path);
 		}
 	}
 
+	/*
+	 * Return true if the class belongs to the server or Java, which cannot appear later,
+	 * unlike classes of other plugins, so that we can remember it is missing
+	 */
+	private static boolean isServerClass(final String path) {
+		return path.startsWith(NMS) || path.startsWith(CRAFTBUKKIT) || path.startsWith("net.minecraft.") || path.startsWith("org.bukkit.")
+				|| path.startsWith("org.spigotmc.") || path.startsWith("com.destroystokyo.") || path.startsWith("io.papermc.") || path.startsWith("java.");
+	}
+
+	/*
+	 * Return true if the class comes from Java, the server or our plugin, which all live as long as we do,
+	 * unlike classes of other plugins which we must not keep once they are disabled
+	 */
+	private static boolean isCacheable(final Class<?> clazz) {
+		final ClassLoader loader = clazz.getClassLoader();
+
+		return loader == null || loader == Bukkit.class.getClassLoader() || loader == ReflectionUtil.class.getClassLoader();
+	}
+
+	/*
+	 * Return the cached lookups for the class
+	 */
+	private static <T> ReflectionData<T> getReflectionData(@NonNull final Class<T> clazz) {
+		return (ReflectionData<T>) reflectionDataCache.get(clazz);
+	}
+
 	/**
 	 * Attempts to lookup an enum by its multiple names, typically the case for
 	 * multiple MC versions where names have changed but enum class stayed the same.
@@ -840,36 +804,14 @@ public final class ReflectionUtil {
 					return enumType == CompMaterial.class ? (E) material : (E) material.getMaterial();
 			}
 
-			// Since we obfuscate our plugins, enum names are changed.
-			// Therefore we look up a special fromKey method in some of our enums
-			boolean hasKey = false;
-			Method method = null;
-
-			try {
-				method = enumType.getDeclaredMethod("fromKey", String.class);
-
-				if (Modifier.isPublic(method.getModifiers()) && Modifier.isStatic(method.getModifiers()))
-					hasKey = true;
-
-			} catch (final Throwable t) {
-			}
-
-			// Only invoke fromName from non-Bukkit API since this gives unexpected results
-			if (method == null && !enumType.getName().contains("org.bukkit"))
-				try {
-					method = enumType.getDeclaredMethod("fromName", String.class);
-
-					if (Modifier.isPublic(method.getModifiers()) && Modifier.isStatic(method.getModifiers()))
-						hasKey = true;
+			final ReflectionData<E> data = getReflectionData(enumType);
+			final Method method = data.getEnumKeyMethod();
 
-				} catch (final Throwable t) {
-				}
-
-			if (hasKey)
+			if (method != null)
 				return (E) method.invoke(null, name);
 
 			// Resort to enum name
-			return Enum.valueOf(enumType, name);
+			return data.getEnumConstant(name);
 
 		} catch (final IllegalArgumentException ex) {
 			return null;
@@ -907,6 +849,79 @@ public final class ReflectionUtil {
 		return methods.toString();
 	}
 
+	// ------------------------------------------------------------------------------------------
+	// Method handles
+	// ------------------------------------------------------------------------------------------
+
+	/**
+	 * Return a cached method handle for the method, faster than {@link Method#invoke(Object, Object...)}
+	 * when called very often, such as for every packet
+	 *
+	 * @param method
+	 * @return
+	 */
+	public static MethodHandle getMethodHandle(@NonNull final Method method) {
+		return unreflect(method, getReflectionData(method.getDeclaringClass()).handleCache, () -> MethodHandles.lookup().unreflect(method));
+	}
+
+	/**
+	 * Return a cached method handle for the constructor
+	 *
+	 * @param constructor
+	 * @return
+	 */
+	public static MethodHandle getConstructorHandle(@NonNull final Constructor<?> constructor) {
+		return unreflect(constructor, getReflectionData(constructor.getDeclaringClass()).handleCache, () -> MethodHandles.lookup().unreflectConstructor(constructor));
+	}
+
+	/**
+	 * Return a cached method handle reading the field
+	 *
+	 * @param field
+	 * @return
+	 */
+	public static MethodHandle getFieldGetter(@NonNull final Field field) {
+		return unreflect(field, getReflectionData(field.getDeclaringClass()).handleCache, () -> MethodHandles.lookup().unreflectGetter(field));
+	}
+
+	/**
+	 * Return a cached method handle writing the field, not possible for static final fields
+	 *
+	 * @param field
+	 * @return
+	 */
+	public static MethodHandle getFieldSetter(@NonNull final Field field) {
+		return unreflect(field, getReflectionData(field.getDeclaringClass()).fieldSetterCache, () -> MethodHandles.lookup().unreflectSetter(field));
+	}
+
+	/*
+	 * Make the member accessible and create its handle once
+	 */
+	private static <K extends AccessibleObject> MethodHandle unreflect(final K member, final Map<? super K, MethodHandle> cache, final HandleFactory factory) {
+		MethodHandle handle = cache.get(member);
+
+		if (handle == null)
+			try {
+				member.setAccessible(true);
+
+				handle = factory.create();
+				cache.put(member, handle);
+
+			} catch (final IllegalAccessException ex) {
+				throw new ReflectionException(ex, "Could not access " + member);
+			}
+
+		return handle;
+	}
+
+	/*
+	 * Creates a method handle
+	 */
+	@FunctionalInterface
+	private interface HandleFactory {
+		MethodHandle create() throws IllegalAccessException;
+	}
+
 	// ------------------------------------------------------------------------------------------
 	// JavaPlugin related methods
 	// ------------------------------------------------------------------------------------------
@@ -1085,137 +1100,206 @@ public final class ReflectionUtil {
 	/* Classes */
 	/* ------------------------------------------------------------------------------- */
 
+	/*
+	 * Memoizes lookups in one class, including missing members so that
+	 * we do not throw and catch exceptions every time
+	 */
 	private static final class ReflectionData<T> {
+
+		/**
+		 * The most enum names we remember, since they may come from user input
+		 */
+		private static final int MAX_ENUM_NAMES = 1024;
+
 		private final Class<T> clazz;
 
+		private final Map<List<Object>, Optional<Constructor<T>>> constructorCache = new ConcurrentHashMap<>();
+		private final Map<List<Object>, Optional<Method>> methodCache = new ConcurrentHashMap<>();
+		private final Map<String, Optional<Field>> fieldCache = new ConcurrentHashMap<>();
+		private final Map<String, Optional<T>> enumConstantCache = new ConcurrentHashMap<>();
+
+		/**
+		 * Method handles for members declared in this class, see {@link ReflectionUtil#getMethodHandle(Method)}
+		 */
+		private final Map<Object, MethodHandle> handleCache = new ConcurrentHashMap<>();
+		private final Map<Field, MethodHandle> fieldSetterCache = new ConcurrentHashMap<>();
+		private volatile Optional<Method> enumKeyMethod;
+
 		ReflectionData(final Class<T> clazz) {
 			this.clazz = clazz;
 		}
 
-		//private final Map<String, Collection<Method>> methodCache = new ConcurrentHashMap<>();
-		private final Map<Integer, Constructor<?>> constructorCache = new ConcurrentHashMap<>();
-		private final Map<String, Field> fieldCache = new ConcurrentHashMap<>();
-		private final Collection<String> fieldGuard = ConcurrentHashMap.newKeySet();
-		private final Collection<Integer> constructorGuard = ConcurrentHashMap.newKeySet();
-
-		public void cacheConstructor(final Constructor<T> constructor) {
-			final List<Class<?>> classes = new ArrayList<>();
-
-			for (final Class<?> param : constructor.getParameterTypes()) {
-				Valid.checkNotNull(param, "Argument cannot be null when instatiating " + this.clazz);
-
-				classes.add(param);
-			}
+		/*
+		 * Return the public constructor, or declared if none, or null
+		 */
+		Constructor<T> getConstructor(final Class<?>... paramTypes) {
+			return this.lookup(this.constructorCache, key("public", paramTypes), () -> {
+				try {
+					return this.clazz.getConstructor(paramTypes);
 
-			this.constructorCache.put(Arrays.hashCode(classes.toArray(new Class<?>[0])), constructor);
+				} catch (final NoSuchMethodException ex) {
+					return this.clazz.getDeclaredConstructor(paramTypes);
+				}
+			});
 		}
 
-		public Constructor<T> getDeclaredConstructor(final Class<?>... paramTypes) throws NoSuchMethodException {
-			final Integer hashCode = Arrays.hashCode(paramTypes);
+		/*
+		 * Return the declared constructor or null
+		 */
+		Constructor<T> getDeclaredConstructor(final Class<?>... paramTypes) {
+			return this.lookup(this.constructorCache, key("declared", paramTypes), () -> this.clazz.getDeclaredConstructor(paramTypes));
+		}
 
-			if (this.constructorCache.containsKey(hashCode))
-				return (Constructor<T>) this.constructorCache.get(hashCode);
+		/*
+		 * Return the public method with the exact parameters or null
+		 */
+		Method getMethod(final String name, final Class<?>... paramTypes) {
+			return this.lookup(this.methodCache, key(name, paramTypes), () -> this.clazz.getMethod(name, paramTypes));
+		}
 
-			if (this.constructorGuard.contains(hashCode)) {
-				while (this.constructorGuard.contains(hashCode)) {
+		/*
+		 * Return the declared method in this class or its super classes or null
+		 */
+		Method findDeclaredMethod(final String name, final Class<?>... paramTypes) {
+			return this.lookup(this.methodCache, key("declared " + name, paramTypes), () -> {
+				for (Class<?> type = this.clazz; type != null && !type.equals(Object.class); type = type.getSuperclass())
+					try {
+						return type.getDeclaredMethod(name, paramTypes);
 
-				} // Wait for other thread;
-				return this.getDeclaredConstructor(paramTypes);
-			}
+					} catch (final NoSuchMethodException ex) {
+					}
 
-			this.constructorGuard.add(hashCode);
+				return null;
+			});
+		}
 
-			try {
-				final Constructor<T> constructor = this.clazz.getDeclaredConstructor(paramTypes);
+		/*
+		 * Return the declared field in this class or null
+		 */
+		Field getDeclaredField(final String name) {
+			return this.lookup(this.fieldCache, name, () -> this.clazz.getDeclaredField(name));
+		}
 
-				this.cacheConstructor(constructor);
+		/*
+		 * Return the field declared in this class or its super classes or null
+		 */
+		Field findField(final String name) {
+			return this.lookup(this.fieldCache, "super " + name, () -> {
 
-				return constructor;
+				// note: getDeclaredFields() fails if any of the fields are classes that cannot be loaded
+				for (Class<?> type = this.clazz; type != null && !type.equals(Object.class); type = type.getSuperclass())
+					for (final Field field : type.getDeclaredFields())
+						if (field.getName().equals(name))
+							return field;
 
-			} finally {
-				this.constructorGuard.remove(hashCode);
-			}
+				return null;
+			});
 		}
 
-		public Constructor<T> getConstructor(final Class<?>... paramTypes) throws NoSuchMethodException {
-			final Integer hashCode = Arrays.hashCode(paramTypes);
+		/*
+		 * Since we obfuscate our plugins, enum names are changed. Therefore we look up
+		 * a special public static fromKey method in some of our enums, or fromName outside of Bukkit
+		 */
+		Method getEnumKeyMethod() {
+			Optional<Method> keyMethod = this.enumKeyMethod;
+
+			if (keyMethod == null) {
+				Method method = null;
 
-			if (this.constructorCache.containsKey(hashCode))
-				return (Constructor<T>) this.constructorCache.get(hashCode);
+				try {
+					method = this.clazz.getDeclaredMethod("fromKey", String.class);
 
-			if (this.constructorGuard.contains(hashCode)) {
-				while (this.constructorGuard.contains(hashCode)) {
-					// Wait for other thread;
+				} catch (final Throwable t) {
 				}
 
-				return this.getConstructor(paramTypes);
+				// Only invoke fromName from non-Bukkit API since this gives unexpected results
+				if (method == null && !this.clazz.getName().contains("org.bukkit"))
+					try {
+						method = this.clazz.getDeclaredMethod("fromName", String.class);
+
+					} catch (final Throwable t) {
+					}
+
+				if (method != null && (!Modifier.isPublic(method.getModifiers()) || !Modifier.isStatic(method.getModifiers())))
+					method = null;
+
+				keyMethod = Optional.ofNullable(method);
+				this.enumKeyMethod = keyMethod;
 			}
 
-			this.constructorGuard.add(hashCode);
+			return keyMethod.orElse(null);
+		}
 
-			try {
-				final Constructor<T> constructor = this.clazz.getConstructor(paramTypes);
+		/*
+		 * Return the enum constant by its exact name or null
+		 */
+		T getEnumConstant(final String name) {
+			Optional<T> constant = this.enumConstantCache.get(name);
 
-				this.cacheConstructor(constructor);
+			if (constant == null) {
+				T found = null;
 
-				return constructor;
+				for (final T value : this.clazz.getEnumConstants())
+					if (((Enum<?>) value).name().equals(name)) {
+						found = value;
 
-			} finally {
-				this.constructorGuard.remove(hashCode);
-			}
-		}
+						break;
+					}
+
+				constant = Optional.ofNullable(found);
 
-		/*public void cacheMethod(final Method method) {
-			methodCache.computeIfAbsent(method.getName(), unused -> ConcurrentHashMap.newKeySet()).add(method);
-		}*/
-
-		/*public Method getDeclaredMethod(final String name, final Class<?>... paramTypes) throws NoSuchMethodException {
-			if (methodCache.containsKey(name)) {
-				final Collection<Method> methods = methodCache.get(name);
-		
-				for (final Method method : methods)
-					if (Arrays.equals(paramTypes, method.getParameterTypes()))
-						return method;
+				if (this.enumConstantCache.size() < MAX_ENUM_NAMES)
+					this.enumConstantCache.put(name, constant);
 			}
-		
-			final Method method = clazz.getDeclaredMethod(name, paramTypes);
-		
-			cacheMethod(method);
-		
-			return method;
-		}*/
-
-		public void cacheField(final Field field) {
-			this.fieldCache.put(field.getName(), field);
+
+			return constant.orElse(null);
 		}
 
-		public Field getDeclaredField(final String name) throws NoSuchFieldException {
+		/*
+		 * Return the cached member, or look it up, make it accessible and remember it,
+		 * remembering it is missing if the lookup throws or returns null
+		 */
+		private <K, M extends AccessibleObject> M lookup(final Map<K, Optional<M>> cache, final K key, final MemberFinder<M> finder) {
+			Optional<M> cached = cache.get(key);
+
+			if (cached == null) {
+				M member;
 
-			if (this.fieldCache.containsKey(name))
-				return this.fieldCache.get(name);
+				try {
+					member = finder.find();
 
-			if (this.fieldGuard.contains(name)) {
-				while (this.fieldGuard.contains(name)) {
+				} catch (final ReflectiveOperationException ex) {
+					member = null;
 				}
 
-				return this.getDeclaredField(name);
-			}
+				if (member != null)
+					member.setAccessible(true);
 
-			this.fieldGuard.add(name);
+				cached = Optional.ofNullable(member);
+				cache.put(key, cached);
+			}
 
-			try {
-				final Field field = this.clazz.getDeclaredField(name);
+			return cached.orElse(null);
+		}
 
-				this.cacheField(field);
+		private static List<Object> key(final String name, final Class<?>[] paramTypes) {
+			final Object[] key = new Object[paramTypes.length + 1];
 
-				return field;
+			key[0] = name;
+			System.arraycopy(paramTypes, 0, key, 1, paramTypes.length);
 
-			} finally {
-				this.fieldGuard.remove(name);
-			}
+			return Arrays.asList(key);
 		}
 	}
 
+	/*
+	 * Looks up a member, returning null or throwing if it does not exist
+	 */
+	@FunctionalInterface
+	private interface MemberFinder<M> {
+		M find() throws ReflectiveOperationException;
+	}
+
 	/**
 	 * Represents an exception during reflection operation
 	 */
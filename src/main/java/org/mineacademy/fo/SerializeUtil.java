@@ -1,18 +1,24 @@
 package org.mineacademy.fo;
 
 import java.awt.Color;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
@@ -31,6 +37,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 import org.mineacademy.fo.MinecraftVersion.V;
+import org.mineacademy.fo.ReflectionUtil.ReflectionException;
 import org.mineacademy.fo.collection.SerializedMap;
 import org.mineacademy.fo.collection.StrictCollection;
 import org.mineacademy.fo.collection.StrictMap;
@@ -74,6 +81,16 @@ public final class SerializeUtil {
 	 */
 	private static Map<Class<Object>, Function<Object, String>> serializers = new HashMap<>();
 
+	/**
+	 * How each class is serialized, resolved once on first use
+	 */
+	private static final Map<Class<?>, SerializeKind> serializeKinds = new ConcurrentHashMap<>();
+
+	/**
+	 * The static deserialize and getByName methods of each class, resolved once on first use
+	 */
+	private static final Map<Class<?>, DeserializerCodec> deserializerCodecs = new ConcurrentHashMap<>();
+
 	/**
 	 * Add a custom serializer to the list
 	 *
@@ -116,217 +133,332 @@ public final class SerializeUtil {
 		final boolean isJson = mode == Mode.JSON;
 		object = Remain.getRootOfSectionPathData(object);
 
-		if (serializers.containsKey(object.getClass()))
-			return serializers.get(object.getClass()).apply(object);
+		final Function<Object, String> serializer = serializers.get(object.getClass());
 
-		if (object instanceof ConfigSerializable)
-			return serialize(mode, ((ConfigSerializable) object).serialize().serialize());
+		if (serializer != null)
+			return serializer.apply(object);
 
-		else if (object instanceof StrictCollection)
-			return serialize(mode, ((StrictCollection) object).serialize());
+		switch (getSerializeKind(object.getClass())) {
 
-		else if (object instanceof ChatColor)
-			return ((ChatColor) object).name();
+			case CONFIG_SERIALIZABLE:
+				return serialize(mode, ((ConfigSerializable) object).serialize().serialize());
 
-		else if (object instanceof CompChatColor)
-			return ((CompChatColor) object).toSaveableString();
+			case STRICT_COLLECTION:
+				return serialize(mode, ((StrictCollection) object).serialize());
 
-		else if (object instanceof net.md_5.bungee.api.ChatColor) {
-			final net.md_5.bungee.api.ChatColor color = (net.md_5.bungee.api.ChatColor) object;
+			case CHAT_COLOR:
+				return ((ChatColor) object).name();
 
-			return MinecraftVersion.atLeast(V.v1_16) ? color.toString() : color.name();
-		}
+			case COMP_CHAT_COLOR:
+				return ((CompChatColor) object).toSaveableString();
 
-		else if (object instanceof CompMaterial)
-			return object.toString();
+			case BUNGEE_CHAT_COLOR: {
+				final net.md_5.bungee.api.ChatColor color = (net.md_5.bungee.api.ChatColor) object;
 
-		else if (object instanceof Location)
-			return serializeLoc((Location) object);
+				return MinecraftVersion.atLeast(V.v1_16) ? color.toString() : color.name();
+			}
 
-		else if (object instanceof BoxedMessage) {
-			final String message = ((BoxedMessage) object).getMessage();
+			case LOCATION:
+				return serializeLoc((Location) object);
 
-			return message == null || "".equals(message) || "null".equals(message) ? null : message;
+			case BOXED_MESSAGE: {
+				final String message = ((BoxedMessage) object).getMessage();
 
-		} else if (object instanceof UUID)
-			return object.toString();
+				return message == null || "".equals(message) || "null".equals(message) ? null : message;
+			}
 
-		else if (object instanceof Enum<?>)
-			return object.toString();
+			case TO_STRING:
+				return object.toString();
 
-		else if (object instanceof CommandSender)
-			return ((CommandSender) object).getName();
+			case COMMAND_SENDER:
+				return ((CommandSender) object).getName();
 
-		else if (object instanceof World)
-			return ((World) object).getName();
+			case WORLD:
+				return ((World) object).getName();
 
-		else if (object instanceof Entity)
-			return Remain.getName((Entity) object);
+			case ENTITY:
+				return Remain.getName((Entity) object);
 
-		else if (object instanceof PotionEffectType)
-			return ((PotionEffectType) object).getName();
+			case POTION_EFFECT_TYPE:
+				return ((PotionEffectType) object).getName();
 
-		else if (object instanceof PotionEffect)
-			return serializePotionEffect((PotionEffect) object);
+			case POTION_EFFECT:
+				return serializePotionEffect((PotionEffect) object);
 
-		else if (object instanceof Enchantment)
-			return ((Enchantment) object).getName();
+			case ENCHANTMENT:
+				return ((Enchantment) object).getName();
 
-		else if (object instanceof ItemCreator)
-			return serialize(mode, ((ItemCreator) object).make());
+			case ITEM_CREATOR:
+				return serialize(mode, ((ItemCreator) object).make());
 
-		else if (object instanceof SimpleTime)
-			return ((SimpleTime) object).getRaw();
+			case SIMPLE_TIME:
+				return ((SimpleTime) object).getRaw();
 
-		else if (object instanceof SimpleSound)
-			return ((SimpleSound) object).toString();
+			case COLOR:
+				return "#" + ((Color) object).getRGB();
 
-		else if (object instanceof Color)
-			return "#" + ((Color) object).getRGB();
+			case RANGED_VALUE:
+				return ((RangedValue) object).toLine();
 
-		else if (object instanceof RangedValue)
-			return ((RangedValue) object).toLine();
+			case RANGED_SIMPLE_TIME:
+				return ((RangedSimpleTime) object).toLine();
 
-		else if (object instanceof RangedSimpleTime)
-			return ((RangedSimpleTime) object).toLine();
+			case BASE_COMPONENT:
+				return Remain.toJson((BaseComponent) object);
 
-		else if (object instanceof BaseComponent)
-			return Remain.toJson((BaseComponent) object);
+			case BASE_COMPONENT_ARRAY:
+				return Remain.toJson((BaseComponent[]) object);
 
-		else if (object instanceof BaseComponent[])
-			return Remain.toJson((BaseComponent[]) object);
+			case HOVER_EVENT: {
+				final HoverEvent event = (HoverEvent) object;
+				final SerializedMap map = SerializedMap.ofArray("Action", event.getAction(), "Value", event.getValue());
 
-		else if (object instanceof HoverEvent) {
-			final HoverEvent event = (HoverEvent) object;
-			final SerializedMap map = SerializedMap.ofArray("Action", event.getAction(), "Value", event.getValue());
+				return isJson ? serialize(mode, map.asMap()) : map.serialize();
+			}
 
-			return isJson ? serialize(mode, map.asMap()) : map.serialize();
-		}
+			case CLICK_EVENT: {
+				final ClickEvent event = (ClickEvent) object;
+				final SerializedMap map = SerializedMap.ofArray("Action", event.getAction(), "Value", event.getValue());
 
-		else if (object instanceof ClickEvent) {
-			final ClickEvent event = (ClickEvent) object;
-			final SerializedMap map = SerializedMap.ofArray("Action", event.getAction(), "Value", event.getValue());
+				return isJson ? serialize(mode, map.asMap()) : map.serialize();
+			}
 
-			return isJson ? serialize(mode, map.asMap()) : map.serialize();
-		}
+			case PATH:
+				throw new FoException("Cannot serialize Path " + object + ", did you mean to convert it into a name?");
+
+			case COLLECTION: {
+				if (isJson) {
+					final JSONArray jsonList = new JSONArray();
 
-		else if (object instanceof Path)
-			throw new FoException("Cannot serialize Path " + object + ", did you mean to convert it into a name?");
+					if (object instanceof Iterable || object instanceof IsInList)
+						for (final Object element : object instanceof IsInList ? ((IsInList<?>) object).getList() : (Iterable<?>) object)
+							addJsonElement(element, jsonList);
 
-		else if (object instanceof Iterable || object.getClass().isArray() || object instanceof IsInList) {
+					else
+						for (final Object element : (Object[]) object)
+							addJsonElement(element, jsonList);
 
-			if (isJson) {
-				final JSONArray jsonList = new JSONArray();
+					return jsonList;
+				}
 
-				if (object instanceof Iterable || object instanceof IsInList)
-					for (final Object element : object instanceof IsInList ? ((IsInList<?>) object).getList() : (Iterable<?>) object)
-						addJsonElement(element, jsonList);
+				else {
+					final List<Object> serialized = new ArrayList<>();
 
-				else
-					for (final Object element : (Object[]) object)
-						addJsonElement(element, jsonList);
+					if (object instanceof Iterable || object instanceof IsInList)
+						for (final Object element : object instanceof IsInList ? ((IsInList<?>) object).getList() : (Iterable<?>) object)
+							serialized.add(serialize(mode, element));
 
-				return jsonList;
-			}
+					else
+						for (final Object element : (Object[]) object)
+							serialized.add(serialize(mode, element));
 
-			else {
-				final List<Object> serialized = new ArrayList<>();
+					return serialized;
+				}
+			}
 
-				if (object instanceof Iterable || object instanceof IsInList)
-					for (final Object element : object instanceof IsInList ? ((IsInList<?>) object).getList() : (Iterable<?>) object)
-						serialized.add(serialize(mode, element));
+			case MAP: {
+				final Map<Object, Object> oldMap = object instanceof StrictMap ? ((StrictMap<Object, Object>) object).getSource() : (Map<Object, Object>) object;
 
-				else
-					for (final Object element : (Object[]) object)
-						serialized.add(serialize(mode, element));
+				if (isJson) {
+					final JSONObject json = new JSONObject();
 
-				return serialized;
+					for (final Map.Entry<Object, Object> entry : oldMap.entrySet()) {
+						final Object key = serialize(mode, entry.getKey());
+						final Object value = serialize(mode, entry.getValue());
 
-			}
+						if (key != null)
+							Valid.checkBoolean(key instanceof String || key instanceof Number,
+									"JSON requires Map to be translated into keys that are String or Numbers, found " + key.getClass().getSimpleName() + " key: " + key + " with value '" + value + "'");
 
-		} else if (object instanceof Map || object instanceof StrictMap) {
-			final Map<Object, Object> oldMap = object instanceof StrictMap ? ((StrictMap<Object, Object>) object).getSource() : (Map<Object, Object>) object;
+						if (value != null)
+							Valid.checkBoolean(value instanceof String || value instanceof Boolean || value instanceof Character || value instanceof Number || value instanceof List
+									|| value instanceof JSONObject || value instanceof JSONArray,
+									"JSON requires Map to be translated into values that are String or List only, found " + value.getClass().getSimpleName() + ": " + value + " for key " + key);
 
-			if (isJson) {
-				final JSONObject json = new JSONObject();
+						if (value instanceof List) {
+							final JSONArray array = new JSONArray();
 
-				for (final Map.Entry<Object, Object> entry : oldMap.entrySet()) {
-					final Object key = serialize(mode, entry.getKey());
-					final Object value = serialize(mode, entry.getValue());
+							for (final Object listValue : (List<?>) value)
+								if (listValue == null || listValue instanceof Boolean || listValue instanceof Character || listValue instanceof String || listValue instanceof Number
+										|| listValue instanceof JSONArray || listValue instanceof JSONObject)
+									array.add(listValue);
 
-					if (key != null)
-						Valid.checkBoolean(key instanceof String || key instanceof Number,
-								"JSON requires Map to be translated into keys that are String or Numbers, found " + key.getClass().getSimpleName() + " key: " + key + " with value '" + value + "'");
+								else
+									throw new FoException("JSON requires List to only contain primitive types or strings, found " + listValue.getClass().getSimpleName() + ": " + listValue);
 
-					if (value != null)
-						Valid.checkBoolean(value instanceof String || value instanceof Boolean || value instanceof Character || value instanceof Number || value instanceof List
-								|| value instanceof JSONObject || value instanceof JSONArray,
-								"JSON requires Map to be translated into values that are String or List only, found " + value.getClass().getSimpleName() + ": " + value + " for key " + key);
+							json.put(key == null ? null : key.toString(), array);
 
-					if (value instanceof List) {
-						final JSONArray array = new JSONArray();
+						} else
+							json.put(key == null ? null : key.toString(), value == null ? null : value);
+					}
 
-						for (final Object listValue : (List<?>) value)
-							if (listValue == null || listValue instanceof Boolean || listValue instanceof Character || listValue instanceof String || listValue instanceof Number
-									|| listValue instanceof JSONArray || listValue instanceof JSONObject)
-								array.add(listValue);
+					return json;
+				}
 
-							else
-								throw new FoException("JSON requires List to only contain primitive types or strings, found " + listValue.getClass().getSimpleName() + ": " + listValue);
+				else {
+					final Map<Object, Object> newMap = new LinkedHashMap<>();
 
-						json.put(key == null ? null : key.toString(), array);
+					for (final Map.Entry<Object, Object> entry : oldMap.entrySet())
+						newMap.put(serialize(mode, entry.getKey()), serialize(mode, entry.getValue()));
 
-					} else
-						json.put(key == null ? null : key.toString(), value == null ? null : value);
+					return newMap;
 				}
+			}
 
-				return json;
+			case MEMORY_SECTION:
+				return serialize(mode, Common.getMapFromSection(object));
 
-			}
+			case CONFIG_SECTION:
+				return serialize(mode, ((ConfigSection) object).getValues(true));
 
-			else {
-				final Map<Object, Object> newMap = new LinkedHashMap<>();
+			case PATTERN:
+				return ((Pattern) object).pattern();
+
+			case PRIMITIVE:
+				return object;
+
+			case BIG_DECIMAL:
+				return ((BigDecimal) object).toPlainString();
 
-				for (final Map.Entry<Object, Object> entry : oldMap.entrySet())
-					newMap.put(serialize(mode, entry.getKey()), serialize(mode, entry.getValue()));
+			case CONFIGURATION_SERIALIZABLE: {
+				if (isJson) {
+					if (object instanceof ItemStack)
+						return JsonItemStack.toJson((ItemStack) object);
 
-				return newMap;
+					throw new FoException("serializing " + object.getClass().getSimpleName() + " to JSON is not implemented! Please serialize it to string manually first!");
+				}
+
+				return object;
 			}
+
+			default:
+				throw new SerializeFailedException("Does not know how to serialize " + object.getClass().getSimpleName() + "! Does it extends ConfigSerializable? Data: " + object);
 		}
+	}
+
+	/*
+	 * Return how objects of the given class are serialized, resolving it only once per class
+	 */
+	private static SerializeKind getSerializeKind(final Class<?> type) {
+		SerializeKind kind = serializeKinds.get(type);
 
-		else if (object instanceof MemorySection)
-			return serialize(mode, Common.getMapFromSection(object));
+		if (kind == null) {
+			kind = resolveSerializeKind(type);
 
-		else if (object instanceof ConfigSection)
-			return serialize(mode, ((ConfigSection) object).getValues(true));
+			serializeKinds.put(type, kind);
+		}
 
-		else if (object instanceof Pattern)
-			return ((Pattern) object).pattern();
+		return kind;
+	}
 
-		else if (object instanceof Integer || object instanceof Double || object instanceof Float || object instanceof Long || object instanceof Short
-				|| object instanceof String || object instanceof Boolean || object instanceof Character)
-			return object;
+	/*
+	 * Find how the given class is serialized, the order matters since classes may implement many of these
+	 */
+	private static SerializeKind resolveSerializeKind(final Class<?> type) {
+		if (ConfigSerializable.class.isAssignableFrom(type))
+			return SerializeKind.CONFIG_SERIALIZABLE;
 
-		else if (object instanceof BigDecimal) {
-			final BigDecimal big = (BigDecimal) object;
+		else if (StrictCollection.class.isAssignableFrom(type))
+			return SerializeKind.STRICT_COLLECTION;
 
-			return big.toPlainString();
-		}
+		else if (ChatColor.class.isAssignableFrom(type))
+			return SerializeKind.CHAT_COLOR;
 
-		else if (object instanceof ConfigurationSerializable) {
+		else if (CompChatColor.class.isAssignableFrom(type))
+			return SerializeKind.COMP_CHAT_COLOR;
 
-			if (isJson) {
-				if (object instanceof ItemStack)
-					return JsonItemStack.toJson((ItemStack) object);
+		else if (net.md_5.bungee.api.ChatColor.class.isAssignableFrom(type))
+			return SerializeKind.BUNGEE_CHAT_COLOR;
 
-				throw new FoException("serializing " + object.getClass().getSimpleName() + " to JSON is not implemented! Please serialize it to string manually first!");
-			}
+		else if (CompMaterial.class.isAssignableFrom(type))
+			return SerializeKind.TO_STRING;
 
-			return object;
+		else if (Location.class.isAssignableFrom(type))
+			return SerializeKind.LOCATION;
 
-		}
+		else if (BoxedMessage.class.isAssignableFrom(type))
+			return SerializeKind.BOXED_MESSAGE;
+
+		else if (UUID.class.isAssignableFrom(type) || Enum.class.isAssignableFrom(type))
+			return SerializeKind.TO_STRING;
+
+		else if (CommandSender.class.isAssignableFrom(type))
+			return SerializeKind.COMMAND_SENDER;
+
+		else if (World.class.isAssignableFrom(type))
+			return SerializeKind.WORLD;
+
+		else if (Entity.class.isAssignableFrom(type))
+			return SerializeKind.ENTITY;
+
+		else if (PotionEffectType.class.isAssignableFrom(type))
+			return SerializeKind.POTION_EFFECT_TYPE;
+
+		else if (PotionEffect.class.isAssignableFrom(type))
+			return SerializeKind.POTION_EFFECT;
+
+		else if (Enchantment.class.isAssignableFrom(type))
+			return SerializeKind.ENCHANTMENT;
+
+		else if (ItemCreator.class.isAssignableFrom(type))
+			return SerializeKind.ITEM_CREATOR;
+
+		else if (SimpleTime.class.isAssignableFrom(type))
+			return SerializeKind.SIMPLE_TIME;
+
+		else if (SimpleSound.class.isAssignableFrom(type))
+			return SerializeKind.TO_STRING;
+
+		else if (Color.class.isAssignableFrom(type))
+			return SerializeKind.COLOR;
+
+		else if (RangedValue.class.isAssignableFrom(type))
+			return SerializeKind.RANGED_VALUE;
+
+		else if (RangedSimpleTime.class.isAssignableFrom(type))
+			return SerializeKind.RANGED_SIMPLE_TIME;
 
-		throw new SerializeFailedException("Does not know how to serialize " + object.getClass().getSimpleName() + "! Does it extends ConfigSerializable? Data: " + object);
+		else if (BaseComponent.class.isAssignableFrom(type))
+			return SerializeKind.BASE_COMPONENT;
+
+		else if (BaseComponent[].class.isAssignableFrom(type))
+			return SerializeKind.BASE_COMPONENT_ARRAY;
+
+		else if (HoverEvent.class.isAssignableFrom(type))
+			return SerializeKind.HOVER_EVENT;
+
+		else if (ClickEvent.class.isAssignableFrom(type))
+			return SerializeKind.CLICK_EVENT;
+
+		else if (Path.class.isAssignableFrom(type))
+			return SerializeKind.PATH;
+
+		else if (Iterable.class.isAssignableFrom(type) || type.isArray() || IsInList.class.isAssignableFrom(type))
+			return SerializeKind.COLLECTION;
+
+		else if (Map.class.isAssignableFrom(type) || StrictMap.class.isAssignableFrom(type))
+			return SerializeKind.MAP;
+
+		else if (MemorySection.class.isAssignableFrom(type))
+			return SerializeKind.MEMORY_SECTION;
+
+		else if (ConfigSection.class.isAssignableFrom(type))
+			return SerializeKind.CONFIG_SECTION;
+
+		else if (Pattern.class.isAssignableFrom(type))
+			return SerializeKind.PATTERN;
+
+		else if (type == Integer.class || type == Double.class || type == Float.class || type == Long.class || type == Short.class
+				|| type == String.class || type == Boolean.class || type == Character.class)
+			return SerializeKind.PRIMITIVE;
+
+		else if (BigDecimal.class.isAssignableFrom(type))
+			return SerializeKind.BIG_DECIMAL;
+
+		else if (ConfigurationSerializable.class.isAssignableFrom(type))
+			return SerializeKind.CONFIGURATION_SERIALIZABLE;
+
+		return SerializeKind.UNKNOWN;
 	}
 
 	/*
@@ -641,35 +773,34 @@ public final class SerializeUtil {
 
 		// Try to call our own serializers
 		else if (ConfigSerializable.class.isAssignableFrom(classOf)) {
+			final DeserializerCodec codec = getDeserializerCodec(classOf);
+
 			if (parameters != null && parameters.length > 0) {
-				final List<Class<?>> argumentClasses = new ArrayList<>();
-				final List<Object> arguments = new ArrayList<>();
+				final Class<?>[] argumentClasses = new Class<?>[parameters.length + 1];
+				final Object[] arguments = new Object[parameters.length + 1];
 
 				// Build parameters
-				argumentClasses.add(SerializedMap.class);
-				for (final Object param : parameters)
-					argumentClasses.add(param.getClass());
+				argumentClasses[0] = SerializedMap.class;
+				arguments[0] = isJson ? SerializedMap.fromJson(object.toString()) : SerializedMap.of(object);
 
-				// Build parameter instances
-				arguments.add(isJson ? SerializedMap.fromJson(object.toString()) : SerializedMap.of(object));
-				Collections.addAll(arguments, parameters);
+				for (int i = 0; i < parameters.length; i++) {
+					argumentClasses[i + 1] = parameters[i].getClass();
+					arguments[i + 1] = parameters[i];
+				}
 
 				// Find deserialize(SerializedMap, args[]) method
-				final Method deserialize = ReflectionUtil.getMethod(classOf, "deserialize", argumentClasses.toArray(new Class[argumentClasses.size()]));
+				final MethodHandle deserialize = codec.getDeserializer(argumentClasses);
 
 				Valid.checkNotNull(deserialize,
 						"Expected " + classOf.getSimpleName() + " to have a public static deserialize(SerializedMap, " + Common.join(argumentClasses) + ") method to deserialize: " + object + " when params were given: " + Common.join(parameters));
 
-				Valid.checkBoolean(argumentClasses.size() == arguments.size(),
-						classOf.getSimpleName() + "#deserialize(SerializedMap, " + argumentClasses.size() + " args) expected, " + arguments.size() + " given to deserialize: " + object);
-
-				return ReflectionUtil.invokeStatic(deserialize, arguments.toArray());
+				return (T) codec.invoke(deserialize, arguments);
 			}
 
-			final Method deserialize = ReflectionUtil.getMethod(classOf, "deserialize", SerializedMap.class);
+			final MethodHandle deserialize = codec.getMapDeserializer();
 
 			if (deserialize != null)
-				return ReflectionUtil.invokeStatic(deserialize, isJson ? SerializedMap.fromJson(object.toString()) : SerializedMap.of(object));
+				return (T) codec.invoke(deserialize, new Object[] { isJson ? SerializedMap.fromJson(object.toString()) : SerializedMap.of(object) });
 
 			throw new SerializeFailedException("Unable to deserialize " + classOf.getSimpleName()
 					+ ", please write 'public static deserialize(SerializedMap map) or deserialize(SerializedMap map, X arg1, Y arg2, etc.) method to deserialize: " + object);
@@ -677,10 +808,11 @@ public final class SerializeUtil {
 
 		// Step 3 - Search for "getByName" method used by us or some Bukkit classes such as Enchantment
 		else if (object instanceof String) {
-			final Method method = ReflectionUtil.getMethod(classOf, "getByName", String.class);
+			final DeserializerCodec codec = getDeserializerCodec(classOf);
+			final MethodHandle method = codec.getByNameMethod();
 
 			if (method != null)
-				return ReflectionUtil.invokeStatic(method, object);
+				return (T) codec.invoke(method, new Object[] { object });
 		}
 
 		else if (classOf == Object.class) {
@@ -693,6 +825,21 @@ public final class SerializeUtil {
 		return (T) object;
 	}
 
+	/*
+	 * Return the cached deserializer methods of the given class, resolving them only once per class
+	 */
+	private static DeserializerCodec getDeserializerCodec(final Class<?> type) {
+		DeserializerCodec codec = deserializerCodecs.get(type);
+
+		if (codec == null) {
+			codec = new DeserializerCodec(type);
+
+			deserializerCodecs.put(type, codec);
+		}
+
+		return codec;
+	}
+
 	/**
 	 * Converts a string into location, see {@link #deserializeLocation(Object)} for how strings are saved
 	 * Decimals not supported, use {@link #deserializeLocationD(Object)} to use them
@@ -877,6 +1024,139 @@ public final class SerializeUtil {
 		}
 	}
 
+	/**
+	 * How an object is serialized, see {@link SerializeUtil#serialize(Mode, Object)}
+	 */
+	private enum SerializeKind {
+		CONFIG_SERIALIZABLE,
+		STRICT_COLLECTION,
+		CHAT_COLOR,
+		COMP_CHAT_COLOR,
+		BUNGEE_CHAT_COLOR,
+		LOCATION,
+		BOXED_MESSAGE,
+		TO_STRING,
+		COMMAND_SENDER,
+		WORLD,
+		ENTITY,
+		POTION_EFFECT_TYPE,
+		POTION_EFFECT,
+		ENCHANTMENT,
+		ITEM_CREATOR,
+		SIMPLE_TIME,
+		COLOR,
+		RANGED_VALUE,
+		RANGED_SIMPLE_TIME,
+		BASE_COMPONENT,
+		BASE_COMPONENT_ARRAY,
+		HOVER_EVENT,
+		CLICK_EVENT,
+		PATH,
+		COLLECTION,
+		MAP,
+		MEMORY_SECTION,
+		CONFIG_SECTION,
+		PATTERN,
+		PRIMITIVE,
+		BIG_DECIMAL,
+		CONFIGURATION_SERIALIZABLE,
+		UNKNOWN
+	}
+
+	/**
+	 * Holds the static deserialize(SerializedMap, ...) and getByName(String) methods
+	 * of a class as method handles, so that we only look them up once per class
+	 */
+	private static final class DeserializerCodec {
+
+		/**
+		 * The class we deserialize into
+		 */
+		private final Class<?> type;
+
+		/**
+		 * The deserialize(SerializedMap) method, or null if not found
+		 */
+		private final MethodHandle mapDeserializer;
+
+		/**
+		 * The getByName(String) method, or null if not found
+		 */
+		private final MethodHandle byNameMethod;
+
+		/**
+		 * The deserialize(SerializedMap, ...) methods by their argument classes, empty if not found
+		 */
+		private final Map<List<Class<?>>, Optional<MethodHandle>> deserializers = new ConcurrentHashMap<>();
+
+		private DeserializerCodec(final Class<?> type) {
+			this.type = type;
+
+			if (ConfigSerializable.class.isAssignableFrom(type)) {
+				this.mapDeserializer = resolve(type, "deserialize", SerializedMap.class);
+				this.byNameMethod = null;
+
+			} else {
+				this.mapDeserializer = null;
+				this.byNameMethod = resolve(type, "getByName", String.class);
+			}
+		}
+
+		/*
+		 * Return the deserialize(SerializedMap) method, or null
+		 */
+		private MethodHandle getMapDeserializer() {
+			return this.mapDeserializer;
+		}
+
+		/*
+		 * Return the getByName(String) method, or null
+		 */
+		private MethodHandle getByNameMethod() {
+			return this.byNameMethod;
+		}
+
+		/*
+		 * Return the deserialize method taking the given arguments, or null
+		 */
+		private MethodHandle getDeserializer(final Class<?>[] argumentClasses) {
+			return this.deserializers.computeIfAbsent(Arrays.asList(argumentClasses), key -> Optional.ofNullable(resolve(this.type, "deserialize", argumentClasses))).orElse(null);
+		}
+
+		/*
+		 * Invoke the given resolved static method
+		 */
+		private Object invoke(final MethodHandle handle, final Object[] arguments) {
+			try {
+				return handle.invokeExact(arguments);
+
+			} catch (final Throwable t) {
+				throw new ReflectionException(t, "Could not invoke static method of " + this.type + " with params " + Common.join(arguments, ", ", Common::simplify));
+			}
+		}
+
+		/*
+		 * Find the given static method and adapt it to take its arguments as an Object array
+		 */
+		private static MethodHandle resolve(final Class<?> type, final String name, final Class<?>... argumentClasses) {
+			final Method method = ReflectionUtil.getMethod(type, name, argumentClasses);
+
+			if (method == null)
+				return null;
+
+			Valid.checkBoolean(Modifier.isStatic(method.getModifiers()), "Method " + name + " in " + type + " must be static to be used for deserialization");
+
+			try {
+				return MethodHandles.lookup().unreflect(method)
+						.asSpreader(Object[].class, argumentClasses.length)
+						.asType(MethodType.methodType(Object.class, Object[].class));
+
+			} catch (final IllegalAccessException ex) {
+				throw new ReflectionException(ex, "Could not access method " + method);
+			}
+		}
+	}
+
 	/**
 	 * A simple class holding some of the potion names
 	 */
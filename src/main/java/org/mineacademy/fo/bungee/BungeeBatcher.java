@@ -0,0 +1,308 @@
+package org.mineacademy.fo.bungee;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.command.CommandSender;
+import org.mineacademy.fo.BungeeUtil;
+import org.mineacademy.fo.Common;
+import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.remain.Remain;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Collects plugin messages sent often, such as chat or player counts, and sends
+ * all messages queued for a channel within a few ticks together in one envelope.
+ * <p>
+ * Messages queued with {@link #queueLatest(String, String, BungeeMessageType, Object...)}
+ * replace the waiting message with the same key, so only the latest value is sent.
+ * The receiving {@link BungeeListener.BungeeListenerImpl} unpacks envelopes and handles
+ * their messages in the order they were queued.
+ * <p>
+ * Only works for listeners with {@link BungeeListener#isBinaryProtocol()} since the
+ * receivers must understand envelopes.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BungeeBatcher {
+
+	/**
+	 * The first two bytes of an envelope
+	 */
+	public static final int MAGIC = 0xF0DC;
+
+	/**
+	 * The largest envelope we pack, larger messages are sent alone
+	 */
+	private static final int MAX_ENVELOPE_LENGTH = BungeeFragmenter.MAX_MESSAGE_LENGTH;
+
+	/**
+	 * Waiting messages by channel in the order they were queued, replaced messages are null
+	 */
+	private static final Map<String, List<byte[]>> pending = new LinkedHashMap<>();
+
+	/**
+	 * The index of the waiting message for each key by channel
+	 */
+	private static final Map<String, Map<String, Integer>> latestIndexes = new HashMap<>();
+
+	/**
+	 * How many ticks we collect messages for before sending them
+	 */
+	private static int windowTicks = 1;
+
+	/**
+	 * Is a flush scheduled?
+	 */
+	private static boolean flushScheduled = false;
+
+	/**
+	 * Counters
+	 */
+	private static long messageCount = 0, replacedCount = 0, envelopeCount = 0;
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Sending
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Queue the message to be sent with other messages for the channel at the end of the window
+	 *
+	 * @param channel
+	 * @param action
+	 * @param data
+	 */
+	public static void queue(@NonNull String channel, @NonNull BungeeMessageType action, Object... data) {
+		queue(channel, null, action, data);
+	}
+
+	/**
+	 * Queue the message replacing any waiting message for the channel with the same key,
+	 * for data where only the latest value matters such as player counts
+	 *
+	 * @param channel
+	 * @param key
+	 * @param action
+	 * @param data
+	 */
+	public static void queueLatest(@NonNull String channel, @NonNull String key, @NonNull BungeeMessageType action, Object... data) {
+		queue(channel, key, action, data);
+	}
+
+	/*
+	 * Write the message right away so later changes to the data do not leak in and queue it
+	 */
+	private static void queue(String channel, String key, BungeeMessageType action, Object[] data) {
+		final BungeeListener listener = BungeeListener.findListener(channel);
+
+		Valid.checkBoolean(listener != null && listener.isBinaryProtocol(), "Batching messages requires a registered BungeeListener with binary protocol on channel " + channel);
+		Valid.checkBoolean(data.length == action.getContent().length, "Data count != valid values count in " + action + "! Given data: " + data.length + " vs needed: " + action.getContent().length);
+
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+
+		BungeeProtocol.writeHeader(out, listener, new UUID(0, 0), Remain.getServerName(), action);
+
+		for (Object datum : data) {
+			Valid.checkNotNull(datum, "Bungee object in array is null for " + action);
+
+			if (datum instanceof CommandSender)
+				datum = ((CommandSender) datum).getName();
+
+			BungeeProtocol.writeValue(out, datum);
+		}
+
+		add(channel, key, out.toByteArray());
+	}
+
+	private static synchronized void add(String channel, String key, byte[] message) {
+		final List<byte[]> messages = pending.computeIfAbsent(channel, c -> new ArrayList<>());
+
+		if (key != null) {
+			final Integer previous = latestIndexes.computeIfAbsent(channel, c -> new HashMap<>()).put(key, messages.size());
+
+			if (previous != null) {
+				messages.set(previous, null);
+
+				replacedCount++;
+			}
+		}
+
+		messages.add(message);
+		messageCount++;
+
+		if (!flushScheduled) {
+			flushScheduled = true;
+
+			Common.runLater(windowTicks, BungeeBatcher::flush);
+		}
+	}
+
+	/**
+	 * Send all waiting messages now, called automatically at the end of each window
+	 */
+	public static void flush() {
+		final Map<String, List<byte[]>> toSend;
+
+		synchronized (BungeeBatcher.class) {
+			flushScheduled = false;
+
+			if (pending.isEmpty())
+				return;
+
+			toSend = new LinkedHashMap<>(pending);
+
+			pending.clear();
+			latestIndexes.clear();
+		}
+
+		for (final Map.Entry<String, List<byte[]>> entry : toSend.entrySet())
+			for (final byte[] envelope : pack(entry.getValue()))
+				BungeeUtil.sendPluginMessageData(null, entry.getKey(), "batch", envelope);
+	}
+
+	/*
+	 * Pack the messages into as few envelopes as possible, sending large and lone messages as they are
+	 */
+	private static List<byte[]> pack(List<byte[]> messages) {
+		final List<byte[]> envelopes = new ArrayList<>();
+		final List<byte[]> current = new ArrayList<>();
+		int currentLength = 0;
+
+		for (final byte[] message : messages) {
+			if (message == null)
+				continue;
+
+			final int length = message.length + 5;
+
+			if (!current.isEmpty() && currentLength + length > MAX_ENVELOPE_LENGTH) {
+				envelopes.add(wrap(current));
+
+				current.clear();
+				currentLength = 0;
+			}
+
+			current.add(message);
+			currentLength += length;
+		}
+
+		if (!current.isEmpty())
+			envelopes.add(wrap(current));
+
+		return envelopes;
+	}
+
+	private static byte[] wrap(List<byte[]> messages) {
+		if (messages.size() == 1)
+			return messages.get(0);
+
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+
+		out.writeShort(MAGIC);
+		BungeeProtocol.writeVarInt(out, messages.size());
+
+		for (final byte[] message : messages) {
+			BungeeProtocol.writeVarInt(out, message.length);
+			out.write(message);
+		}
+
+		synchronized (BungeeBatcher.class) {
+			envelopeCount++;
+		}
+
+		return out.toByteArray();
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Receiving
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return true if the data is an envelope
+	 *
+	 * @param data
+	 * @return
+	 */
+	public static boolean isEnvelope(@NonNull byte[] data) {
+		return data.length >= 2 && ((data[0] & 0xFF) << 8 | data[1] & 0xFF) == MAGIC;
+	}
+
+	/**
+	 * Return the messages in the envelope in the order they were queued
+	 *
+	 * @param data
+	 * @return
+	 */
+	public static List<byte[]> unpack(@NonNull byte[] data) {
+		final ByteArrayDataInput in = ByteStreams.newDataInput(data);
+		Valid.checkBoolean(in.readUnsignedShort() == MAGIC, "Not a bungee message envelope");
+
+		final int count = BungeeProtocol.readVarInt(in);
+		Valid.checkBoolean(count >= 0 && count <= data.length, "Invalid message count " + count + " in bungee envelope");
+
+		final List<byte[]> messages = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			final int length = BungeeProtocol.readVarInt(in);
+			Valid.checkBoolean(length >= 0 && length <= data.length, "Invalid message length " + length + " in bungee envelope");
+
+			final byte[] message = new byte[length];
+
+			in.readFully(message);
+			messages.add(message);
+		}
+
+		return messages;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Settings and statistics
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Set for how many ticks we collect messages before sending them, 1 by default
+	 *
+	 * @param ticks
+	 */
+	public static synchronized void setWindowTicks(int ticks) {
+		Valid.checkBoolean(ticks >= 1, "Window must be at least 1 tick, got " + ticks);
+
+		windowTicks = ticks;
+	}
+
+	/**
+	 * Return how many messages were queued in total
+	 *
+	 * @return
+	 */
+	public static synchronized long getMessageCount() {
+		return messageCount;
+	}
+
+	/**
+	 * Return how many queued messages were replaced by a later message with the same key
+	 *
+	 * @return
+	 */
+	public static synchronized long getReplacedCount() {
+		return replacedCount;
+	}
+
+	/**
+	 * Return how many envelopes holding more than one message were sent
+	 *
+	 * @return
+	 */
+	public static synchronized long getEnvelopeCount() {
+		return envelopeCount;
+	}
+}
@@ -0,0 +1,409 @@
+package org.mineacademy.fo.bungee;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.mineacademy.fo.Common;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Splits large plugin messages into fragments, compressing them with Deflate,
+ * and puts them back together on the receiving side.
+ * <p>
+ * Each fragment carries the magic number {@link #MAGIC}, a random ID of the sending
+ * server, the message ID and its index. Incomplete messages are dropped after
+ * {@link #TIMEOUT} and each sender may only have {@link #MAX_PENDING_BYTES}
+ * waiting to be put together, so a broken sender cannot fill our memory.
+ * <p>
+ * Only used for listeners with {@link BungeeListener#isBinaryProtocol()} since the
+ * receivers must understand fragments, see {@link org.mineacademy.fo.BungeeUtil}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BungeeFragmenter {
+
+	/**
+	 * The first two bytes of a fragment
+	 */
+	public static final int MAGIC = 0xF0DB;
+
+	/**
+	 * The largest plugin message we send, leaving a safety margin below the 32,766 bytes limit
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 30_000;
+
+	/**
+	 * Messages larger than this are compressed
+	 */
+	public static final int COMPRESSION_THRESHOLD = 1024;
+
+	/**
+	 * How long we wait for all fragments of a message in milliseconds
+	 */
+	public static final long TIMEOUT = 30_000;
+
+	/**
+	 * How many bytes of incomplete messages each sender may have waiting
+	 */
+	public static final int MAX_PENDING_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * The largest message we put together, after decompressing
+	 */
+	public static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * The most fragments one message may have
+	 */
+	private static final int MAX_FRAGMENTS = 4096;
+
+	/**
+	 * Flag set when the message is compressed
+	 */
+	private static final int FLAG_DEFLATED = 1;
+
+	/**
+	 * The room we leave in each fragment for its header
+	 */
+	private static final int HEADER_LENGTH = 32;
+
+	/**
+	 * The random ID of this server, so that receivers tell senders apart
+	 */
+	private static final long senderId = ThreadLocalRandom.current().nextLong();
+
+	/**
+	 * The ID of the next message we split
+	 */
+	private static final AtomicInteger nextMessageId = new AtomicInteger();
+
+	/**
+	 * Messages waiting for their fragments by channel, sender and message ID
+	 */
+	private static final Map<String, Pending> pending = new HashMap<>();
+
+	/**
+	 * How many bytes each sender has waiting
+	 */
+	private static final Map<Long, Integer> pendingBytes = new HashMap<>();
+
+	/**
+	 * Senders we already warned about exceeding their limit
+	 */
+	private static final Set<Long> warnedSenders = new HashSet<>();
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Sending
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return true if the message must be compressed or split before sending
+	 *
+	 * @param data
+	 * @return
+	 */
+	public static boolean needsSplitting(@NonNull byte[] data) {
+		return data.length > COMPRESSION_THRESHOLD;
+	}
+
+	/**
+	 * Compress the message and split it into fragments each fitting one plugin message.
+	 * <p>
+	 * Messages receivers would drop for being over {@link #MAX_MESSAGE_SIZE}, or
+	 * over {@link #MAX_PENDING_BYTES} once compressed, are logged and not sent.
+	 *
+	 * @param data
+	 * @return the fragments, or an empty list if the message is too large
+	 */
+	public static List<byte[]> split(@NonNull byte[] data) {
+		if (data.length > MAX_MESSAGE_SIZE) {
+			Common.log("Outgoing bungee message was oversized, not sending. Max length: " + MAX_MESSAGE_SIZE + " bytes, got " + data.length + " bytes.");
+
+			return new ArrayList<>();
+		}
+
+		byte[] payload = deflate(data);
+		int flags = FLAG_DEFLATED;
+
+		// Not worth it, such as for already compressed data
+		if (payload.length >= data.length) {
+			payload = data;
+			flags = 0;
+		}
+
+		if (payload.length > MAX_PENDING_BYTES) {
+			Common.log("Outgoing bungee message was oversized, not sending. Max length: " + MAX_PENDING_BYTES + " bytes compressed, got " + payload.length + " bytes.");
+
+			return new ArrayList<>();
+		}
+
+		final int fragmentLength = MAX_MESSAGE_LENGTH - HEADER_LENGTH;
+		final int count = (payload.length + fragmentLength - 1) / fragmentLength;
+		final int messageId = nextMessageId.getAndIncrement();
+		final List<byte[]> fragments = new ArrayList<>(count);
+
+		for (int index = 0; index < count; index++) {
+			final int offset = index * fragmentLength;
+			final ByteArrayDataOutput out = ByteStreams.newDataOutput(Math.min(fragmentLength, payload.length - offset) + HEADER_LENGTH);
+
+			out.writeShort(MAGIC);
+			out.writeByte(flags);
+			out.writeLong(senderId);
+			out.writeInt(messageId);
+			BungeeProtocol.writeVarInt(out, index);
+			BungeeProtocol.writeVarInt(out, count);
+			BungeeProtocol.writeVarInt(out, payload.length);
+			out.write(payload, offset, Math.min(fragmentLength, payload.length - offset));
+
+			fragments.add(out.toByteArray());
+		}
+
+		return fragments;
+	}
+
+	/*
+	 * Compress the data with Deflate
+	 */
+	private static byte[] deflate(byte[] data) {
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+		final byte[] buffer = new byte[8192];
+
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			while (!deflater.finished())
+				out.write(buffer, 0, deflater.deflate(buffer));
+
+		} finally {
+			deflater.end();
+		}
+
+		return out.toByteArray();
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Receiving
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return true if the data is a fragment
+	 *
+	 * @param data
+	 * @return
+	 */
+	public static boolean isFragment(@NonNull byte[] data) {
+		return data.length >= 2 && ((data[0] & 0xFF) << 8 | data[1] & 0xFF) == MAGIC;
+	}
+
+	/**
+	 * Store the fragment and return the whole message once all its fragments arrived
+	 *
+	 * @param channel
+	 * @param fragment
+	 * @return the decompressed message, or null if still incomplete or dropped
+	 */
+	public static synchronized byte[] reassemble(@NonNull String channel, @NonNull byte[] fragment) {
+		final long now = System.currentTimeMillis();
+
+		removeExpired(now);
+
+		final ByteArrayInputStream stream = new ByteArrayInputStream(fragment);
+		final ByteArrayDataInput in = ByteStreams.newDataInput(stream);
+
+		in.readUnsignedShort();
+
+		final int flags = in.readUnsignedByte();
+		final long sender = in.readLong();
+		final int messageId = in.readInt();
+		final int index = BungeeProtocol.readVarInt(in);
+		final int count = BungeeProtocol.readVarInt(in);
+		final int length = BungeeProtocol.readVarInt(in);
+		final int headerLength = fragment.length - stream.available();
+
+		if (count <= 0 || count > MAX_FRAGMENTS || index < 0 || index >= count || length < 0 || length > MAX_MESSAGE_SIZE) {
+			Common.log("Dropping malformed bungee message fragment on channel " + channel);
+
+			return null;
+		}
+
+		final byte[] part = new byte[fragment.length - headerLength];
+		System.arraycopy(fragment, headerLength, part, 0, part.length);
+
+		// Not split, only compressed
+		if (count == 1)
+			return finish(channel, flags, part);
+
+		final String key = channel + ":" + sender + ":" + messageId;
+		Pending message = pending.get(key);
+
+		if (message == null) {
+			final int senderBytes = pendingBytes.getOrDefault(sender, 0);
+
+			if (senderBytes + length > MAX_PENDING_BYTES) {
+				if (warnedSenders.add(sender))
+					Common.log("Dropping bungee message on channel " + channel + " because its sender has over " + MAX_PENDING_BYTES + " bytes of incomplete messages waiting.");
+
+				return null;
+			}
+
+			message = new Pending(sender, flags, count, length, now);
+
+			pending.put(key, message);
+			pendingBytes.put(sender, senderBytes + length);
+		}
+
+		if (message.parts.length != count || message.parts[index] != null)
+			return null;
+
+		message.parts[index] = part;
+		message.received++;
+
+		if (message.received < count)
+			return null;
+
+		remove(key, message);
+
+		final ByteArrayOutputStream joined = new ByteArrayOutputStream(message.length);
+
+		for (final byte[] bytes : message.parts)
+			joined.write(bytes, 0, bytes.length);
+
+		if (joined.size() != message.length) {
+			Common.log("Dropping bungee message on channel " + channel + " with " + joined.size() + " bytes instead of " + message.length);
+
+			return null;
+		}
+
+		return finish(channel, message.flags, joined.toByteArray());
+	}
+
+	/*
+	 * Decompress the payload if needed
+	 */
+	private static byte[] finish(String channel, int flags, byte[] payload) {
+		if ((flags & FLAG_DEFLATED) == 0)
+			return payload;
+
+		try {
+			return inflate(payload);
+
+		} catch (final DataFormatException ex) {
+			Common.log("Dropping corrupted compressed bungee message on channel " + channel + ": " + ex.getMessage());
+
+			return null;
+		}
+	}
+
+	/*
+	 * Decompress the data, refusing to go over the maximum message size
+	 */
+	private static byte[] inflate(byte[] data) throws DataFormatException {
+		final Inflater inflater = new Inflater();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+		final byte[] buffer = new byte[8192];
+
+		try {
+			inflater.setInput(data);
+
+			while (!inflater.finished()) {
+				final int read = inflater.inflate(buffer);
+
+				if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new DataFormatException("Truncated data");
+
+				if (out.size() + read > MAX_MESSAGE_SIZE)
+					throw new DataFormatException("Decompressed message over " + MAX_MESSAGE_SIZE + " bytes");
+
+				out.write(buffer, 0, read);
+			}
+
+		} finally {
+			inflater.end();
+		}
+
+		return out.toByteArray();
+	}
+
+	/*
+	 * Drop messages which did not complete in time
+	 */
+	private static void removeExpired(long now) {
+		for (final Iterator<Map.Entry<String, Pending>> it = pending.entrySet().iterator(); it.hasNext();) {
+			final Pending message = it.next().getValue();
+
+			if (now - message.createdAt > TIMEOUT) {
+				it.remove();
+
+				releaseBytes(message);
+			}
+		}
+	}
+
+	private static void remove(String key, Pending message) {
+		pending.remove(key);
+
+		releaseBytes(message);
+	}
+
+	private static void releaseBytes(Pending message) {
+		final int left = pendingBytes.getOrDefault(message.sender, 0) - message.length;
+
+		if (left > 0)
+			pendingBytes.put(message.sender, left);
+
+		else {
+			pendingBytes.remove(message.sender);
+			warnedSenders.remove(message.sender);
+		}
+	}
+
+	/**
+	 * Return how many messages wait for more fragments
+	 *
+	 * @return
+	 */
+	public static synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/*
+	 * A message waiting for its fragments
+	 */
+	private static final class Pending {
+
+		private final long sender;
+		private final int flags;
+		private final byte[][] parts;
+		private final int length;
+		private final long createdAt;
+		private int received = 0;
+
+		private Pending(long sender, int flags, int count, int length, long createdAt) {
+			this.sender = sender;
+			this.flags = flags;
+			this.parts = new byte[count][];
+			this.length = length;
+			this.createdAt = createdAt;
+		}
+	}
+}
@@ -1,9 +1,12 @@
 package org.mineacademy.fo.bungee;
 
 import java.io.ByteArrayInputStream;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
@@ -20,6 +23,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import lombok.Setter;
 
 /**
  * Represents a BungeeCord listener using a bungee channel
@@ -31,9 +35,9 @@ import lombok.NonNull;
 public abstract class BungeeListener implements Listener {
 
 	/**
-	 * Holds registered bungee listeners
+	 * Holds registered bungee listeners by their channel
 	 */
-	private static final Set<BungeeListener> registeredListeners = new HashSet<>();
+	private static final Map<String, BungeeListener> registeredListeners = new ConcurrentHashMap<>();
 
 	/**
 	 * The channel
@@ -48,7 +52,46 @@ public abstract class BungeeListener implements Listener {
 	private final BungeeMessageType[] actions;
 
 	/**
-	 * Temporary variable for reading data
+	 * The hash of the actions layout, see {@link BungeeProtocol#getLayoutHash(BungeeMessageType[])}
+	 */
+	@Getter
+	private final int layoutHash;
+
+	/**
+	 * Should we send messages on this channel in the compact binary format, see {@link BungeeProtocol}?
+	 * <p>
+	 * Messages are received in both formats regardless. Only enable this when every server
+	 * and proxy plugin on your network reading this channel understands the binary format.
+	 */
+	@Getter
+	@Setter(value = AccessLevel.PROTECTED)
+	private boolean binaryProtocol = false;
+
+	/**
+	 * The executor we read and handle messages on, or null for the main thread
+	 * <p>
+	 * Handle messages off the main thread when they take long to process, such as those
+	 * touching a database. Use a single thread executor to keep messages in order.
+	 * Handlers then must not call the Bukkit API without switching back to the main thread.
+	 */
+	@Getter
+	@Setter(value = AccessLevel.PROTECTED)
+	private Executor executor;
+
+	/**
+	 * The actions by their name, for reading legacy messages
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final Map<String, BungeeMessageType> actionsByName = new HashMap<>();
+
+	/**
+	 * The handlers by the ordinal of their action, see {@link #registerHandler(BungeeMessageType, ActionHandler)}
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final ActionHandler[] handlers;
+
+	/**
+	 * Temporary variable for reading data, unreliable when using {@link #getExecutor()}
 	 */
 	@Getter(value = AccessLevel.PROTECTED)
 	private byte[] data;
@@ -63,12 +106,13 @@ public abstract class BungeeListener implements Listener {
 	protected BungeeListener(@NonNull String channel, Class<? extends BungeeMessageType> actionEnum) {
 		this.channel = channel;
 		this.actions = toActions(actionEnum);
+		this.layoutHash = BungeeProtocol.getLayoutHash(this.actions);
+		this.handlers = new ActionHandler[this.actions.length];
 
-		for (final BungeeListener listener : registeredListeners)
-			if (listener.getChannel().equals(this.getChannel()))
-				return;
+		for (final BungeeMessageType action : this.actions)
+			this.actionsByName.put(action.name(), action);
 
-		registeredListeners.add(this);
+		registeredListeners.putIfAbsent(channel, this);
 	}
 
 	private static BungeeMessageType[] toActions(@NonNull Class<? extends BungeeMessageType> actionEnum) {
@@ -88,17 +132,60 @@ public abstract class BungeeListener implements Listener {
 	/**
 	 * Called automatically when you receive a plugin message from Bungeecord,
 	 * see https://spigotmc.org/wiki/bukkit-bungee-plugin-messaging-channel
+	 * <p>
+	 * Messages with an action handler are passed to it instead, see {@link #registerHandler(BungeeMessageType, ActionHandler)}
 	 *
 	 * @param player
 	 * @param message
 	 */
 	public abstract void onMessageReceived(Player player, IncomingMessage message);
 
+	/**
+	 * Handle messages of the given action with the handler instead of {@link #onMessageReceived(Player, IncomingMessage)},
+	 * replacing the previous handler
+	 *
+	 * @param action
+	 * @param handler the handler, or null to use {@link #onMessageReceived(Player, IncomingMessage)} again
+	 */
+	protected final void registerHandler(@NonNull BungeeMessageType action, ActionHandler handler) {
+		this.handlers[this.indexOf(action)] = handler;
+	}
+
+	/**
+	 * Return the action by its name, or null if this listener has none
+	 *
+	 * @param name
+	 * @return
+	 */
+	public final BungeeMessageType getAction(String name) {
+		return this.actionsByName.get(name);
+	}
+
+	/*
+	 * Return the position of the action in our actions, they are enum values so this is their ordinal
+	 */
+	private int indexOf(BungeeMessageType action) {
+		final int index = ((Enum<?>) action).ordinal();
+		Valid.checkBoolean(index < this.actions.length && this.actions[index] == action, "Action " + action + " does not belong to channel " + this.channel);
+
+		return index;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		return obj instanceof BungeeListener && ((BungeeListener) obj).getChannel().equals(this.getChannel());
 	}
 
+	/**
+	 * Return the registered listener for the given channel, or null if none
+	 *
+	 * @param channel
+	 * @return
+	 */
+	public static BungeeListener findListener(String channel) {
+		return channel == null ? null : registeredListeners.get(channel);
+	}
+
 	/**
 	 * @deprecated internal use only
 	 */
@@ -126,37 +213,138 @@ public abstract class BungeeListener implements Listener {
 			//if (!channelName.equals("BungeeCord"))
 			//	return;
 
-			for (final BungeeListener listener : registeredListeners)
-				if (channelName.equals(listener.getChannel())) {
+			// Put fragments back together and process the whole message once complete
+			if (BungeeFragmenter.isFragment(data)) {
+				final byte[] whole;
 
-					// Read the plugin message
-					final ByteArrayInputStream stream = new ByteArrayInputStream(data);
-					ByteArrayDataInput input;
+				try {
+					whole = BungeeFragmenter.reassemble(channelName, data);
 
-					try {
-						input = ByteStreams.newDataInput(stream);
+				} catch (final RuntimeException ex) {
+					Common.log("Rejected malformed bungee message fragment on channel " + channelName + ": " + ex);
 
-					} catch (final Throwable t) {
-						input = ByteStreams.newDataInput(data);
-					}
+					return;
+				}
+
+				if (whole != null)
+					this.onPluginMessageReceived(channelName, player, whole);
+
+				return;
+			}
+
+			// Handle batched messages in the order they were sent
+			if (BungeeBatcher.isEnvelope(data)) {
+				final List<byte[]> messages;
+
+				try {
+					messages = BungeeBatcher.unpack(data);
+
+				} catch (final RuntimeException ex) {
+					Common.log("Rejected malformed bungee message envelope on channel " + channelName + ": " + ex);
+
+					return;
+				}
+
+				for (final byte[] message : messages)
+					this.onPluginMessageReceived(channelName, player, message);
+
+				return;
+			}
+
+			// Answer requests and complete futures waiting for replies
+			if (BungeeRpc.isRpc(data)) {
+				try {
+					BungeeRpc.handle(channelName, player, data);
+
+				} catch (final RuntimeException ex) {
+					Common.log("Rejected malformed bungee request on channel " + channelName + ": " + ex);
+				}
+
+				return;
+			}
+
+			final BungeeListener listener = registeredListeners.get(channelName);
+
+			if (listener == null)
+				return;
+
+			if (listener.executor == null) {
+				this.dispatch(listener, player, data);
+
+				return;
+			}
+
+			listener.executor.execute(() -> {
+				try {
+					this.dispatch(listener, player, data);
 
-					input.readUTF(); // unused channel name
-					final UUID senderUid = UUID.fromString(input.readUTF());
-					final String serverName = input.readUTF();
-					final String actionName = input.readUTF();
+				} catch (final Throwable t) {
+					Common.error(t, "Failed to handle bungee message on channel " + channelName);
+				}
+			});
+		}
+
+		/*
+		 * Read the header and pass the message to its handler, reading straight from the received array
+		 */
+		private void dispatch(BungeeListener listener, Player player, byte[] data) {
+			final ByteArrayInputStream stream = new ByteArrayInputStream(data);
+			final ByteArrayDataInput input = ByteStreams.newDataInput(stream);
+			final IncomingMessage message;
 
-					final BungeeMessageType action = BungeeMessageType.getByName(listener, actionName);
-					Valid.checkNotNull(action, "Unknown plugin action '" + actionName + "'. IF YOU UPDATED THE PLUGIN BY RELOADING, stop your entire network, ensure all servers were updated and start it again.");
+			if (BungeeProtocol.isBinary(data))
+				try {
+					final BungeeProtocol.Header header = BungeeProtocol.readHeader(input, listener);
 
-					final IncomingMessage message = new IncomingMessage(listener, senderUid, serverName, action, data, input, stream);
+					// Incompatible sender, already logged
+					if (header == null)
+						return;
 
-					listener.data = data;
+					message = new IncomingMessage(listener, header.getSenderUid(), header.getServerName(), header.getAction(), data, input, stream, true);
 
-					Debugger.debug("bungee-all", "Channel " + channelName + " received " + message.getAction() + " message from " + message.getServerName() + " server.");
-					listener.onMessageReceived(player, message);
+				} catch (final RuntimeException ex) {
+					Common.log("Rejected malformed bungee message on channel " + listener.getChannel() + ": " + ex);
 
-					break;
+					return;
 				}
+
+			else {
+				input.readUTF(); // unused channel name
+				final UUID senderUid = UUID.fromString(input.readUTF());
+				final String serverName = input.readUTF();
+				final String actionName = input.readUTF();
+
+				final BungeeMessageType action = listener.getAction(actionName);
+				Valid.checkNotNull(action, "Unknown plugin action '" + actionName + "'. IF YOU UPDATED THE PLUGIN BY RELOADING, stop your entire network, ensure all servers were updated and start it again.");
+
+				message = new IncomingMessage(listener, senderUid, serverName, action, data, input, stream);
+			}
+
+			listener.data = data;
+
+			Debugger.debug("bungee-all", "Channel " + listener.getChannel() + " received " + message.getAction() + " message from " + message.getServerName() + " server.");
+
+			final ActionHandler handler = listener.handlers[listener.indexOf(message.getAction())];
+
+			if (handler != null)
+				handler.handle(player, message);
+			else
+				listener.onMessageReceived(player, message);
 		}
 	}
+
+	/**
+	 * Handles messages of one action, see {@link BungeeListener#registerHandler(BungeeMessageType, ActionHandler)}
+	 */
+	@FunctionalInterface
+	public interface ActionHandler {
+
+		/**
+		 * Handle the message
+		 *
+		 * @param player the player the message arrived through
+		 * @param message
+		 */
+		void handle(Player player, IncomingMessage message);
+	}
 }
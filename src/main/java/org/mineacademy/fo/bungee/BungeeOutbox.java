@@ -0,0 +1,435 @@
+package org.mineacademy.fo.bungee;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.ChannelNotRegisteredException;
+import org.bukkit.plugin.messaging.MessageTooLargeException;
+import org.mineacademy.fo.Common;
+import org.mineacademy.fo.FileUtil;
+import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.debug.Debugger;
+import org.mineacademy.fo.plugin.SimplePlugin;
+import org.mineacademy.fo.remain.Remain;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Holds plugin messages sent while this server has no players, since messages
+ * can only travel through a player connection, and sends them in order
+ * once a player joins.
+ * <p>
+ * The outbox keeps at most {@link #setLimits(int, int, long)} messages, dropping the
+ * oldest first, and can be saved to disk on shutdown, see {@link #setPersistent(boolean)}.
+ * Sends are spread across online players, see {@link #nextPlayer()}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BungeeOutbox {
+
+	/**
+	 * The file format version
+	 */
+	private static final int FILE_VERSION = 1;
+
+	/**
+	 * The file path in our plugin folder
+	 */
+	private static final String FILE_PATH = "bungee-outbox.dat";
+
+	/**
+	 * How many ticks after a join we wait before sending, since the proxy
+	 * does not forward messages through players who are still connecting
+	 */
+	private static final int JOIN_DELAY_TICKS = 20;
+
+	/**
+	 * The waiting messages, oldest first
+	 */
+	private static final Deque<Entry> queue = new ArrayDeque<>();
+
+	/**
+	 * The most messages we keep
+	 */
+	private static int maxMessages = 1000;
+
+	/**
+	 * The most bytes we keep
+	 */
+	private static int maxBytes = 1024 * 1024;
+
+	/**
+	 * How long messages may wait in milliseconds
+	 */
+	private static long maxAge = 10 * 60 * 1000;
+
+	/**
+	 * Should we save the outbox on shutdown?
+	 */
+	private static boolean persistent = false;
+
+	/**
+	 * Is a flush scheduled?
+	 */
+	private static boolean flushScheduled = false;
+
+	/**
+	 * The bytes of waiting messages
+	 */
+	private static int queuedBytes = 0;
+
+	/**
+	 * The player index for spreading sends
+	 */
+	private static int playerIndex = 0;
+
+	/**
+	 * Counters
+	 */
+	private static long queuedCount = 0, sentCount = 0, droppedCount = 0, totalLatency = 0, maxLatency = 0;
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Queueing
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Queue the finished plugin message to send once a player is online
+	 *
+	 * @param channel
+	 * @param label the name of the message used in console messages, such as its action
+	 * @param data
+	 */
+	public static synchronized void queue(@NonNull String channel, @NonNull String label, @NonNull byte[] data) {
+		queue.addLast(new Entry(channel, label, data, System.currentTimeMillis()));
+
+		queuedBytes += data.length;
+		queuedCount++;
+
+		removeExpired();
+
+		while (queue.size() > maxMessages || queuedBytes > maxBytes)
+			drop(queue.pollFirst(), "the outbox is full");
+
+		Debugger.debug("bungee", "Queued " + label + " bungee message to channel '" + channel + "' to send once a player can carry it, " + queue.size() + " waiting");
+	}
+
+	/**
+	 * Send all waiting messages if a player is online, spreading them across players
+	 */
+	public static synchronized void flush() {
+		removeExpired();
+
+		final long now = System.currentTimeMillis();
+
+		while (!queue.isEmpty()) {
+			final Player player = nextPlayer();
+
+			if (player == null)
+				return;
+
+			final Entry entry = queue.pollFirst();
+			queuedBytes -= entry.data.length;
+
+			try {
+				player.sendPluginMessage(SimplePlugin.getInstance(), entry.channel, entry.data);
+
+				final long latency = now - entry.queuedAt;
+
+				sentCount++;
+				totalLatency += latency;
+				maxLatency = Math.max(maxLatency, latency);
+
+			} catch (final ChannelNotRegisteredException | MessageTooLargeException ex) {
+				droppedCount++;
+
+				Common.log("Dropping queued bungee message " + entry.action + " to channel '" + entry.channel + "': " + ex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Send waiting messages shortly after a player joined, or shortly after a message was
+	 * queued behind them while players are online
+	 */
+	public static synchronized void onJoin() {
+		if (queue.isEmpty() || flushScheduled)
+			return;
+
+		flushScheduled = true;
+
+		Common.runLater(JOIN_DELAY_TICKS, () -> {
+			synchronized (BungeeOutbox.class) {
+				flushScheduled = false;
+			}
+
+			flush();
+		});
+	}
+
+	/**
+	 * Forget the scheduled flush, called automatically after all tasks are cancelled on reload
+	 *
+	 * @deprecated internal use only
+	 */
+	@Deprecated
+	public static synchronized void cancelFlush() {
+		flushScheduled = false;
+	}
+
+	/**
+	 * Return true if there are messages waiting
+	 *
+	 * @return
+	 */
+	public static synchronized boolean hasQueued() {
+		return !queue.isEmpty();
+	}
+
+	/**
+	 * Return how many messages are waiting
+	 *
+	 * @return
+	 */
+	public static synchronized int size() {
+		return queue.size();
+	}
+
+	/**
+	 * Remove all waiting messages without sending them
+	 */
+	public static synchronized void clear() {
+		queue.clear();
+		queuedBytes = 0;
+	}
+
+	/*
+	 * Drop messages waiting for too long
+	 */
+	private static void removeExpired() {
+		final long now = System.currentTimeMillis();
+
+		for (final Iterator<Entry> it = queue.iterator(); it.hasNext();) {
+			final Entry entry = it.next();
+
+			// Oldest first, the rest is younger
+			if (now - entry.queuedAt <= maxAge)
+				break;
+
+			it.remove();
+			drop(entry, "it waited for over " + maxAge / 1000 + " seconds");
+		}
+	}
+
+	private static void drop(Entry entry, String reason) {
+		queuedBytes -= entry.data.length;
+		droppedCount++;
+
+		Debugger.debug("bungee", "Dropping queued " + entry.action + " bungee message to channel '" + entry.channel + "' because " + reason);
+	}
+
+	/**
+	 * Return the next online player to send a message through, rotating across
+	 * all players so that no single connection carries all messages
+	 *
+	 * @return the player or null if the server is empty
+	 */
+	public static synchronized Player nextPlayer() {
+		final Collection<? extends Player> players = Remain.getOnlinePlayers();
+
+		if (players.isEmpty())
+			return null;
+
+		final int target = Math.floorMod(playerIndex++, players.size());
+		int index = 0;
+
+		for (final Player player : players)
+			if (index++ == target)
+				return player;
+
+		return null;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Settings and statistics
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Set how many messages and bytes we keep and for how long, the oldest messages are dropped first
+	 *
+	 * @param maxMessages
+	 * @param maxBytes
+	 * @param maxAgeMillis
+	 */
+	public static synchronized void setLimits(int maxMessages, int maxBytes, long maxAgeMillis) {
+		Valid.checkBoolean(maxMessages >= 0 && maxBytes >= 0 && maxAgeMillis >= 0, "Outbox limits cannot be negative");
+
+		BungeeOutbox.maxMessages = maxMessages;
+		BungeeOutbox.maxBytes = maxBytes;
+		BungeeOutbox.maxAge = maxAgeMillis;
+	}
+
+	/**
+	 * Set if we save waiting messages to disk on shutdown. When enabled, messages
+	 * saved by the last shutdown are loaded right away.
+	 *
+	 * @param persistent
+	 */
+	public static synchronized void setPersistent(boolean persistent) {
+		BungeeOutbox.persistent = persistent;
+
+		if (persistent)
+			load();
+	}
+
+	/**
+	 * Return how many messages were queued in total
+	 *
+	 * @return
+	 */
+	public static synchronized long getQueuedCount() {
+		return queuedCount;
+	}
+
+	/**
+	 * Return how many queued messages were sent
+	 *
+	 * @return
+	 */
+	public static synchronized long getSentCount() {
+		return sentCount;
+	}
+
+	/**
+	 * Return how many queued messages were dropped because of the limits or errors
+	 *
+	 * @return
+	 */
+	public static synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * Return the average time queued messages waited before being sent, in milliseconds
+	 *
+	 * @return
+	 */
+	public static synchronized long getAverageLatency() {
+		return sentCount == 0 ? 0 : totalLatency / sentCount;
+	}
+
+	/**
+	 * Return the longest time a queued message waited before being sent, in milliseconds
+	 *
+	 * @return
+	 */
+	public static synchronized long getMaxLatency() {
+		return maxLatency;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Persistence
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Save waiting messages to disk if persistent, called automatically on shutdown
+	 *
+	 * @deprecated internal use only
+	 */
+	@Deprecated
+	public static synchronized void save() {
+		if (!persistent || queue.isEmpty())
+			return;
+
+		final File file = FileUtil.getFile(FILE_PATH);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(FILE_VERSION);
+			out.writeInt(queue.size());
+
+			for (final Entry entry : queue) {
+				out.writeUTF(entry.channel);
+				out.writeUTF(entry.action);
+				out.writeLong(entry.queuedAt);
+				out.writeInt(entry.data.length);
+				out.write(entry.data);
+			}
+
+		} catch (final IOException ex) {
+			Common.error(ex, "Failed to save " + queue.size() + " waiting bungee messages to " + file);
+		}
+	}
+
+	/*
+	 * Load messages saved by the last shutdown before the ones queued since
+	 * and remove the file so they are not loaded twice
+	 */
+	private static void load() {
+		final File file = FileUtil.getFile(FILE_PATH);
+
+		if (!file.exists())
+			return;
+
+		final Deque<Entry> loaded = new ArrayDeque<>();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			final int version = in.readInt();
+			Valid.checkBoolean(version == FILE_VERSION, "Unsupported outbox file version " + version);
+
+			final int size = in.readInt();
+
+			for (int i = 0; i < size; i++) {
+				final String channel = in.readUTF();
+				final String action = in.readUTF();
+				final long queuedAt = in.readLong();
+				final byte[] data = new byte[in.readInt()];
+
+				in.readFully(data);
+				loaded.add(new Entry(channel, action, data, queuedAt));
+			}
+
+		} catch (final Throwable t) {
+			Common.error(t, "Failed to load waiting bungee messages from " + file + ", they will be lost");
+		}
+
+		file.delete();
+
+		for (final Iterator<Entry> it = loaded.descendingIterator(); it.hasNext();) {
+			final Entry entry = it.next();
+
+			queue.addFirst(entry);
+			queuedBytes += entry.data.length;
+		}
+
+		removeExpired();
+
+		while (queue.size() > maxMessages || queuedBytes > maxBytes)
+			drop(queue.pollFirst(), "the outbox is full");
+
+		if (!queue.isEmpty())
+			onJoin();
+	}
+
+	/*
+	 * A waiting message
+	 */
+	@RequiredArgsConstructor
+	private static final class Entry {
+		private final String channel;
+		private final String action;
+		private final byte[] data;
+		private final long queuedAt;
+	}
+}
@@ -0,0 +1,545 @@
+package org.mineacademy.fo.bungee;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mineacademy.fo.Common;
+import org.mineacademy.fo.SerializeUtil;
+import org.mineacademy.fo.SerializeUtil.Mode;
+import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.collection.SerializedMap;
+import org.mineacademy.fo.exception.FoException;
+import org.mineacademy.fo.jsonsimple.JSONArray;
+import org.mineacademy.fo.jsonsimple.JSONObject;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The compact binary format for plugin messages, used by listeners
+ * which enable {@link BungeeListener#setBinaryProtocol(boolean)}.
+ * <p>
+ * The header is a magic number, the protocol version, flags, a hash of the action
+ * enum layout, the sender UUID as two longs, the server name and the action ordinal.
+ * The server name is sent with every message so that receivers never need to
+ * know the sender in advance, it is only a few bytes next to the payload.
+ * Values are written with a one byte type tag, numbers as variable length integers and maps without JSON.
+ * <p>
+ * Messages from senders with a newer protocol or a different action enum
+ * are rejected with a single warning instead of being misread.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BungeeProtocol {
+
+	/**
+	 * The first two bytes of a binary message, legacy messages start
+	 * with the length of the channel name which can never be this large
+	 */
+	public static final int MAGIC = 0xF0DA;
+
+	/**
+	 * The current protocol version
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Value type tags
+	 */
+	private static final int TAG_NULL = 0, TAG_TRUE = 1, TAG_FALSE = 2, TAG_BYTE = 3, TAG_SHORT = 4, TAG_INT = 5, TAG_LONG = 6, TAG_FLOAT = 7,
+			TAG_DOUBLE = 8, TAG_STRING = 9, TAG_UUID = 10, TAG_BYTES = 11, TAG_LIST = 12, TAG_MAP = 13, TAG_SERIALIZED_MAP = 14;
+
+	/**
+	 * The deepest nesting of lists and maps we read
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * Rejection reasons we already logged, to only warn once
+	 */
+	private static final Set<String> loggedRejections = ConcurrentHashMap.newKeySet();
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Header
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return true if the data is a binary message
+	 *
+	 * @param data
+	 * @return
+	 */
+	public static boolean isBinary(@NonNull byte[] data) {
+		return data.length >= 2 && ((data[0] & 0xFF) << 8 | data[1] & 0xFF) == MAGIC;
+	}
+
+	/**
+	 * Write the binary header
+	 *
+	 * @param out
+	 * @param listener
+	 * @param senderUid
+	 * @param serverName
+	 * @param action
+	 */
+	public static void writeHeader(@NonNull ByteArrayDataOutput out, @NonNull BungeeListener listener, @NonNull UUID senderUid, @NonNull String serverName, @NonNull BungeeMessageType action) {
+		final int ordinal = indexOf(listener.getActions(), action);
+		Valid.checkBoolean(ordinal != -1, "Action " + action + " does not belong to channel " + listener.getChannel());
+
+		out.writeShort(MAGIC);
+		out.writeByte(VERSION);
+		out.writeByte(0); // No flags yet
+		out.writeInt(listener.getLayoutHash());
+		out.writeLong(senderUid.getMostSignificantBits());
+		out.writeLong(senderUid.getLeastSignificantBits());
+		writeString(out, serverName);
+		writeVarInt(out, ordinal);
+	}
+
+	/**
+	 * Read the binary header after checking the message is compatible with the listener
+	 *
+	 * @param in
+	 * @param listener
+	 * @return the header, or null if the message was rejected
+	 */
+	public static Header readHeader(@NonNull ByteArrayDataInput in, @NonNull BungeeListener listener) {
+		final int magic = in.readUnsignedShort();
+		Valid.checkBoolean(magic == MAGIC, "Not a binary bungee message");
+
+		final int version = in.readUnsignedByte();
+
+		if (version > VERSION)
+			return reject(listener, "protocol version " + version + " while we only understand up to " + VERSION);
+
+		in.readUnsignedByte(); // Flags, none used yet
+
+		final int layoutHash = in.readInt();
+
+		if (layoutHash != listener.getLayoutHash())
+			return reject(listener, "a different message type enum (layout " + Integer.toHexString(layoutHash) + " vs ours " + Integer.toHexString(listener.getLayoutHash()) + ")");
+
+		final UUID senderUid = new UUID(in.readLong(), in.readLong());
+		final String serverName = readString(in);
+		final int ordinal = readVarInt(in);
+
+		if (ordinal < 0 || ordinal >= listener.getActions().length)
+			return reject(listener, "unknown action #" + ordinal);
+
+		return new Header(senderUid, serverName, listener.getActions()[ordinal]);
+	}
+
+	/*
+	 * Log the rejection once and return null
+	 */
+	private static Header reject(BungeeListener listener, String reason) {
+		if (loggedRejections.add(listener.getChannel() + reason))
+			Common.log("Rejected bungee message on channel '" + listener.getChannel() + "' using " + reason + ". Ensure all servers on your network run the same plugin version.");
+
+		return null;
+	}
+
+	/**
+	 * Return a hash of the names and content types of the given actions in their order,
+	 * so that both sides agree on what each ordinal means
+	 *
+	 * @param actions
+	 * @return
+	 */
+	public static int getLayoutHash(@NonNull BungeeMessageType[] actions) {
+		int hash = 0x811C9DC5;
+
+		for (final BungeeMessageType action : actions) {
+			hash = fnv(hash, action.name() + ":");
+
+			for (final Class<?> content : action.getContent())
+				hash = fnv(hash, content.getName());
+
+			hash = fnv(hash, ";");
+		}
+
+		return hash;
+	}
+
+	/*
+	 * Mix the UTF-8 bytes of the given string into the FNV-1a hash
+	 */
+	private static int fnv(int hash, String string) {
+		for (final byte b : string.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xFF;
+			hash *= 0x01000193;
+		}
+
+		return hash;
+	}
+
+	private static int indexOf(BungeeMessageType[] actions, BungeeMessageType action) {
+		for (int i = 0; i < actions.length; i++)
+			if (actions[i] == action)
+				return i;
+
+		return -1;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Values
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Write the value with its type tag. Enums are written as strings and
+	 * other objects in serialized maps are serialized the same way as for JSON.
+	 *
+	 * @param out
+	 * @param value
+	 */
+	public static void writeValue(@NonNull ByteArrayDataOutput out, Object value) {
+		writeValue(out, value, 0);
+	}
+
+	private static void writeValue(ByteArrayDataOutput out, Object value, int depth) {
+		if (depth > MAX_DEPTH)
+			throw new FoException("Bungee message value nested too deep");
+
+		if (value == null)
+			out.writeByte(TAG_NULL);
+
+		else if (value instanceof Boolean)
+			out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+
+		else if (value instanceof Byte) {
+			out.writeByte(TAG_BYTE);
+			out.writeByte((Byte) value);
+
+		} else if (value instanceof Short) {
+			out.writeByte(TAG_SHORT);
+			out.writeShort((Short) value);
+
+		} else if (value instanceof Integer) {
+			out.writeByte(TAG_INT);
+			writeVarLong(out, zigZag((Integer) value));
+
+		} else if (value instanceof Long) {
+			out.writeByte(TAG_LONG);
+			writeVarLong(out, zigZag((Long) value));
+
+		} else if (value instanceof Float) {
+			out.writeByte(TAG_FLOAT);
+			out.writeFloat((Float) value);
+
+		} else if (value instanceof Double) {
+			out.writeByte(TAG_DOUBLE);
+			out.writeDouble((Double) value);
+
+		} else if (value instanceof String || value instanceof Enum) {
+			out.writeByte(TAG_STRING);
+			writeString(out, value.toString());
+
+		} else if (value instanceof UUID) {
+			out.writeByte(TAG_UUID);
+			out.writeLong(((UUID) value).getMostSignificantBits());
+			out.writeLong(((UUID) value).getLeastSignificantBits());
+
+		} else if (value instanceof byte[]) {
+			out.writeByte(TAG_BYTES);
+			writeVarInt(out, ((byte[]) value).length);
+			out.write((byte[]) value);
+
+		} else if (value instanceof SerializedMap) {
+			out.writeByte(TAG_SERIALIZED_MAP);
+			writeEntries(out, ((SerializedMap) value).asMap(), depth);
+
+		} else if (value instanceof Map) {
+			out.writeByte(TAG_MAP);
+			writeEntries(out, (Map<?, ?>) value, depth);
+
+		} else if (value instanceof Collection) {
+			final Collection<?> collection = (Collection<?>) value;
+
+			out.writeByte(TAG_LIST);
+			writeVarInt(out, collection.size());
+
+			for (final Object element : collection)
+				writeValue(out, serializeIfNeeded(element), depth + 1);
+
+		} else
+			throw new FoException("Cannot write " + value.getClass().getSimpleName() + " to a bungee message: " + value);
+	}
+
+	/*
+	 * Write the map entries without null keys or values, the same as JSON does
+	 */
+	private static void writeEntries(ByteArrayDataOutput out, Map<?, ?> map, int depth) {
+		int size = 0;
+
+		for (final Map.Entry<?, ?> entry : map.entrySet())
+			if (entry.getKey() != null && entry.getValue() != null)
+				size++;
+
+		writeVarInt(out, size);
+
+		for (final Map.Entry<?, ?> entry : map.entrySet())
+			if (entry.getKey() != null && entry.getValue() != null) {
+				writeString(out, entry.getKey().toString());
+				writeValue(out, serializeIfNeeded(entry.getValue()), depth + 1);
+			}
+	}
+
+	/*
+	 * Serialize values we cannot write directly such as locations
+	 */
+	private static Object serializeIfNeeded(Object value) {
+		if (value == null || value instanceof Boolean || value instanceof Number || value instanceof String || value instanceof UUID
+				|| value instanceof Map || value instanceof SerializedMap || value instanceof Collection || value instanceof byte[])
+			return value;
+
+		return SerializeUtil.serialize(Mode.JSON, value);
+	}
+
+	/**
+	 * Read the next value with its type tag. Nested maps are read as {@link JSONObject}
+	 * and lists as {@link JSONArray}, the same as when the value was sent as JSON.
+	 *
+	 * @param in
+	 * @return
+	 */
+	public static Object readValue(@NonNull ByteArrayDataInput in) {
+		return readValue(in, in.readUnsignedByte(), 0);
+	}
+
+	/**
+	 * Read the next value and check it has the given type. Strings are accepted for maps
+	 * as JSON and maps for strings as their JSON, the same as legacy messages had it.
+	 *
+	 * @param <T>
+	 * @param in
+	 * @param type
+	 * @return
+	 */
+	public static <T> T readValue(@NonNull ByteArrayDataInput in, @NonNull Class<T> type) {
+		final int tag = in.readUnsignedByte();
+		final Object value = readValue(in, tag, 0);
+
+		if (value != null && !type.isInstance(value)) {
+			if (type == String.class && value instanceof SerializedMap)
+				return (T) ((SerializedMap) value).toJson();
+
+			if (type == SerializedMap.class && value instanceof String)
+				return (T) SerializedMap.fromJson((String) value);
+
+			throw new FoException("Expected " + type.getSimpleName() + " in bungee message but got " + value.getClass().getSimpleName() + " (tag " + tag + ")");
+		}
+
+		return (T) value;
+	}
+
+	private static Object readValue(ByteArrayDataInput in, int tag, int depth) {
+		if (depth > MAX_DEPTH)
+			throw new FoException("Bungee message value nested too deep");
+
+		switch (tag) {
+			case TAG_NULL:
+				return null;
+
+			case TAG_TRUE:
+				return true;
+
+			case TAG_FALSE:
+				return false;
+
+			case TAG_BYTE:
+				return in.readByte();
+
+			case TAG_SHORT:
+				return in.readShort();
+
+			case TAG_INT:
+				return (int) unZigZag(readVarLong(in));
+
+			case TAG_LONG:
+				return unZigZag(readVarLong(in));
+
+			case TAG_FLOAT:
+				return in.readFloat();
+
+			case TAG_DOUBLE:
+				return in.readDouble();
+
+			case TAG_STRING:
+				return readString(in);
+
+			case TAG_UUID:
+				return new UUID(in.readLong(), in.readLong());
+
+			case TAG_BYTES: {
+				final byte[] bytes = new byte[readLength(in)];
+
+				in.readFully(bytes);
+				return bytes;
+			}
+
+			case TAG_LIST: {
+				final int size = readLength(in);
+				final List<Object> list = new JSONArray();
+
+				for (int i = 0; i < size; i++)
+					list.add(readValue(in, in.readUnsignedByte(), depth + 1));
+
+				return list;
+			}
+
+			case TAG_MAP:
+				return new JSONObject(readEntries(in, depth));
+
+			case TAG_SERIALIZED_MAP:
+				return SerializedMap.fromJsonValues(readEntries(in, depth));
+
+			default:
+				throw new FoException("Unknown value tag " + tag + " in bungee message");
+		}
+	}
+
+	private static Map<String, Object> readEntries(ByteArrayDataInput in, int depth) {
+		final int size = readLength(in);
+		final Map<String, Object> map = new LinkedHashMap<>();
+
+		for (int i = 0; i < size; i++) {
+			final String key = readString(in);
+
+			map.put(key, readValue(in, in.readUnsignedByte(), depth + 1));
+		}
+
+		return map;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Primitives
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Write the string as UTF-8 prefixed with its length
+	 *
+	 * @param out
+	 * @param string
+	 */
+	public static void writeString(@NonNull ByteArrayDataOutput out, @NonNull String string) {
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read a string written by {@link #writeString(ByteArrayDataOutput, String)}
+	 *
+	 * @param in
+	 * @return
+	 */
+	public static String readString(@NonNull ByteArrayDataInput in) {
+		final byte[] bytes = new byte[readLength(in)];
+
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write a positive integer in as few bytes as possible
+	 *
+	 * @param out
+	 * @param value
+	 */
+	public static void writeVarInt(@NonNull ByteArrayDataOutput out, int value) {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Read an integer written by {@link #writeVarInt(ByteArrayDataOutput, int)}
+	 *
+	 * @param in
+	 * @return
+	 */
+	public static int readVarInt(@NonNull ByteArrayDataInput in) {
+		return (int) readVarLong(in);
+	}
+
+	private static void writeVarLong(ByteArrayDataOutput out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(ByteArrayDataInput in) {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.readUnsignedByte();
+
+			value |= (long) (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0)
+				return value;
+		}
+
+		throw new FoException("Malformed variable length number in bungee message");
+	}
+
+	/*
+	 * Read a length and check it is not larger than any plugin message can be
+	 */
+	private static int readLength(ByteArrayDataInput in) {
+		final int length = readVarInt(in);
+
+		if (length < 0 || length > Short.MAX_VALUE * 32)
+			throw new FoException("Invalid length " + length + " in bungee message");
+
+		return length;
+	}
+
+	private static long zigZag(long value) {
+		return value << 1 ^ value >> 63;
+	}
+
+	private static long unZigZag(long value) {
+		return value >>> 1 ^ -(value & 1);
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Classes
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The decoded header of a binary message
+	 */
+	@Getter
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	public static final class Header {
+
+		/**
+		 * The UUID of the player the message was sent through
+		 */
+		private final UUID senderUid;
+
+		/**
+		 * The name of the sending server
+		 */
+		private final String serverName;
+
+		/**
+		 * The action
+		 */
+		private final BungeeMessageType action;
+	}
+}
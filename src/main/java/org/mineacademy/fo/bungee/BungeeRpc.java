@@ -0,0 +1,564 @@
+package org.mineacademy.fo.bungee;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.mineacademy.fo.BungeeUtil;
+import org.mineacademy.fo.Common;
+import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.bungee.message.IncomingMessage;
+import org.mineacademy.fo.debug.Debugger;
+import org.mineacademy.fo.exception.BungeeRpcException;
+import org.mineacademy.fo.model.SimpleTask;
+import org.mineacademy.fo.plugin.SimplePlugin;
+import org.mineacademy.fo.remain.Remain;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sends requests to other servers and completes a future once the matching reply arrives,
+ * such as asking for a player's balance on another server.
+ * <p>
+ * Requests are normal messages of your {@link BungeeMessageType} wrapped with a correlation
+ * ID. Servers answer requests for actions they registered a handler for using
+ * {@link #registerHandler(String, BungeeMessageType, RequestHandler)}, servers without
+ * a handler ignore them. When several servers answer, the first reply wins.
+ * <p>
+ * Requests fail with {@link TimeoutException} when no reply arrives in time, with
+ * {@link RejectedExecutionException} when too many requests are waiting, see {@link #setLimits(int, long)},
+ * and with {@link BungeeRpcException} when the handler on the other server failed.
+ * Futures are completed on the main thread.
+ * <p>
+ * Only works for listeners with {@link BungeeListener#isBinaryProtocol()} since the
+ * receivers must understand requests. Your proxy plugin must forward messages starting
+ * with {@link #MAGIC} to other servers and route replies back to the server named in them.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BungeeRpc {
+
+	/**
+	 * The first two bytes of a request or reply
+	 */
+	public static final int MAGIC = 0xF0DD;
+
+	/**
+	 * The frame types
+	 */
+	private static final int TYPE_REQUEST = 0, TYPE_REPLY = 1, TYPE_ERROR = 2;
+
+	/**
+	 * How often we check for requests which timed out, in ticks
+	 */
+	private static final int TIMEOUT_CHECK_TICKS = 5;
+
+	/**
+	 * The random ID of this server, so that we ignore replies to requests of other servers
+	 */
+	private static final long requesterId = ThreadLocalRandom.current().nextLong();
+
+	/**
+	 * The ID of the next request we send
+	 */
+	private static final AtomicInteger nextRequestId = new AtomicInteger();
+
+	/**
+	 * Requests waiting for their reply by their ID
+	 */
+	private static final Map<Integer, PendingRequest<?>> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Registered handlers by channel and action name
+	 */
+	private static final Map<String, RequestHandler> handlers = new ConcurrentHashMap<>();
+
+	/**
+	 * The most requests we wait for at once
+	 */
+	private static int maxInFlight = 256;
+
+	/**
+	 * How long we wait for a reply in milliseconds
+	 */
+	private static long timeout = 5_000;
+
+	/**
+	 * The task checking for requests which timed out, null when none are waiting
+	 */
+	private static SimpleTask timeoutTask;
+
+	/**
+	 * Counters
+	 */
+	private static long sentCount = 0, answeredCount = 0, timedOutCount = 0, rejectedCount = 0, lateReplyCount = 0;
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Requesting
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * See {@link #sendRequest(String, BungeeMessageType, Class, Object...)}
+	 * <p>
+	 * NB: This one uses the default channel name specified in {@link SimplePlugin}.
+	 *
+	 * @param action
+	 * @param data
+	 * @return
+	 */
+	public static CompletableFuture<Object> sendRequest(@NonNull BungeeMessageType action, Object... data) {
+		final BungeeListener bungee = SimplePlugin.getInstance().getBungeeCord();
+		Valid.checkNotNull(bungee, "Cannot send a bungee request without channel name because " + SimplePlugin.getInstance().getClass() + " does not implement getBungeeCord()!");
+
+		return sendRequest(bungee.getChannel(), action, Object.class, data);
+	}
+
+	/**
+	 * See {@link #sendRequest(String, BungeeMessageType, Class, Object...)}
+	 *
+	 * @param channel
+	 * @param action
+	 * @param data
+	 * @return
+	 */
+	public static CompletableFuture<Object> sendRequest(@NonNull String channel, @NonNull BungeeMessageType action, Object... data) {
+		return sendRequest(channel, action, Object.class, data);
+	}
+
+	/**
+	 * Send the request to other servers and return a future completed by the first reply
+	 * converted to the given type, such as a String or SerializedMap
+	 *
+	 * @param <T>
+	 * @param channel
+	 * @param action
+	 * @param replyType
+	 * @param data
+	 * @return
+	 */
+	public static <T> CompletableFuture<T> sendRequest(@NonNull String channel, @NonNull BungeeMessageType action, @NonNull Class<T> replyType, Object... data) {
+		final BungeeListener listener = BungeeListener.findListener(channel);
+
+		Valid.checkBoolean(listener != null && listener.isBinaryProtocol(), "Bungee requests require a registered BungeeListener with binary protocol on channel " + channel);
+		Valid.checkBoolean(data.length == action.getContent().length, "Data count != valid values count in " + action + "! Given data: " + data.length + " vs needed: " + action.getContent().length);
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		if (pending.size() >= maxInFlight) {
+			synchronized (BungeeRpc.class) {
+				rejectedCount++;
+			}
+
+			future.completeExceptionally(new RejectedExecutionException("Over " + maxInFlight + " bungee requests are waiting for a reply, not sending " + action));
+
+			return future;
+		}
+
+		final int requestId = nextRequestId.getAndIncrement();
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+
+		writeFrameHeader(out, TYPE_REQUEST, requesterId, requestId);
+		BungeeProtocol.writeString(out, Remain.getServerName());
+		BungeeProtocol.writeHeader(out, listener, new UUID(0, 0), Remain.getServerName(), action);
+
+		for (Object datum : data) {
+			Valid.checkNotNull(datum, "Bungee object in array is null for " + action);
+
+			if (datum instanceof CommandSender)
+				datum = ((CommandSender) datum).getName();
+
+			BungeeProtocol.writeValue(out, datum);
+		}
+
+		pending.put(requestId, new PendingRequest<>(future, replyType, action, System.currentTimeMillis() + timeout));
+
+		synchronized (BungeeRpc.class) {
+			sentCount++;
+
+			if (timeoutTask == null)
+				timeoutTask = Common.runTimer(TIMEOUT_CHECK_TICKS, BungeeRpc::removeExpired);
+		}
+
+		BungeeUtil.sendPluginMessageData(null, channel, action.name(), out.toByteArray());
+
+		return future;
+	}
+
+	/*
+	 * Fail requests waiting for too long and stop checking once none are left
+	 */
+	private static void removeExpired() {
+		final long now = System.currentTimeMillis();
+
+		for (final Iterator<PendingRequest<?>> it = pending.values().iterator(); it.hasNext();) {
+			final PendingRequest<?> request = it.next();
+
+			if (now > request.expiresAt) {
+				it.remove();
+
+				synchronized (BungeeRpc.class) {
+					timedOutCount++;
+				}
+
+				request.future.completeExceptionally(new TimeoutException("No server answered bungee request " + request.action + " within " + timeout + "ms"));
+			}
+		}
+
+		synchronized (BungeeRpc.class) {
+			if (pending.isEmpty() && timeoutTask != null) {
+				timeoutTask.cancel();
+
+				timeoutTask = null;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Answering
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Answer requests for the given action on the channel with the handler, replacing the previous one.
+	 * <p>
+	 * Handlers stay registered when the plugin reloads and are only removed when it disables,
+	 * so registering them in onPluginStart is enough, registering again on reload just replaces them.
+	 *
+	 * @param channel
+	 * @param action
+	 * @param handler
+	 */
+	public static void registerHandler(@NonNull String channel, @NonNull BungeeMessageType action, @NonNull RequestHandler handler) {
+		handlers.put(channel + ":" + action.name(), handler);
+	}
+
+	/**
+	 * Stop answering requests for the given action on the channel
+	 *
+	 * @param channel
+	 * @param action
+	 */
+	public static void unregisterHandler(@NonNull String channel, @NonNull BungeeMessageType action) {
+		handlers.remove(channel + ":" + action.name());
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Receiving
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return true if the data is a request or reply
+	 *
+	 * @param data
+	 * @return
+	 */
+	public static boolean isRpc(@NonNull byte[] data) {
+		return data.length >= 2 && ((data[0] & 0xFF) << 8 | data[1] & 0xFF) == MAGIC;
+	}
+
+	/**
+	 * Answer the request or complete the future waiting for the reply
+	 *
+	 * @param channel
+	 * @param player
+	 * @param data
+	 *
+	 * @deprecated internal use only, called by {@link BungeeListener.BungeeListenerImpl}
+	 */
+	@Deprecated
+	public static void handle(@NonNull String channel, @Nullable Player player, @NonNull byte[] data) {
+		final ByteArrayInputStream stream = new ByteArrayInputStream(data);
+		final ByteArrayDataInput in = ByteStreams.newDataInput(stream);
+
+		in.readUnsignedShort();
+
+		final int type = in.readUnsignedByte();
+		final long requester = in.readLong();
+		final int requestId = in.readInt();
+		final String serverName = BungeeProtocol.readString(in);
+
+		if (type == TYPE_REQUEST)
+			answer(channel, player, requester, requestId, serverName, data, data.length - stream.available());
+
+		else if (requester == requesterId)
+			complete(requestId, type, serverName, in);
+	}
+
+	/*
+	 * Run the handler for the request and send its result back
+	 */
+	private static void answer(String channel, Player player, long requester, int requestId, String requesterName, byte[] data, int offset) {
+		final BungeeListener listener = BungeeListener.findListener(channel);
+
+		if (listener == null)
+			return;
+
+		final byte[] message = new byte[data.length - offset];
+		System.arraycopy(data, offset, message, 0, message.length);
+
+		final ByteArrayInputStream stream = new ByteArrayInputStream(message);
+		final ByteArrayDataInput in = ByteStreams.newDataInput(stream);
+		final BungeeProtocol.Header header = BungeeProtocol.readHeader(in, listener);
+
+		// Incompatible sender, already logged
+		if (header == null)
+			return;
+
+		final RequestHandler handler = handlers.get(channel + ":" + header.getAction().name());
+
+		// Another server answers
+		if (handler == null)
+			return;
+
+		final IncomingMessage request = new IncomingMessage(listener, header.getSenderUid(), requesterName, header.getAction(), message, in, stream, true);
+		final Player replyThrough = player != null && player.isOnline() ? player : null;
+
+		Debugger.debug("bungee-all", "Answering bungee request " + header.getAction() + " from " + requesterName + " server.");
+
+		final Object result;
+
+		try {
+			result = handler.handle(player, request);
+
+		} catch (final Throwable t) {
+			Common.error(t, "Failed to answer bungee request " + header.getAction() + " from " + requesterName + " server");
+
+			reply(replyThrough, channel, requester, requestId, TYPE_ERROR, t.toString());
+			return;
+		}
+
+		if (result instanceof CompletionStage)
+			((CompletionStage<?>) result).whenComplete((value, error) -> {
+				if (error != null)
+					reply(replyThrough, channel, requester, requestId, TYPE_ERROR, error.toString());
+
+				else
+					reply(replyThrough, channel, requester, requestId, TYPE_REPLY, value);
+			});
+
+		else
+			reply(replyThrough, channel, requester, requestId, TYPE_REPLY, result);
+	}
+
+	private static void reply(Player player, String channel, long requester, int requestId, int type, Object value) {
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+
+		writeFrameHeader(out, type, requester, requestId);
+		BungeeProtocol.writeString(out, Remain.getServerName());
+
+		try {
+			if (type == TYPE_ERROR)
+				BungeeProtocol.writeString(out, String.valueOf(value));
+			else
+				BungeeProtocol.writeValue(out, value);
+
+		} catch (final RuntimeException ex) {
+			reply(player, channel, requester, requestId, TYPE_ERROR, "Cannot send reply " + value + ": " + ex);
+
+			return;
+		}
+
+		BungeeUtil.sendPluginMessageData(player, channel, "reply", out.toByteArray());
+	}
+
+	/*
+	 * Complete the future waiting for the reply
+	 */
+	private static void complete(int requestId, int type, String serverName, ByteArrayDataInput in) {
+		final PendingRequest<?> request = pending.remove(requestId);
+
+		// Timed out or another server answered first
+		if (request == null) {
+			synchronized (BungeeRpc.class) {
+				lateReplyCount++;
+			}
+
+			return;
+		}
+
+		synchronized (BungeeRpc.class) {
+			answeredCount++;
+		}
+
+		try {
+			if (type == TYPE_ERROR)
+				request.future.completeExceptionally(new BungeeRpcException(serverName, BungeeProtocol.readString(in)));
+			else
+				request.completeWith(in);
+
+		} catch (final RuntimeException ex) {
+			request.future.completeExceptionally(ex);
+		}
+	}
+
+	private static void writeFrameHeader(ByteArrayDataOutput out, int type, long requester, int requestId) {
+		out.writeShort(MAGIC);
+		out.writeByte(type);
+		out.writeLong(requester);
+		out.writeInt(requestId);
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Settings and statistics
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Set how many requests may wait for a reply at once and how long we wait, in milliseconds
+	 *
+	 * @param maxInFlight
+	 * @param timeoutMillis
+	 */
+	public static synchronized void setLimits(int maxInFlight, long timeoutMillis) {
+		Valid.checkBoolean(maxInFlight > 0 && timeoutMillis > 0, "Bungee request limits must be positive");
+
+		BungeeRpc.maxInFlight = maxInFlight;
+		BungeeRpc.timeout = timeoutMillis;
+	}
+
+	/**
+	 * Return how many requests are waiting for a reply
+	 *
+	 * @return
+	 */
+	public static int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Return how many requests were sent
+	 *
+	 * @return
+	 */
+	public static synchronized long getSentCount() {
+		return sentCount;
+	}
+
+	/**
+	 * Return how many requests received a reply or an error
+	 *
+	 * @return
+	 */
+	public static synchronized long getAnsweredCount() {
+		return answeredCount;
+	}
+
+	/**
+	 * Return how many requests timed out
+	 *
+	 * @return
+	 */
+	public static synchronized long getTimedOutCount() {
+		return timedOutCount;
+	}
+
+	/**
+	 * Return how many requests were not sent because too many were waiting
+	 *
+	 * @return
+	 */
+	public static synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * Return how many replies arrived after their request timed out or was answered
+	 *
+	 * @return
+	 */
+	public static synchronized long getLateReplyCount() {
+		return lateReplyCount;
+	}
+
+	/**
+	 * Fail all waiting requests, called automatically on reload and shutdown.
+	 * Handlers stay registered across reloads.
+	 *
+	 * @deprecated internal use only
+	 */
+	@Deprecated
+	public static void cancelRequests() {
+		final List<PendingRequest<?>> requests = new ArrayList<>(pending.values());
+
+		pending.clear();
+
+		synchronized (BungeeRpc.class) {
+			if (timeoutTask != null) {
+				timeoutTask.cancel();
+
+				timeoutTask = null;
+			}
+		}
+
+		for (final PendingRequest<?> request : requests)
+			request.future.completeExceptionally(new TimeoutException("Plugin is reloading, bungee request " + request.action + " was cancelled"));
+	}
+
+	/**
+	 * Fail all waiting requests and remove handlers, called automatically on shutdown
+	 *
+	 * @deprecated internal use only
+	 */
+	@Deprecated
+	public static void clear() {
+		cancelRequests();
+
+		handlers.clear();
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Classes
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Answers requests for an action, see {@link BungeeRpc#registerHandler(String, BungeeMessageType, RequestHandler)}
+	 */
+	@FunctionalInterface
+	public interface RequestHandler {
+
+		/**
+		 * Answer the request, called on the main thread. Return the reply, which can be anything
+		 * supported by {@link BungeeProtocol#writeValue(ByteArrayDataOutput, Object)}, or a
+		 * {@link CompletionStage} to reply once it completes.
+		 *
+		 * @param player the player the request arrived through, may be null
+		 * @param request
+		 * @return
+		 * @throws Exception sent back to the requesting server as {@link BungeeRpcException}
+		 */
+		Object handle(Player player, IncomingMessage request) throws Exception;
+	}
+
+	/*
+	 * A request waiting for its reply
+	 */
+	@RequiredArgsConstructor
+	private static final class PendingRequest<T> {
+		private final CompletableFuture<T> future;
+		private final Class<T> replyType;
+		private final BungeeMessageType action;
+		private final long expiresAt;
+
+		private void completeWith(ByteArrayDataInput in) {
+			this.future.complete(BungeeProtocol.readValue(in, this.replyType));
+		}
+	}
+}
@@ -7,6 +7,7 @@ import java.util.UUID;
 import org.mineacademy.fo.ReflectionUtil;
 import org.mineacademy.fo.bungee.BungeeListener;
 import org.mineacademy.fo.bungee.BungeeMessageType;
+import org.mineacademy.fo.bungee.BungeeProtocol;
 import org.mineacademy.fo.collection.SerializedMap;
 
 import com.google.common.io.ByteArrayDataInput;
@@ -50,6 +51,12 @@ public final class IncomingMessage extends Message {
 	 */
 	private final ByteArrayInputStream stream;
 
+	/**
+	 * Is this message in the binary format, see {@link BungeeProtocol}?
+	 */
+	@Getter
+	private final boolean binary;
+
 	/**
 	 * Create a new incoming message from the given array
 	 *
@@ -69,6 +76,23 @@ public final class IncomingMessage extends Message {
 	 * @param stream
 	 */
 	public IncomingMessage(BungeeListener listener, UUID senderUid, String serverName, BungeeMessageType type, byte[] data, ByteArrayDataInput input, ByteArrayInputStream stream) {
+		this(listener, senderUid, serverName, type, data, input, stream, false);
+	}
+
+	/**
+	 * Create a new incoming message from the given array, with the input
+	 * positioned after the header of the given format
+	 *
+	 * @param listener
+	 * @param senderUid
+	 * @param serverName
+	 * @param type
+	 * @param data
+	 * @param input
+	 * @param stream
+	 * @param binary true if this is a message in the {@link BungeeProtocol} format
+	 */
+	public IncomingMessage(BungeeListener listener, UUID senderUid, String serverName, BungeeMessageType type, byte[] data, ByteArrayDataInput input, ByteArrayInputStream stream, boolean binary) {
 		super(listener, type);
 
 		this.data = data;
@@ -76,6 +100,7 @@ public final class IncomingMessage extends Message {
 		this.serverName = serverName;
 		this.input = input;
 		this.stream = stream;
+		this.binary = binary;
 	}
 
 	/**
@@ -86,7 +111,7 @@ public final class IncomingMessage extends Message {
 	public String readString() {
 		this.moveHead(String.class);
 
-		return this.input.readUTF();
+		return this.binary ? BungeeProtocol.readValue(this.input, String.class) : this.input.readUTF();
 	}
 
 	/**
@@ -97,7 +122,7 @@ public final class IncomingMessage extends Message {
 	public UUID readUUID() {
 		this.moveHead(UUID.class);
 
-		return UUID.fromString(this.input.readUTF());
+		return this.binary ? BungeeProtocol.readValue(this.input, UUID.class) : UUID.fromString(this.input.readUTF());
 	}
 
 	/**
@@ -108,7 +133,7 @@ public final class IncomingMessage extends Message {
 	public SerializedMap readMap() {
 		this.moveHead(String.class);
 
-		return SerializedMap.fromJson(this.input.readUTF());
+		return this.binary ? BungeeProtocol.readValue(this.input, SerializedMap.class) : SerializedMap.fromJson(this.input.readUTF());
 	}
 
 	/**
@@ -121,7 +146,7 @@ public final class IncomingMessage extends Message {
 	public <T extends Enum<T>> T readEnum(Class<T> typeOf) {
 		this.moveHead(typeOf);
 
-		return ReflectionUtil.lookupEnum(typeOf, this.input.readUTF());
+		return ReflectionUtil.lookupEnum(typeOf, this.binary ? BungeeProtocol.readValue(this.input, String.class) : this.input.readUTF());
 	}
 
 	/**
@@ -132,7 +157,7 @@ public final class IncomingMessage extends Message {
 	public boolean readBoolean() {
 		this.moveHead(Boolean.class);
 
-		return this.input.readBoolean();
+		return this.binary ? BungeeProtocol.readValue(this.input, Boolean.class) : this.input.readBoolean();
 	}
 
 	/**
@@ -143,7 +168,7 @@ public final class IncomingMessage extends Message {
 	public byte readByte() {
 		this.moveHead(Byte.class);
 
-		return this.input.readByte();
+		return this.binary ? BungeeProtocol.readValue(this.input, Byte.class) : this.input.readByte();
 	}
 
 	/**
@@ -154,6 +179,9 @@ public final class IncomingMessage extends Message {
 	public byte[] readBytes() {
 		this.moveHead(byte[].class);
 
+		if (this.binary)
+			return BungeeProtocol.readValue(this.input, byte[].class);
+
 		final byte[] array = new byte[this.stream.available()];
 
 		try {
@@ -174,7 +202,7 @@ public final class IncomingMessage extends Message {
 	public double readDouble() {
 		this.moveHead(Double.class);
 
-		return this.input.readDouble();
+		return this.binary ? BungeeProtocol.readValue(this.input, Double.class) : this.input.readDouble();
 	}
 
 	/**
@@ -185,7 +213,7 @@ public final class IncomingMessage extends Message {
 	public float readFloat() {
 		this.moveHead(Float.class);
 
-		return this.input.readFloat();
+		return this.binary ? BungeeProtocol.readValue(this.input, Float.class) : this.input.readFloat();
 	}
 
 	/**
@@ -196,7 +224,7 @@ public final class IncomingMessage extends Message {
 	public int readInt() {
 		this.moveHead(Integer.class);
 
-		return this.input.readInt();
+		return this.binary ? BungeeProtocol.readValue(this.input, Integer.class) : this.input.readInt();
 	}
 
 	/**
@@ -207,7 +235,7 @@ public final class IncomingMessage extends Message {
 	public long readLong() {
 		this.moveHead(Long.class);
 
-		return this.input.readLong();
+		return this.binary ? BungeeProtocol.readValue(this.input, Long.class) : this.input.readLong();
 	}
 
 	/**
@@ -218,7 +246,7 @@ public final class IncomingMessage extends Message {
 	public short readShort() {
 		this.moveHead(Short.class);
 
-		return this.input.readShort();
+		return this.binary ? BungeeProtocol.readValue(this.input, Short.class) : this.input.readShort();
 	}
 
 	/**
@@ -7,6 +7,7 @@ import java.util.UUID;
 import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.bungee.BungeeListener;
 import org.mineacademy.fo.bungee.BungeeMessageType;
+import org.mineacademy.fo.bungee.BungeeProtocol;
 import org.mineacademy.fo.collection.SerializedMap;
 import org.mineacademy.fo.exception.FoException;
 import org.mineacademy.fo.plugin.SimplePlugin;
@@ -51,7 +52,7 @@ public final class OutgoingMessage extends Message {
 	 * @param map
 	 */
 	public void writeMap(SerializedMap map) {
-		this.write(map.toJson(), String.class);
+		this.write(map, String.class);
 	}
 
 	/**
@@ -163,6 +164,15 @@ public final class OutgoingMessage extends Message {
 	public byte[] getData(String serverName) {
 		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
 
+		if (this.getListener().isBinaryProtocol()) {
+			BungeeProtocol.writeHeader(out, this.getListener(), new UUID(0, 0), serverName, this.getAction());
+
+			for (final Object object : this.queue)
+				BungeeProtocol.writeValue(out, object);
+
+			return out.toByteArray();
+		}
+
 		// -----------------------------------------------------------------
 		// We are automatically writing the first two strings assuming the
 		// first is the senders server name and the second is the action
@@ -177,6 +187,9 @@ public final class OutgoingMessage extends Message {
 			if (object instanceof String)
 				out.writeUTF((String) object);
 
+			else if (object instanceof SerializedMap)
+				out.writeUTF(((SerializedMap) object).toJson());
+
 			else if (object instanceof Boolean)
 				out.writeBoolean((Boolean) object);
 
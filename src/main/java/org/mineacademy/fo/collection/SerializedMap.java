@@ -1,5 +1,8 @@
 package org.mineacademy.fo.collection;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -21,8 +24,8 @@ import org.mineacademy.fo.SerializeUtil;
 import org.mineacademy.fo.SerializeUtil.Mode;
 import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.exception.FoException;
-import org.mineacademy.fo.jsonsimple.JSONObject;
 import org.mineacademy.fo.jsonsimple.JSONParser;
+import org.mineacademy.fo.jsonsimple.JSONReader;
 import org.mineacademy.fo.model.IsInList;
 import org.mineacademy.fo.model.Tuple;
 import org.mineacademy.fo.plugin.SimplePlugin;
@@ -934,19 +937,12 @@ public final class SerializedMap extends StrictCollection implements Iterable<Ma
 	 * @return
 	 */
 	public String toJson() {
+		final StringWriter writer = new StringWriter();
 
 		try {
-			final JSONObject jsonMap = new JSONObject();
+			this.toJson(writer);
 
-			for (final Map.Entry<String, Object> entry : this.map.entrySet()) {
-				final Object key = SerializeUtil.serialize(Mode.JSON, entry.getKey());
-				final Object value = SerializeUtil.serialize(Mode.JSON, entry.getValue());
-
-				if (key != null && value != null)
-					jsonMap.put(key.toString(), value);
-			}
-
-			return jsonMap.toString();
+			return writer.toString();
 
 		} catch (final Throwable t) {
 			Common.error(t, "Failed to serialize to json, unparsed data: " + this.map);
@@ -955,6 +951,67 @@ public final class SerializedMap extends StrictCollection implements Iterable<Ma
 		}
 	}
 
+	/**
+	 * Writes this map as a JSON object straight into the given writer.
+	 * <p>
+	 * Strings, numbers, booleans and nested serialized maps are written directly,
+	 * other values are serialized using {@link SerializeUtil#serialize(Mode, Object)} first.
+	 * Entries with null keys or values are skipped, nested maps keep their null values.
+	 *
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void toJson(final Writer writer) throws IOException {
+		this.toJson(writer, true);
+	}
+
+	/*
+	 * Write this map, nested maps are written with their null values the same way SerializeUtil does
+	 */
+	private void toJson(final Writer writer, final boolean skipNulls) throws IOException {
+		boolean first = true;
+
+		writer.write('{');
+
+		for (final Map.Entry<String, Object> entry : this.map.entrySet()) {
+			final String key = entry.getKey();
+			Object value = entry.getValue();
+
+			if (key == null || value == null && skipNulls)
+				continue;
+
+			if (value != null && !(value instanceof SerializedMap) && !isJsonPrimitive(value)) {
+				value = SerializeUtil.serialize(Mode.JSON, value);
+
+				if (value == null && skipNulls)
+					continue;
+			}
+
+			if (first)
+				first = false;
+			else
+				writer.write(',');
+
+			JSONParser.serialize(key, writer);
+			writer.write(':');
+
+			if (value instanceof SerializedMap)
+				((SerializedMap) value).toJson(writer, false);
+			else
+				JSONParser.serialize(value, writer);
+		}
+
+		writer.write('}');
+	}
+
+	/*
+	 * Return true if the value can be written to JSON as it is
+	 */
+	private static boolean isJsonPrimitive(final Object value) {
+		return value instanceof String || value instanceof Boolean || value instanceof Integer || value instanceof Long
+				|| value instanceof Double || value instanceof Float || value instanceof Short;
+	}
+
 	/**
 	 * @see Map#isEmpty()
 	 *
@@ -1166,6 +1223,39 @@ public final class SerializedMap extends StrictCollection implements Iterable<Ma
 		throw new FoException("Cannot instantiate SerializedMap(" + mode + ") from " + object.getClass().getSimpleName() + ": " + object);
 	}
 
+	/*
+	 * Put a parsed JSON entry, splitting Spigot's special way of storing maps 'key=value'
+	 */
+	private void putJsonEntry(final String key, final Object value) {
+		if (value == null && key != null && key.indexOf('=') != -1) {
+			final String[] split = key.split("\\=");
+
+			if (split.length == 2) {
+				this.map.override(split[0], split[1]);
+
+				return;
+			}
+		}
+
+		this.map.override(key, value);
+	}
+
+	/**
+	 * Create a new map holding values already parsed from JSON or
+	 * a compatible format, such as binary bungee messages
+	 *
+	 * @param values
+	 * @return
+	 */
+	public static SerializedMap fromJsonValues(@NonNull final Map<String, Object> values) {
+		final SerializedMap map = new SerializedMap(Mode.JSON);
+
+		for (final Map.Entry<String, Object> entry : values.entrySet())
+			map.putJsonEntry(entry.getKey(), entry.getValue());
+
+		return map;
+	}
+
 	/**
 	 * Attempts to parse the given JSON into a serialized map
 	 * <p>
@@ -1180,14 +1270,11 @@ public final class SerializedMap extends StrictCollection implements Iterable<Ma
 		if (json.isEmpty() || "[]".equals(json) || "{}".equals(json))
 			return new SerializedMap(Mode.JSON);
 
-		// Fallback to simple
 		try {
-			final Object parsed = JSONParser.deserialize(json);
-
-			if (parsed instanceof JSONObject)
-				return of(parsed, Mode.JSON);
+			final SerializedMap map = new SerializedMap(Mode.JSON);
 
-			throw new FoException("Expected JSONObject, got " + (parsed != null ? parsed.getClass() : "unknown class") + " from raw JSON input: " + json);
+			JSONReader.readObject(json, map::putJsonEntry);
+			return map;
 
 		} catch (final Throwable secondThrowable) {
 			Common.throwError(secondThrowable, "Failed to parse JSON from " + json);
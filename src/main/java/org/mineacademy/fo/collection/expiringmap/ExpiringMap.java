@@ -362,6 +362,25 @@ public final class ExpiringMap<K, V> implements ConcurrentMap<K, V> {
 			return new ExpiringMap<>((Builder<K1, V1>) this);
 		}
 
+		/**
+		 * Builds and returns a {@link ShardedExpiringMap}, a lock-striped variant for maps
+		 * with heavy concurrent write churn which expires entries using a timing wheel
+		 * instead of one scheduled task per entry.
+		 * <p>
+		 * Every entry may have its own expiration regardless of {@link #variableExpiration()}
+		 * and {@link #maxSize(int)} evicts the least recently used entries of each segment.
+		 *
+		 * @param <K1> Key type
+		 * @param <V1> Value type
+		 * @return
+		 */
+		public <K1 extends K, V1 extends V> ShardedExpiringMap<K1, V1> buildSharded() {
+			final Builder<K1, V1> builder = (Builder<K1, V1>) this;
+
+			return new ShardedExpiringMap<>(builder.expirationPolicy, builder.duration, builder.timeUnit, builder.maxSize,
+					builder.expirationListeners, builder.asyncExpirationListeners, builder.entryLoader, builder.expiringEntryLoader);
+		}
+
 		/**
 		 * Sets the default map entry expiration.
 		 *
@@ -0,0 +1,1322 @@
+package org.mineacademy.fo.collection.expiringmap;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.mineacademy.fo.Common;
+import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.collection.expiringmap.ExpiringMap.ExpirationListener;
+
+/**
+ * A high-throughput variant of {@link ExpiringMap} for maps with heavy concurrent
+ * write churn, such as per-player cooldowns and caches.
+ *
+ * <p>
+ * Entries are spread over lock-striped segments so that threads working with
+ * different keys do not block each other. Instead of scheduling one future per entry,
+ * each segment keeps its entries in a hashed timing wheel which a single shared
+ * thread advances every {@link #TICK_MILLIS} milliseconds, expiring due entries
+ * in amortized <i>O(1)</i>. Reads check the deadline themselves, so expired entries
+ * are never returned even before the wheel reaches them.
+ *
+ * <p>
+ * When a maximum size is set, each segment holds its share of it and evicts its least
+ * recently used entry once full, so the size bound and the LRU order are per segment: a segment
+ * may evict while others still have room. Maps are only split once each segment can hold at
+ * least {@link #MIN_SEGMENT_CAPACITY} entries, so small bounded maps keep one exact global LRU.
+ * Evicted entries are passed to the expiration listeners.
+ * Every entry may have its own expiration, variable expiration does not need to be enabled.
+ *
+ * <p>
+ * Synchronous expiration listeners are called on the thread that found the entry expired or evicted it:
+ * the shared expiring thread, or the thread calling a method of this map.
+ *
+ * <p>
+ * Create it using the same builder as {@link ExpiringMap}:
+ *
+ * <pre>
+ * {
+ * 	&#64;code
+ * 	Map<UUID, Long> cooldowns = ExpiringMap.builder().expiration(30, TimeUnit.MINUTES).buildSharded();
+ * }
+ * </pre>
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public final class ShardedExpiringMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	/**
+	 * How often the timing wheel advances, one Minecraft tick
+	 */
+	public static final long TICK_MILLIS = 50;
+
+	/**
+	 * The wheel tick in nanoseconds
+	 */
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+	/**
+	 * How many buckets each wheel has, must be a power of two
+	 */
+	private static final int WHEEL_SIZE = 512;
+
+	/**
+	 * The mask to get a bucket from a tick
+	 */
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/**
+	 * The maximum amount of segments
+	 */
+	private static final int MAX_SEGMENTS = 16;
+
+	/**
+	 * The least entries a segment of a bounded map must be able to hold
+	 */
+	public static final int MIN_SEGMENT_CAPACITY = 64;
+
+	/**
+	 * Durations are capped to this value so that deadlines never overflow
+	 */
+	private static final long MAX_DURATION_NANOS = Long.MAX_VALUE >> 2;
+
+	/**
+	 * All created maps, advanced by the one shared ticker
+	 */
+	private static final Queue<WeakReference<ShardedExpiringMap<?, ?>>> instances = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The shared ticker running on {@link ExpiringMap#EXPIRER}
+	 */
+	private static volatile ScheduledFuture<?> ticker;
+
+	/**
+	 * The lock-striped segments
+	 */
+	private final Segment<K, V>[] segments;
+
+	/**
+	 * The shift to get a segment index from a key hash
+	 */
+	private final int segmentShift;
+
+	/**
+	 * The time the wheels started at, ticks are counted from it
+	 */
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * The default expiration in nanoseconds
+	 */
+	private volatile long expirationNanos;
+
+	/**
+	 * The default expiration policy
+	 */
+	private volatile ExpirationPolicy expirationPolicy;
+
+	/**
+	 * The maximum size of the map
+	 */
+	private final int maxSize;
+
+	/**
+	 * The entry loader or null if not set
+	 */
+	private final EntryLoader<? super K, ? extends V> entryLoader;
+
+	/**
+	 * The expiring entry loader or null if not set
+	 */
+	private final ExpiringEntryLoader<? super K, ? extends V> expiringEntryLoader;
+
+	/**
+	 * Keys being loaded right now, so that concurrent reads of the same key wait
+	 * for one load instead of calling the loader again
+	 */
+	private final ConcurrentMap<K, PendingLoad<V>> pendingLoads = new ConcurrentHashMap<>();
+
+	/**
+	 * Listeners called on the thread which expired or evicted the entry
+	 */
+	private final List<ExpirationListener<K, V>> expirationListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Listeners called on {@link ExpiringMap#LISTENER_SERVICE}
+	 */
+	private final List<ExpirationListener<K, V>> asyncExpirationListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Creates a new map, see {@link ExpiringMap.Builder#buildSharded()}
+	 */
+	ShardedExpiringMap(ExpirationPolicy expirationPolicy, long duration, TimeUnit timeUnit, int maxSize,
+			List<ExpirationListener<K, V>> expirationListeners, List<ExpirationListener<K, V>> asyncExpirationListeners,
+			EntryLoader<? super K, ? extends V> entryLoader, ExpiringEntryLoader<? super K, ? extends V> expiringEntryLoader) {
+
+		this.expirationPolicy = expirationPolicy;
+		this.expirationNanos = clampDuration(TimeUnit.NANOSECONDS.convert(duration, timeUnit));
+		this.maxSize = maxSize;
+		this.entryLoader = entryLoader;
+		this.expiringEntryLoader = expiringEntryLoader;
+
+		if (expirationListeners != null)
+			this.expirationListeners.addAll(expirationListeners);
+
+		if (asyncExpirationListeners != null)
+			this.asyncExpirationListeners.addAll(asyncExpirationListeners);
+
+		// Only split bounded maps large enough for each segment to keep a meaningful LRU
+		int segmentCount = 1;
+
+		while (segmentCount < MAX_SEGMENTS && (long) segmentCount * 2 * MIN_SEGMENT_CAPACITY <= maxSize)
+			segmentCount *= 2;
+
+		this.segments = new Segment[segmentCount];
+		this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+
+		for (int i = 0; i < segmentCount; i++) {
+			final boolean bounded = maxSize != Integer.MAX_VALUE;
+			final int capacity = bounded ? maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0) : Integer.MAX_VALUE;
+
+			this.segments[i] = new Segment<>(capacity, bounded);
+		}
+
+		register(this);
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Reading
+	// ------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public V get(Object key) {
+		final Segment<K, V> segment = this.segmentFor(key);
+		final long now = System.nanoTime();
+
+		List<Node<K, V>> expired = null;
+		Node<K, V> node;
+		V value = null;
+
+		segment.lock();
+
+		try {
+			node = segment.entries.get(key);
+
+			if (node != null && node.isExpired(now)) {
+				expired = segment.expire(node, expired);
+				node = null;
+			}
+
+			if (node != null) {
+				if (node.policy == ExpirationPolicy.ACCESSED)
+					this.schedule(segment, node, now);
+
+				value = node.value;
+			}
+
+		} finally {
+			segment.unlock();
+		}
+
+		this.notifyListeners(expired);
+
+		return node != null ? value : this.load((K) key);
+	}
+
+	/*
+	 * Load the value for the given key using our entry loader if set. The loader is called
+	 * without holding the segment lock so that slow loads do not block other keys, and
+	 * concurrent loads of the same key wait for the first one instead of loading again.
+	 */
+	private V load(K key) {
+		if (key == null || this.entryLoader == null && this.expiringEntryLoader == null)
+			return null;
+
+		final PendingLoad<V> ownLoad = new PendingLoad<>();
+		final PendingLoad<V> otherLoad = this.pendingLoads.putIfAbsent(key, ownLoad);
+
+		if (otherLoad != null)
+			return otherLoad.await(key);
+
+		try {
+			final V value = this.loadAndStore(key);
+
+			ownLoad.future.complete(value);
+
+			return value;
+
+		} catch (RuntimeException | Error ex) {
+			ownLoad.future.completeExceptionally(ex);
+
+			throw ex;
+
+		} finally {
+			this.pendingLoads.remove(key, ownLoad);
+		}
+	}
+
+	/*
+	 * Call the loader and store its value, unless another thread stored one meanwhile
+	 */
+	private V loadAndStore(K key) {
+
+		// Double check another thread has not stored it before we started loading
+		final Node<K, V> existing = this.findNode(key);
+
+		if (existing != null)
+			return existing.value;
+
+		final V value;
+		ExpirationPolicy policy = this.expirationPolicy;
+		long durationNanos = this.expirationNanos;
+
+		if (this.entryLoader != null)
+			value = this.entryLoader.load(key);
+
+		else {
+			final ExpiringValue<? extends V> expiringValue = this.expiringEntryLoader.load(key);
+
+			if (expiringValue == null)
+				value = null;
+
+			else {
+				value = expiringValue.getValue();
+
+				if (expiringValue.getTimeUnit() != null)
+					durationNanos = clampDuration(TimeUnit.NANOSECONDS.convert(expiringValue.getDuration(), expiringValue.getTimeUnit()));
+
+				if (expiringValue.getExpirationPolicy() != null)
+					policy = expiringValue.getExpirationPolicy();
+			}
+		}
+
+		final Segment<K, V> segment = this.segmentFor(key);
+		final long now = System.nanoTime();
+
+		List<Node<K, V>> expired = null;
+		V result = value;
+
+		segment.lock();
+
+		try {
+			final Node<K, V> stored = segment.entries.get(key);
+
+			// A value put while we were loading is newer than ours, keep it
+			if (stored != null && !stored.isExpired(now))
+				result = stored.value;
+			else
+				expired = this.putLocked(segment, key, value, policy, durationNanos, false, now, expired);
+
+		} finally {
+			segment.unlock();
+		}
+
+		this.notifyListeners(expired);
+
+		return result;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.findNode(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		final long now = System.nanoTime();
+
+		for (final Segment<K, V> segment : this.segments) {
+			segment.lock();
+
+			try {
+				for (final Node<K, V> node : segment.entries.values())
+					if (!node.isExpired(now) && Objects.equals(node.value, value))
+						return true;
+
+			} finally {
+				segment.unlock();
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the amount of entries, including those that expired
+	 * within the last {@link #TICK_MILLIS} and were not yet removed.
+	 */
+	@Override
+	public int size() {
+		long size = 0;
+
+		for (final Segment<K, V> segment : this.segments)
+			size += segment.count;
+
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (final Segment<K, V> segment : this.segments)
+			if (segment.count > 0)
+				return false;
+
+		return true;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Writing
+	// ------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public V put(K key, V value) {
+		return this.put(key, value, this.expirationPolicy, this.expirationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param key
+	 * @param value
+	 * @param expirationPolicy
+	 * @return
+	 * @see #put(Object, Object, ExpirationPolicy, long, TimeUnit)
+	 */
+	public V put(K key, V value, ExpirationPolicy expirationPolicy) {
+		return this.put(key, value, expirationPolicy, this.expirationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param key
+	 * @param value
+	 * @param duration
+	 * @param timeUnit
+	 * @return
+	 * @see #put(Object, Object, ExpirationPolicy, long, TimeUnit)
+	 */
+	public V put(K key, V value, long duration, TimeUnit timeUnit) {
+		return this.put(key, value, this.expirationPolicy, duration, timeUnit);
+	}
+
+	/**
+	 * Puts {@code value} in the map for {@code key}. Resets the entry's expiration
+	 * unless an entry already exists for the same {@code key} and {@code value}.
+	 *
+	 * @param key              Key to put value for
+	 * @param value            Value to put for key
+	 * @param expirationPolicy
+	 * @param duration         the length of time after an entry is created that it should be removed
+	 * @param timeUnit         the unit that {@code duration} is expressed in
+	 * @return the old value
+	 */
+	public V put(K key, V value, ExpirationPolicy expirationPolicy, long duration, TimeUnit timeUnit) {
+		return this.putInternal(key, value, expirationPolicy, duration, timeUnit, false);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		return this.putInternal(key, value, this.expirationPolicy, this.expirationNanos, TimeUnit.NANOSECONDS, true);
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		Valid.checkNotNull(map, "map");
+
+		for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet())
+			this.put(entry.getKey(), entry.getValue());
+	}
+
+	/*
+	 * Put the value, returning the previous one
+	 */
+	private V putInternal(K key, V value, ExpirationPolicy expirationPolicy, long duration, TimeUnit timeUnit, boolean onlyIfAbsent) {
+		Valid.checkNotNull(key, "key");
+		Valid.checkNotNull(expirationPolicy, "expirationPolicy");
+		Valid.checkNotNull(timeUnit, "timeUnit");
+
+		final Segment<K, V> segment = this.segmentFor(key);
+		final long now = System.nanoTime();
+
+		List<Node<K, V>> expired = null;
+		V previous = null;
+
+		segment.lock();
+
+		try {
+			final Node<K, V> existing = segment.entries.get(key);
+			final boolean present = existing != null && !existing.isExpired(now);
+
+			if (present)
+				previous = existing.value;
+
+			if (!onlyIfAbsent || !present)
+				expired = this.putLocked(segment, key, value, expirationPolicy, clampDuration(TimeUnit.NANOSECONDS.convert(duration, timeUnit)), true, now, expired);
+
+		} finally {
+			segment.unlock();
+		}
+
+		this.notifyListeners(expired);
+
+		return previous;
+	}
+
+	/*
+	 * Put the value while holding the segment lock, returning the list of entries
+	 * which expired or were evicted to notify the listeners about once unlocked
+	 */
+	private List<Node<K, V>> putLocked(Segment<K, V> segment, K key, V value, ExpirationPolicy policy, long durationNanos, boolean keepSameValue, long now, List<Node<K, V>> expired) {
+		Node<K, V> node = segment.entries.get(key);
+
+		if (node != null && node.isExpired(now)) {
+			expired = segment.expire(node, expired);
+			node = null;
+		}
+
+		if (node == null) {
+			node = new Node<>(key, value, policy, durationNanos);
+
+			segment.entries.put(key, node);
+			segment.count++;
+
+			this.schedule(segment, node, now);
+
+			return segment.evictOverflow(expired);
+		}
+
+		// Same as ExpiringMap, putting the same value does not reset its creation time
+		if (keepSameValue && policy != ExpirationPolicy.ACCESSED && Objects.equals(node.value, value))
+			return expired;
+
+		node.value = value;
+		node.policy = policy;
+		node.durationNanos = durationNanos;
+
+		this.schedule(segment, node, now);
+
+		return expired;
+	}
+
+	@Override
+	public V remove(Object key) {
+		final Segment<K, V> segment = this.segmentFor(key);
+		final long now = System.nanoTime();
+
+		List<Node<K, V>> expired = null;
+		V previous = null;
+
+		segment.lock();
+
+		try {
+			final Node<K, V> node = segment.entries.get(key);
+
+			if (node != null)
+				if (node.isExpired(now))
+					expired = segment.expire(node, expired);
+
+				else {
+					previous = node.value;
+
+					segment.removeNode(node);
+				}
+
+		} finally {
+			segment.unlock();
+		}
+
+		this.notifyListeners(expired);
+
+		return previous;
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		final Segment<K, V> segment = this.segmentFor(key);
+
+		segment.lock();
+
+		try {
+			final Node<K, V> node = segment.entries.get(key);
+
+			if (node != null && !node.isExpired(System.nanoTime()) && Objects.equals(node.value, value)) {
+				segment.removeNode(node);
+
+				return true;
+			}
+
+		} finally {
+			segment.unlock();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Replaces the value if the key is present, resetting its expiration the same way {@link #put(Object, Object)} does.
+	 */
+	@Override
+	public V replace(K key, V value) {
+		Valid.checkNotNull(key, "key");
+
+		final Segment<K, V> segment = this.segmentFor(key);
+		final long now = System.nanoTime();
+
+		List<Node<K, V>> expired = null;
+		V previous = null;
+
+		segment.lock();
+
+		try {
+			final Node<K, V> node = segment.entries.get(key);
+
+			if (node != null && !node.isExpired(now)) {
+				previous = node.value;
+
+				expired = this.putLocked(segment, key, value, this.expirationPolicy, this.expirationNanos, true, now, expired);
+			}
+
+		} finally {
+			segment.unlock();
+		}
+
+		this.notifyListeners(expired);
+
+		return previous;
+	}
+
+	/**
+	 * Replaces the value if the key maps to the old value, resetting its expiration the same way {@link #put(Object, Object)} does.
+	 */
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Valid.checkNotNull(key, "key");
+
+		final Segment<K, V> segment = this.segmentFor(key);
+		final long now = System.nanoTime();
+
+		List<Node<K, V>> expired = null;
+		boolean replaced = false;
+
+		segment.lock();
+
+		try {
+			final Node<K, V> node = segment.entries.get(key);
+
+			if (node != null && !node.isExpired(now) && Objects.equals(node.value, oldValue)) {
+				expired = this.putLocked(segment, key, newValue, this.expirationPolicy, this.expirationNanos, true, now, expired);
+				replaced = true;
+			}
+
+		} finally {
+			segment.unlock();
+		}
+
+		this.notifyListeners(expired);
+
+		return replaced;
+	}
+
+	/**
+	 * Removes all entries without notifying the expiration listeners.
+	 */
+	@Override
+	public void clear() {
+		for (final Segment<K, V> segment : this.segments) {
+			segment.lock();
+
+			try {
+				segment.clear();
+
+			} finally {
+				segment.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Returns a view of the entries. Iterating it walks over a snapshot of each segment,
+	 * removing and setting values writes through to the map.
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return ShardedExpiringMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				ShardedExpiringMap.this.clear();
+			}
+		};
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Expiration
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the map's default expiration duration in milliseconds.
+	 *
+	 * @return The expiration duration (milliseconds)
+	 */
+	public long getExpiration() {
+		return TimeUnit.NANOSECONDS.toMillis(this.expirationNanos);
+	}
+
+	/**
+	 * Gets the expiration duration in milliseconds for the entry corresponding to
+	 * the given key.
+	 *
+	 * @param key
+	 * @return The expiration duration in milliseconds
+	 * @throws NoSuchElementException If no entry exists for the given key
+	 */
+	public long getExpiration(K key) {
+		return TimeUnit.NANOSECONDS.toMillis(this.getNode(key).durationNanos);
+	}
+
+	/**
+	 * Gets the expected expiration, in milliseconds from the current time, for the
+	 * entry corresponding to the given {@code key}.
+	 *
+	 * @param key
+	 * @return The expiration duration in milliseconds
+	 * @throws NoSuchElementException If no entry exists for the given key
+	 */
+	public long getExpectedExpiration(K key) {
+		return TimeUnit.NANOSECONDS.toMillis(this.getNode(key).deadlineNanos - System.nanoTime());
+	}
+
+	/**
+	 * Gets the ExpirationPolicy for the entry corresponding to the given {@code key}.
+	 *
+	 * @param key
+	 * @return The ExpirationPolicy for the {@code key}
+	 * @throws NoSuchElementException If no entry exists for the given key
+	 */
+	public ExpirationPolicy getExpirationPolicy(K key) {
+		return this.getNode(key).policy;
+	}
+
+	/**
+	 * Updates the default map entry expiration, applied to new entries.
+	 *
+	 * @param duration the length of time after an entry is created that it should be removed
+	 * @param timeUnit the unit that {@code duration} is expressed in
+	 */
+	public void setExpiration(long duration, TimeUnit timeUnit) {
+		Valid.checkNotNull(timeUnit, "timeUnit");
+
+		this.expirationNanos = clampDuration(TimeUnit.NANOSECONDS.convert(duration, timeUnit));
+	}
+
+	/**
+	 * Sets the expiration duration for the entry corresponding to the given key
+	 * and resets its expiration.
+	 *
+	 * @param key      Key to set expiration for
+	 * @param duration the length of time after an entry is created that it should be removed
+	 * @param timeUnit the unit that {@code duration} is expressed in
+	 */
+	public void setExpiration(K key, long duration, TimeUnit timeUnit) {
+		Valid.checkNotNull(key, "key");
+		Valid.checkNotNull(timeUnit, "timeUnit");
+
+		this.updateNode(key, clampDuration(TimeUnit.NANOSECONDS.convert(duration, timeUnit)));
+	}
+
+	/**
+	 * Resets expiration for the entry corresponding to {@code key}.
+	 *
+	 * @param key to reset expiration for
+	 */
+	public void resetExpiration(K key) {
+		Valid.checkNotNull(key, "key");
+
+		this.updateNode(key, -1);
+	}
+
+	/**
+	 * Sets the default expiration policy, applied to new entries.
+	 *
+	 * @param expirationPolicy
+	 */
+	public void setExpirationPolicy(ExpirationPolicy expirationPolicy) {
+		Valid.checkNotNull(expirationPolicy, "expirationPolicy");
+
+		this.expirationPolicy = expirationPolicy;
+	}
+
+	/**
+	 * Gets the maximum size of the map. Once a segment holds its share of it,
+	 * adding an entry evicts the least recently used one in that segment,
+	 * even if other segments still have room.
+	 *
+	 * @return The maximum size of the map.
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Adds an expiration listener, called on the thread which expired or evicted the entry:
+	 * the shared expiring thread, or the thread calling a method of this map.
+	 *
+	 * @param listener to add
+	 */
+	public void addExpirationListener(ExpirationListener<K, V> listener) {
+		Valid.checkNotNull(listener, "listener");
+
+		this.expirationListeners.add(listener);
+	}
+
+	/**
+	 * Adds an asynchronous expiration listener.
+	 *
+	 * @param listener to add
+	 */
+	public void addAsyncExpirationListener(ExpirationListener<K, V> listener) {
+		Valid.checkNotNull(listener, "listener");
+
+		this.asyncExpirationListeners.add(listener);
+	}
+
+	/**
+	 * Removes an expiration listener.
+	 *
+	 * @param listener to remove
+	 */
+	public void removeExpirationListener(ExpirationListener<K, V> listener) {
+		this.expirationListeners.remove(listener);
+	}
+
+	/**
+	 * Removes an asynchronous expiration listener.
+	 *
+	 * @param listener to remove
+	 */
+	public void removeAsyncExpirationListener(ExpirationListener<K, V> listener) {
+		this.asyncExpirationListeners.remove(listener);
+	}
+
+	/*
+	 * Reset the node's deadline, optionally changing its duration if not negative
+	 */
+	private void updateNode(K key, long durationNanos) {
+		final Segment<K, V> segment = this.segmentFor(key);
+		final long now = System.nanoTime();
+
+		segment.lock();
+
+		try {
+			final Node<K, V> node = segment.entries.get(key);
+
+			if (node != null && !node.isExpired(now)) {
+				if (durationNanos >= 0)
+					node.durationNanos = durationNanos;
+
+				this.schedule(segment, node, now);
+			}
+
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/*
+	 * Return the live node for the key or throw if none
+	 */
+	private Node<K, V> getNode(K key) {
+		Valid.checkNotNull(key, "key");
+
+		final Node<K, V> node = this.findNode(key);
+
+		if (node == null)
+			throw new NoSuchElementException("No entry for key " + key);
+
+		return node;
+	}
+
+	/*
+	 * Return the live node for the key or null
+	 */
+	private Node<K, V> findNode(Object key) {
+		final Segment<K, V> segment = this.segmentFor(key);
+
+		segment.lock();
+
+		try {
+			final Node<K, V> node = segment.entries.get(key);
+
+			return node != null && !node.isExpired(System.nanoTime()) ? node : null;
+
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/*
+	 * Set the node's deadline and move it to its wheel bucket, must hold the segment lock
+	 */
+	private void schedule(Segment<K, V> segment, Node<K, V> node, long now) {
+		node.deadlineNanos = now + node.durationNanos;
+
+		// Round up so that the bucket is never visited before the deadline
+		final long tick = Math.max((node.deadlineNanos - this.startNanos + TICK_NANOS - 1) / TICK_NANOS, segment.currentTick + 1);
+
+		segment.unlink(node);
+		segment.link(node, (int) (tick & WHEEL_MASK));
+	}
+
+	/*
+	 * Advance all segment wheels to the given time, expiring due entries
+	 */
+	private void advance(long now) {
+		final long nowTick = (now - this.startNanos) / TICK_NANOS;
+
+		for (final Segment<K, V> segment : this.segments) {
+
+			// Skip without locking, the wheel catches up once it has entries again
+			if (segment.count == 0)
+				continue;
+
+			List<Node<K, V>> expired = null;
+
+			segment.lock();
+
+			try {
+				expired = segment.advance(nowTick, now, expired);
+
+			} finally {
+				segment.unlock();
+			}
+
+			this.notifyListeners(expired);
+		}
+	}
+
+	/*
+	 * Notify listeners about the given expired entries, call without holding any lock
+	 */
+	private void notifyListeners(List<Node<K, V>> expired) {
+		if (expired == null)
+			return;
+
+		for (final Node<K, V> node : expired) {
+			for (final ExpirationListener<K, V> listener : this.asyncExpirationListeners)
+				getListenerService().execute(() -> {
+					try {
+						listener.expired(node.key, node.value);
+					} catch (final Exception ignoreUserExceptions) {
+					}
+				});
+
+			for (final ExpirationListener<K, V> listener : this.expirationListeners)
+				try {
+					listener.expired(node.key, node.value);
+				} catch (final Exception ignoreUserExceptions) {
+				}
+		}
+	}
+
+	/*
+	 * Return the segment for the given key, using the high bits of the
+	 * spread hash since the segment hash maps use the low ones
+	 */
+	private Segment<K, V> segmentFor(Object key) {
+		if (this.segments.length == 1)
+			return this.segments[0];
+
+		final int hash = key == null ? 0 : key.hashCode() * 0x9E3779B9;
+
+		return this.segments[hash >>> this.segmentShift];
+	}
+
+	/*
+	 * Cap the duration so that adding it to the current time never overflows
+	 */
+	private static long clampDuration(long durationNanos) {
+		return Math.min(Math.max(durationNanos, 0), MAX_DURATION_NANOS);
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Shared ticker
+	// ------------------------------------------------------------------------------------------------------------
+
+	/*
+	 * Register the map to the shared ticker, starting it on the first map
+	 */
+	private static void register(ShardedExpiringMap<?, ?> map) {
+		instances.add(new WeakReference<>(map));
+
+		if (ticker == null)
+			synchronized (ExpiringMap.class) {
+				if (ExpiringMap.EXPIRER == null)
+					ExpiringMap.EXPIRER = Executors.newSingleThreadScheduledExecutor(
+							ExpiringMap.THREAD_FACTORY == null ? new NamedThreadFactory("ExpiringMap-Expirer") : ExpiringMap.THREAD_FACTORY);
+
+				if (ticker == null)
+					ticker = ExpiringMap.EXPIRER.scheduleAtFixedRate(ShardedExpiringMap::tickAll, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+			}
+	}
+
+	/*
+	 * Advance the wheels of all maps, dropping the ones garbage collected
+	 */
+	private static void tickAll() {
+		final long now = System.nanoTime();
+
+		for (final Iterator<WeakReference<ShardedExpiringMap<?, ?>>> it = instances.iterator(); it.hasNext();) {
+			final ShardedExpiringMap<?, ?> map = it.next().get();
+
+			if (map == null) {
+				it.remove();
+
+				continue;
+			}
+
+			// Never let one map stop the ticker for all others
+			try {
+				map.advance(now);
+
+			} catch (final Throwable t) {
+				Common.error(t, "Error expiring entries of " + map.getClass().getSimpleName());
+			}
+		}
+	}
+
+	/**
+	 * Stop the shared ticker. Maps created afterwards start it again,
+	 * existing maps keep rejecting expired entries on read but no longer
+	 * expire them in the background.
+	 *
+	 * @deprecated internal use only, called automatically when the plugin disables
+	 */
+	@Deprecated
+	public static void shutdownTicker() {
+		synchronized (ExpiringMap.class) {
+			if (ticker != null) {
+				ticker.cancel(false);
+
+				ticker = null;
+			}
+		}
+	}
+
+	/*
+	 * Return the shared listener service, creating it if needed
+	 */
+	private static ThreadPoolExecutor getListenerService() {
+		if (ExpiringMap.LISTENER_SERVICE == null)
+			synchronized (ExpiringMap.class) {
+				if (ExpiringMap.LISTENER_SERVICE == null)
+					ExpiringMap.LISTENER_SERVICE = (ThreadPoolExecutor) Executors.newCachedThreadPool(
+							ExpiringMap.THREAD_FACTORY == null ? new NamedThreadFactory("ExpiringMap-Listener-%s") : ExpiringMap.THREAD_FACTORY);
+			}
+
+		return ExpiringMap.LISTENER_SERVICE;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Classes
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * A load in progress other threads loading the same key wait for.
+	 */
+	private static final class PendingLoad<V> {
+		final CompletableFuture<V> future = new CompletableFuture<>();
+		final Thread thread = Thread.currentThread();
+
+		/*
+		 * Wait for the load to finish, rethrowing what the loader threw
+		 */
+		V await(Object key) {
+			Valid.checkBoolean(this.thread != Thread.currentThread(), "Recursive load of key %s from within its own loader", key);
+
+			try {
+				return this.future.join();
+
+			} catch (final CompletionException ex) {
+				final Throwable cause = ex.getCause();
+
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+
+				if (cause instanceof Error)
+					throw (Error) cause;
+
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * A single stored entry, linked into its segment's timing wheel bucket.
+	 * Mutable fields are guarded by the segment lock.
+	 */
+	private static final class Node<K, V> {
+		final K key;
+		volatile V value;
+		volatile ExpirationPolicy policy;
+		volatile long durationNanos;
+		volatile long deadlineNanos;
+
+		/**
+		 * The wheel bucket, -1 if not linked
+		 */
+		int bucket = -1;
+		Node<K, V> previous, next;
+
+		Node(K key, V value, ExpirationPolicy policy, long durationNanos) {
+			this.key = key;
+			this.value = value;
+			this.policy = policy;
+			this.durationNanos = durationNanos;
+		}
+
+		boolean isExpired(long now) {
+			return this.deadlineNanos - now <= 0;
+		}
+	}
+
+	/**
+	 * A lock-striped part of the map holding its entries and their timing wheel.
+	 */
+	private static final class Segment<K, V> extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The entries, in access order when the map is bounded for LRU eviction
+		 */
+		final LinkedHashMap<K, Node<K, V>> entries;
+
+		/**
+		 * The heads of the wheel buckets, created on first use since many maps stay empty
+		 */
+		Node<K, V>[] wheel;
+
+		/**
+		 * The maximum entries in this segment
+		 */
+		final int capacity;
+
+		/**
+		 * The entry count, volatile so that the ticker and size() can read it without locking
+		 */
+		volatile int count;
+
+		/**
+		 * The last tick this wheel was advanced to
+		 */
+		long currentTick;
+
+		Segment(int capacity, boolean accessOrder) {
+			this.capacity = capacity;
+			this.entries = new LinkedHashMap<>(16, 0.75F, accessOrder);
+		}
+
+		/*
+		 * Expire all entries in buckets between the last and the given tick
+		 */
+		List<Node<K, V>> advance(long nowTick, long now, List<Node<K, V>> expired) {
+			if (nowTick <= this.currentTick || this.wheel == null)
+				return expired;
+
+			// Behind by a whole rotation or more, visiting each bucket once is enough
+			final long steps = Math.min(nowTick - this.currentTick, WHEEL_SIZE);
+
+			for (long tick = nowTick - steps + 1; tick <= nowTick; tick++) {
+				Node<K, V> node = this.wheel[(int) (tick & WHEEL_MASK)];
+
+				while (node != null) {
+					final Node<K, V> next = node.next;
+
+					// Entries due in later rotations stay where they are
+					if (node.isExpired(now))
+						expired = this.expire(node, expired);
+
+					node = next;
+				}
+			}
+
+			this.currentTick = nowTick;
+
+			return expired;
+		}
+
+		/*
+		 * Remove the node and add it to the list of expired ones
+		 */
+		List<Node<K, V>> expire(Node<K, V> node, List<Node<K, V>> expired) {
+			this.removeNode(node);
+
+			if (expired == null)
+				expired = new ArrayList<>(4);
+
+			expired.add(node);
+
+			return expired;
+		}
+
+		/*
+		 * Evict least recently used entries above our capacity
+		 */
+		List<Node<K, V>> evictOverflow(List<Node<K, V>> expired) {
+			while (this.count > this.capacity)
+				expired = this.expire(this.entries.values().iterator().next(), expired);
+
+			return expired;
+		}
+
+		void removeNode(Node<K, V> node) {
+			this.entries.remove(node.key);
+			this.unlink(node);
+			this.count--;
+		}
+
+		void link(Node<K, V> node, int bucket) {
+			if (this.wheel == null)
+				this.wheel = new Node[WHEEL_SIZE];
+
+			final Node<K, V> head = this.wheel[bucket];
+
+			node.bucket = bucket;
+			node.previous = null;
+			node.next = head;
+
+			if (head != null)
+				head.previous = node;
+
+			this.wheel[bucket] = node;
+		}
+
+		void unlink(Node<K, V> node) {
+			if (node.bucket == -1)
+				return;
+
+			if (node.previous != null)
+				node.previous.next = node.next;
+			else
+				this.wheel[node.bucket] = node.next;
+
+			if (node.next != null)
+				node.next.previous = node.previous;
+
+			node.bucket = -1;
+			node.previous = null;
+			node.next = null;
+		}
+
+		void clear() {
+			this.entries.clear();
+			this.wheel = null;
+			this.count = 0;
+		}
+	}
+
+	/**
+	 * Iterates over a snapshot of live entries, one segment at a time.
+	 */
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+		private int segmentIndex = 0;
+		private Iterator<Map.Entry<K, V>> current = null;
+		private Map.Entry<K, V> last = null;
+
+		@Override
+		public boolean hasNext() {
+			while (this.current == null || !this.current.hasNext()) {
+				if (this.segmentIndex >= ShardedExpiringMap.this.segments.length)
+					return false;
+
+				this.current = this.snapshot(ShardedExpiringMap.this.segments[this.segmentIndex++]);
+			}
+
+			return true;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+
+			this.last = this.current.next();
+
+			return this.last;
+		}
+
+		@Override
+		public void remove() {
+			Valid.checkBoolean(this.last != null, "Call next() before remove()");
+
+			ShardedExpiringMap.this.remove(this.last.getKey());
+			this.last = null;
+		}
+
+		private Iterator<Map.Entry<K, V>> snapshot(Segment<K, V> segment) {
+			final long now = System.nanoTime();
+			final List<Map.Entry<K, V>> entries;
+
+			segment.lock();
+
+			try {
+				entries = new ArrayList<>(segment.entries.size());
+
+				for (final Node<K, V> node : segment.entries.values())
+					if (!node.isExpired(now))
+						entries.add(new WriteThroughEntry(node.key, node.value));
+
+			} finally {
+				segment.unlock();
+			}
+
+			return entries.iterator();
+		}
+	}
+
+	/**
+	 * An entry which puts its new value into the map when set.
+	 */
+	private final class WriteThroughEntry extends AbstractMap.SimpleEntry<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		WriteThroughEntry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			ShardedExpiringMap.this.put(this.getKey(), value);
+
+			return super.setValue(value);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package org.mineacademy.fo.command;
+
+import java.util.List;
+
+import org.mineacademy.fo.debug.LagCatcher;
+import org.mineacademy.fo.settings.SimpleSettings;
+
+/**
+ * A sample sub-command that you can automatically add
+ * to your main command group to print the count, p50, p95, p99 and max
+ * latency of each section measured by {@link LagCatcher}.
+ * <p>
+ * Use /{label} lag reset to clear the recorded histograms.
+ */
+public final class LagCommand extends SimpleSubCommand {
+
+	/**
+	 * Create a new sub-command with the given permission.
+	 *
+	 * @param permission
+	 */
+	public LagCommand(String permission) {
+		this();
+
+		this.setPermission(permission);
+	}
+
+	/**
+	 * Create a new lag sub-command
+	 */
+	public LagCommand() {
+		super("lag");
+
+		this.setDescription("Print measured section latencies.");
+		this.setUsage("[reset]");
+	}
+
+	@Override
+	protected void onCommand() {
+		this.checkBoolean(SimpleSettings.LAG_THRESHOLD_MILLIS != -1, "Lag measuring is disabled, set Log_Lag_Over_Milis to 0 or greater.");
+
+		if (this.args.length > 0) {
+			this.checkBoolean("reset".equalsIgnoreCase(this.args[0]), "Usage: /{label} {sublabel} " + this.getUsage());
+
+			LagCatcher.resetHistograms();
+			this.tellSuccess("Cleared recorded section latencies.");
+
+			return;
+		}
+
+		final List<String> lines = LagCatcher.dumpHistograms();
+
+		this.checkBoolean(!lines.isEmpty(), "No sections were measured yet.");
+
+		this.tellNoPrefix("&8" + this.getDivider());
+		this.tellNoPrefix(" &6Section latencies &7(" + lines.size() + ", slowest p99 first)");
+		this.tellNoPrefix("&8" + this.getDivider());
+
+		for (final String line : lines)
+			this.tellNoPrefix(" &7" + line);
+	}
+
+	/*
+	 * Return a chat divider line
+	 */
+	private String getDivider() {
+		return "&m-----------------------------------------------------";
+	}
+
+	/**
+	 * @see org.mineacademy.fo.command.SimpleCommand#tabComplete()
+	 */
+	@Override
+	protected List<String> tabComplete() {
+		return this.args.length == 1 ? this.completeLastWord("reset") : NO_COMPLETE;
+	}
+}
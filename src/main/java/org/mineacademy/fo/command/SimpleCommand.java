@@ -32,6 +32,7 @@ import org.mineacademy.fo.TabUtil;
 import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.collection.StrictList;
 import org.mineacademy.fo.collection.expiringmap.ExpiringMap;
+import org.mineacademy.fo.collection.expiringmap.ShardedExpiringMap;
 import org.mineacademy.fo.command.SimpleCommandGroup.MainCommand;
 import org.mineacademy.fo.debug.LagCatcher;
 import org.mineacademy.fo.exception.CommandException;
@@ -88,7 +89,7 @@ public abstract class SimpleCommand extends Command {
 	 * You can set the cooldown time before executing the command again. This map
 	 * stores the player uuid and his last execution of the command.
 	 */
-	private final ExpiringMap<UUID, Long> cooldownMap = ExpiringMap.builder().expiration(30, TimeUnit.MINUTES).build();
+	private final ShardedExpiringMap<UUID, Long> cooldownMap = ExpiringMap.builder().expiration(30, TimeUnit.MINUTES).buildSharded();
 
 	/**
 	 * The command label, eg. boss for /boss
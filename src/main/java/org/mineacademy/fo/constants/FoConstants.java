@@ -4,6 +4,8 @@ import java.util.UUID;
 
 import org.bukkit.entity.Player;
 import org.mineacademy.fo.menu.Menu;
+import org.mineacademy.fo.menu.model.ItemCreator;
+import org.mineacademy.fo.menu.tool.Tool;
 import org.mineacademy.fo.plugin.SimplePlugin;
 import org.mineacademy.fo.remain.CompMetadata;
 
@@ -144,5 +146,14 @@ public final class FoConstants {
 		 * Used in {@link Menu#getLastClosedMenu(Player)}
 		 */
 		public static final String TAG_MENU_LAST_CLOSED = SimplePlugin.getNamed() + "_Last_Closed_Menu";
+
+		/**
+		 * The key inside {@link #TAG} holding the identity of a tool item,
+		 * written by {@link ItemCreator#makeMenuTool()}.
+		 *
+		 * <p>
+		 * Used in {@link Tool#getTool(org.bukkit.inventory.ItemStack)}
+		 */
+		public static final String TAG_TOOL = SimplePlugin.getNamed() + "_Tool";
 	}
 }
@@ -142,7 +142,7 @@ public abstract class SimpleFlatDatabase<T> extends SimpleDatabase {
 		if (!this.isLoaded() || this.isQuerying)
 			return;
 
-		LagCatcher.start("mysql");
+		final LagCatcher.Timing timing = LagCatcher.startTiming("mysql");
 		this.isQuerying = true;
 
 		Debugger.debug("mysql", "---------------- MySQL - Loading data for " + uuid);
@@ -186,7 +186,7 @@ public abstract class SimpleFlatDatabase<T> extends SimpleDatabase {
 			} finally {
 				this.isQuerying = false;
 
-				this.logPerformance("loading");
+				this.logPerformance("loading", timing);
 			}
 		});
 	}
@@ -252,7 +252,7 @@ public abstract class SimpleFlatDatabase<T> extends SimpleDatabase {
 		if (!this.isLoaded() || this.isQuerying)
 			return;
 
-		LagCatcher.start("mysql");
+		final LagCatcher.Timing timing = LagCatcher.startTiming("mysql");
 		this.isQuerying = true;
 
 		// Save using the user configured save method
@@ -289,7 +289,7 @@ public abstract class SimpleFlatDatabase<T> extends SimpleDatabase {
 			} finally {
 				this.isQuerying = false;
 
-				this.logPerformance("saving");
+				this.logPerformance("saving", timing);
 			}
 		});
 	}
@@ -300,11 +300,12 @@ public abstract class SimpleFlatDatabase<T> extends SimpleDatabase {
 	 * from the main thread.
 	 *
 	 * @param operation
+	 * @param timing
 	 */
-	private void logPerformance(final String operation) {
+	private void logPerformance(final String operation, final LagCatcher.Timing timing) {
 		final boolean isMainThread = Bukkit.isPrimaryThread();
 
-		LagCatcher.end("mysql", isMainThread ? 10 : MathUtil.atLeast(200, SimpleSettings.LAG_THRESHOLD_MILLIS),
+		timing.end(isMainThread ? 10 : MathUtil.atLeast(200, SimpleSettings.LAG_THRESHOLD_MILLIS),
 				ChatUtil.capitalize(operation) + " data to MySQL took {time} ms" + (isMainThread ? " - To prevent slowing the server, " + operation + " can be made async (carefully)" : ""));
 	}
 
@@ -0,0 +1,354 @@
+package org.mineacademy.fo.debug;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.mineacademy.fo.Valid;
+
+import lombok.NonNull;
+
+/**
+ * Appends text to a file from a background thread so that callers,
+ * such as the main thread during an error storm, never wait for disk I/O.
+ * It can also hand entries to a printer instead, such as the console.
+ * <p>
+ * Entries are published into a lock-free bounded ring buffer and the writer thread
+ * drains it in batches. When the buffer is full, new entries are dropped and counted
+ * instead of blocking, see {@link #getDroppedCount()}. Once the file grows over the
+ * maximum size it is rotated to file.1, file.2 and so on, keeping the given amount of backups.
+ */
+public final class AsyncLogWriter {
+
+	/**
+	 * How long the writer thread sleeps between batches when not woken up
+	 */
+	private static final long FLUSH_INTERVAL_NANOS = 250_000_000L;
+
+	/**
+	 * The file we write to, null when printing
+	 */
+	private final File file;
+
+	/**
+	 * The printer we hand entries to instead of the file, null when writing to a file
+	 */
+	private final Consumer<String> printer;
+
+	/**
+	 * The size in bytes over which we rotate the file
+	 */
+	private final long maxFileBytes;
+
+	/**
+	 * How many rotated files we keep
+	 */
+	private final int maxBackups;
+
+	/**
+	 * The ring buffer, a null slot is free or not yet published
+	 */
+	private final AtomicReferenceArray<String> ring;
+
+	/**
+	 * The ring capacity, a power of two
+	 */
+	private final int capacity;
+
+	/**
+	 * The next sequence producers claim
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * The next sequence the writer reads, only written by the writer thread
+	 */
+	private volatile long head = 0;
+
+	/**
+	 * How many entries were dropped because the buffer was full
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * The background writer thread
+	 */
+	private final Thread thread;
+
+	/**
+	 * Set to false to stop the writer thread after its last batch
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * The open file writer, only used by the writer thread
+	 */
+	private BufferedWriter writer;
+
+	/**
+	 * The current file size, only used by the writer thread
+	 */
+	private long fileBytes;
+
+	/**
+	 * Create a new writer and start its background thread
+	 *
+	 * @param file         the file to append to
+	 * @param maxFileBytes the size after which the file is rotated
+	 * @param maxBackups   how many rotated files to keep
+	 * @param capacity     how many entries the buffer holds, rounded up to a power of two
+	 */
+	public AsyncLogWriter(@NonNull File file, long maxFileBytes, int maxBackups, int capacity) {
+		this(file.getName(), file, null, maxFileBytes, maxBackups, capacity);
+	}
+
+	/**
+	 * Create a new writer handing each entry to the given printer
+	 * on its background thread, and start it
+	 *
+	 * @param name     the name of the writer thread
+	 * @param printer  what prints the entries, such as to the console
+	 * @param capacity how many entries the buffer holds, rounded up to a power of two
+	 */
+	public AsyncLogWriter(@NonNull String name, @NonNull Consumer<String> printer, int capacity) {
+		this(name, null, printer, 0, 0, capacity);
+	}
+
+	private AsyncLogWriter(String name, File file, Consumer<String> printer, long maxFileBytes, int maxBackups, int capacity) {
+		Valid.checkBoolean(file == null || maxFileBytes > 0, "Max file size must be above 0");
+		Valid.checkBoolean(capacity > 0 && capacity <= 1 << 20, "Capacity must be between 1 and 1048576");
+
+		this.file = file;
+		this.printer = printer;
+		this.maxFileBytes = maxFileBytes;
+		this.maxBackups = maxBackups;
+
+		int powerOfTwo = 1;
+
+		while (powerOfTwo < capacity)
+			powerOfTwo <<= 1;
+
+		this.capacity = powerOfTwo;
+		this.ring = new AtomicReferenceArray<>(this.capacity);
+
+		this.thread = new Thread(this::run, "Log Writer - " + name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Producing
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Queue the given lines to be written together, never blocks
+	 *
+	 * @param lines
+	 * @return false if the buffer was full or the writer closed and the lines were dropped
+	 */
+	public boolean write(List<String> lines) {
+		return this.write(String.join(System.lineSeparator(), lines));
+	}
+
+	/**
+	 * Queue the given text to be written on its own line, never blocks
+	 *
+	 * @param text
+	 * @return false if the buffer was full or the writer closed and the text was dropped
+	 */
+	public boolean write(@NonNull String text) {
+		if (!this.running) {
+			this.dropped.incrementAndGet();
+
+			return false;
+		}
+
+		long sequence;
+
+		do {
+			sequence = this.tail.get();
+
+			if (sequence - this.head >= this.capacity) {
+				this.dropped.incrementAndGet();
+
+				return false;
+			}
+
+		} while (!this.tail.compareAndSet(sequence, sequence + 1));
+
+		this.ring.set((int) (sequence & (this.capacity - 1)), text);
+
+		// Only wake up the writer early when the buffer fills up, otherwise let entries batch
+		if (sequence - this.head >= this.capacity / 2)
+			LockSupport.unpark(this.thread);
+
+		return true;
+	}
+
+	/**
+	 * Return how many entries were dropped because the buffer was full
+	 *
+	 * @return
+	 */
+	public long getDroppedCount() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Stop accepting entries, write the remaining ones and close the file,
+	 * waiting at most the given time for the writer thread to finish
+	 *
+	 * @param timeoutMillis
+	 */
+	public void close(long timeoutMillis) {
+		this.running = false;
+
+		LockSupport.unpark(this.thread);
+
+		try {
+			this.thread.join(timeoutMillis);
+
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Writing
+	// ------------------------------------------------------------------------------------------------------------
+
+	/*
+	 * The writer thread loop
+	 */
+	private void run() {
+		while (this.running) {
+			LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+
+			this.drain();
+		}
+
+		// Write what was published before we stopped
+		this.drain();
+		this.closeWriter();
+	}
+
+	/*
+	 * Write all published entries and flush the file
+	 */
+	private void drain() {
+		long sequence = this.head;
+
+		if (sequence == this.tail.get())
+			return;
+
+		try {
+			while (sequence != this.tail.get()) {
+				final int index = (int) (sequence & (this.capacity - 1));
+				final String text = this.ring.get(index);
+
+				// Claimed but not yet published, pick it up in the next batch
+				if (text == null)
+					break;
+
+				this.ring.set(index, null);
+				this.head = ++sequence;
+
+				this.append(text);
+			}
+
+			if (this.writer != null)
+				this.writer.flush();
+
+		} catch (final IOException ex) {
+			System.err.println("Failed to write to " + this.file + ": " + ex);
+
+			this.closeWriter();
+		}
+	}
+
+	/*
+	 * Append the text, opening or rotating the file as needed
+	 */
+	private void append(String text) throws IOException {
+		if (this.printer != null) {
+			try {
+				this.printer.accept(text);
+
+			} catch (final RuntimeException ex) {
+				System.err.println("Failed to print '" + text + "': " + ex);
+			}
+
+			return;
+		}
+
+		if (this.writer != null && this.fileBytes >= this.maxFileBytes) {
+			this.closeWriter();
+			this.rotate();
+		}
+
+		if (this.writer == null) {
+			final File parent = this.file.getAbsoluteFile().getParentFile();
+
+			if (parent != null)
+				parent.mkdirs();
+
+			this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file, true), StandardCharsets.UTF_8));
+			this.fileBytes = this.file.length();
+		}
+
+		this.writer.write(text);
+		this.writer.write(System.lineSeparator());
+
+		// Close enough for rotation, lines are mostly ASCII
+		this.fileBytes += text.length() + System.lineSeparator().length();
+	}
+
+	/*
+	 * Shift file.N to file.N+1 dropping the oldest, and move the file to file.1
+	 */
+	private void rotate() {
+		if (this.maxBackups < 1) {
+			this.file.delete();
+
+			return;
+		}
+
+		final File oldest = this.backup(this.maxBackups);
+
+		if (oldest.exists())
+			oldest.delete();
+
+		for (int i = this.maxBackups - 1; i >= 1; i--) {
+			final File backup = this.backup(i);
+
+			if (backup.exists())
+				backup.renameTo(this.backup(i + 1));
+		}
+
+		this.file.renameTo(this.backup(1));
+	}
+
+	private File backup(int number) {
+		return new File(this.file.getPath() + "." + number);
+	}
+
+	private void closeWriter() {
+		if (this.writer != null)
+			try {
+				this.writer.close();
+
+			} catch (final IOException ex) {
+				// Nothing we can do
+			}
+
+		this.writer = null;
+	}
+}
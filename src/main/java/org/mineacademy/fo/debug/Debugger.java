@@ -3,15 +3,22 @@ package org.mineacademy.fo.debug;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
 import org.mineacademy.fo.Common;
 import org.mineacademy.fo.FileUtil;
 import org.mineacademy.fo.TimeUtil;
+import org.mineacademy.fo.collection.StrictList;
 import org.mineacademy.fo.constants.FoConstants;
 import org.mineacademy.fo.exception.FoException;
 import org.mineacademy.fo.plugin.SimplePlugin;
@@ -33,7 +40,32 @@ public final class Debugger {
 	 * the key is the debug section and the list contains messages that will be connected
 	 * and printed.
 	 */
-	private static final Map<String, ArrayList<String>> pendingMessages = new HashMap<>();
+	private static final Map<String, List<String>> pendingMessages = new ConcurrentHashMap<>();
+
+	/**
+	 * Errors with the same stack trace saved within this time are only counted, not written again
+	 */
+	private static final long DUPLICATE_ERROR_WINDOW_MILLIS = 60_000;
+
+	/**
+	 * Recently saved errors by their stack trace fingerprint
+	 */
+	private static final Map<Integer, RecentError> recentErrors = new ConcurrentHashMap<>();
+
+	/**
+	 * The background writer for the error file, created on the first error
+	 */
+	private static AsyncLogWriter errorWriter;
+
+	/**
+	 * The background printer for debug messages, created on the first debug message
+	 */
+	private static volatile AsyncLogWriter debugPrinter;
+
+	/**
+	 * The debug sections precomputed from {@link SimpleSettings#DEBUG_SECTIONS}
+	 */
+	private static volatile DebugSections debugSections = new DebugSections(null);
 
 	/**
 	 * The debug mode is automatically detected when the debug.lock file is present in the plugin folder
@@ -57,6 +89,8 @@ public final class Debugger {
 	/**
 	 * Prints a debug messages to the console if the given section is being debugged
 	 * <p>
+	 * Messages are printed on a background thread, shortly after this call returns.
+	 * <p>
 	 * You can set if the section is debugged by setting it in "Debug" key in your settings.yml,
 	 * by default your class extending {@link SimpleSettings}
 	 *
@@ -66,7 +100,19 @@ public final class Debugger {
 	public static void debug(String section, String... messages) {
 		if (isDebugged(section))
 			for (final String message : messages)
-				print("[" + section + "] " + message);
+				getDebugPrinter().write("[" + section + "] " + message);
+	}
+
+	/**
+	 * Prints a debug message to the console if the given section is being debugged,
+	 * only building the message if it is
+	 *
+	 * @param section
+	 * @param message
+	 */
+	public static void debug(String section, Supplier<String> message) {
+		if (isDebugged(section))
+			getDebugPrinter().write("[" + section + "] " + message.get());
 	}
 
 	/**
@@ -80,10 +126,14 @@ public final class Debugger {
 		if (!isDebugged(section))
 			return;
 
-		final ArrayList<String> list = pendingMessages.getOrDefault(section, new ArrayList<>());
-		list.add(message);
+		// Atomically per section, the list is only touched inside compute or after being removed
+		pendingMessages.compute(section, (key, list) -> {
+			if (list == null)
+				list = new ArrayList<>();
 
-		pendingMessages.put(section, list);
+			list.add(message);
+			return list;
+		});
 	}
 
 	/**
@@ -131,7 +181,16 @@ public final class Debugger {
 	 * @return
 	 */
 	public static boolean isDebugged(String section) {
-		return SimpleSettings.DEBUG_SECTIONS.contains(section) || SimpleSettings.DEBUG_SECTIONS.contains("*");
+		DebugSections sections = debugSections;
+
+		// Recompute when the settings list is replaced or changed
+		if (!sections.isFor(SimpleSettings.DEBUG_SECTIONS)) {
+			sections = new DebugSections(SimpleSettings.DEBUG_SECTIONS);
+
+			debugSections = sections;
+		}
+
+		return sections.contains(section);
 	}
 
 	// ----------------------------------------------------------------------------------------------------
@@ -140,6 +199,11 @@ public final class Debugger {
 
 	/**
 	 * Logs the error in the console and writes all details into the errors.log file
+	 * <p>
+	 * The file is written on a background thread. Errors with the same stack trace
+	 * as one saved within the last minute only get a one-line console notice and are
+	 * counted, their count is written to the file with the next saved occurrence or
+	 * when the plugin disables.
 	 *
 	 * @param t
 	 * @param messages
@@ -149,6 +213,29 @@ public final class Debugger {
 		if (Bukkit.getServer() == null) // Instance not set, e.g. when not using Bukkit
 			return;
 
+		final int fingerprint = fingerprint(t);
+		final long now = System.currentTimeMillis();
+		final RecentError previous = recentErrors.get(fingerprint);
+		final String description = t.getClass().getSimpleName() + " " + Common.getOrDefault(t.getMessage(), "(Unknown cause)");
+
+		if (previous != null && now - previous.since < DUPLICATE_ERROR_WINDOW_MILLIS) {
+			previous.suppressed.incrementAndGet();
+
+			Bukkit.getLogger().severe(SimplePlugin.getNamed() + " " + SimplePlugin.getVersion() + " encountered " + description + " again, see the first occurrence in your error.log");
+			return;
+		}
+
+		recentErrors.put(fingerprint, new RecentError(now, description));
+
+		if (recentErrors.size() > 256)
+			recentErrors.values().removeIf(recent -> {
+				if (now - recent.since < DUPLICATE_ERROR_WINDOW_MILLIS)
+					return false;
+
+				writeSuppressed(recent);
+				return true;
+			});
+
 		final String systemInfo = "Running " + Bukkit.getName() + " " + Bukkit.getBukkitVersion() + " and Java " + System.getProperty("java.version");
 
 		try {
@@ -163,6 +250,9 @@ public final class Debugger {
 					"Plugins: " + Common.join(Bukkit.getPluginManager().getPlugins(), ", "),
 					"----------------------------------------------------------------------------------------------");
 
+			if (previous != null && previous.suppressed.get() > 0)
+				fill(lines, "This error occurred " + previous.suppressed.get() + " more time(s) since " + TimeUtil.getFormattedDate(previous.since) + " without being logged.");
+
 			// Write additional data
 			if (messages != null && !String.join("", messages).isEmpty()) {
 				fill(lines, "\nMore Information: ");
@@ -170,6 +260,7 @@ public final class Debugger {
 			}
 
 			{ // Write the stack trace
+				final Set<Throwable> written = Collections.newSetFromMap(new IdentityHashMap<>());
 
 				do {
 					// Write the error header
@@ -190,7 +281,7 @@ public final class Debugger {
 
 						fill(lines, "\t at " + el.toString());
 					}
-				} while ((t = t.getCause()) != null);
+				} while ((t = t.getCause()) != null && written.add(t));
 			}
 
 			fill(lines, "----------------------------------------------------------------------------------------------", System.lineSeparator());
@@ -198,8 +289,8 @@ public final class Debugger {
 			// Log to the console
 			Bukkit.getLogger().severe(header + "! Please check your error.log and report this issue with the information in that file. " + systemInfo);
 
-			// Finally, save the error file
-			FileUtil.write(FoConstants.File.ERRORS, lines);
+			// Finally, save the error file in the background
+			getErrorWriter().write(lines);
 
 		} catch (final Throwable secondError) {
 			Bukkit.getLogger().log(Level.SEVERE, "Got error when saving another error! Saving error:", secondError);
@@ -207,10 +298,89 @@ public final class Debugger {
 		}
 	}
 
+	/*
+	 * Write how many times the error occurred without being saved, if any
+	 */
+	private static void writeSuppressed(RecentError recent) {
+		final int suppressed = recent.suppressed.getAndSet(0);
+
+		if (suppressed > 0)
+			getErrorWriter().write("[" + TimeUtil.getFormattedDate() + "] " + recent.description + " occurred " + suppressed + " more time(s) since "
+					+ TimeUtil.getFormattedDate(recent.since) + " without being logged.");
+	}
+
 	private static void fill(List<String> list, String... messages) {
 		list.addAll(Arrays.asList(messages));
 	}
 
+	/*
+	 * Return a hash of the error classes and stack traces in the cause chain, ignoring messages
+	 */
+	private static int fingerprint(Throwable throwable) {
+		int hash = 1;
+
+		final Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		// Stop at the first cause we have seen, cause chains may loop
+		for (Throwable cause = throwable; cause != null && visited.add(cause); cause = cause.getCause())
+			hash = 31 * (31 * hash + cause.getClass().getName().hashCode()) + Arrays.hashCode(cause.getStackTrace());
+
+		return hash;
+	}
+
+	/*
+	 * Return the error file writer, starting it if needed
+	 */
+	private static synchronized AsyncLogWriter getErrorWriter() {
+		if (errorWriter == null)
+			errorWriter = new AsyncLogWriter(FileUtil.getFile(FoConstants.File.ERRORS), 5 * 1024 * 1024, 3, 1024);
+
+		return errorWriter;
+	}
+
+	/*
+	 * Return the debug message printer, starting it if needed
+	 */
+	private static AsyncLogWriter getDebugPrinter() {
+		AsyncLogWriter printer = debugPrinter;
+
+		if (printer == null)
+			synchronized (Debugger.class) {
+				printer = debugPrinter;
+
+				if (printer == null) {
+					printer = new AsyncLogWriter("debug", Debugger::print, 4096);
+
+					debugPrinter = printer;
+				}
+			}
+
+		return printer;
+	}
+
+	/**
+	 * Print all pending debug messages and write all pending errors into
+	 * the error file, then stop their writers. Called automatically when your plugin disables
+	 */
+	public static synchronized void flushErrors() {
+		if (debugPrinter != null) {
+			debugPrinter.close(1_000);
+
+			debugPrinter = null;
+		}
+
+		for (final RecentError recent : recentErrors.values())
+			writeSuppressed(recent);
+
+		recentErrors.clear();
+
+		if (errorWriter != null) {
+			errorWriter.close(5_000);
+
+			errorWriter = null;
+		}
+	}
+
 	// ----------------------------------------------------------------------------------------------------
 	// Utility methods
 	// ----------------------------------------------------------------------------------------------------
@@ -360,4 +530,74 @@ public final class Debugger {
 		else
 			System.out.println(Common.stripColors(message)); // our instance may or may not be available yet to log
 	}
+
+	// ----------------------------------------------------------------------------------------------------
+	// Classes
+	// ----------------------------------------------------------------------------------------------------
+
+	/**
+	 * A snapshot of the debugged sections for fast lookups
+	 */
+	private static final class DebugSections {
+
+		/**
+		 * The settings list this was computed from and a copy of its contents at that time
+		 */
+		private final StrictList<String> source;
+		private final List<String> values;
+
+		/**
+		 * The debugged sections
+		 */
+		private final Set<String> sections;
+
+		/**
+		 * True if all sections are debugged
+		 */
+		private final boolean all;
+
+		private DebugSections(StrictList<String> source) {
+			this.source = source;
+			this.values = source == null ? Collections.emptyList() : new ArrayList<>(source.getSource());
+			this.sections = source == null || source.isEmpty() ? Collections.emptySet() : new HashSet<>(source.getSource());
+			this.all = this.sections.contains("*");
+		}
+
+		/*
+		 * Return true if this was computed from the given list and its contents did not change since
+		 */
+		private boolean isFor(StrictList<String> list) {
+			return this.source == list && (list == null || this.values.equals(list.getSource()));
+		}
+
+		private boolean contains(String section) {
+			return this.all || !this.sections.isEmpty() && this.sections.contains(section);
+		}
+	}
+
+	/**
+	 * An error recently saved to the file
+	 */
+	private static final class RecentError {
+
+		/**
+		 * When we last wrote this error
+		 */
+		private final long since;
+
+		/**
+		 * How many times it occurred since without being written
+		 */
+		private final AtomicInteger suppressed = new AtomicInteger();
+
+		/**
+		 * The error class and message
+		 */
+		private final String description;
+
+		private RecentError(long since, String description) {
+			this.since = since;
+			this.description = description;
+		}
+	}
 }
@@ -1,32 +1,61 @@
 package org.mineacademy.fo.debug;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mineacademy.fo.Common;
 import org.mineacademy.fo.MathUtil;
 import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.model.SimpleTask;
 import org.mineacademy.fo.plugin.SimplePlugin;
 import org.mineacademy.fo.settings.SimpleSettings;
 
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 /**
  * A simple yet effective way to calculate duration
  * between two points in code
+ * <p>
+ * Sections started with {@link #start(String)} are measured per thread, so the same section
+ * may run on many threads at once. Ending a section on another thread than it started still works
+ * using the last start of that section from any thread, but {@link #startTiming(String)} is more
+ * precise for that, such as after an async database query.
+ * <p>
+ * Each measured duration is recorded into a {@link LagHistogram} for its section, see
+ * {@link #getHistograms()}. Nothing is measured when {@link SimpleSettings#LAG_THRESHOLD_MILLIS} is -1.
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class LagCatcher {
 
 	/**
-	 * Stores sections with the time time they started to be measured
+	 * Stores sections with the time time they started to be measured, for each thread
 	 */
-	private static volatile Map<String, Long> startTimesMap = new HashMap<>();
+	private static final ThreadLocal<Map<String, Long>> startTimesMap = ThreadLocal.withInitial(HashMap::new);
+
+	/**
+	 * Stores sections with the time they were last started on any thread, used when a section ends on another thread
+	 */
+	private static final Map<String, Long> sharedStartTimesMap = new ConcurrentHashMap<>();
+
+	/**
+	 * Stores the latency histogram of each section
+	 */
+	private static final Map<String, LagHistogram> histograms = new ConcurrentHashMap<>();
+
+	/**
+	 * The task periodically logging the histograms summary, or null
+	 */
+	private static SimpleTask summaryTask;
 
 	/**
 	 * Stores sections with a list of lag durations for each section
@@ -51,7 +80,24 @@ public final class LagCatcher {
 		if (SimpleSettings.LAG_THRESHOLD_MILLIS == -1)
 			return;
 
-		startTimesMap.put(section, System.nanoTime());
+		final long nanoTime = System.nanoTime();
+
+		startTimesMap.get().put(section, nanoTime);
+		sharedStartTimesMap.put(section, nanoTime);
+	}
+
+	/**
+	 * Start measuring the given section and return its timing you can end
+	 * later from any thread, or use in a try-with-resources block
+	 *
+	 * @param section
+	 * @return
+	 */
+	public static Timing startTiming(String section) {
+		if (SimpleSettings.LAG_THRESHOLD_MILLIS == -1)
+			return Timing.DISABLED;
+
+		return new Timing(section, System.nanoTime());
 	}
 
 	/**
@@ -87,7 +133,39 @@ public final class LagCatcher {
 	 * @param message
 	 */
 	public static void end(String section, int thresholdMs, String message) {
-		final double lag = finishAndCalculate(section);
+		if (SimpleSettings.LAG_THRESHOLD_MILLIS == -1)
+			return;
+
+		final Long nanoTime = removeStartTime(section);
+
+		if (nanoTime != null)
+			finish(section, System.nanoTime() - nanoTime, thresholdMs, message);
+		else
+			Debugger.debug("lag", "Ended section '" + section + "' which was never started, ignoring.");
+	}
+
+	/*
+	 * Remove and return when the section started on this thread, or on any thread if it did not start on this one
+	 */
+	private static Long removeStartTime(String section) {
+		final Long nanoTime = startTimesMap.get().remove(section);
+
+		if (nanoTime != null) {
+			sharedStartTimesMap.remove(section, nanoTime);
+
+			return nanoTime;
+		}
+
+		return sharedStartTimesMap.remove(section);
+	}
+
+	/*
+	 * Record the duration and print the message if it took over the threshold
+	 */
+	private static void finish(String section, long durationNanos, int thresholdMs, String message) {
+		histograms.computeIfAbsent(section, LagHistogram::new).recordNanos(durationNanos);
+
+		final double lag = durationNanos / 1_000_000D;
 
 		if (lag > thresholdMs && SimpleSettings.LAG_THRESHOLD_MILLIS != -1) {
 			message = (SimplePlugin.hasInstance() ? "[" + SimplePlugin.getNamed() + " " + SimplePlugin.getVersion() + "] " : "") + message
@@ -188,7 +266,8 @@ public final class LagCatcher {
 	 * @param section
 	 */
 	public static void took(String section) {
-		final Long nanoTime = startTimesMap.get(section);
+		final Long localNanoTime = startTimesMap.get().get(section);
+		final Long nanoTime = localNanoTime != null ? localNanoTime : sharedStartTimesMap.get(section);
 		final String message = section + " took " + MathUtil.formatTwoDigits(nanoTime == null ? 0D : (System.nanoTime() - nanoTime) / 1_000_000D) + " ms";
 
 		if (printingMessages)
@@ -205,8 +284,145 @@ public final class LagCatcher {
 	 * @return
 	 */
 	private static double finishAndCalculate(String section) {
-		final Long nanoTime = startTimesMap.remove(section);
+		final Long nanoTime = removeStartTime(section);
 
 		return nanoTime == null ? 0D : (System.nanoTime() - nanoTime) / 1_000_000D;
 	}
-}
\ No newline at end of file
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Histograms
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return the latency histogram of the given section, or null if it was not measured yet
+	 *
+	 * @param section
+	 * @return
+	 */
+	public static LagHistogram getHistogram(String section) {
+		return histograms.get(section);
+	}
+
+	/**
+	 * Return the latency histograms of all measured sections
+	 *
+	 * @return
+	 */
+	public static Collection<LagHistogram> getHistograms() {
+		return Collections.unmodifiableCollection(histograms.values());
+	}
+
+	/**
+	 * Clear all recorded latency histograms
+	 */
+	public static void resetHistograms() {
+		histograms.clear();
+	}
+
+	/**
+	 * Return one summary line for each measured section with count, p50, p95, p99 and max,
+	 * slowest sections by p99 first
+	 *
+	 * @return
+	 */
+	public static List<String> dumpHistograms() {
+		final List<LagHistogram> sorted = new ArrayList<>(histograms.values());
+		final List<String> lines = new ArrayList<>(sorted.size());
+
+		sorted.sort(Comparator.comparingDouble((LagHistogram histogram) -> histogram.getPercentileMillis(99)).reversed());
+
+		for (final LagHistogram histogram : sorted)
+			if (histogram.getCount() > 0)
+				lines.add(histogram.toSummary());
+
+		return lines;
+	}
+
+	/**
+	 * Start or restart logging the histograms summary to the console every
+	 * {@link SimpleSettings#LAG_SUMMARY_SECONDS}, clearing them after each summary
+	 * so that each one only covers its own period.
+	 * <p>
+	 * Called automatically when your plugin starts or reloads.
+	 */
+	public static void scheduleSummary() {
+		if (summaryTask != null) {
+			summaryTask.cancel();
+
+			summaryTask = null;
+		}
+
+		if (SimpleSettings.LAG_THRESHOLD_MILLIS == -1 || SimpleSettings.LAG_SUMMARY_SECONDS <= 0)
+			return;
+
+		final int periodTicks = SimpleSettings.LAG_SUMMARY_SECONDS * 20;
+
+		summaryTask = Common.runTimerAsync(periodTicks, periodTicks, () -> {
+			final List<String> lines = dumpHistograms();
+
+			if (lines.isEmpty())
+				return;
+
+			resetHistograms();
+
+			lines.add(0, "Lag summary of the last " + SimpleSettings.LAG_SUMMARY_SECONDS + " seconds:");
+			Common.log(lines);
+		});
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Classes
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Represents a section measurement which can be ended from any thread.
+	 * End it only once.
+	 */
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	public static final class Timing implements AutoCloseable {
+
+		/**
+		 * The shared timing returned when measuring is disabled, ending it does nothing
+		 */
+		private static final Timing DISABLED = new Timing(null, 0);
+
+		/**
+		 * The section measured
+		 */
+		private final String section;
+
+		/**
+		 * The time we started measuring at
+		 */
+		private final long startNanos;
+
+		/**
+		 * Stop measuring and print a console message when it took over the
+		 * threshold set in {@link SimpleSettings}
+		 */
+		public void end() {
+			this.end(SimpleSettings.LAG_THRESHOLD_MILLIS, "{section} took {time} ms");
+		}
+
+		/**
+		 * Stop measuring and print a custom console message when it took over the given threshold
+		 * <p>
+		 * Use {section} and {time} to replace the debugged section and how long it took
+		 *
+		 * @param thresholdMs
+		 * @param message
+		 */
+		public void end(int thresholdMs, String message) {
+			if (this != DISABLED)
+				finish(this.section, System.nanoTime() - this.startNanos, thresholdMs, message);
+		}
+
+		/**
+		 * @see #end()
+		 */
+		@Override
+		public void close() {
+			this.end();
+		}
+	}
+}
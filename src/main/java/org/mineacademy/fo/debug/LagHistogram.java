@@ -0,0 +1,211 @@
+package org.mineacademy.fo.debug;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mineacademy.fo.MathUtil;
+
+import lombok.Getter;
+
+/**
+ * A lock-free latency histogram recording durations in microseconds.
+ * <p>
+ * Like HDR histograms, values are stored in log-linear buckets: every power of two
+ * is split into {@link #SUB_BUCKETS} linear sub-buckets, so percentiles are accurate
+ * to about 6% over the whole range while recording is a single atomic increment.
+ */
+public final class LagHistogram {
+
+	/**
+	 * How many bits of precision we keep in each power of two
+	 */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/**
+	 * How many linear sub-buckets each power of two has
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The highest power of two we track, about 12 days in microseconds
+	 */
+	private static final int MAX_EXPONENT = 40;
+
+	/**
+	 * The total amount of buckets
+	 */
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	/**
+	 * The section name
+	 */
+	@Getter
+	private final String section;
+
+	/**
+	 * Counts of values in each bucket
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * The total amount of values recorded
+	 */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * The sum of all values recorded, in microseconds
+	 */
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * The highest value recorded, in microseconds
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Create a new empty histogram for the given section
+	 *
+	 * @param section
+	 */
+	public LagHistogram(String section) {
+		this.section = section;
+	}
+
+	/**
+	 * Record the given duration in nanoseconds
+	 *
+	 * @param nanos
+	 */
+	public void recordNanos(long nanos) {
+		final long micros = Math.max(0, nanos / 1_000);
+
+		this.buckets.incrementAndGet(bucketOf(micros));
+		this.count.increment();
+		this.sum.add(micros);
+
+		long currentMax;
+
+		while (micros > (currentMax = this.max.get()))
+			if (this.max.compareAndSet(currentMax, micros))
+				break;
+	}
+
+	/**
+	 * Return how many values were recorded
+	 *
+	 * @return
+	 */
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * Return the highest recorded value in milliseconds
+	 *
+	 * @return
+	 */
+	public double getMaxMillis() {
+		return this.max.get() / 1_000D;
+	}
+
+	/**
+	 * Return the average recorded value in milliseconds
+	 *
+	 * @return
+	 */
+	public double getAverageMillis() {
+		final long count = this.count.sum();
+
+		return count == 0 ? 0 : this.sum.sum() / 1_000D / count;
+	}
+
+	/**
+	 * Return the value in milliseconds below which the given percentage of recorded values fall,
+	 * for example 99 for the p99 latency
+	 *
+	 * @param percentile from 0 to 100
+	 * @return
+	 */
+	public double getPercentileMillis(double percentile) {
+		final long count = this.count.sum();
+
+		if (count == 0)
+			return 0;
+
+		final long target = Math.max(1, (long) Math.ceil(count * MathUtil.range(percentile, 0D, 100D) / 100D));
+		long seen = 0;
+
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			seen += this.buckets.get(bucket);
+
+			// Never report above the real maximum, the bucket upper bound may exceed it,
+			// and the last bucket also holds everything out of our range
+			if (seen >= target)
+				return (bucket == BUCKET_COUNT - 1 ? this.max.get() : Math.min(highestValueIn(bucket), this.max.get())) / 1_000D;
+		}
+
+		return this.getMaxMillis();
+	}
+
+	/**
+	 * Clear all recorded values. Values recorded concurrently with this call may be partially lost.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+			this.buckets.set(bucket, 0);
+
+		this.count.reset();
+		this.sum.reset();
+		this.max.set(0);
+	}
+
+	/**
+	 * Return a one-line summary with count, p50, p95, p99 and max in milliseconds
+	 *
+	 * @return
+	 */
+	public String toSummary() {
+		return this.section + ": count=" + this.getCount()
+				+ ", p50=" + MathUtil.formatTwoDigits(this.getPercentileMillis(50))
+				+ ", p95=" + MathUtil.formatTwoDigits(this.getPercentileMillis(95))
+				+ ", p99=" + MathUtil.formatTwoDigits(this.getPercentileMillis(99))
+				+ ", max=" + MathUtil.formatTwoDigits(this.getMaxMillis()) + " ms";
+	}
+
+	@Override
+	public String toString() {
+		return "LagHistogram{" + this.toSummary() + "}";
+	}
+
+	/*
+	 * Return the bucket for the given value, values below SUB_BUCKETS have their own bucket each
+	 */
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+		if (exponent > MAX_EXPONENT)
+			return BUCKET_COUNT - 1;
+
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/*
+	 * Return the highest value that falls into the given bucket
+	 */
+	private static long highestValueIn(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		final int subBucket = bucket % SUB_BUCKETS;
+		final long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+		return (1L << exponent) + (subBucket + 1) * width - 1;
+	}
+}
@@ -0,0 +1,23 @@
+package org.mineacademy.fo.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a server failed to answer our request, see {@link org.mineacademy.fo.bungee.BungeeRpc}
+ */
+@Getter
+public final class BungeeRpcException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The name of the server which failed to answer
+	 */
+	private final String serverName;
+
+	public BungeeRpcException(String serverName, String message) {
+		super("Server " + serverName + " failed to answer: " + message);
+
+		this.serverName = serverName;
+	}
+}
@@ -461,6 +461,35 @@ public class JSONParser {
 		return builder.toString();
 	}
 
+	/** Escapes the string like {@link #escape(String)} does, but writes it straight into the writer and writes
+	 * runs of characters that need no escaping at once, so no intermediate string is built.
+	 * @param escapable represents a string that needs to be escaped for usage in JSON.
+	 * @param writable represents where the escaped string is written to.
+	 * @throws IOException if the writable encounters an I/O problem. */
+	public static void escape(final String escapable, final Writer writable) throws IOException {
+		final int characters = escapable.length();
+		int runStart = 0;
+
+		for (int i = 0; i < characters; i++) {
+			final char character = escapable.charAt(i);
+
+			if (character != '"' && character != '\\' && character >= '\u0020' && (character < '\u007F' || (character > '\u009F' && (character < '\u2000' || character > '\u20FF'))))
+				continue;
+
+			if (i > runStart)
+				writable.write(escapable, runStart, i - runStart);
+
+			writable.write(JSONParser.escape(String.valueOf(character)));
+			runStart = i + 1;
+		}
+
+		if (runStart == 0)
+			writable.write(escapable);
+
+		else if (runStart < characters)
+			writable.write(escapable, runStart, characters - runStart);
+	}
+
 	/** Processes the lexer's reader for the next token.
 	 * @param lexer represents a text processor being used in the deserialization process.
 	 * @return a token representing a meaningful element encountered by the lexer.
@@ -614,7 +643,7 @@ public class JSONParser {
 		else if (jsonSerializable instanceof String) {
 			/* Make sure the string is properly escaped. */
 			writableDestination.write('"');
-			writableDestination.write(JSONParser.escape((String) jsonSerializable));
+			JSONParser.escape((String) jsonSerializable, writableDestination);
 			writableDestination.write('"');
 		} else if (jsonSerializable instanceof Character)
 			/* Make sure the string is properly escaped.
@@ -0,0 +1,375 @@
+package org.mineacademy.fo.jsonsimple;
+
+import java.math.BigDecimal;
+import java.util.function.BiConsumer;
+
+import org.mineacademy.fo.collection.SerializedMap;
+
+import lombok.NonNull;
+
+/**
+ * A single-pass pull parser reading JSON straight from a string.
+ * <p>
+ * Unlike {@link JSONParser#deserialize(String)} it does not run the lexer
+ * and state stacks, and it hands the entries of the root object to a consumer
+ * so that callers such as {@link SerializedMap#fromJson(String)} can store them
+ * directly without copying an intermediate map.
+ * <p>
+ * Values are returned in the same types as {@link JSONParser} does: nested objects are {@link JSONObject},
+ * arrays are {@link JSONArray}, numbers are {@link BigDecimal}, and strings, booleans and null as they are.
+ */
+public final class JSONReader {
+
+	/**
+	 * The JSON we read
+	 */
+	private final String json;
+
+	/**
+	 * The current position
+	 */
+	private int position = 0;
+
+	private JSONReader(final String json) {
+		this.json = json;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Reading values
+	// ------------------------------------------------------------------------------------------------------------
+
+	/*
+	 * Read the root object, passing each entry to the consumer
+	 */
+	private void readRootObject(final BiConsumer<String, Object> consumer) throws JSONParseException {
+		this.skipWhitespace();
+		this.expect('{');
+
+		this.readEntries(consumer);
+
+		this.skipWhitespace();
+
+		if (this.position < this.json.length())
+			throw this.unexpected();
+	}
+
+	/*
+	 * Read all entries of an object after its opening brace, including the closing brace
+	 */
+	private void readEntries(final BiConsumer<String, Object> consumer) throws JSONParseException {
+		this.skipWhitespace();
+
+		if (this.peek() == '}') {
+			this.position++;
+
+			return;
+		}
+
+		while (true) {
+			this.skipWhitespace();
+
+			if (this.peek() != '"')
+				throw this.unexpected();
+
+			this.position++;
+
+			final String key = this.readString();
+
+			this.skipWhitespace();
+			this.expect(':');
+
+			consumer.accept(key, this.readValue());
+
+			this.skipWhitespace();
+
+			final char next = this.next();
+
+			if (next == '}')
+				return;
+
+			if (next != ',')
+				throw this.unexpected(this.position - 1);
+		}
+	}
+
+	/*
+	 * Read any JSON value
+	 */
+	private Object readValue() throws JSONParseException {
+		this.skipWhitespace();
+
+		final char character = this.peek();
+
+		switch (character) {
+			case '{': {
+				this.position++;
+
+				final JSONObject object = new JSONObject();
+				this.readEntries(object::put);
+
+				return object;
+			}
+
+			case '[':
+				this.position++;
+
+				return this.readArray();
+
+			case '"':
+				this.position++;
+
+				return this.readString();
+
+			case 't':
+				this.expectWord("true");
+
+				return Boolean.TRUE;
+
+			case 'f':
+				this.expectWord("false");
+
+				return Boolean.FALSE;
+
+			case 'n':
+				this.expectWord("null");
+
+				return null;
+
+			default:
+				if (character == '-' || (character >= '0' && character <= '9'))
+					return this.readNumber();
+
+				throw this.unexpected();
+		}
+	}
+
+	/*
+	 * Read an array after its opening bracket, including the closing bracket
+	 */
+	private JSONArray readArray() throws JSONParseException {
+		final JSONArray array = new JSONArray();
+
+		this.skipWhitespace();
+
+		if (this.peek() == ']') {
+			this.position++;
+
+			return array;
+		}
+
+		while (true) {
+			array.add(this.readValue());
+
+			this.skipWhitespace();
+
+			final char next = this.next();
+
+			if (next == ']')
+				return array;
+
+			if (next != ',')
+				throw this.unexpected(this.position - 1);
+		}
+	}
+
+	/*
+	 * Read a string after its opening quote, including the closing quote
+	 */
+	private String readString() throws JSONParseException {
+		final int start = this.position;
+		final int length = this.json.length();
+
+		// Fast path: no escapes, return a substring without copying through a builder
+		for (int i = start; i < length; i++) {
+			final char character = this.json.charAt(i);
+
+			if (character == '"') {
+				this.position = i + 1;
+
+				return this.json.substring(start, i);
+			}
+
+			if (character == '\\')
+				return this.readEscapedString(start, i);
+		}
+
+		throw new JSONParseException(length, JSONParseException.Problems.UNEXPECTED_TOKEN, "end of input inside a string");
+	}
+
+	/*
+	 * Continue reading a string from its first escape character
+	 */
+	private String readEscapedString(final int start, int position) throws JSONParseException {
+		final StringBuilder builder = new StringBuilder(position - start + 16);
+		final int length = this.json.length();
+
+		builder.append(this.json, start, position);
+
+		while (position < length) {
+			final char character = this.json.charAt(position++);
+
+			if (character == '"') {
+				this.position = position;
+
+				return builder.toString();
+			}
+
+			if (character != '\\') {
+				builder.append(character);
+
+				continue;
+			}
+
+			if (position >= length)
+				break;
+
+			final char escaped = this.json.charAt(position++);
+
+			switch (escaped) {
+				case '"':
+				case '\\':
+				case '/':
+					builder.append(escaped);
+					break;
+				case 'b':
+					builder.append('\b');
+					break;
+				case 'f':
+					builder.append('\f');
+					break;
+				case 'n':
+					builder.append('\n');
+					break;
+				case 'r':
+					builder.append('\r');
+					break;
+				case 't':
+					builder.append('\t');
+					break;
+				case 'u':
+					if (position + 4 > length)
+						throw this.unexpected(position - 1);
+
+					try {
+						builder.append((char) Integer.parseInt(this.json.substring(position, position + 4), 16));
+
+					} catch (final NumberFormatException ex) {
+						throw this.unexpected(position);
+					}
+
+					position += 4;
+					break;
+				default:
+					throw this.unexpected(position - 1);
+			}
+		}
+
+		throw new JSONParseException(length, JSONParseException.Problems.UNEXPECTED_TOKEN, "end of input inside a string");
+	}
+
+	/*
+	 * Read a number into a BigDecimal, same as the lexer does
+	 */
+	private BigDecimal readNumber() throws JSONParseException {
+		final int start = this.position;
+		final int length = this.json.length();
+
+		while (this.position < length) {
+			final char character = this.json.charAt(this.position);
+
+			if ((character >= '0' && character <= '9') || character == '-' || character == '+' || character == '.' || character == 'e' || character == 'E')
+				this.position++;
+			else
+				break;
+		}
+
+		try {
+			return new BigDecimal(this.json.substring(start, this.position));
+
+		} catch (final NumberFormatException ex) {
+			throw new JSONParseException(start, JSONParseException.Problems.UNEXPECTED_TOKEN, this.json.substring(start, this.position));
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Cursor helpers
+	// ------------------------------------------------------------------------------------------------------------
+
+	private void skipWhitespace() {
+		final int length = this.json.length();
+
+		while (this.position < length) {
+			final char character = this.json.charAt(this.position);
+
+			if (character != ' ' && character != '\n' && character != '\r' && character != '\t')
+				return;
+
+			this.position++;
+		}
+	}
+
+	private char peek() throws JSONParseException {
+		if (this.position >= this.json.length())
+			throw new JSONParseException(this.position, JSONParseException.Problems.UNEXPECTED_TOKEN, "end of input");
+
+		return this.json.charAt(this.position);
+	}
+
+	private char next() throws JSONParseException {
+		final char character = this.peek();
+
+		this.position++;
+		return character;
+	}
+
+	private void expect(final char expected) throws JSONParseException {
+		if (this.peek() != expected)
+			throw this.unexpected();
+
+		this.position++;
+	}
+
+	private void expectWord(final String word) throws JSONParseException {
+		if (!this.json.startsWith(word, this.position))
+			throw this.unexpected();
+
+		this.position += word.length();
+	}
+
+	private JSONParseException unexpected() {
+		return this.unexpected(this.position);
+	}
+
+	private JSONParseException unexpected(final int position) {
+		return new JSONParseException(position, JSONParseException.Problems.UNEXPECTED_CHARACTER, position < this.json.length() ? this.json.charAt(position) : "end of input");
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Static access
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Read the given JSON object, passing each of its root entries to the consumer in order
+	 *
+	 * @param json
+	 * @param consumer
+	 * @throws JSONParseException if the JSON is malformed or not an object
+	 */
+	public static void readObject(@NonNull final String json, @NonNull final BiConsumer<String, Object> consumer) throws JSONParseException {
+		new JSONReader(json).readRootObject(consumer);
+	}
+
+	/**
+	 * Read the given JSON object into a new {@link JSONObject}
+	 *
+	 * @param json
+	 * @return
+	 * @throws JSONParseException if the JSON is malformed or not an object
+	 */
+	public static JSONObject readObject(@NonNull final String json) throws JSONParseException {
+		final JSONObject object = new JSONObject();
+
+		readObject(json, object::put);
+		return object;
+	}
+}
@@ -17,7 +17,6 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.metadata.FixedMetadataValue;
 import org.mineacademy.fo.Common;
-import org.mineacademy.fo.ItemUtil;
 import org.mineacademy.fo.Messenger;
 import org.mineacademy.fo.MinecraftVersion;
 import org.mineacademy.fo.MinecraftVersion.V;
@@ -37,6 +36,7 @@ import org.mineacademy.fo.menu.button.annotation.Position;
 import org.mineacademy.fo.menu.model.InventoryDrawer;
 import org.mineacademy.fo.menu.model.ItemCreator;
 import org.mineacademy.fo.menu.model.MenuClickLocation;
+import org.mineacademy.fo.model.ItemFingerprint;
 import org.mineacademy.fo.model.SimpleRunnable;
 import org.mineacademy.fo.model.SimpleSound;
 import org.mineacademy.fo.plugin.SimplePlugin;
@@ -353,7 +353,9 @@ public abstract class Menu {
 	protected final Button getButton(final ItemStack fromItem) {
 		this.registerButtonsIfHasnt();
 
-		if (fromItem != null)
+		if (fromItem != null) {
+			final ItemFingerprint fingerprint = ItemFingerprint.of(fromItem);
+
 			// TODO rewrite to use cache instead of for loop so that two buttons that are the same won't collide
 			for (final Button button : this.registeredButtons.keySet()) {
 				Valid.checkNotNull(button, "Menu button is null at " + this.getClass().getSimpleName());
@@ -361,9 +363,10 @@ public abstract class Menu {
 				final ItemStack item = button.getItem();
 				Valid.checkNotNull(item, "Menu " + this.getTitle() + " contained button " + button.getClass() + " named '" + button.getClass().getSimpleName() + "' with empty item!");
 
-				if (ItemUtil.isSimilar(fromItem, item))
+				if (fingerprint.matches(item))
 					return button;
 			}
+		}
 
 		return null;
 	}
@@ -3,6 +3,7 @@ package org.mineacademy.fo.menu.model;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import org.mineacademy.fo.MinecraftVersion;
 import org.mineacademy.fo.MinecraftVersion.V;
 import org.mineacademy.fo.ReflectionUtil;
 import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.constants.FoConstants;
 import org.mineacademy.fo.model.SimpleEnchant;
 import org.mineacademy.fo.model.SimpleEnchantment;
 import org.mineacademy.fo.remain.CompColor;
@@ -552,13 +554,58 @@ public final class ItemCreator {
 
 	/**
 	 * Make an unbreakable item with all attributes hidden, suitable for menu use.
+	 * <p>
+	 * The item also receives an invisible identity tag so that {@link org.mineacademy.fo.menu.tool.Tool}
+	 * lookups can resolve it without comparing the whole item. The identity is made of the material,
+	 * the uncolored display name and a hash of the name, lore, enchants and flags, so it stays the same
+	 * across restarts and tools which only differ in lore get different identities.
 	 *
 	 * @return the new menu tool with all attributes hidden
 	 */
 	public ItemStack makeMenuTool() {
 		this.hideTags = true;
 
-		return this.make();
+		final ItemStack item = this.make();
+
+		if (MinecraftVersion.atLeast(V.v1_7) && !this.tags.containsKey(FoConstants.NBT.TAG_TOOL) && !CompMaterial.isAir(item.getType()))
+			return CompMetadata.setMetadata(item, FoConstants.NBT.TAG_TOOL, makeToolId(item));
+
+		return item;
+	}
+
+	/*
+	 * Compile the identity of a tool item from its material, uncolored name and a hash of its meta
+	 */
+	private static String makeToolId(final ItemStack item) {
+		final ItemMeta meta = Remain.hasItemMeta() && item.hasItemMeta() ? item.getItemMeta() : null;
+		final String name = meta != null && meta.hasDisplayName() ? Common.stripColors(meta.getDisplayName()) : "";
+		final StringBuilder content = new StringBuilder(item.getType().name()).append(':').append(item.getDurability());
+
+		if (meta != null) {
+			content.append('|').append(meta.hasDisplayName() ? meta.getDisplayName() : "");
+			content.append('|').append(meta.hasLore() ? String.join("\n", meta.getLore()) : "");
+
+			// Sort by name so the identity does not depend on the map order
+			final List<String> enchants = new ArrayList<>();
+
+			for (final Entry<Enchantment, Integer> entry : meta.getEnchants().entrySet())
+				enchants.add(entry.getKey().getName() + "=" + entry.getValue());
+
+			Collections.sort(enchants);
+			content.append('|').append(enchants);
+
+			if (MinecraftVersion.atLeast(V.v1_8)) {
+				final List<String> flags = new ArrayList<>();
+
+				for (final ItemFlag flag : meta.getItemFlags())
+					flags.add(flag.name());
+
+				Collections.sort(flags);
+				content.append('|').append(flags);
+			}
+		}
+
+		return item.getType().name() + ":" + name + ":" + Integer.toHexString(content.toString().hashCode());
 	}
 
 	/**
@@ -1,16 +1,26 @@
 package org.mineacademy.fo.menu.tool;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 import org.mineacademy.fo.Common;
 import org.mineacademy.fo.ItemUtil;
+import org.mineacademy.fo.MinecraftVersion;
+import org.mineacademy.fo.MinecraftVersion.V;
 import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.constants.FoConstants;
 import org.mineacademy.fo.menu.model.ItemCreator;
+import org.mineacademy.fo.model.ItemFingerprint;
+import org.mineacademy.fo.remain.CompMaterial;
+import org.mineacademy.fo.remain.CompMetadata;
 
 /**
  * Represents a tool. A tool is a simple ItemStack that is registered within the
@@ -23,6 +33,26 @@ public abstract class Tool {
 	 */
 	private static final Collection<Tool> tools = new ConcurrentLinkedQueue<>();
 
+	/**
+	 * The registered tools by their identity tag, see {@link ItemCreator#makeMenuTool()}
+	 */
+	private static final Map<String, Tool> toolsById = new ConcurrentHashMap<>();
+
+	/**
+	 * Registered tools that carry no identity tag and must be compared item by item
+	 */
+	private static final Collection<Tool> untaggedTools = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Identity tags shared by more than one registered tool, items with these are compared item by item
+	 */
+	private static final Set<String> collidingIds = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Materials of all registered tools, used to quickly reject items that cannot be a tool
+	 */
+	private static final Set<Material> toolMaterials = ConcurrentHashMap.newKeySet();
+
 	/**
 	 * Add a new tool to register.
 	 * <p>
@@ -33,7 +63,27 @@ public abstract class Tool {
 	static synchronized void register(Tool tool) {
 		Valid.checkBoolean(!isRegistered(tool), "Tool with itemstack " + tool.getItem() + " already registered");
 
+		final ItemStack item = tool.getItem();
+		final String id = readToolId(item);
+
 		tools.add(tool);
+		toolMaterials.add(item.getType());
+
+		if (id == null) {
+			untaggedTools.add(tool);
+
+			return;
+		}
+
+		final Tool existing = toolsById.putIfAbsent(id, tool);
+
+		if (existing != null) {
+			Common.warning("Tool " + tool.getClass().getName() + " has the same identity tag '" + id + "' as " + existing.getClass().getName()
+					+ ", their items will be compared one by one. Give them different names or lore to fix this.");
+
+			collidingIds.add(id);
+			untaggedTools.add(tool);
+		}
 	}
 
 	/**
@@ -43,23 +93,59 @@ public abstract class Tool {
 	 * @return true if the tool is registered
 	 */
 	static synchronized boolean isRegistered(Tool tool) {
-		return getTool(tool.getItem()) != null;
+		final ItemStack item = tool.getItem();
+
+		// Compare whole items since tools may share an identity tag
+		for (final Tool other : tools)
+			if (other == tool || ItemUtil.isSimilar(other.getItem(), item))
+				return true;
+
+		return false;
 	}
 
 	/**
 	 * Attempts to find a registered tool from given itemstack
+	 * <p>
+	 * Items made using {@link ItemCreator#makeMenuTool()} are resolved by their
+	 * identity tag, others are compared using {@link ItemUtil#isSimilar(ItemStack, ItemStack)}
 	 *
 	 * @param item the item
 	 * @return the corresponding tool, or null
 	 */
 	public static Tool getTool(ItemStack item) {
-		for (final Tool t : tools)
-			if (t.isTool(item))
-				return t;
+		if (item == null || !toolMaterials.contains(item.getType()))
+			return null;
+
+		final String id = readToolId(item);
+
+		if (id != null) {
+			final Tool tool = toolsById.get(id);
+
+			if (tool != null && (!collidingIds.contains(id) || ItemUtil.isSimilar(tool.getItem(), item)))
+				return tool;
+		}
+
+		if (!untaggedTools.isEmpty()) {
+			final ItemFingerprint fingerprint = ItemFingerprint.of(item);
+
+			for (final Tool t : untaggedTools)
+				if (fingerprint.matches(t.getItem()))
+					return t;
+		}
 
 		return null;
 	}
 
+	/*
+	 * Return the identity tag of the given tool item, or null if not set
+	 */
+	private static String readToolId(ItemStack item) {
+		if (item == null || CompMaterial.isAir(item.getType()) || MinecraftVersion.olderThan(V.v1_7))
+			return null;
+
+		return CompMetadata.getMetadata(item, FoConstants.NBT.TAG_TOOL);
+	}
+
 	/**
 	 * Get all tools
 	 *
@@ -105,7 +191,24 @@ public abstract class Tool {
 	 * @return true if this tool is the given itemstack
 	 */
 	public final boolean isTool(final ItemStack item) {
-		return ItemUtil.isSimilar(this.getItem(), item);
+		if (item == null)
+			return false;
+
+		final ItemStack toolItem = this.getItem();
+
+		if (toolItem.getType() != item.getType())
+			return false;
+
+		final String toolId = readToolId(toolItem);
+
+		if (toolId != null) {
+			final String itemId = readToolId(item);
+
+			if (itemId != null && !collidingIds.contains(itemId))
+				return toolId.equals(itemId);
+		}
+
+		return ItemUtil.isSimilar(toolItem, item);
 	}
 
 	/**
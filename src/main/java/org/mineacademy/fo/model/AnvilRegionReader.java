@@ -0,0 +1,545 @@
+package org.mineacademy.fo.model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reads chunks straight from Anvil .mca region files without the server,
+ * so it is safe to use from any thread and never loads chunks into the world.
+ * <p>
+ * Only the 8KB header and the sectors of each chunk are read, one chunk at a time into
+ * a heap buffer. The file is not memory-mapped since mapped files stay locked on Windows
+ * until the mapping is garbage collected, which would block the server from saving them. Chunks are decompressed and parsed one at a time into plain Java
+ * objects, see {@link RawChunk}, so memory use does not grow with the region size.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class AnvilRegionReader {
+
+	/**
+	 * The size of one sector in the region file
+	 */
+	private static final int SECTOR_BYTES = 4096;
+
+	/**
+	 * A valid region file name
+	 */
+	private static final Pattern FILE_PATTERN = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+
+	/**
+	 * The deepest NBT nesting we accept before treating the chunk as corrupted
+	 */
+	private static final int MAX_NBT_DEPTH = 512;
+
+	/**
+	 * The LZ4 stream used by 1.20.5+ when configured, bundled with the server, null if unavailable
+	 */
+	private static final Constructor<?> lz4InputStream;
+
+	static {
+		Constructor<?> constructor = null;
+
+		try {
+			constructor = Class.forName("net.jpountz.lz4.LZ4BlockInputStream").getConstructor(InputStream.class);
+
+		} catch (final ReflectiveOperationException ex) {
+			// Older server without LZ4 chunk compression
+		}
+
+		lz4InputStream = constructor;
+	}
+
+	/**
+	 * Read every saved chunk in the given region file and pass it to the consumer,
+	 * in the order they appear on the disk.
+	 * <p>
+	 * Chunks we cannot read are passed to the error handler and skipped,
+	 * exceptions thrown by the consumer stop the reading and are rethrown.
+	 *
+	 * @param regionFile
+	 * @param consumer
+	 * @param errorHandler called with the chunk coordinates and the error for chunks we skipped
+	 * @throws IOException if the region file itself cannot be read
+	 */
+	public static void readChunks(@NonNull File regionFile, @NonNull Consumer<RawChunk> consumer, @NonNull ChunkErrorHandler errorHandler) throws IOException {
+		final Matcher matcher = FILE_PATTERN.matcher(regionFile.getName());
+
+		if (!matcher.matches())
+			throw new IOException("Not a region file: " + regionFile);
+
+		final int regionX = Integer.parseInt(matcher.group(1));
+		final int regionZ = Integer.parseInt(matcher.group(2));
+
+		try (FileChannel channel = FileChannel.open(regionFile.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+
+			// Empty or truncated files are left by the server for regions that were never saved to
+			if (size < SECTOR_BYTES * 2)
+				return;
+
+			final ByteBuffer header = read(channel, 0, SECTOR_BYTES * 2);
+			final int[] locations = new int[1024];
+			final Integer[] order = new Integer[1024];
+
+			for (int index = 0; index < 1024; index++) {
+				locations[index] = header.getInt(index * 4);
+				order[index] = index;
+			}
+
+			// Read in disk order so the OS can read ahead
+			Arrays.sort(order, (first, second) -> Integer.compare(locations[first] >>> 8, locations[second] >>> 8));
+
+			for (final int index : order) {
+				final int location = locations[index];
+
+				if (location == 0)
+					continue;
+
+				final int chunkX = (regionX << 5) + (index & 31);
+				final int chunkZ = (regionZ << 5) + (index >> 5);
+				final int timestamp = header.getInt(SECTOR_BYTES + index * 4);
+				final Map<String, Object> data;
+
+				try {
+					data = readChunk(regionFile, channel, size, location, chunkX, chunkZ);
+
+				} catch (final ClosedChannelException ex) {
+
+					// Interrupted, the remaining chunks cannot be read either
+					throw ex;
+
+				} catch (final Throwable t) {
+					errorHandler.onError(chunkX, chunkZ, t);
+
+					continue;
+				}
+
+				if (data != null)
+					consumer.accept(new RawChunk(chunkX, chunkZ, timestamp, data));
+			}
+		}
+	}
+
+	/*
+	 * Read the given amount of bytes from the given position into a new heap buffer
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) == -1)
+				throw new IOException("Unexpected end of file reading " + length + " bytes at " + position);
+
+		buffer.flip();
+
+		return buffer;
+	}
+
+	/*
+	 * Decompress and parse the chunk at the given header location
+	 */
+	private static Map<String, Object> readChunk(File regionFile, FileChannel channel, long fileSize, int location, int chunkX, int chunkZ) throws IOException {
+		final long offset = (long) (location >>> 8) * SECTOR_BYTES;
+		final int sectors = location & 0xFF;
+
+		if (offset < SECTOR_BYTES * 2 || offset + 5 > fileSize)
+			throw new IOException("Chunk points outside of the file (offset " + offset + ")");
+
+		final ByteBuffer buffer = read(channel, offset, (int) Math.min((long) Math.max(sectors, 1) * SECTOR_BYTES, fileSize - offset));
+		final int length = buffer.getInt(0);
+		final int compression = buffer.get(4) & 0xFF;
+
+		// Length of zero means the chunk was deleted
+		if (length == 0)
+			return null;
+
+		final InputStream raw;
+
+		// Oversized chunk stored next to the region in c.x.z.mcc
+		if ((compression & 128) != 0) {
+			final File external = new File(regionFile.getParentFile(), "c." + chunkX + "." + chunkZ + ".mcc");
+
+			if (!external.isFile())
+				throw new IOException("Missing external chunk file " + external.getName());
+
+			raw = new BufferedInputStream(new FileInputStream(external));
+
+		} else {
+			if (length < 1 || length > sectors * SECTOR_BYTES || 4L + length > buffer.limit())
+				throw new IOException("Invalid chunk length " + length + " for " + sectors + " sector(s)");
+
+			buffer.position(5);
+			buffer.limit(4 + length);
+
+			raw = new ByteBufferInputStream(buffer);
+		}
+
+		final InputStream decompressed;
+
+		try {
+			decompressed = decompress(raw, compression & 127);
+
+		} catch (final IOException ex) {
+			raw.close();
+
+			throw ex;
+		}
+
+		try (DataInputStream input = new DataInputStream(decompressed)) {
+			final int type = input.readUnsignedByte();
+
+			if (type != 10)
+				throw new IOException("Chunk root is not a compound but tag type " + type);
+
+			input.readUTF();
+
+			return readCompound(input, 0);
+		}
+	}
+
+	/*
+	 * Wrap the stream to decompress it using the given region compression type
+	 */
+	private static InputStream decompress(InputStream raw, int compression) throws IOException {
+		switch (compression) {
+			case 1:
+				return new GZIPInputStream(raw, 8192);
+
+			case 2:
+				return new BufferedInputStream(new InflaterInputStream(raw), 8192);
+
+			case 3:
+				return raw;
+
+			case 4:
+				if (lz4InputStream == null)
+					throw new IOException("Chunk is LZ4 compressed but no LZ4 library was found on this server");
+
+				try {
+					return new BufferedInputStream((InputStream) lz4InputStream.newInstance(raw), 8192);
+
+				} catch (final ReflectiveOperationException ex) {
+					throw new IOException("Failed to open LZ4 stream", ex);
+				}
+
+			default:
+				throw new IOException("Unsupported chunk compression type " + compression);
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// NBT
+	// ------------------------------------------------------------------------------------------------------------
+
+	/*
+	 * Read a compound payload into a map keeping the tag order
+	 */
+	private static Map<String, Object> readCompound(DataInput input, int depth) throws IOException {
+		checkDepth(depth);
+
+		final Map<String, Object> compound = new LinkedHashMap<>();
+		int type;
+
+		while ((type = input.readUnsignedByte()) != 0) {
+			final String name = input.readUTF();
+
+			compound.put(name, readPayload(input, type, depth + 1));
+		}
+
+		return compound;
+	}
+
+	/*
+	 * Read the payload of the given tag type, numbers are boxed, arrays kept primitive
+	 */
+	private static Object readPayload(DataInput input, int type, int depth) throws IOException {
+		switch (type) {
+			case 1:
+				return input.readByte();
+			case 2:
+				return input.readShort();
+			case 3:
+				return input.readInt();
+			case 4:
+				return input.readLong();
+			case 5:
+				return input.readFloat();
+			case 6:
+				return input.readDouble();
+
+			case 7: {
+				final byte[] array = new byte[readLength(input)];
+
+				input.readFully(array);
+
+				return array;
+			}
+
+			case 8:
+				return input.readUTF();
+
+			case 9: {
+				checkDepth(depth);
+
+				final int elementType = input.readUnsignedByte();
+				final int length = readLength(input);
+				final List<Object> list = new ArrayList<>(Math.min(length, 1024));
+
+				for (int i = 0; i < length; i++)
+					list.add(readPayload(input, elementType, depth + 1));
+
+				return list;
+			}
+
+			case 10:
+				return readCompound(input, depth);
+
+			case 11: {
+				final int[] array = new int[readLength(input)];
+
+				for (int i = 0; i < array.length; i++)
+					array[i] = input.readInt();
+
+				return array;
+			}
+
+			case 12: {
+				final long[] array = new long[readLength(input)];
+
+				for (int i = 0; i < array.length; i++)
+					array[i] = input.readLong();
+
+				return array;
+			}
+
+			default:
+				throw new IOException("Unknown NBT tag type " + type);
+		}
+	}
+
+	/*
+	 * Read an array or list length, rejecting values a corrupted chunk would give
+	 */
+	private static int readLength(DataInput input) throws IOException {
+		final int length = input.readInt();
+
+		if (length < 0 || length > 16_777_216)
+			throw new IOException("Invalid NBT length " + length);
+
+		return length;
+	}
+
+	private static void checkDepth(int depth) throws IOException {
+		if (depth > MAX_NBT_DEPTH)
+			throw new IOException("NBT nested deeper than " + MAX_NBT_DEPTH);
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Classes
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Called for chunks that could not be read
+	 */
+	@FunctionalInterface
+	public interface ChunkErrorHandler {
+
+		/**
+		 * Called when the chunk at the given coordinates could not be read
+		 *
+		 * @param chunkX
+		 * @param chunkZ
+		 * @param error
+		 */
+		void onError(int chunkX, int chunkZ, Throwable error);
+	}
+
+	/**
+	 * A chunk read from the disk.
+	 * <p>
+	 * Compounds are maps, lists are lists, numbers are boxed and byte, int and long
+	 * arrays stay primitive. The helper methods cover both the pre-1.18 layout where
+	 * everything sits in the "Level" compound and the newer flat layout.
+	 */
+	@Getter
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	public static final class RawChunk {
+
+		/**
+		 * The chunk X coordinate
+		 */
+		private final int chunkX;
+
+		/**
+		 * The chunk Z coordinate
+		 */
+		private final int chunkZ;
+
+		/**
+		 * When the chunk was last saved, in seconds since the epoch
+		 */
+		private final int timestamp;
+
+		/**
+		 * The root chunk compound
+		 */
+		private final Map<String, Object> data;
+
+		/**
+		 * Return the data version the chunk was saved with, or -1 for chunks from before 1.9
+		 *
+		 * @return
+		 */
+		public int getDataVersion() {
+			final Object version = this.data.get("DataVersion");
+
+			return version instanceof Number ? ((Number) version).intValue() : -1;
+		}
+
+		/**
+		 * Return the compound holding the chunk content, "Level" before 1.18 or the root after
+		 *
+		 * @return
+		 */
+		public Map<String, Object> getLevel() {
+			final Object level = this.data.get("Level");
+
+			return level instanceof Map ? (Map<String, Object>) level : this.data;
+		}
+
+		/**
+		 * Return the generation status such as "full" or "minecraft:full", or null if not stored
+		 *
+		 * @return
+		 */
+		public String getStatus() {
+			final Object status = this.getLevel().get("Status");
+
+			return status instanceof String ? (String) status : null;
+		}
+
+		/**
+		 * Return the block sections of this chunk
+		 *
+		 * @return
+		 */
+		public List<Map<String, Object>> getSections() {
+			final Map<String, Object> level = this.getLevel();
+
+			return getCompoundList(level.containsKey("sections") ? level.get("sections") : level.get("Sections"));
+		}
+
+		/**
+		 * Return the tile entities stored in this chunk
+		 *
+		 * @return
+		 */
+		public List<Map<String, Object>> getBlockEntities() {
+			final Map<String, Object> level = this.getLevel();
+
+			return getCompoundList(level.containsKey("block_entities") ? level.get("block_entities") : level.get("TileEntities"));
+		}
+
+		/**
+		 * Return the entities stored in this chunk. Since 1.17 entities are saved
+		 * in the separate entities/ folder, so this is empty for newer chunks.
+		 *
+		 * @return
+		 */
+		public List<Map<String, Object>> getEntities() {
+			return getCompoundList(this.getLevel().get("Entities"));
+		}
+
+		/**
+		 * Return the names of all blocks in the palettes of this chunk, such as "minecraft:stone".
+		 * Chunks from before 1.13 store numeric IDs without a palette and return an empty set.
+		 *
+		 * @return
+		 */
+		public Set<String> getBlockPalette() {
+			final Set<String> names = new LinkedHashSet<>();
+
+			for (final Map<String, Object> section : this.getSections()) {
+				final Object states = section.get("block_states");
+				final Object palette = states instanceof Map ? ((Map<String, Object>) states).get("palette") : section.get("Palette");
+
+				for (final Map<String, Object> entry : getCompoundList(palette)) {
+					final Object name = entry.get("Name");
+
+					if (name instanceof String)
+						names.add((String) name);
+				}
+			}
+
+			return names;
+		}
+
+		private static List<Map<String, Object>> getCompoundList(Object list) {
+			return list instanceof List ? (List<Map<String, Object>>) list : Collections.emptyList();
+		}
+
+		@Override
+		public String toString() {
+			return "RawChunk{" + this.chunkX + " " + this.chunkZ + "}";
+		}
+	}
+
+	/*
+	 * Read a byte buffer slice as a stream without copying it
+	 */
+	@RequiredArgsConstructor
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!this.buffer.hasRemaining())
+				return -1;
+
+			final int read = Math.min(length, this.buffer.remaining());
+
+			this.buffer.get(bytes, offset, read);
+
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+}
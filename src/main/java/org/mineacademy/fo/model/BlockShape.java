@@ -0,0 +1,249 @@
+package org.mineacademy.fo.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.mineacademy.fo.Valid;
+
+import lombok.NonNull;
+
+/**
+ * An immutable block shape such as a sphere or a circle, stored as block offsets
+ * from its center packed into a long array, see {@link PackedBlocks#pack(int, int, int)}.
+ * <p>
+ * Shapes are computed once per parameters and cached, then translated to any center
+ * on demand, so iterating them with {@link #forEach(int, int, int, Visitor)} creates no objects.
+ */
+public final class BlockShape {
+
+	/**
+	 * How many shapes we keep cached
+	 */
+	private static final int CACHE_SIZE = 64;
+
+	/**
+	 * The largest radius we cache shapes for, larger shapes are built on each call
+	 */
+	private static final int MAX_CACHED_RADIUS = 512;
+
+	/**
+	 * The largest sphere radius whose offsets still fit the packed Y coordinate
+	 */
+	private static final int MAX_SPHERE_RADIUS = 2047;
+
+	/**
+	 * Recently used shapes by their parameters
+	 */
+	private static final Map<String, BlockShape> cache = new LinkedHashMap<String, BlockShape>(16, 0.75F, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, BlockShape> eldest) {
+			return this.size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * The packed offsets from the center
+	 */
+	private final long[] offsets;
+
+	private BlockShape(long[] offsets) {
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Return how many blocks this shape has
+	 *
+	 * @return
+	 */
+	public int size() {
+		return this.offsets.length;
+	}
+
+	/**
+	 * Return the packed offset from the center at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public long getOffset(int index) {
+		return this.offsets[index];
+	}
+
+	/**
+	 * Pass each block of this shape moved to the given center to the visitor
+	 *
+	 * @param centerX
+	 * @param centerY
+	 * @param centerZ
+	 * @param visitor
+	 */
+	public void forEach(int centerX, int centerY, int centerZ, @NonNull Visitor visitor) {
+		for (final long offset : this.offsets)
+			visitor.visit(centerX + PackedBlocks.unpackX(offset), centerY + PackedBlocks.unpackY(offset), centerZ + PackedBlocks.unpackZ(offset));
+	}
+
+	/**
+	 * Pass each block of this shape moved to the block of the given center to the visitor
+	 *
+	 * @param center
+	 * @param visitor
+	 */
+	public void forEach(@NonNull Location center, @NonNull Visitor visitor) {
+		this.forEach(center.getBlockX(), center.getBlockY(), center.getBlockZ(), visitor);
+	}
+
+	/**
+	 * Return the packed positions of this shape moved to the given center,
+	 * the center Y plus the shape height must stay between -2048 and 2047
+	 *
+	 * @param centerX
+	 * @param centerY
+	 * @param centerZ
+	 * @return
+	 */
+	public long[] translate(int centerX, int centerY, int centerZ) {
+		final long[] positions = new long[this.offsets.length];
+
+		for (int i = 0; i < positions.length; i++) {
+			final long offset = this.offsets[i];
+
+			positions[i] = PackedBlocks.pack(centerX + PackedBlocks.unpackX(offset), centerY + PackedBlocks.unpackY(offset), centerZ + PackedBlocks.unpackZ(offset));
+		}
+
+		return positions;
+	}
+
+	/**
+	 * Return new locations of this shape moved to the block of the given center
+	 *
+	 * @param center
+	 * @return
+	 */
+	public Set<Location> toLocations(@NonNull Location center) {
+		final Set<Location> locations = new HashSet<>((int) (this.offsets.length / 0.75F) + 1);
+		final World world = center.getWorld();
+
+		this.forEach(center, (x, y, z) -> locations.add(new Location(world, x, y, z)));
+
+		return locations;
+	}
+
+	@Override
+	public String toString() {
+		return "BlockShape{size=" + this.offsets.length + "}";
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Shapes
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return a sphere of blocks within the given radius from the center, or only its surface if hollow
+	 *
+	 * @param radius
+	 * @param hollow
+	 * @return
+	 */
+	public static BlockShape sphere(int radius, boolean hollow) {
+		Valid.checkBoolean(radius >= 0 && radius <= MAX_SPHERE_RADIUS, "Sphere radius must be between 0 and " + MAX_SPHERE_RADIUS + ", got " + radius);
+
+		return cached(radius, "sphere:" + radius + ":" + hollow, () -> build(radius, radius, hollow));
+	}
+
+	/**
+	 * Return a flat circle of blocks within the given radius from the center, or only its edge if hollow
+	 *
+	 * @param radius
+	 * @param hollow
+	 * @return
+	 */
+	public static BlockShape circle(int radius, boolean hollow) {
+		Valid.checkBoolean(radius >= 0, "Circle radius must not be negative, got " + radius);
+
+		return cached(radius, "circle:" + radius + ":" + hollow, () -> build(radius, 0, hollow));
+	}
+
+	/*
+	 * Build a sphere or circle, the surface is made of blocks
+	 * with at least one side not touching another block of the shape
+	 */
+	private static BlockShape build(int radius, int radiusY, boolean hollow) {
+		final long radiusSquared = (long) radius * radius;
+		final boolean flat = radiusY == 0;
+		long[] offsets = new long[64];
+		int count = 0;
+
+		for (int x = -radius; x <= radius; x++)
+			for (int y = -radiusY; y <= radiusY; y++)
+				for (int z = -radius; z <= radius; z++) {
+					if (!isInside(x, y, z, radiusSquared))
+						continue;
+
+					if (hollow
+							&& isInside(x + 1, y, z, radiusSquared) && isInside(x - 1, y, z, radiusSquared)
+							&& isInside(x, y, z + 1, radiusSquared) && isInside(x, y, z - 1, radiusSquared)
+							&& (flat || isInside(x, y + 1, z, radiusSquared) && isInside(x, y - 1, z, radiusSquared)))
+						continue;
+
+					if (count == offsets.length)
+						offsets = Arrays.copyOf(offsets, count + (count >> 1));
+
+					offsets[count++] = PackedBlocks.pack(x, y, z);
+				}
+
+		return new BlockShape(Arrays.copyOf(offsets, count));
+	}
+
+	private static boolean isInside(long x, long y, long z, long radiusSquared) {
+		return x * x + y * y + z * z <= radiusSquared;
+	}
+
+	/*
+	 * Return the cached shape or build and cache it, large shapes are only built
+	 */
+	private static BlockShape cached(int radius, String key, Supplier<BlockShape> builder) {
+		if (radius > MAX_CACHED_RADIUS)
+			return builder.get();
+
+		synchronized (cache) {
+			final BlockShape shape = cache.get(key);
+
+			if (shape != null)
+				return shape;
+		}
+
+		// Build outside of the lock, at worst two threads build the same shape
+		final BlockShape shape = builder.get();
+
+		synchronized (cache) {
+			cache.put(key, shape);
+		}
+
+		return shape;
+	}
+
+	/**
+	 * Receives block coordinates of a shape
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+
+		/**
+		 * Called for each block
+		 *
+		 * @param x
+		 * @param y
+		 * @param z
+		 */
+		void visit(int x, int y, int z);
+	}
+}
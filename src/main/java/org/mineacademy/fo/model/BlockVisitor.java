@@ -0,0 +1,21 @@
+package org.mineacademy.fo.model;
+
+import org.bukkit.Material;
+
+/**
+ * Receives blocks walked by a {@link CuboidScanner} or stored in {@link PackedBlocks}
+ * by their coordinates, so that no {@link org.bukkit.block.Block} is created for them.
+ */
+@FunctionalInterface
+public interface BlockVisitor {
+
+	/**
+	 * Called for each block
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param type
+	 */
+	void visit(int x, int y, int z, Material type);
+}
@@ -9,6 +9,10 @@ import lombok.Setter;
 /**
  * Splits manipulating with large about of items in a list
  * into smaller pieces
+ * <p>
+ * Use {@link #startChain()} to process a fixed amount of items every few ticks, or
+ * {@link #startBudgetedChain()} to process as many items each tick as the server can
+ * currently afford, see {@link ChunkedTaskScheduler}.
  */
 public abstract class ChunkedTask {
 
@@ -36,6 +40,33 @@ public abstract class ChunkedTask {
 	private boolean processing = false;
 	private boolean firstLaunch = false;
 
+	/*
+	 * How many items we processed since we started
+	 */
+	@Getter
+	private long processedCount = 0;
+
+	/*
+	 * When we started processing, used to calculate throughput
+	 */
+	private long startNanos = 0;
+
+	/*
+	 * When we last logged progress in budgeted mode
+	 */
+	private long lastProgressLogMillis = 0;
+
+	/**
+	 * How often to log progress in budgeted mode, in milliseconds, -1 to disable which is the default
+	 */
+	@Setter
+	private long progressIntervalMillis = -1;
+
+	/*
+	 * Is this task in the {@link ChunkedTaskScheduler}? Stays true after it was cancelled until the scheduler notices
+	 */
+	volatile boolean scheduled = false;
+
 	/**
 	 * Create a new task that will process the given amount of times on each run
 	 * (see {@link #waitPeriodTicks}) and wait for 1 second between each time
@@ -67,6 +98,7 @@ public abstract class ChunkedTask {
 			this.processing = true;
 
 			this.firstLaunch = true;
+			this.resetProgress();
 		}
 
 		Common.runLater(() -> {
@@ -92,6 +124,7 @@ public abstract class ChunkedTask {
 				}
 
 				processed++;
+				this.processedCount++;
 
 				try {
 					this.onProcess(i);
@@ -123,6 +156,126 @@ public abstract class ChunkedTask {
 		});
 	}
 
+	/**
+	 * Start processing in the budgeted mode where each tick processes as many items as fit
+	 * into this task's fair share of the tick budget, see {@link ChunkedTaskScheduler}.
+	 * <p>
+	 * The process amount and wait period are ignored in this mode.
+	 */
+	public final synchronized void startBudgetedChain() {
+		Valid.checkBoolean(!this.processing, "Chunked task is already running: " + this);
+
+		final boolean wasScheduled = this.scheduled;
+
+		// Cancelled but the scheduler did not notice yet, end that run here and reuse its place
+		if (wasScheduled)
+			this.onFinish(false);
+
+		this.processing = true;
+		this.firstLaunch = true;
+		this.resetProgress();
+
+		if (!wasScheduled) {
+			this.scheduled = true;
+
+			ChunkedTaskScheduler.schedule(this);
+		}
+	}
+
+	/*
+	 * Process items until the deadline, always at least one so that no task starves,
+	 * returning true when the task is finished and should be unscheduled
+	 */
+	final synchronized boolean processUntil(long deadlineNanos) {
+
+		// Cancelled prematurely
+		if (!this.processing) {
+			this.finish(false);
+
+			return true;
+		}
+
+		try {
+			while (true) {
+				final int index = this.currentIndex;
+
+				if (!this.canContinue(index)) {
+					this.logProgress(true);
+					this.finish(true);
+
+					return true;
+				}
+
+				// Waiting for results from another thread, try again next tick
+				if (!this.isReady(index))
+					break;
+
+				this.onProcess(index);
+
+				this.currentIndex++;
+				this.processedCount++;
+
+				if (System.nanoTime() >= deadlineNanos)
+					break;
+			}
+
+		} catch (final Throwable t) {
+			Common.error(t, "Error in " + this + " processing index " + this.currentIndex);
+
+			this.finish(false);
+			return true;
+		}
+
+		this.logProgress(false);
+		return false;
+	}
+
+	/*
+	 * Return true if the given index can be processed right now on the main thread
+	 */
+	boolean isReady(int index) {
+		return true;
+	}
+
+	/*
+	 * Mark the task as finished and call onFinish, the scheduler removes it afterwards
+	 */
+	private void finish(boolean gracefully) {
+		this.processing = false;
+		this.firstLaunch = false;
+		this.scheduled = false;
+
+		this.onFinish(gracefully);
+	}
+
+	/*
+	 * Reset the progress counters when starting
+	 */
+	private void resetProgress() {
+		this.processedCount = 0;
+		this.startNanos = System.nanoTime();
+		this.lastProgressLogMillis = System.currentTimeMillis();
+	}
+
+	/*
+	 * Log the progress message if the interval passed or when finished
+	 */
+	private void logProgress(boolean finished) {
+		if (this.progressIntervalMillis < 0)
+			return;
+
+		final long now = System.currentTimeMillis();
+
+		if (finished || now - this.lastProgressLogMillis >= this.progressIntervalMillis) {
+			this.lastProgressLogMillis = now;
+
+			final String message = this.getProgressMessage(finished);
+
+			if (message != null)
+				Common.log(message);
+		}
+	}
+
 	/**
 	 * Attempts to cancel this running task, throwing error if it is not running (use {@link #isProcessing()}
 	 */
@@ -158,6 +311,53 @@ public abstract class ChunkedTask {
 		return "Processed " + String.format("%,d", processed) + " " + this.getLabel() + ". Took " + (System.currentTimeMillis() - initialTime) + " ms";
 	}
 
+	/**
+	 * Get the message to send to the console periodically in budgeted mode and when it finishes,
+	 * or null if no message
+	 *
+	 * @param finished
+	 * @return
+	 */
+	protected String getProgressMessage(boolean finished) {
+		final double progress = this.getProgress();
+
+		return (finished ? "Finished processing " : "Processed ") + String.format("%,d", this.processedCount) + " " + this.getLabel()
+				+ (progress >= 0 && !finished ? " (" + Math.round(progress * 100) + "%)" : "")
+				+ ", " + String.format("%,.0f", this.getThroughput()) + " " + this.getLabel() + "/s";
+	}
+
+	/**
+	 * Return how many items are processed per second on average since the task started
+	 *
+	 * @return
+	 */
+	public final double getThroughput() {
+		final double seconds = (System.nanoTime() - this.startNanos) / 1_000_000_000D;
+
+		return seconds <= 0 ? 0 : this.processedCount / seconds;
+	}
+
+	/**
+	 * Return the progress from 0 to 1, or -1 if {@link #getTotal()} is unknown
+	 *
+	 * @return
+	 */
+	public final double getProgress() {
+		final int total = this.getTotal();
+
+		return total <= 0 ? -1 : Math.min(1D, this.currentIndex / (double) total);
+	}
+
+	/**
+	 * Return how many items this task processes in total, or -1 if unknown
+	 * which is the default
+	 *
+	 * @return
+	 */
+	protected int getTotal() {
+		return -1;
+	}
+
 	/**
 	 * Called when the processing is finished
 	 *
@@ -0,0 +1,209 @@
+package org.mineacademy.fo.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Bukkit;
+import org.mineacademy.fo.Common;
+import org.mineacademy.fo.MathUtil;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Runs {@link ChunkedTask}s started with {@link ChunkedTask#startBudgetedChain()}.
+ * <p>
+ * Every tick we derive a millisecond budget from the current milliseconds per tick,
+ * so that tasks process more when the server is idle and back off when it lags.
+ * The budget is shared fairly: each task gets an equal slice of the time left,
+ * time unused by one task flows to the next ones, and the task that goes first
+ * rotates every tick.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ChunkedTaskScheduler {
+
+	/**
+	 * The length of one tick at 20 TPS
+	 */
+	private static final double TICK_MILLIS = 50;
+
+	/**
+	 * Paper's Bukkit.getAverageTickTime(), null if unsupported
+	 */
+	private static final MethodHandle averageTickTime;
+
+	/**
+	 * The smallest budget per tick we give to all tasks together, in milliseconds
+	 */
+	@Getter
+	@Setter
+	private static double minBudgetMillis = 1;
+
+	/**
+	 * The largest budget per tick we give to all tasks together, in milliseconds
+	 */
+	@Getter
+	@Setter
+	private static double maxBudgetMillis = 25;
+
+	/**
+	 * The budget used when the server does not report its tick time and does not lag, in milliseconds
+	 */
+	@Getter
+	@Setter
+	private static double defaultBudgetMillis = 10;
+
+	/**
+	 * How many milliseconds of each tick we always leave free for the server
+	 */
+	@Getter
+	@Setter
+	private static double headroomMillis = 5;
+
+	/**
+	 * The running tasks, only accessed from the main thread
+	 */
+	private static final List<ChunkedTask> tasks = new ArrayList<>();
+
+	/**
+	 * Which task goes first the next tick
+	 */
+	private static int nextFirstTask = 0;
+
+	/**
+	 * When the last tick started, to estimate lag where tick time is not available
+	 */
+	private static long lastTickNanos = 0;
+
+	/**
+	 * The repeating task, or null when there is nothing to run
+	 */
+	private static SimpleTask ticker;
+
+	static {
+		MethodHandle handle = null;
+
+		try {
+			handle = MethodHandles.publicLookup().findStatic(Bukkit.class, "getAverageTickTime", MethodType.methodType(double.class));
+
+		} catch (final ReflectiveOperationException ex) {
+			// Not Paper
+		}
+
+		averageTickTime = handle;
+	}
+
+	/*
+	 * Add the task and start ticking if we are not yet
+	 */
+	static void schedule(ChunkedTask task) {
+		if (!Bukkit.isPrimaryThread()) {
+			Common.runLater(() -> schedule(task));
+
+			return;
+		}
+
+		if (!tasks.contains(task))
+			tasks.add(task);
+
+		// Our timer is cancelled together with other tasks when the plugin reloads, detect it by not ticking
+		if (ticker == null || ticker.isCancelled() || System.nanoTime() - lastTickNanos > 1_000_000_000L) {
+			if (ticker != null)
+				ticker.cancel();
+
+			lastTickNanos = System.nanoTime();
+			ticker = Common.runTimer(1, 1, ChunkedTaskScheduler::tick);
+		}
+	}
+
+	/*
+	 * Run all tasks within the budget of this tick
+	 */
+	private static void tick() {
+		final long now = System.nanoTime();
+		final double intervalMillis = (now - lastTickNanos) / 1_000_000D;
+
+		lastTickNanos = now;
+
+		if (tasks.isEmpty()) {
+			ticker.cancel();
+			ticker = null;
+
+			return;
+		}
+
+		final long deadline = now + (long) (getBudgetMillis(intervalMillis) * 1_000_000);
+		final List<ChunkedTask> running = new ArrayList<>(tasks);
+		final int size = running.size();
+		final int first = nextFirstTask++ % size;
+
+		for (int i = 0; i < size; i++) {
+			final ChunkedTask task = running.get((first + i) % size);
+			final long timeLeft = deadline - System.nanoTime();
+
+			// Out of budget, the rotation lets the remaining tasks go first next time
+			if (timeLeft <= 0 && i > 0)
+				break;
+
+			// Keep tasks restarted from their onFinish
+			if (task.processUntil(System.nanoTime() + Math.max(0, timeLeft) / (size - i)) && !task.scheduled)
+				tasks.remove(task);
+		}
+	}
+
+	/**
+	 * Return the budget for all tasks this tick in milliseconds.
+	 * <p>
+	 * On Paper this is the time left in a 50ms tick after the average tick time and headroom.
+	 * Elsewhere we use the default budget, lowered by how much the last tick ran late.
+	 *
+	 * @param intervalMillis how long passed since the last tick
+	 * @return
+	 */
+	private static double getBudgetMillis(double intervalMillis) {
+		final double mspt = getAverageTickTime();
+		final double budget;
+
+		if (mspt > 0)
+			budget = TICK_MILLIS - mspt - headroomMillis;
+
+		else if (intervalMillis > TICK_MILLIS + 2)
+			budget = defaultBudgetMillis - (intervalMillis - TICK_MILLIS);
+
+		else
+			budget = defaultBudgetMillis;
+
+		return MathUtil.range(budget, minBudgetMillis, maxBudgetMillis);
+	}
+
+	/**
+	 * Return the server's average milliseconds per tick (requires Paper, otherwise we return -1)
+	 *
+	 * @return
+	 */
+	public static double getAverageTickTime() {
+		if (averageTickTime == null)
+			return -1;
+
+		try {
+			return (double) averageTickTime.invokeExact();
+
+		} catch (final Throwable t) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Return how many budgeted tasks are running
+	 *
+	 * @return
+	 */
+	public static int getRunningTasks() {
+		return tasks.size();
+	}
+}
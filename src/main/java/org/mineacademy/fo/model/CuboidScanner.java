@@ -0,0 +1,388 @@
+package org.mineacademy.fo.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.mineacademy.fo.MinecraftVersion;
+import org.mineacademy.fo.MinecraftVersion.V;
+import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.remain.Remain;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Walks all blocks in a cuboid chunk by chunk using {@link ChunkSnapshot}s,
+ * without creating a {@link org.bukkit.block.Block} for each of them.
+ * <p>
+ * Snapshots are taken on the main thread within the tick budget, see {@link ChunkedTaskScheduler},
+ * and read on the common fork-join pool, so even huge areas never freeze the server.
+ * Only a few snapshots are held in memory at once. Use {@link #collectAsync()} to get the
+ * matching blocks as {@link PackedBlocks} and {@link PackedBlocks#apply(World, java.util.function.BiConsumer, java.util.function.BiConsumer)}
+ * to change them on the main thread afterwards.
+ */
+public final class CuboidScanner {
+
+	/**
+	 * How many snapshots may wait to be read at once
+	 */
+	private static final int MAX_SNAPSHOTS_IN_FLIGHT = 16;
+
+	/**
+	 * All materials by ordinal
+	 */
+	private static final Material[] MATERIALS = Material.values();
+
+	/**
+	 * ChunkSnapshot#getBlockTypeId on legacy servers, null on 1.13+
+	 */
+	private static final MethodHandle legacyBlockTypeId;
+
+	/**
+	 * Materials by legacy id, null on 1.13+
+	 */
+	private static final Material[] legacyMaterials;
+
+	static {
+		MethodHandle handle = null;
+		Material[] byId = null;
+
+		if (MinecraftVersion.olderThan(V.v1_13))
+			try {
+				handle = MethodHandles.publicLookup().findVirtual(ChunkSnapshot.class, "getBlockTypeId", MethodType.methodType(int.class, int.class, int.class, int.class));
+				byId = new Material[4096];
+
+				for (final Material material : MATERIALS) {
+					final int id = material.getId();
+
+					if (id >= 0 && id < byId.length && byId[id] == null)
+						byId[id] = material;
+				}
+
+			} catch (final ReflectiveOperationException ex) {
+				Remain.sneaky(ex);
+			}
+
+		legacyBlockTypeId = handle;
+		legacyMaterials = byId;
+	}
+
+	/**
+	 * The world we scan
+	 */
+	@Getter
+	private final World world;
+
+	/*
+	 * The block bounds, inclusive
+	 */
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+
+	/*
+	 * Which material ordinals we visit, null for all
+	 */
+	private boolean[] filter;
+
+	/**
+	 * Create a scanner for the cuboid between the given points, in any order.
+	 * Heights are clamped to the world limits.
+	 *
+	 * @param primary
+	 * @param secondary
+	 */
+	public CuboidScanner(@NonNull Location primary, @NonNull Location secondary) {
+		this(primary.getWorld(), primary.getBlockX(), primary.getBlockY(), primary.getBlockZ(), secondary.getBlockX(), secondary.getBlockY(), secondary.getBlockZ());
+
+		Valid.checkBoolean(primary.getWorld().equals(secondary.getWorld()), "Points must be in one world! Primary: " + primary + " != secondary: " + secondary);
+	}
+
+	/**
+	 * Create a scanner for the whole given chunk
+	 *
+	 * @param chunk
+	 */
+	public CuboidScanner(@NonNull Chunk chunk) {
+		this(chunk.getWorld(), chunk.getX() << 4, Integer.MIN_VALUE, chunk.getZ() << 4, (chunk.getX() << 4) + 15, Integer.MAX_VALUE, (chunk.getZ() << 4) + 15);
+	}
+
+	/**
+	 * Create a scanner for the cuboid between the given block coordinates, in any order.
+	 * Heights are clamped to the world limits.
+	 *
+	 * @param world
+	 * @param x1
+	 * @param y1
+	 * @param z1
+	 * @param x2
+	 * @param y2
+	 * @param z2
+	 */
+	public CuboidScanner(@NonNull World world, int x1, int y1, int z1, int x2, int y2, int z2) {
+		final int worldMinY = MinecraftVersion.atLeast(V.v1_18) ? world.getMinHeight() : 0;
+		final int worldMaxY = world.getMaxHeight() - 1;
+
+		this.world = world;
+		this.minX = Math.min(x1, x2);
+		this.minY = Math.max(worldMinY, Math.min(y1, y2));
+		this.minZ = Math.min(z1, z2);
+		this.maxX = Math.max(x1, x2);
+		this.maxY = Math.min(worldMaxY, Math.max(y1, y2));
+		this.maxZ = Math.max(z1, z2);
+	}
+
+	/**
+	 * Only visit blocks of the given types
+	 *
+	 * @param materials
+	 * @return this scanner
+	 */
+	public CuboidScanner filter(@NonNull Material... materials) {
+		this.filter = new boolean[MATERIALS.length];
+
+		for (final Material material : materials)
+			this.filter[material.ordinal()] = true;
+
+		return this;
+	}
+
+	/**
+	 * Only visit blocks of types matching the predicate, it is evaluated once per material here
+	 *
+	 * @param predicate
+	 * @return this scanner
+	 */
+	public CuboidScanner filter(@NonNull Predicate<Material> predicate) {
+		this.filter = new boolean[MATERIALS.length];
+
+		for (final Material material : MATERIALS)
+			this.filter[material.ordinal()] = predicate.test(material);
+
+		return this;
+	}
+
+	/**
+	 * Return how many blocks the cuboid has
+	 *
+	 * @return
+	 */
+	public long getVolume() {
+		return this.maxY < this.minY ? 0 : (long) (this.maxX - this.minX + 1) * (this.maxY - this.minY + 1) * (this.maxZ - this.minZ + 1);
+	}
+
+	/**
+	 * Return how many chunks the cuboid spans
+	 *
+	 * @return
+	 */
+	public int getChunkCount() {
+		return ((this.maxX >> 4) - (this.minX >> 4) + 1) * ((this.maxZ >> 4) - (this.minZ >> 4) + 1);
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Scanning on the main thread
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Visit all matching blocks right now, must be called on the main thread.
+	 * Prefer {@link #visitAsync(BlockVisitor)} for large areas.
+	 *
+	 * @param visitor
+	 */
+	public void visit(@NonNull BlockVisitor visitor) {
+		Valid.checkBoolean(Bukkit.isPrimaryThread(), "CuboidScanner#visit must be called on the main thread, use visitAsync instead");
+
+		for (int index = 0; index < this.getChunkCount(); index++)
+			this.visitChunk(this.takeSnapshot(index), visitor);
+	}
+
+	/**
+	 * Collect all matching blocks right now, must be called on the main thread.
+	 * Prefer {@link #collectAsync()} for large areas.
+	 *
+	 * @return
+	 */
+	public PackedBlocks collect() {
+		final PackedBlocks blocks = new PackedBlocks();
+
+		this.visit(blocks::add);
+		blocks.trimToSize();
+
+		return blocks;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Scanning off the main thread
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Visit all matching blocks off the main thread. The visitor is called from the
+	 * fork-join pool for several chunks at once, so it must be thread-safe and must not
+	 * touch the world. Blocks within one chunk are visited by one thread in order.
+	 *
+	 * @param visitor
+	 * @return a future completed off the main thread when all blocks were visited
+	 */
+	public CompletableFuture<Void> visitAsync(@NonNull BlockVisitor visitor) {
+		final CompletableFuture<?>[] chunks = new CompletableFuture<?>[this.getChunkCount()];
+
+		return this.scanAsync(chunks, (snapshot, index) -> chunks[index] = CompletableFuture.runAsync(() -> this.visitChunk(snapshot, visitor), ForkJoinPool.commonPool()))
+				.thenCompose(ignored -> CompletableFuture.allOf(chunks));
+	}
+
+	/**
+	 * Collect all matching blocks off the main thread, in chunk order
+	 *
+	 * @return a future completed off the main thread with the blocks
+	 */
+	public CompletableFuture<PackedBlocks> collectAsync() {
+		final CompletableFuture<?>[] chunks = new CompletableFuture<?>[this.getChunkCount()];
+
+		return this.scanAsync(chunks, (snapshot, index) -> chunks[index] = CompletableFuture.supplyAsync(() -> {
+			final PackedBlocks blocks = new PackedBlocks(256);
+
+			this.visitChunk(snapshot, blocks::add);
+			return blocks;
+
+		}, ForkJoinPool.commonPool())).thenCompose(ignored -> CompletableFuture.allOf(chunks)).thenApply(ignored -> {
+			int size = 0;
+
+			for (final CompletableFuture<?> chunk : chunks)
+				size += ((PackedBlocks) chunk.join()).size();
+
+			final PackedBlocks blocks = new PackedBlocks(size);
+
+			for (final CompletableFuture<?> chunk : chunks)
+				blocks.addAll((PackedBlocks) chunk.join());
+
+			return blocks;
+		});
+	}
+
+	/*
+	 * Take snapshots within the tick budget and pass them to the reader,
+	 * completing when the last snapshot was taken
+	 */
+	private CompletableFuture<Void> scanAsync(CompletableFuture<?>[] chunks, SnapshotReader reader) {
+		final CompletableFuture<Void> snapshotted = new CompletableFuture<>();
+		final AtomicInteger inFlight = new AtomicInteger();
+
+		new ChunkedTask(1) {
+
+			@Override
+			boolean isReady(int index) {
+				return inFlight.get() < MAX_SNAPSHOTS_IN_FLIGHT;
+			}
+
+			@Override
+			protected void onProcess(int index) {
+				inFlight.incrementAndGet();
+
+				reader.read(CuboidScanner.this.takeSnapshot(index), index);
+				chunks[index].whenComplete((result, error) -> inFlight.decrementAndGet());
+			}
+
+			@Override
+			protected boolean canContinue(int index) {
+				return index < chunks.length;
+			}
+
+			@Override
+			protected int getTotal() {
+				return chunks.length;
+			}
+
+			@Override
+			protected String getProgressMessage(boolean finished) {
+				return null;
+			}
+
+			@Override
+			protected void onFinish(boolean gracefully) {
+				if (gracefully)
+					snapshotted.complete(null);
+
+				else
+					snapshotted.completeExceptionally(new CancellationException("Scanning " + CuboidScanner.this + " was cancelled"));
+			}
+
+		}.startBudgetedChain();
+
+		return snapshotted;
+	}
+
+	/*
+	 * Load the chunk at the given index and take its snapshot, main thread only
+	 */
+	private ChunkSnapshot takeSnapshot(int index) {
+		final int chunksX = (this.maxX >> 4) - (this.minX >> 4) + 1;
+		final int chunkX = (this.minX >> 4) + index % chunksX;
+		final int chunkZ = (this.minZ >> 4) + index / chunksX;
+
+		return this.world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+	}
+
+	/*
+	 * Visit the matching blocks of the snapshot within our bounds
+	 */
+	private void visitChunk(ChunkSnapshot snapshot, BlockVisitor visitor) {
+		final int baseX = snapshot.getX() << 4;
+		final int baseZ = snapshot.getZ() << 4;
+
+		final int fromX = Math.max(this.minX, baseX) - baseX, toX = Math.min(this.maxX, baseX + 15) - baseX;
+		final int fromZ = Math.max(this.minZ, baseZ) - baseZ, toZ = Math.min(this.maxZ, baseZ + 15) - baseZ;
+		final boolean[] filter = this.filter;
+
+		for (int y = this.minY; y <= this.maxY; y++)
+			for (int z = fromZ; z <= toZ; z++)
+				for (int x = fromX; x <= toX; x++) {
+					final Material type = getType(snapshot, x, y, z);
+
+					if (type != null && (filter == null || filter[type.ordinal()]))
+						visitor.visit(baseX + x, y, baseZ + z, type);
+				}
+	}
+
+	/*
+	 * Return the block type in the snapshot, null if unknown
+	 */
+	private static Material getType(ChunkSnapshot snapshot, int x, int y, int z) {
+		if (legacyBlockTypeId == null)
+			return snapshot.getBlockType(x, y, z);
+
+		try {
+			final int id = (int) legacyBlockTypeId.invokeExact(snapshot, x, y, z);
+
+			return id >= 0 && id < legacyMaterials.length ? legacyMaterials[id] : null;
+
+		} catch (final Throwable t) {
+			Remain.sneaky(t);
+
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CuboidScanner{" + this.world.getName() + " " + this.minX + " " + this.minY + " " + this.minZ + " - " + this.maxX + " " + this.maxY + " " + this.maxZ + "}";
+	}
+
+	/*
+	 * Receives each snapshot with its chunk index and starts reading it
+	 */
+	@FunctionalInterface
+	private interface SnapshotReader {
+		void read(ChunkSnapshot snapshot, int index);
+	}
+}
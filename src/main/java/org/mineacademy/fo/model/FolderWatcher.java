@@ -1,51 +1,108 @@
 package org.mineacademy.fo.model;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 
 import java.io.File;
-import java.nio.file.FileSystem;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.WatchEvent;
-import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
-import org.bukkit.scheduler.BukkitTask;
 import org.mineacademy.fo.Common;
 import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.debug.Debugger;
 import org.mineacademy.fo.exception.FoException;
-import org.mineacademy.fo.plugin.SimplePlugin;
 
 import lombok.AccessLevel;
 import lombok.Getter;
-
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Watches a folder and reports files created, modified or deleted in it.
+ * <p>
+ * All watchers share one thread. Changes to a file are reported once it was left alone
+ * for {@link #DEBOUNCE_MILLIS}, and only if its content actually changed, so editors saving
+ * in several writes or by renaming a temporary file over it cause one reload. A renamed
+ * file is reported as deleted under its old name and created under its new one.
+ * <p>
+ * Changes found together are passed as one batch to {@link #prepare(List)} off the main thread,
+ * then to {@link #apply(List)} on the main thread.
+ */
 @Getter(value = AccessLevel.PROTECTED)
-public abstract class FolderWatcher extends Thread {
+public abstract class FolderWatcher {
 
 	/**
-	 * A list to help Foundation stop threads on reload
+	 * How long a file must stay unchanged before we report it, in milliseconds
 	 */
-	private static volatile Set<FolderWatcher> activeThreads = new HashSet<>();
+	public static final long DEBOUNCE_MILLIS = 500;
 
 	/**
-	 * Stop all active threads
+	 * Files larger than this are compared by their size and modification time instead of content
 	 */
-	public static void stopThreads() {
-		for (final FolderWatcher thread : activeThreads)
-			thread.stopWatching();
+	private static final long MAX_HASHED_SIZE = 8 * 1024 * 1024;
 
-		activeThreads.clear();
-	}
+	/**
+	 * How many times we try to read a changed file before giving up on the change, each after {@link #DEBOUNCE_MILLIS}
+	 */
+	private static final int MAX_READ_ATTEMPTS = 20;
+
+	/**
+	 * A list to help Foundation stop watchers on reload, by identity since several may watch the same folder
+	 */
+	private static final Set<FolderWatcher> activeWatchers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Watchers by the key of their folder, several may watch the same folder
+	 */
+	private static final Map<WatchKey, List<FolderWatcher>> watchersByKey = new HashMap<>();
 
 	/**
-	 * Workaround for duplicated values in the loop
+	 * The shared watch service, null when nothing is watched
 	 */
-	private final Map<String, BukkitTask> scheduledUpdates = new HashMap<>();
+	private static WatchService service;
+
+	/**
+	 * The shared thread preparing batches, null when nothing is watched
+	 */
+	private static ExecutorService prepareExecutor;
+
+	/**
+	 * Stop all active watchers
+	 */
+	public static void stopThreads() {
+		final List<FolderWatcher> watchers;
+
+		synchronized (FolderWatcher.class) {
+			watchers = new ArrayList<>(activeWatchers);
+		}
+
+		for (final FolderWatcher watcher : watchers)
+			if (watcher.isWatching())
+				watcher.stopWatching();
+	}
 
 	/**
 	 * The folder that is being watched
@@ -53,10 +110,40 @@ public abstract class FolderWatcher extends Thread {
 	private final Path folder;
 
 	/**
-	 * A one-way flag used to stop the thread while loop deadlock
+	 * A one-way flag used to stop reporting changes
 	 */
 	@Getter
-	private boolean watching = true;
+	private volatile boolean watching = true;
+
+	/**
+	 * The registration of our folder
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final WatchKey watchKey;
+
+	/**
+	 * The service our folder is registered with
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final WatchService watchService;
+
+	/**
+	 * The last known content fingerprint of each file, used by the watcher thread only
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final Map<Path, Long> fingerprints = new HashMap<>();
+
+	/**
+	 * Files with unreported events and when the last event came, used by the watcher thread only
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final Map<Path, Long> pendingChanges = new HashMap<>();
+
+	/**
+	 * How many times we failed to read each pending file, used by the watcher thread only
+	 */
+	@Getter(value = AccessLevel.NONE)
+	private final Map<Path, Integer> failedReads = new HashMap<>();
 
 	/**
 	 * Start a new file watcher and start watching the given folder
@@ -68,80 +155,320 @@ public abstract class FolderWatcher extends Thread {
 		Valid.checkBoolean(folder.isDirectory(), folder + " must be a directory!");
 
 		this.folder = folder.toPath();
-		this.start();
 
-		for (final FolderWatcher other : activeThreads)
-			//Valid.checkBoolean(other.folder.toString().equals(this.folder.toString()), "Tried to add a duplicate file watcher for " + this.folder);
-			if (other.folder.toString().equals(this.folder.toString()))
-				Common.warning("A duplicate file watcher for '" + folder.getPath() + "' was added. This is untested and may causes fatal issues!");
+		for (final Path file : listFiles(this.folder))
+			try {
+				this.updateFingerprint(file);
+
+			} catch (final IOException ex) {
+				// Unreadable for now, we report it as created once it can be read
+			}
 
-		activeThreads.add(this);
+		synchronized (FolderWatcher.class) {
+			for (final FolderWatcher other : activeWatchers)
+				if (other.folder.toString().equals(this.folder.toString()))
+					Common.warning("A duplicate file watcher for '" + folder.getPath() + "' was added. Both will be notified of changes.");
+
+			try {
+				if (service == null)
+					startService();
+
+				this.watchKey = this.folder.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+			} catch (final IOException ex) {
+				throw new FoException(ex, "Could not watch folder " + folder);
+			}
+
+			this.watchService = service;
+
+			watchersByKey.computeIfAbsent(this.watchKey, key -> new ArrayList<>()).add(this);
+			activeWatchers.add(this);
+		}
 
 		Debugger.debug("upload", "Started folder watcher for " + folder + " in " + folder.getAbsolutePath() + " (path: " + this.folder + ")");
 	}
 
-	/**
-	 * Starts watching the given folder and reporting changes
+	/*
+	 * Start the shared thread, called when the first folder is watched
 	 */
-	@Override
-	public final void run() {
-		final FileSystem fileSystem = this.folder.getFileSystem();
+	private static void startService() throws IOException {
+		final WatchService newService = FileSystems.getDefault().newWatchService();
+		final Thread thread = new Thread(() -> watchLoop(newService), "Foundation Folder Watcher");
 
-		try (WatchService service = fileSystem.newWatchService()) {
-			final WatchKey registration = this.folder.register(service, ENTRY_MODIFY);
+		service = newService;
+		prepareExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			final Thread prepareThread = new Thread(runnable, "Foundation Folder Watcher Reload");
 
-			while (this.watching)
-				//synchronized (activeThreads) {
-				try {
-					final WatchKey watchKey = service.take();
+			prepareThread.setDaemon(true);
 
-					for (final WatchEvent<?> watchEvent : watchKey.pollEvents()) {
-						final Kind<?> kind = watchEvent.kind();
+			return prepareThread;
+		});
 
-						if (kind == ENTRY_MODIFY) {
-							final Path watchEventPath = (Path) watchEvent.context();
-							final File fileModified = new File(SimplePlugin.getData(), watchEventPath.toFile().getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
 
-							final String path = fileModified.getAbsolutePath();
-							final BukkitTask pendingTask = this.scheduledUpdates.remove(path);
+	/*
+	 * Collect events and report files which were left alone long enough
+	 */
+	private static void watchLoop(WatchService service) {
+		while (true)
+			try {
+				final List<FolderWatcher> watchers = new ArrayList<>();
 
-							// Cancel the old task and reschedule
-							if (pendingTask != null)
-								pendingTask.cancel();
+				// Skip watchers registered with a new service after ours was closed
+				synchronized (FolderWatcher.class) {
+					for (final FolderWatcher watcher : activeWatchers)
+						if (watcher.watchService == service)
+							watchers.add(watcher);
+				}
 
-							// Force run sync -- reschedule five seconds later to ensure no further edits take place
-							this.scheduledUpdates.put(path, Common.runLater(10, () -> {
-								if (!this.watching)
-									return;
+				boolean pending = false;
 
-								try {
-									this.onModified(fileModified);
+				for (final FolderWatcher watcher : watchers)
+					pending |= !watcher.pendingChanges.isEmpty();
 
-									this.scheduledUpdates.remove(path);
+				// Sleep until something happens unless we have changes to report soon
+				final WatchKey key = pending ? service.poll(DEBOUNCE_MILLIS / 5, TimeUnit.MILLISECONDS) : service.take();
+				final long now = System.currentTimeMillis();
 
-								} catch (final Throwable t) {
-									Common.error(t, "Error in calling onModified when watching changed file " + fileModified);
-								}
-							}));
+				if (key != null) {
+					final List<FolderWatcher> keyWatchers;
 
-							break;
-						}
+					synchronized (FolderWatcher.class) {
+						keyWatchers = new ArrayList<>(watchersByKey.getOrDefault(key, Collections.emptyList()));
 					}
 
-					if (!watchKey.reset())
-						Common.error(new FoException("Failed to reset watch key! Restarting sync engine.."));
+					for (final WatchEvent<?> event : key.pollEvents())
+						for (final FolderWatcher watcher : keyWatchers)
+							watcher.queue(event, now);
+
+					// The folder was deleted or we stopped watching it
+					if (!key.reset())
+						synchronized (FolderWatcher.class) {
+							watchersByKey.remove(key);
+						}
+				}
+
+				for (final FolderWatcher watcher : watchers)
+					watcher.reportSettled(now);
+
+			} catch (final ClosedWatchServiceException | InterruptedException ex) {
+				return;
+
+			} catch (final Throwable t) {
+				Common.error(t, "Error in handling the folder watching thread loop");
+			}
+	}
+
+	/*
+	 * Remember the file changed, or every file if we missed events
+	 */
+	private void queue(WatchEvent<?> event, long now) {
+		if (event.kind() == OVERFLOW) {
+			for (final Path file : this.fingerprints.keySet())
+				this.pendingChanges.put(file, now);
+
+			for (final Path file : listFiles(this.folder))
+				this.pendingChanges.put(file, now);
+
+		} else
+			this.pendingChanges.put(this.folder.resolve((Path) event.context()), now);
+	}
+
+	/*
+	 * Report files which were left alone long enough and whose content changed
+	 */
+	private void reportSettled(long now) {
+		if (this.pendingChanges.isEmpty())
+			return;
+
+		final List<FileChange> changes = new ArrayList<>();
+
+		for (final Iterator<Map.Entry<Path, Long>> it = this.pendingChanges.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry<Path, Long> entry = it.next();
+
+			if (now - entry.getValue() < DEBOUNCE_MILLIS)
+				continue;
+
+			final Path file = entry.getKey();
+			final Long before = this.fingerprints.get(file);
+			final Long after;
+
+			try {
+				after = this.updateFingerprint(file);
+
+			} catch (final IOException ex) {
+				final int attempts = this.failedReads.merge(file, 1, Integer::sum);
+
+				// Likely still being written to, try again later
+				if (attempts < MAX_READ_ATTEMPTS) {
+					entry.setValue(now);
+
+					continue;
+				}
+
+				Common.warning("Could not read " + file + " after " + attempts + " attempts, ignoring its change: " + ex);
+
+				this.failedReads.remove(file);
+				it.remove();
+
+				continue;
+			}
+
+			this.failedReads.remove(file);
+			it.remove();
+
+			if (!Objects.equals(before, after))
+				changes.add(new FileChange(file.toFile(), after == null ? ChangeType.DELETED : before == null ? ChangeType.CREATED : ChangeType.MODIFIED));
+		}
+
+		if (!changes.isEmpty() && this.watching)
+			this.dispatch(changes);
+	}
+
+	/*
+	 * Prepare the batch on the reload thread, then apply it on the main thread
+	 */
+	private void dispatch(List<FileChange> changes) {
+		try {
+			prepareExecutor.execute(() -> {
+				if (!this.watching)
+					return;
+
+				try {
+					this.prepare(changes);
 
 				} catch (final Throwable t) {
-					Common.error(t, "Error in handling watching thread loop for folder " + this.getFolder());
+					Common.error(t, "Error in preparing changed files " + changes + " in " + this.folder);
+
+					return;
 				}
-			//}
 
-			registration.cancel();
+				Common.runLater(() -> {
+					if (this.watching)
+						this.apply(changes);
+				});
+			});
 
-		} catch (final Throwable t) {
-			Common.error(t, "Error in initializing watching thread loop for folder " + this.getFolder());
+		} catch (final RejectedExecutionException ex) {
+			// Stopped meanwhile
 		}
+	}
+
+	/*
+	 * Store and return the current fingerprint of the file, or null if it no longer exists
+	 */
+	private Long updateFingerprint(Path file) throws IOException {
+		final Long fingerprint;
+
+		try {
+			fingerprint = fingerprint(file);
+
+		} catch (final IOException ex) {
+
+			// Deleted while we were reading it
+			if (!Files.exists(file)) {
+				this.fingerprints.remove(file);
 
+				return null;
+			}
+
+			throw ex;
+		}
+
+		if (fingerprint == null)
+			this.fingerprints.remove(file);
+		else
+			this.fingerprints.put(file, fingerprint);
+
+		return fingerprint;
+	}
+
+	/*
+	 * Return the content hash of the file, or its size and modification time if large, or null if it is not a file
+	 */
+	private static Long fingerprint(Path file) throws IOException {
+		if (!Files.isRegularFile(file))
+			return null;
+
+		final long size = Files.size(file);
+
+		if (size > MAX_HASHED_SIZE)
+			return Files.getLastModifiedTime(file).toMillis() * 31 + size;
+
+		final CRC32 crc = new CRC32();
+		final byte[] buffer = new byte[8192];
+
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+
+			while ((read = in.read(buffer)) != -1)
+				crc.update(buffer, 0, read);
+		}
+
+		return size << 32 ^ crc.getValue();
+	}
+
+	private static List<Path> listFiles(Path folder) {
+		final List<Path> files = new ArrayList<>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			for (final Path file : stream)
+				if (Files.isRegularFile(file))
+					files.add(file);
+
+		} catch (final IOException ex) {
+			Common.error(ex, "Could not list files in watched folder " + folder);
+		}
+
+		return files;
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// Callbacks
+	// ------------------------------------------------------------------------------------------
+
+	/**
+	 * Called off the main thread with all changes found together, before {@link #apply(List)}.
+	 * Override this to do slow work such as reading and parsing the files.
+	 *
+	 * @param changes
+	 */
+	protected void prepare(List<FileChange> changes) {
+	}
+
+	/**
+	 * Called on the main thread with all changes found together, calling {@link #onCreated(File)},
+	 * {@link #onModified(File)} or {@link #onDeleted(File)} for each of them by default
+	 *
+	 * @param changes
+	 */
+	protected void apply(List<FileChange> changes) {
+		for (final FileChange change : changes)
+			try {
+				if (change.getType() == ChangeType.CREATED)
+					this.onCreated(change.getFile());
+
+				else if (change.getType() == ChangeType.MODIFIED)
+					this.onModified(change.getFile());
+
+				else
+					this.onDeleted(change.getFile());
+
+			} catch (final Throwable t) {
+				Common.error(t, "Error in handling " + change + " when watching folder " + this.folder);
+			}
+	}
+
+	/**
+	 * Called automatically when a file is created in the folder, such as by editors
+	 * saving by renaming a temporary file, calls {@link #onModified(File)} by default
+	 *
+	 * @param file
+	 */
+	protected void onCreated(File file) {
+		this.onModified(file);
 	}
 
 	/**
@@ -151,6 +478,14 @@ public abstract class FolderWatcher extends Thread {
 	 */
 	protected abstract void onModified(File file);
 
+	/**
+	 * Called automatically when a file is deleted from the folder or renamed
+	 *
+	 * @param file
+	 */
+	protected void onDeleted(File file) {
+	}
+
 	/**
 	 * Stops listening for folder changes
 	 */
@@ -159,16 +494,81 @@ public abstract class FolderWatcher extends Thread {
 
 		this.watching = false;
 
-		for (final BukkitTask task : this.scheduledUpdates.values())
-			try {
-				task.cancel();
-			} catch (final Exception ex) {
-				// ignore
+		synchronized (FolderWatcher.class) {
+			activeWatchers.remove(this);
+
+			final List<FolderWatcher> keyWatchers = watchersByKey.get(this.watchKey);
+
+			if (keyWatchers != null) {
+				keyWatchers.removeIf(watcher -> watcher == this);
+
+				if (keyWatchers.isEmpty()) {
+					watchersByKey.remove(this.watchKey);
+
+					this.watchKey.cancel();
+				}
 			}
+
+			// Stop the shared thread when nothing is watched
+			if (activeWatchers.isEmpty() && service != null) {
+				try {
+					service.close();
+
+				} catch (final IOException ex) {
+					// ignore
+				}
+
+				prepareExecutor.shutdownNow();
+
+				service = null;
+				prepareExecutor = null;
+			}
+		}
 	}
 
 	@Override
 	public boolean equals(Object obj) {
 		return obj instanceof FolderWatcher && ((FolderWatcher) obj).folder.toString().equals(this.folder.toString());
 	}
-}
\ No newline at end of file
+
+	@Override
+	public int hashCode() {
+		return this.folder.toString().hashCode();
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// Classes
+	// ------------------------------------------------------------------------------------------
+
+	/**
+	 * What happened to a file
+	 */
+	public enum ChangeType {
+		CREATED,
+		MODIFIED,
+		DELETED
+	}
+
+	/**
+	 * A change to a file in the watched folder
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	public static final class FileChange {
+
+		/**
+		 * The changed file
+		 */
+		private final File file;
+
+		/**
+		 * What happened to it
+		 */
+		private final ChangeType type;
+
+		@Override
+		public String toString() {
+			return this.type + " " + this.file.getName();
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package org.mineacademy.fo.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.mineacademy.fo.Common;
+import org.mineacademy.fo.ItemUtil;
+import org.mineacademy.fo.MinecraftVersion;
+import org.mineacademy.fo.MinecraftVersion.V;
+import org.mineacademy.fo.plugin.SimplePlugin;
+import org.mineacademy.fo.remain.CompMaterial;
+import org.mineacademy.fo.remain.Remain;
+import org.mineacademy.fo.remain.nbt.NBTItem;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.Getter;
+
+/**
+ * Represents a precomputed structural fingerprint of an item, holding
+ * the same properties {@link ItemUtil#isSimilar(ItemStack, ItemStack)} compares
+ * and a 64-bit hash of them.
+ * <p>
+ * Reading item meta and NBT is expensive, so create the fingerprint once
+ * for the item you search for and compare it against many others using
+ * {@link #matches(ItemStack)}. Items of different material or data are rejected
+ * without reading their meta. Other candidates are fingerprinted once and cached
+ * for about a tick, so scanning the same inventory for several items only reads
+ * each candidate's meta and NBT once and then compares hashes, falling back
+ * to the full comparison only when the hashes match.
+ */
+public final class ItemFingerprint {
+
+	// Is Minecraft older than 1.13? Storing here for best performance.
+	private static final boolean LEGACY_MATERIALS = MinecraftVersion.olderThan(V.v1_13);
+
+	// Can we read NBT tags from items?
+	private static final boolean HAS_NBT = MinecraftVersion.atLeast(V.v1_7);
+
+	// Fingerprints of recently compared candidates, by item identity. Kept short so
+	// that candidates whose meta changes are not compared by a stale fingerprint for long.
+	private static final Cache<ItemStack, ItemFingerprint> candidateCache = CacheBuilder.newBuilder()
+			.weakKeys()
+			.expireAfterWrite(50, TimeUnit.MILLISECONDS)
+			.build();
+
+	/**
+	 * The item material
+	 */
+	@Getter
+	private final Material type;
+
+	/**
+	 * The legacy data value, or -1 if not compared
+	 */
+	private final int data;
+
+	/**
+	 * Did the item have meta?
+	 */
+	private final boolean hasMeta;
+
+	/**
+	 * The uncolored display name, empty if not set
+	 */
+	private final String name;
+
+	/**
+	 * The uncolored lore, empty if not set
+	 */
+	private final List<String> lore;
+
+	/**
+	 * Our plugin NBT tags compared in {@link ItemUtil#isSimilar(ItemStack, ItemStack)}, or null if not set
+	 */
+	private final String pluginTag, itemTag;
+
+	/**
+	 * The structural hash of all above properties
+	 */
+	@Getter
+	private final long hash;
+
+	private ItemFingerprint(ItemStack item) {
+		this.type = item.getType();
+
+		final boolean air = CompMaterial.isAir(this.type);
+		final boolean ignoreData = air || !LEGACY_MATERIALS || CompMaterial.isSkull(this.type) || this.type == Material.BOW;
+
+		this.data = ignoreData ? -1 : item.getData().getData();
+		this.hasMeta = !air && Remain.hasItemMeta() && item.hasItemMeta();
+
+		final ItemMeta meta = this.hasMeta ? item.getItemMeta() : null;
+
+		if (meta != null) {
+			this.name = Common.getOrEmpty(Common.stripColors(meta.getDisplayName()));
+			this.lore = stripLore(meta.getLore());
+
+		} else {
+			this.name = "";
+			this.lore = Collections.emptyList();
+		}
+
+		if (!air && HAS_NBT) {
+			final NBTItem nbt = new NBTItem(item);
+			final String pluginKey = SimplePlugin.getNamed();
+			final String itemKey = pluginKey + "_Item";
+
+			this.pluginTag = nbt.hasTag(pluginKey) ? nbt.getString(pluginKey) : null;
+			this.itemTag = nbt.hasTag(itemKey) ? nbt.getString(itemKey) : null;
+
+		} else {
+			this.pluginTag = null;
+			this.itemTag = null;
+		}
+
+		this.hash = this.computeHash();
+	}
+
+	/*
+	 * Strip colors from each lore line
+	 */
+	private static List<String> stripLore(List<String> lore) {
+		if (lore == null || lore.isEmpty())
+			return Collections.emptyList();
+
+		final List<String> stripped = new ArrayList<>(lore.size());
+
+		for (final String line : lore)
+			stripped.add(Common.stripColors(line));
+
+		return stripped;
+	}
+
+	/*
+	 * Combine all compared properties into a single 64-bit hash
+	 */
+	private long computeHash() {
+		long hash = 0xCBF29CE484222325L;
+
+		hash = mix(hash, CompMaterial.isAir(this.type) ? -1 : this.type.ordinal());
+		hash = mix(hash, this.data);
+		hash = mix(hash, this.hasMeta ? 1 : 0);
+		hash = mix(hash, this.name.hashCode());
+		hash = mix(hash, this.lore.size());
+
+		for (final String line : this.lore)
+			hash = mix(hash, line == null ? 0 : line.hashCode());
+
+		hash = mix(hash, this.pluginTag == null ? 0 : this.pluginTag.hashCode());
+		hash = mix(hash, this.itemTag == null ? 0 : this.itemTag.hashCode());
+
+		return hash;
+	}
+
+	/*
+	 * Mix the value into the hash and spread its bits
+	 */
+	private static long mix(long hash, int value) {
+		hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+
+		return hash ^ (hash >>> 32);
+	}
+
+	/**
+	 * Return true if the given item is similar to the item this fingerprint was made from,
+	 * using the same rules as {@link ItemUtil#isSimilar(ItemStack, ItemStack)}
+	 *
+	 * @param item
+	 * @return
+	 */
+	public boolean matches(ItemStack item) {
+		if (item == null)
+			return false;
+
+		final Material otherType = item.getType();
+
+		// Quick reject before reading meta or NBT
+		if (otherType != this.type) {
+			if (CompMaterial.isAir(otherType) && CompMaterial.isAir(this.type))
+				return true;
+
+			return false;
+		}
+
+		if (CompMaterial.isAir(this.type))
+			return true;
+
+		if (this.data != -1 && item.getData().getData() != this.data)
+			return false;
+
+		// Compares hashes first and all properties only when they match
+		return this.equals(ofCached(item));
+	}
+
+	/**
+	 * Return the index of the first item in the given array matching this fingerprint, or -1
+	 *
+	 * @param items
+	 * @return
+	 */
+	public int indexIn(ItemStack[] items) {
+		for (int i = 0; i < items.length; i++)
+			if (items[i] != null && this.matches(items[i]))
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * Two fingerprints are equal if their hashes equal and, to rule out collisions,
+	 * all their compared properties equal
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+
+		if (!(obj instanceof ItemFingerprint))
+			return false;
+
+		final ItemFingerprint other = (ItemFingerprint) obj;
+
+		if (this.hash != other.hash)
+			return false;
+
+		if (CompMaterial.isAir(this.type) && CompMaterial.isAir(other.type))
+			return true;
+
+		return this.type == other.type
+				&& this.data == other.data
+				&& this.hasMeta == other.hasMeta
+				&& this.name.equals(other.name)
+				&& this.lore.equals(other.lore)
+				&& equalsNullable(this.pluginTag, other.pluginTag)
+				&& equalsNullable(this.itemTag, other.itemTag);
+	}
+
+	private static boolean equalsNullable(String first, String second) {
+		return first == null ? second == null : first.equals(second);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (this.hash ^ (this.hash >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "ItemFingerprint{" + this.type + ", hash=" + Long.toHexString(this.hash) + "}";
+	}
+
+	// ----------------------------------------------------------------------------------------------------
+	// Static
+	// ----------------------------------------------------------------------------------------------------
+
+	/**
+	 * Compute a new fingerprint of the given item.
+	 * <p>
+	 * The fingerprint is a snapshot, if you change the item's meta afterwards, compute it again.
+	 *
+	 * @param item
+	 * @return
+	 */
+	public static ItemFingerprint of(ItemStack item) {
+		return new ItemFingerprint(item);
+	}
+
+	/*
+	 * Return the cached fingerprint of the given candidate, computing it if missing
+	 */
+	private static ItemFingerprint ofCached(ItemStack item) {
+		ItemFingerprint fingerprint = candidateCache.getIfPresent(item);
+
+		if (fingerprint == null) {
+			fingerprint = new ItemFingerprint(item);
+
+			candidateCache.put(item, fingerprint);
+		}
+
+		return fingerprint;
+	}
+}
@@ -2,13 +2,18 @@ package org.mineacademy.fo.model;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
@@ -25,6 +30,7 @@ import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.collection.expiringmap.ExpiringMap;
 import org.mineacademy.fo.debug.Debugger;
 import org.mineacademy.fo.exception.EventHandledException;
+import org.mineacademy.fo.exception.FoException;
 import org.mineacademy.fo.exception.FoScriptException;
 import org.mineacademy.fo.plugin.SimplePlugin;
 import org.mineacademy.fo.remain.Remain;
@@ -36,20 +42,76 @@ import lombok.NonNull;
  * <p>
  * The code is based off JavaScript with new Java methods, see:
  * https://winterbe.com/posts/2014/04/05/java8-nashorn-tutorial/
+ * <p>
+ * Scripts are compiled once and kept per engine. Since engines are not thread-safe,
+ * each call borrows its own engine from a small pool, so scripts can run from async threads.
+ * The main thread keeps its own engine outside of the pool. When all pooled engines are busy,
+ * scripts running other scripts get a temporary engine right away, other threads wait shortly
+ * before getting one too.
  */
 public final class JavaScriptExecutor {
 
 	/**
-	 * The engine singleton
+	 * The most engines we keep in the pool, further calls wait shortly and then use a temporary engine
+	 */
+	private static final int MAX_ENGINES = 4;
+
+	/**
+	 * How long async threads wait for a pooled engine before creating a temporary one
+	 */
+	private static final long ENGINE_WAIT_MILLIS = 50;
+
+	/**
+	 * How many compiled scripts each engine keeps
+	 */
+	private static final int COMPILED_CACHE_SIZE = 256;
+
+	/**
+	 * The pattern for the hasPermission workaround for null senders
+	 */
+	private static final Pattern PERMISSION_PATTERN = Pattern.compile("player\\.hasPermission\\(\"([^\"]+)\"\\)");
+
+	/**
+	 * Matches comparing two numbers such as "15 >= 10", left after variables were replaced
+	 */
+	private static final Pattern NUMBER_COMPARISON_PATTERN = Pattern.compile("^\\s*(-?\\d+(?:\\.\\d+)?)\\s*(===|!==|==|!=|>=|<=|>|<)\\s*(-?\\d+(?:\\.\\d+)?)\\s*$");
+
+	/**
+	 * Matches comparing two quoted strings such as "'vip' == 'vip'", left after variables were replaced
+	 */
+	private static final Pattern STRING_COMPARISON_PATTERN = Pattern.compile("^\\s*(['\"])([^'\"\\\\]*)\\1\\s*(===|!==|==|!=)\\s*(['\"])([^'\"\\\\]*)\\4\\s*$");
+
+	/**
+	 * The factory we create new engines with, null if the JavaScript library is missing
+	 */
+	private static final ScriptEngineFactory engineFactory;
+
+	/**
+	 * Engines not used by anyone right now
+	 */
+	private static final BlockingQueue<PooledEngine> idleEngines = new LinkedBlockingQueue<>();
+
+	/**
+	 * How many pooled engines we created
+	 */
+	private static int engineCount = 0;
+
+	/**
+	 * The engine only the main thread uses, so it never competes with async threads for the pool
+	 */
+	private static PooledEngine mainEngine;
+
+	/**
+	 * How many engines the current thread holds, to never wait for an engine while holding one
 	 */
-	private static final ScriptEngine engine;
+	private static final ThreadLocal<Integer> heldEngines = ThreadLocal.withInitial(() -> 0);
 
 	/**
 	 * Cache scripts for 1 second per player for highest performance
 	 * <p>
 	 * Player -> Map of scripts and their results
 	 */
-	private static final Map<UUID, Map<String, Object>> resultCache = ExpiringMap.builder().expiration(1, TimeUnit.SECONDS).build();
+	private static final Map<UUID, Map<String, Object>> resultCache = ExpiringMap.builder().expiration(1, TimeUnit.SECONDS).buildSharded();
 
 	// Load the engine
 	static {
@@ -77,9 +139,15 @@ public final class JavaScriptExecutor {
 			}
 		}
 
-		engine = scriptEngine;
+		engineFactory = scriptEngine == null ? null : scriptEngine.getFactory();
+
+		if (scriptEngine != null) {
+			idleEngines.add(new PooledEngine(scriptEngine, false));
+
+			engineCount = 1;
+		}
 
-		if (engine == null) {
+		else {
 			final List<String> warningMessage = Common.newList(
 					"ERROR: JavaScript placeholders will not function!",
 					"",
@@ -102,6 +170,146 @@ public final class JavaScriptExecutor {
 
 	}
 
+	/*
+	 * Take the main thread engine when called from it, otherwise take an idle engine, creating
+	 * a new one if all are in use and we are below the limit, otherwise wait shortly for one to be
+	 * returned and create a temporary engine if none is. Threads already holding an engine never wait.
+	 */
+	private static PooledEngine borrowEngine() {
+		final PooledEngine pooled = takeEngine();
+
+		heldEngines.set(heldEngines.get() + 1);
+
+		return pooled;
+	}
+
+	private static PooledEngine takeEngine() {
+		if (Bukkit.isPrimaryThread() && heldEngines.get() == 0) {
+			if (mainEngine == null)
+				mainEngine = createEngine(false);
+
+			if (mainEngine != null)
+				return mainEngine;
+		}
+
+		PooledEngine idle = idleEngines.poll();
+
+		if (idle != null)
+			return idle;
+
+		synchronized (JavaScriptExecutor.class) {
+			if (engineCount < MAX_ENGINES) {
+				final PooledEngine created = createEngine(false);
+
+				if (created != null) {
+					engineCount++;
+
+					return created;
+				}
+			}
+		}
+
+		if (heldEngines.get() == 0)
+			try {
+				idle = idleEngines.poll(ENGINE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+
+				if (idle != null)
+					return idle;
+
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+
+		final PooledEngine temporary = createEngine(true);
+
+		if (temporary == null)
+			throw new FoException("Failed to create a JavaScript engine");
+
+		return temporary;
+	}
+
+	/*
+	 * Create a new engine with our class loader, or return null if the factory fails
+	 */
+	private static PooledEngine createEngine(boolean temporary) {
+		final Thread thread = Thread.currentThread();
+		final ClassLoader oldClassLoader = thread.getContextClassLoader();
+
+		try {
+			thread.setContextClassLoader(SimplePlugin.class.getClassLoader());
+
+			final ScriptEngine created = engineFactory.getScriptEngine();
+
+			return created == null ? null : new PooledEngine(created, temporary);
+
+		} finally {
+			thread.setContextClassLoader(oldClassLoader);
+		}
+	}
+
+	/*
+	 * Return the engine after clearing variables the script left behind, temporary engines are dropped
+	 * and the main thread engine is kept out of the pool
+	 */
+	private static void returnEngine(PooledEngine pooled) {
+		final int held = heldEngines.get() - 1;
+
+		if (held <= 0)
+			heldEngines.remove();
+		else
+			heldEngines.set(held);
+
+		if (pooled.temporary)
+			return;
+
+		pooled.engine.getBindings(ScriptContext.ENGINE_SCOPE).clear();
+
+		if (pooled != mainEngine)
+			idleEngines.add(pooled);
+	}
+
+	/*
+	 * Evaluate simple comparisons without the engine, returning null if the script is not one
+	 */
+	private static Boolean evaluateTrivial(String javascript) {
+		if (javascript.length() > 64)
+			return null;
+
+		Matcher matcher = NUMBER_COMPARISON_PATTERN.matcher(javascript);
+
+		if (matcher.matches()) {
+			final double left = Double.parseDouble(matcher.group(1));
+			final double right = Double.parseDouble(matcher.group(3));
+
+			switch (matcher.group(2)) {
+				case "==":
+				case "===":
+					return left == right;
+				case "!=":
+				case "!==":
+					return left != right;
+				case ">=":
+					return left >= right;
+				case "<=":
+					return left <= right;
+				case ">":
+					return left > right;
+				default:
+					return left < right;
+			}
+		}
+
+		matcher = STRING_COMPARISON_PATTERN.matcher(javascript);
+
+		if (matcher.matches()) {
+			final boolean equal = matcher.group(2).equals(matcher.group(5));
+
+			return matcher.group(3).startsWith("!") ? !equal : equal;
+		}
+
+		return null;
+	}
+
 	/**
 	 * Compiles and executes the given JavaScript code
 	 *
@@ -160,7 +368,7 @@ public final class JavaScriptExecutor {
 				return result;
 		}
 
-		if (engine == null) {
+		if (engineFactory == null) {
 			Common.warning("Not running script" + (sender == null ? "" : " for " + sender.getName()) + " because JavaScript library is missing "
 					+ "(install Oracle Java 8, 11 or 16 and download mineacademy.org/nashorn): " + javascript);
 
@@ -168,12 +376,12 @@ public final class JavaScriptExecutor {
 		}
 
 		Object result = null;
+		PooledEngine pooled = null;
 
 		try {
 
 			// Workaround hasPermission for null senders (i.e. Discord)
-			final Pattern pattern = Pattern.compile("player\\.hasPermission\\(\"([^\"]+)\"\\)");
-			final Matcher matcher = pattern.matcher(javascript);
+			final Matcher matcher = PERMISSION_PATTERN.matcher(javascript);
 
 			while (matcher.find()) {
 				final String permission = matcher.group(1);
@@ -213,15 +421,23 @@ public final class JavaScriptExecutor {
 				return false;
 			}
 
+			// Skip the engine for comparisons left after variables were replaced
+			final Boolean trivialResult = evaluateTrivial(javascript);
+
+			if (trivialResult != null)
+				return trivialResult;
+
 			Debugger.debug("javascript", "Sender: " + (sender == null ? "null" : sender.getName()) + " with code: " + javascript);
 
+			pooled = borrowEngine();
+
 			if (sender != null)
-				engine.put("player", sender);
+				pooled.engine.put("player", sender);
 
 			if (event != null)
-				engine.put("event", event);
+				pooled.engine.put("event", event);
 
-			result = engine.eval(javascript);
+			result = pooled.eval(javascript);
 
 			if (result instanceof String) {
 				String resultString = Common.stripColors((String) result).trim().toLowerCase();
@@ -276,7 +492,8 @@ public final class JavaScriptExecutor {
 			throw new FoScriptException(errorMessage, javascript, ex.getLineNumber(), ex);
 
 		} finally {
-			engine.getBindings(ScriptContext.ENGINE_SCOPE).clear();
+			if (pooled != null)
+				returnEngine(pooled);
 		}
 	}
 
@@ -306,7 +523,7 @@ public final class JavaScriptExecutor {
 		if (Bukkit.getName().equals("Mohist"))
 			return javascript;
 
-		if (engine == null) {
+		if (engineFactory == null) {
 			Common.warning("Not running script because JavaScript library is missing "
 					+ "(install Oracle Java 8, 11 or 16 and download mineacademy.org/nashorn): " + javascript);
 
@@ -320,17 +537,67 @@ public final class JavaScriptExecutor {
 			final Object value = replacement.getValue();
 			Valid.checkNotNull(value, "Value can't be null in javascript variables for key " + key + ": " + replacements);
 
-			engine.put(key, value);
 		}
 
+		final PooledEngine pooled = borrowEngine();
+
 		try {
-			return engine.eval(javascript);
+			for (final Map.Entry<String, Object> replacement : replacements.entrySet())
+				pooled.engine.put(replacement.getKey(), replacement.getValue());
+
+			return pooled.eval(javascript);
 
 		} catch (final ScriptException ex) {
 			throw new FoScriptException(ex.getMessage(), javascript, ex.getLineNumber(), ex);
 
 		} finally {
-			engine.getBindings(ScriptContext.ENGINE_SCOPE).clear();
+			returnEngine(pooled);
+		}
+	}
+
+	/*
+	 * An engine with the scripts it compiled, used by one thread at a time
+	 */
+	private static final class PooledEngine {
+
+		private final ScriptEngine engine;
+
+		/**
+		 * Created because the pool was busy, dropped after use
+		 */
+		private final boolean temporary;
+
+		private final Map<String, CompiledScript> compiledScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75F, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+				return this.size() > COMPILED_CACHE_SIZE;
+			}
+		};
+
+		private PooledEngine(ScriptEngine engine, boolean temporary) {
+			this.engine = engine;
+			this.temporary = temporary;
+		}
+
+		/*
+		 * Evaluate the script, compiling it the first time we see it
+		 */
+		private Object eval(String javascript) throws ScriptException {
+			if (!(this.engine instanceof Compilable))
+				return this.engine.eval(javascript);
+
+			CompiledScript script = this.compiledScripts.get(javascript);
+
+			if (script == null) {
+				script = ((Compilable) this.engine).compile(javascript);
+
+				this.compiledScripts.put(javascript, script);
+			}
+
+			return script.eval();
 		}
 	}
 }
\ No newline at end of file
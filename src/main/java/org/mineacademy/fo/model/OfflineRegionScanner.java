@@ -5,8 +5,16 @@ import java.io.FilenameFilter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,10 +22,12 @@ import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.mineacademy.fo.Common;
+import org.mineacademy.fo.FileUtil;
 import org.mineacademy.fo.MinecraftVersion;
 import org.mineacademy.fo.MinecraftVersion.V;
 import org.mineacademy.fo.ReflectionUtil;
 import org.mineacademy.fo.ReflectionUtil.ReflectionException;
+import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.event.RegionScanCompleteEvent;
 import org.mineacademy.fo.plugin.SimplePlugin;
 import org.mineacademy.fo.remain.Remain;
@@ -46,6 +56,11 @@ public abstract class OfflineRegionScanner {
 	 */
 	private static int WAIT_TIME_BETWEEN_SCAN_SECONDS = 1;
 
+	/**
+	 * Scanners with a raw scan running, stopped when the plugin reloads or disables
+	 */
+	private static final Set<OfflineRegionScanner> runningRawScans = ConcurrentHashMap.newKeySet();
+
 	/**
 	 * Changing flag: How many files processed out of total?
 	 */
@@ -76,6 +91,22 @@ public abstract class OfflineRegionScanner {
 	@Setter
 	private boolean fastMode = false;
 
+	/**
+	 * Changing flag: Is a raw scan running?
+	 */
+	@Getter
+	private volatile boolean rawScanRunning = false;
+
+	/**
+	 * Changing flag: Set to stop the running raw scan after the region files being read
+	 */
+	private volatile boolean rawScanStopped = false;
+
+	/**
+	 * Changing flag: The threads reading region files in the running raw scan
+	 */
+	private volatile ExecutorService rawScanExecutor;
+
 	/**
 	 * Starts the scan for the given world (warning: this operation is blocking
 	 * and takes long time, see {@link #getEstimatedWaitTimeSec(World)})
@@ -250,6 +281,179 @@ public abstract class OfflineRegionScanner {
 
 	}
 
+	// ------------------------------------------------------------------------------------------------------------
+	// Raw scanning
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Starts scanning all region files of the given world in the background, reading
+	 * chunks directly from the disk without loading them into the server,
+	 * see {@link #onChunkScanRaw(AnvilRegionReader.RawChunk)}.
+	 * <p>
+	 * Each thread reads one region file at a time, so memory use is bounded by the amount of threads.
+	 * Finished region files are written to a progress file in our plugin folder, so when the
+	 * scan is stopped or the server shuts down, calling this again resumes where it left off.
+	 *
+	 * @param world
+	 * @param threads how many region files to read at once
+	 */
+	public final void scanRaw(World world, int threads) {
+		Valid.checkBoolean(threads > 0, "Threads must be above 0");
+		Valid.checkBoolean(!this.rawScanRunning, "A raw scan is already running in " + this.world);
+
+		final File[] files = getRegionFiles(world);
+
+		if (files == null || files.length == 0) {
+			Common.warning("Unable to locate the region files for: " + world.getName());
+
+			return;
+		}
+
+		final File progressFile = getProgressFile(world);
+		final Set<String> scannedFiles = progressFile.exists() ? new HashSet<>(FileUtil.readLines(progressFile)) : new HashSet<>();
+		final List<File> pendingFiles = new ArrayList<>();
+
+		for (final File file : files)
+			if (!scannedFiles.contains(file.getName()))
+				pendingFiles.add(file);
+
+		this.world = world;
+		this.totalFilesCount = files.length;
+		this.processedFilesCount = files.length - pendingFiles.size();
+		this.rawScanRunning = true;
+		this.rawScanStopped = false;
+
+		Common.log(
+				Common.consoleLine(),
+				"Scanning " + pendingFiles.size() + " region files in " + world.getName() + " on " + threads + " threads"
+						+ (this.processedFilesCount > 0 ? ", resuming after " + this.processedFilesCount + " scanned before" : ""),
+				Common.consoleLine());
+
+		if (pendingFiles.isEmpty()) {
+			this.finishRawScan(progressFile);
+
+			return;
+		}
+
+		progressFile.getParentFile().mkdirs();
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		final AtomicInteger remainingFiles = new AtomicInteger(pendingFiles.size());
+		final AtomicInteger processedFiles = new AtomicInteger(this.processedFilesCount);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, "Region Scanner - " + world.getName() + " #" + threadCount.incrementAndGet());
+
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.rawScanExecutor = executor;
+		runningRawScans.add(this);
+
+		for (final File file : pendingFiles)
+			executor.execute(() -> {
+				try {
+					if (!this.rawScanStopped && this.scanRawFile(file)) {
+						synchronized (progressFile) {
+							FileUtil.write(progressFile, file.getName());
+						}
+
+						final int processed = processedFiles.incrementAndGet();
+
+						this.processedFilesCount = processed;
+						Common.log("[" + Math.round((double) processed / this.totalFilesCount * 100) + "%] Scanned " + file.getName());
+					}
+
+				} finally {
+
+					// Do not finish on this thread when the plugin got disabled meanwhile
+					if (remainingFiles.decrementAndGet() == 0 && SimplePlugin.getInstance().isEnabled())
+						Common.runLater(() -> this.finishRawScan(progressFile));
+				}
+			});
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Stop the running raw scan once the region files being read are finished,
+	 * the next {@link #scanRaw(World, int)} resumes from there
+	 */
+	public final void stopRawScan() {
+		this.rawScanStopped = true;
+	}
+
+	/*
+	 * Read all chunks in the given file, returning false if the scan should not count it as done
+	 */
+	private boolean scanRawFile(File file) {
+		try {
+			AnvilRegionReader.readChunks(file, chunk -> {
+				if (this.rawScanStopped)
+					throw new RawScanStoppedException();
+
+				this.onChunkScanRaw(chunk);
+
+			}, (chunkX, chunkZ, error) -> Common.warning("Skipping unreadable chunk " + chunkX + " " + chunkZ + " in " + file.getName() + ": " + error));
+
+			return true;
+
+		} catch (final RawScanStoppedException ex) {
+			return false;
+
+		} catch (final Throwable t) {
+
+			// Interrupted by stopRawScans()
+			if (this.rawScanStopped)
+				return false;
+
+			Common.error(t, "Failed to scan region " + file + ", aborting for safety");
+
+			this.rawScanStopped = true;
+			return false;
+		}
+	}
+
+	/*
+	 * Notify about the scan end on the main thread
+	 */
+	private void finishRawScan(File progressFile) {
+		this.rawScanRunning = false;
+		this.rawScanExecutor = null;
+
+		runningRawScans.remove(this);
+
+		if (this.rawScanStopped) {
+			Common.log("Region scan of " + this.world.getName() + " stopped at " + this.processedFilesCount + "/" + this.totalFilesCount + " files, scan again to resume.");
+
+			return;
+		}
+
+		progressFile.delete();
+
+		Common.log(
+				Common.consoleLine(),
+				"Region scanner finished.",
+				Common.consoleLine());
+
+		Common.callEvent(new RegionScanCompleteEvent(this.world));
+
+		this.onScanFinished();
+	}
+
+	/**
+	 * Called for each saved chunk during {@link #scanRaw(World, int)}. This is called from
+	 * multiple background threads at once, so only use thread-safe data here and never
+	 * touch the world, use Common#runLater to hand results over to the main thread.
+	 * <p>
+	 * Throwing an exception stops the scan.
+	 *
+	 * @param chunk
+	 */
+	protected void onChunkScanRaw(AnvilRegionReader.RawChunk chunk) {
+	}
+
 	/**
 	 * Called when a chunk is being scanned and loaded
 	 * ONLY CALLED WHEN FASTMODE IS NOT ENABLED (by default)
@@ -279,6 +483,28 @@ public abstract class OfflineRegionScanner {
 	// Static
 	// ------------------------------------------------------------------------------------------------------------
 
+	/**
+	 * Stop all running raw scans right away, interrupting their threads.
+	 * Files already scanned stay in the progress file so the next scan resumes.
+	 *
+	 * @deprecated internal use only, called automatically when the plugin reloads or disables
+	 */
+	@Deprecated
+	public static void stopRawScans() {
+		for (final OfflineRegionScanner scanner : runningRawScans) {
+			final ExecutorService executor = scanner.rawScanExecutor;
+
+			scanner.rawScanStopped = true;
+			scanner.rawScanRunning = false;
+			scanner.rawScanExecutor = null;
+
+			if (executor != null)
+				executor.shutdownNow();
+		}
+
+		runningRawScans.clear();
+	}
+
 	/**
 	 * Return all region files stored on the disk for the given world
 	 *
@@ -308,6 +534,13 @@ public abstract class OfflineRegionScanner {
 		return null;
 	}
 
+	/*
+	 * Return the file listing region files already scanned in the given world
+	 */
+	private static File getProgressFile(World world) {
+		return FileUtil.getFile("region-scan/" + world.getName() + ".progress");
+	}
+
 	/**
 	 * Get how long scanning should take for the given world
 	 * depending on its amount of region files
@@ -322,6 +555,18 @@ public abstract class OfflineRegionScanner {
 	}
 }
 
+/**
+ * Thrown from the chunk consumer to stop reading a region file when the scan is stopped
+ */
+final class RawScanStoppedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	RawScanStoppedException() {
+		super(null, null, false, false);
+	}
+}
+
 /**
  * Reflection helper class for accessing region files
  */
@@ -0,0 +1,297 @@
+package org.mineacademy.fo.model;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.mineacademy.fo.exception.FoException;
+
+import lombok.NonNull;
+
+/**
+ * A growable list of block positions and types stored in primitive arrays,
+ * each position packed into one long, so millions of blocks take a few megabytes.
+ * <p>
+ * Positions are packed like Minecraft does it: 26 bits for X and Z and 12 bits for Y,
+ * so Y must be between -2048 and 2047.
+ */
+public final class PackedBlocks {
+
+	/**
+	 * All materials by ordinal, to store types as shorts
+	 */
+	private static final Material[] MATERIALS = Material.values();
+
+	/**
+	 * The packed positions
+	 */
+	private long[] positions;
+
+	/**
+	 * The material ordinals at the same indexes
+	 */
+	private short[] types;
+
+	/**
+	 * How many blocks are stored
+	 */
+	private int size = 0;
+
+	/**
+	 * Create a new empty list
+	 */
+	public PackedBlocks() {
+		this(64);
+	}
+
+	/**
+	 * Create a new empty list with room for the given amount of blocks
+	 *
+	 * @param capacity
+	 */
+	public PackedBlocks(int capacity) {
+		this.positions = new long[Math.max(1, capacity)];
+		this.types = new short[this.positions.length];
+	}
+
+	/**
+	 * Add the given block
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param type
+	 */
+	public void add(int x, int y, int z, @NonNull Material type) {
+		this.ensureCapacity(this.size + 1);
+
+		this.positions[this.size] = pack(x, y, z);
+		this.types[this.size] = (short) type.ordinal();
+		this.size++;
+	}
+
+	/**
+	 * Add all blocks from the given list
+	 *
+	 * @param other
+	 */
+	public void addAll(@NonNull PackedBlocks other) {
+		this.ensureCapacity(this.size + other.size);
+
+		System.arraycopy(other.positions, 0, this.positions, this.size, other.size);
+		System.arraycopy(other.types, 0, this.types, this.size, other.size);
+
+		this.size += other.size;
+	}
+
+	/**
+	 * Return how many blocks are stored
+	 *
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Return true if no blocks are stored
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Return the packed position at the given index, see {@link #unpackX(long)} and friends
+	 *
+	 * @param index
+	 * @return
+	 */
+	public long getPosition(int index) {
+		this.checkIndex(index);
+
+		return this.positions[index];
+	}
+
+	/**
+	 * Return the X coordinate at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getX(int index) {
+		return unpackX(this.getPosition(index));
+	}
+
+	/**
+	 * Return the Y coordinate at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getY(int index) {
+		return unpackY(this.getPosition(index));
+	}
+
+	/**
+	 * Return the Z coordinate at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getZ(int index) {
+		return unpackZ(this.getPosition(index));
+	}
+
+	/**
+	 * Return the block type at the given index, as it was when added
+	 *
+	 * @param index
+	 * @return
+	 */
+	public Material getType(int index) {
+		this.checkIndex(index);
+
+		return MATERIALS[this.types[index]];
+	}
+
+	/**
+	 * Pass all blocks to the visitor in the order they were added
+	 *
+	 * @param visitor
+	 */
+	public void forEach(@NonNull BlockVisitor visitor) {
+		for (int index = 0; index < this.size; index++) {
+			final long position = this.positions[index];
+
+			visitor.visit(unpackX(position), unpackY(position), unpackZ(position), MATERIALS[this.types[index]]);
+		}
+	}
+
+	/**
+	 * Shrink the arrays to the amount of stored blocks
+	 */
+	public void trimToSize() {
+		if (this.positions.length > this.size) {
+			this.positions = Arrays.copyOf(this.positions, Math.max(1, this.size));
+			this.types = Arrays.copyOf(this.types, this.positions.length);
+		}
+	}
+
+	/**
+	 * Start a task changing the stored blocks in the given world on the main thread,
+	 * processing as many each tick as the server can afford, see {@link ChunkedTask#startBudgetedChain()}.
+	 * <p>
+	 * The applier gets the block and the type it had when it was added.
+	 *
+	 * @param world
+	 * @param applier
+	 * @param onFinish called on the main thread with true when all blocks were applied, or false when cancelled or failed, can be null
+	 * @return the started task which you can cancel
+	 */
+	public ChunkedTask apply(@NonNull World world, @NonNull BiConsumer<Block, Material> applier, BiConsumer<PackedBlocks, Boolean> onFinish) {
+		final ChunkedTask task = new ChunkedTask(1) {
+
+			@Override
+			protected void onProcess(int index) {
+				final long position = PackedBlocks.this.positions[index];
+
+				applier.accept(world.getBlockAt(unpackX(position), unpackY(position), unpackZ(position)), MATERIALS[PackedBlocks.this.types[index]]);
+			}
+
+			@Override
+			protected boolean canContinue(int index) {
+				return index < PackedBlocks.this.size;
+			}
+
+			@Override
+			protected int getTotal() {
+				return PackedBlocks.this.size;
+			}
+
+			@Override
+			protected void onFinish(boolean gracefully) {
+				if (onFinish != null)
+					onFinish.accept(PackedBlocks.this, gracefully);
+			}
+		};
+
+		task.startBudgetedChain();
+
+		return task;
+	}
+
+	/*
+	 * Grow the arrays by half to fit the given size
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > this.positions.length) {
+			final int newCapacity = Math.max(capacity, this.positions.length + (this.positions.length >> 1));
+
+			this.positions = Arrays.copyOf(this.positions, newCapacity);
+			this.types = Arrays.copyOf(this.types, newCapacity);
+		}
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + this.size);
+	}
+
+	@Override
+	public String toString() {
+		return "PackedBlocks{size=" + this.size + "}";
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Packing
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Pack the given coordinates into one long
+	 *
+	 * @param x
+	 * @param y between -2048 and 2047
+	 * @param z
+	 * @return
+	 */
+	public static long pack(int x, int y, int z) {
+		if (y < -2048 || y > 2047)
+			throw new FoException("Y must be between -2048 and 2047, got " + y);
+
+		return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (long) y & 0xFFF;
+	}
+
+	/**
+	 * Return the X coordinate from a packed position
+	 *
+	 * @param position
+	 * @return
+	 */
+	public static int unpackX(long position) {
+		return (int) (position >> 38);
+	}
+
+	/**
+	 * Return the Y coordinate from a packed position
+	 *
+	 * @param position
+	 * @return
+	 */
+	public static int unpackY(long position) {
+		return (int) (position << 52 >> 52);
+	}
+
+	/**
+	 * Return the Z coordinate from a packed position
+	 *
+	 * @param position
+	 * @return
+	 */
+	public static int unpackZ(long position) {
+		return (int) (position << 26 >> 38);
+	}
+}
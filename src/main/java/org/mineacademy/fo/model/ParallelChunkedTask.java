@@ -0,0 +1,158 @@
+package org.mineacademy.fo.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.mineacademy.fo.Valid;
+
+/**
+ * A {@link ChunkedTask} split into two stages: {@link #compute(int)} runs off the main thread,
+ * in parallel on the common fork-join pool, and {@link #apply(int, Object)} then runs
+ * on the main thread with its result, which is where you change the world.
+ * <p>
+ * Items are computed in batches, the next batch is computed while the current one is applied.
+ * Works best with {@link #startBudgetedChain()}, where the main thread never waits for a batch
+ * and simply tries again the next tick.
+ *
+ * @param <T> the computed result type
+ */
+public abstract class ParallelChunkedTask<T> extends ChunkedTask {
+
+	/**
+	 * How many items we process in total
+	 */
+	private final int total;
+
+	/**
+	 * How many items we compute at once
+	 */
+	private final int batchSize;
+
+	/*
+	 * The batch being applied and the one computed in advance, main thread only
+	 */
+	private Batch<T> currentBatch, nextBatch;
+
+	/**
+	 * Create a new task processing the given total amount of items, computing the given amount at once
+	 *
+	 * @param total
+	 * @param batchSize
+	 */
+	protected ParallelChunkedTask(int total, int batchSize) {
+		super(batchSize);
+
+		Valid.checkBoolean(batchSize > 0, "Batch size must be above 0");
+
+		this.total = total;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Compute the result for the given index. Called off the main thread and in parallel
+	 * with other indexes, so only read thread-safe data and do not touch the world here.
+	 *
+	 * @param index
+	 * @return
+	 * @throws Throwable
+	 */
+	protected abstract T compute(int index) throws Throwable;
+
+	/**
+	 * Apply the computed result on the main thread
+	 *
+	 * @param index
+	 * @param result
+	 * @throws Throwable
+	 */
+	protected abstract void apply(int index, T result) throws Throwable;
+
+	@Override
+	protected final boolean canContinue(int index) {
+		return index < this.total;
+	}
+
+	@Override
+	protected final int getTotal() {
+		return this.total;
+	}
+
+	@Override
+	final boolean isReady(int index) {
+		return this.getBatch(index).future.isDone();
+	}
+
+	@Override
+	protected final void onProcess(int index) throws Throwable {
+		final Batch<T> batch = this.getBatch(index);
+
+		try {
+			// Returns at once in budgeted mode, this also makes the results visible to us
+			batch.future.join();
+
+		} catch (final CompletionException ex) {
+			throw ex.getCause() != null ? ex.getCause() : ex;
+		}
+
+		this.apply(index, batch.get(index));
+	}
+
+	/*
+	 * Return the batch holding the given index, submitting it and the one after if needed
+	 */
+	private Batch<T> getBatch(int index) {
+		if (this.currentBatch == null || !this.currentBatch.holds(index)) {
+			this.currentBatch = this.nextBatch != null && this.nextBatch.holds(index) ? this.nextBatch : this.submit(index);
+			this.nextBatch = null;
+		}
+
+		if (this.nextBatch == null && this.currentBatch.end < this.total)
+			this.nextBatch = this.submit(this.currentBatch.end);
+
+		return this.currentBatch;
+	}
+
+	/*
+	 * Start computing the batch from the given index
+	 */
+	private Batch<T> submit(int start) {
+		final Batch<T> batch = new Batch<>(start, Math.min(start + this.batchSize, this.total));
+
+		batch.future = CompletableFuture.runAsync(() -> IntStream.range(batch.start, batch.end).parallel().forEach(index -> {
+			try {
+				batch.results[index - batch.start] = this.compute(index);
+
+			} catch (final Throwable t) {
+				throw new CompletionException(t);
+			}
+		}), ForkJoinPool.commonPool());
+
+		return batch;
+	}
+
+	/**
+	 * A range of computed results
+	 */
+	private static final class Batch<T> {
+		private final int start;
+		private final int end;
+		private final Object[] results;
+		private CompletableFuture<Void> future;
+
+		private Batch(int start, int end) {
+			this.start = start;
+			this.end = end;
+			this.results = new Object[end - start];
+		}
+
+		private boolean holds(int index) {
+			return index >= this.start && index < this.end;
+		}
+
+		private T get(int index) {
+			return (T) this.results[index - this.start];
+		}
+	}
+}
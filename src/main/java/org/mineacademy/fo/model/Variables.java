@@ -61,7 +61,7 @@ public final class Variables {
 	/**
 	 * Player - [Original Message - Translated Message]
 	 */
-	private static final Map<String, Map<String, String>> cache = ExpiringMap.builder().expiration(500, TimeUnit.MILLISECONDS).build();
+	private static final Map<String, Map<String, String>> cache = ExpiringMap.builder().expiration(500, TimeUnit.MILLISECONDS).buildSharded();
 
 	// ------------------------------------------------------------------------------------------------------------
 	// Custom variables
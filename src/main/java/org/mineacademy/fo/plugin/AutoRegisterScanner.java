@@ -25,6 +25,8 @@ import org.mineacademy.fo.bungee.BungeeListener;
 import org.mineacademy.fo.command.SimpleCommand;
 import org.mineacademy.fo.command.SimpleCommandGroup;
 import org.mineacademy.fo.command.SimpleSubCommand;
+import org.mineacademy.fo.debug.Debugger;
+import org.mineacademy.fo.debug.LagCatcher;
 import org.mineacademy.fo.event.SimpleListener;
 import org.mineacademy.fo.exception.FoException;
 import org.mineacademy.fo.menu.tool.Tool;
@@ -47,6 +49,19 @@ import org.mineacademy.fo.settings.YamlStaticConfig;
  */
 final class AutoRegisterScanner {
 
+	/**
+	 * Types whose subclasses we scan even without @AutoRegister, see {@link #scanAndRegister()} and {@link #registerSettings(List)}
+	 */
+	private static final Class<?>[] REGISTRABLE_TYPES = {
+			Tool.class,
+			SimpleEnchantment.class,
+			BungeeListener.class,
+			SimpleExpansion.class,
+			PacketListener.class,
+			DiscordListener.class,
+			YamlStaticConfig.class
+	};
+
 	/**
 	 * Prevent duplicating registering of our {@link FoundationPacketListener}
 	 */
@@ -377,46 +392,82 @@ final class AutoRegisterScanner {
 	}
 
 	/*
-	 * Compiles valid classes from our plugin that can be autoregistered
+	 * Find all non-abstract classes worth scanning: those annotated with @AutoRegister, those with
+	 * @EventHandler methods and those extending types we register, reading class files first so that
+	 * we do not load every class in the jar and its shaded libraries
 	 */
 	private static List<Class<?>> findValidClasses() {
-		final List<Class<?>> classes = new ArrayList<>();
+		final String autoRegisterDescriptor = toDescriptor(AutoRegister.class);
+		final String eventHandlerDescriptor = toDescriptor(EventHandler.class);
+		final List<String> candidates = new ArrayList<>();
 
 		// Ignore anonymous inner classes
 		final Pattern anonymousClassPattern = Pattern.compile("\\w+\\$[0-9]$");
 
-		try (final JarFile file = new JarFile(SimplePlugin.getSource())) {
-			for (final Enumeration<JarEntry> entry = file.entries(); entry.hasMoreElements();) {
-				final JarEntry jar = entry.nextElement();
-				final String name = jar.getName().replace("/", ".");
+		LagCatcher.start("Finding auto register classes");
 
-				// Ignore files such as settings.yml
-				if (!name.endsWith(".class"))
-					continue;
+		try (final JarFile file = new JarFile(SimplePlugin.getSource())) {
+			final ClassFileIndex index = new ClassFileIndex(file, Common.newSet(autoRegisterDescriptor, eventHandlerDescriptor));
 
-				final String className = name.substring(0, name.length() - 6);
-				Class<?> clazz = null;
+			// Foundation is not shaded in this jar so we cannot follow super types, load everything
+			final boolean indexUsable = index.contains(YamlStaticConfig.class.getName());
 
-				// Look up the Java class, silently ignore if failing
-				try {
-					clazz = SimplePlugin.class.getClassLoader().loadClass(className);
-
-				} catch (final ClassFormatError | VerifyError | NoClassDefFoundError | ClassNotFoundException | IncompatibleClassChangeError error) {
+			for (final String className : index.getClassNames()) {
+				if (anonymousClassPattern.matcher(className).find())
 					continue;
-				}
 
-				// Ignore abstract or anonymous classes
-				if (!Modifier.isAbstract(clazz.getModifiers()) && !anonymousClassPattern.matcher(className).find())
-					classes.add(clazz);
+				if (!indexUsable || index.isUnreadable(className))
+					candidates.add(className);
+
+				else if (!index.isAbstract(className) && (index.uses(className, autoRegisterDescriptor) || index.usesInHierarchy(className, eventHandlerDescriptor) || isRegistrableType(index, className)))
+					candidates.add(className);
 			}
 
+			Debugger.debug("auto-register", "Found " + candidates.size() + " classes to scan out of " + index.getClassNames().size() + (indexUsable ? "" : ", loading all because Foundation is not shaded in"));
+
 		} catch (final Throwable t) {
 			Remain.sneaky(t);
 		}
 
+		final List<Class<?>> classes = new ArrayList<>();
+
+		// Look up the Java classes, silently ignore if failing
+		for (final String className : candidates) {
+			final Class<?> clazz = loadClass(className);
+
+			if (clazz != null && !Modifier.isAbstract(clazz.getModifiers()))
+				classes.add(clazz);
+		}
+
+		LagCatcher.end("Finding auto register classes");
+
 		return classes;
 	}
 
+	/*
+	 * Return true if the class extends a type registered even without @AutoRegister, or is a settings class
+	 */
+	private static boolean isRegistrableType(ClassFileIndex index, String className) {
+		for (final Class<?> type : REGISTRABLE_TYPES)
+			if (index.isSubtypeOf(className, type.getName()))
+				return true;
+
+		return false;
+	}
+
+	private static Class<?> loadClass(String className) {
+		try {
+			return SimplePlugin.class.getClassLoader().loadClass(className);
+
+		} catch (final ClassFormatError | VerifyError | NoClassDefFoundError | ClassNotFoundException | IncompatibleClassChangeError error) {
+			return null;
+		}
+	}
+
+	private static String toDescriptor(Class<?> clazz) {
+		return "L" + clazz.getName().replace('.', '/') + ";";
+	}
+
 	/*
 	 * Tries to return instance of the given class, either by returning its singleon
 	 * or creating a new instance from constructor if valid
@@ -0,0 +1,289 @@
+package org.mineacademy.fo.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Reads the names, super types and constant pools of all classes in a jar
+ * without loading them, so that we only load classes worth scanning.
+ * <p>
+ * This only reads what {@link AutoRegisterScanner} needs: we never look at method bodies.
+ */
+final class ClassFileIndex {
+
+	/**
+	 * The access flags we care about
+	 */
+	private static final int ACC_INTERFACE = 0x0200, ACC_ABSTRACT = 0x0400;
+
+	/**
+	 * Indexed classes by their binary name such as "org.mineacademy.Example$Inner", in the jar order
+	 */
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	/**
+	 * The type descriptors we look for in constant pools
+	 */
+	private final Set<String> watchedDescriptors;
+
+	/**
+	 * Read all classes in the jar and record which of the given annotation or type descriptors,
+	 * such as "Lorg/bukkit/event/EventHandler;", each of them uses
+	 *
+	 * @param jarFile
+	 * @param watchedDescriptors
+	 * @throws IOException
+	 */
+	ClassFileIndex(JarFile jarFile, Set<String> watchedDescriptors) throws IOException {
+		this.watchedDescriptors = watchedDescriptors;
+
+		for (final Enumeration<JarEntry> it = jarFile.entries(); it.hasMoreElements();) {
+			final JarEntry jarEntry = it.nextElement();
+			final String path = jarEntry.getName();
+
+			// Ignore files such as settings.yml, module descriptors and multi-release copies
+			if (!path.endsWith(".class") || path.startsWith("META-INF/") || path.endsWith("module-info.class") || path.endsWith("package-info.class"))
+				continue;
+
+			final String className = path.substring(0, path.length() - 6).replace('/', '.');
+			Entry entry;
+
+			try (InputStream in = jarFile.getInputStream(jarEntry)) {
+				entry = this.read(new DataInputStream(new BufferedInputStream(in)));
+
+			} catch (final IOException | RuntimeException ex) {
+
+				// Unknown class file format, let the caller load it to be sure
+				entry = null;
+			}
+
+			this.entries.put(className, entry != null ? entry : Entry.UNREADABLE);
+		}
+	}
+
+	/*
+	 * Parse the class file header until the interfaces table
+	 */
+	private Entry read(DataInputStream in) throws IOException {
+		if (in.readInt() != 0xCAFEBABE)
+			return null;
+
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+
+		final int poolCount = in.readUnsignedShort();
+		final String[] utf8 = new String[poolCount];
+		final int[] classNameIndexes = new int[poolCount];
+		final Set<String> found = new HashSet<>();
+
+		for (int index = 1; index < poolCount; index++) {
+			final int tag = in.readUnsignedByte();
+
+			switch (tag) {
+				case 1: // Utf8
+					utf8[index] = in.readUTF();
+
+					if (this.watchedDescriptors.contains(utf8[index]))
+						found.add(utf8[index]);
+
+					break;
+
+				case 7: // Class
+					classNameIndexes[index] = in.readUnsignedShort();
+					break;
+
+				case 8: // String
+				case 16: // MethodType
+				case 19: // Module
+				case 20: // Package
+					in.skipBytes(2);
+					break;
+
+				case 15: // MethodHandle
+					in.skipBytes(3);
+					break;
+
+				case 3: // Integer
+				case 4: // Float
+				case 9: // Fieldref
+				case 10: // Methodref
+				case 11: // InterfaceMethodref
+				case 12: // NameAndType
+				case 17: // Dynamic
+				case 18: // InvokeDynamic
+					in.skipBytes(4);
+					break;
+
+				case 5: // Long
+				case 6: // Double
+					in.skipBytes(8);
+					index++; // takes two slots
+					break;
+
+				default:
+					return null;
+			}
+		}
+
+		final int access = in.readUnsignedShort();
+		final String name = resolveClass(utf8, classNameIndexes, in.readUnsignedShort());
+		final String superName = resolveClass(utf8, classNameIndexes, in.readUnsignedShort());
+		final int interfaceCount = in.readUnsignedShort();
+		final String[] interfaces = new String[interfaceCount];
+
+		for (int i = 0; i < interfaceCount; i++)
+			interfaces[i] = resolveClass(utf8, classNameIndexes, in.readUnsignedShort());
+
+		return name == null ? null : new Entry(access, superName, interfaces, found);
+	}
+
+	private static String resolveClass(String[] utf8, int[] classNameIndexes, int index) {
+		if (index <= 0 || index >= classNameIndexes.length)
+			return null;
+
+		final String internalName = utf8[classNameIndexes[index]];
+
+		return internalName == null ? null : internalName.replace('/', '.');
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// Querying
+	// ------------------------------------------------------------------------------------------
+
+	/**
+	 * Return all indexed class names in the jar order
+	 *
+	 * @return
+	 */
+	Set<String> getClassNames() {
+		return this.entries.keySet();
+	}
+
+	/**
+	 * Return true if the class is in the jar
+	 *
+	 * @param className
+	 * @return
+	 */
+	boolean contains(String className) {
+		return this.entries.containsKey(className);
+	}
+
+	/**
+	 * Return true if we could not read the class file, you then need to load it to learn about it
+	 *
+	 * @param className
+	 * @return
+	 */
+	boolean isUnreadable(String className) {
+		return this.entries.get(className) == Entry.UNREADABLE;
+	}
+
+	/**
+	 * Return true if the class is abstract or an interface
+	 *
+	 * @param className
+	 * @return
+	 */
+	boolean isAbstract(String className) {
+		final Entry entry = this.entries.get(className);
+
+		return entry != null && entry != Entry.UNREADABLE && (entry.access & (ACC_ABSTRACT | ACC_INTERFACE)) != 0;
+	}
+
+	/**
+	 * Return true if the class uses the given descriptor in its constant pool
+	 *
+	 * @param className
+	 * @param descriptor
+	 * @return
+	 */
+	boolean uses(String className, String descriptor) {
+		final Entry entry = this.entries.get(className);
+
+		return entry != null && entry.descriptors.contains(descriptor);
+	}
+
+	/**
+	 * Return true if the class or any of its super types in the jar uses the given descriptor
+	 *
+	 * @param className
+	 * @param descriptor
+	 * @return
+	 */
+	boolean usesInHierarchy(String className, String descriptor) {
+		return this.walkHierarchy(className, descriptor, null, new HashSet<>());
+	}
+
+	/**
+	 * Return true if the class extends or implements the given type, following super types
+	 * as far as they are in the jar
+	 *
+	 * @param className
+	 * @param typeName
+	 * @return
+	 */
+	boolean isSubtypeOf(String className, String typeName) {
+		return !className.equals(typeName) && this.walkHierarchy(className, null, typeName, new HashSet<>());
+	}
+
+	/*
+	 * Walk the class and its super types, returning true once one uses the descriptor or is the type
+	 */
+	private boolean walkHierarchy(String className, String descriptor, String typeName, Set<String> visited) {
+		if (className == null || !visited.add(className))
+			return false;
+
+		if (typeName != null && className.equals(typeName))
+			return true;
+
+		final Entry entry = this.entries.get(className);
+
+		if (entry == null || entry == Entry.UNREADABLE)
+			return false;
+
+		if (descriptor != null && entry.descriptors.contains(descriptor))
+			return true;
+
+		if (this.walkHierarchy(entry.superName, descriptor, typeName, visited))
+			return true;
+
+		for (final String interfaceName : entry.interfaces)
+			if (this.walkHierarchy(interfaceName, descriptor, typeName, visited))
+				return true;
+
+		return false;
+	}
+
+	/*
+	 * What we know about a class
+	 */
+	private static final class Entry {
+
+		/**
+		 * Placeholder for classes we could not read
+		 */
+		private static final Entry UNREADABLE = new Entry(0, null, new String[0], new HashSet<>());
+
+		private final int access;
+		private final String superName;
+		private final String[] interfaces;
+		private final Set<String> descriptors;
+
+		private Entry(int access, String superName, String[] interfaces, Set<String> descriptors) {
+			this.access = access;
+			this.superName = superName;
+			this.interfaces = interfaces;
+			this.descriptors = descriptors;
+		}
+	}
+}
@@ -12,6 +12,7 @@ import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.ServiceRegisterEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.plugin.Plugin;
 import org.mineacademy.fo.Common;
@@ -20,12 +21,15 @@ import org.mineacademy.fo.Messenger;
 import org.mineacademy.fo.MinecraftVersion;
 import org.mineacademy.fo.MinecraftVersion.V;
 import org.mineacademy.fo.PlayerUtil;
+import org.mineacademy.fo.bungee.BungeeOutbox;
 import org.mineacademy.fo.model.ChatPaginator;
 import org.mineacademy.fo.model.HookManager;
 import org.mineacademy.fo.model.SimpleComponent;
 import org.mineacademy.fo.model.SimpleScoreboard;
 import org.mineacademy.fo.model.SpigotUpdater;
 import org.mineacademy.fo.settings.SimpleLocalization;
+import org.mineacademy.fo.visual.BlockOverlay;
+import org.mineacademy.fo.visual.BlockVisualizer;
 
 /**
  * Listens for some events we handle for you automatically
@@ -35,6 +39,12 @@ final class FoundationListener implements Listener {
 	@EventHandler(priority = EventPriority.HIGHEST)
 	public void onQuit(PlayerQuitEvent event) {
 		SimpleScoreboard.clearBoardsFor(event.getPlayer());
+		BlockOverlay.forgetViewer(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onWorldUnload(WorldUnloadEvent event) {
+		BlockVisualizer.stopAll(event.getWorld());
 	}
 
 	@EventHandler(priority = EventPriority.HIGHEST)
@@ -170,6 +180,8 @@ final class FoundationListener implements Listener {
 		final Player player = event.getPlayer();
 		final SpigotUpdater check = SimplePlugin.getInstance().getUpdateCheck();
 
+		BungeeOutbox.onJoin();
+
 		if (check != null && check.isNewVersionAvailable() && PlayerUtil.hasPerm(player, check.getPermission().replace("{plugin_name}", SimplePlugin.getNamed().toLowerCase().replace(" ", "_"))))
 			Common.tellLater(4 * 20, player, check.getNotifyMessage());
 
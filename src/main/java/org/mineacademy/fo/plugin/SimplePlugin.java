@@ -38,11 +38,16 @@ import org.mineacademy.fo.MinecraftVersion.V;
 import org.mineacademy.fo.ReflectionUtil;
 import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.annotation.AutoRegister;
+import org.mineacademy.fo.bungee.BungeeBatcher;
 import org.mineacademy.fo.bungee.BungeeListener;
+import org.mineacademy.fo.bungee.BungeeOutbox;
+import org.mineacademy.fo.bungee.BungeeRpc;
+import org.mineacademy.fo.collection.expiringmap.ShardedExpiringMap;
 import org.mineacademy.fo.command.SimpleCommand;
 import org.mineacademy.fo.command.SimpleCommandGroup;
 import org.mineacademy.fo.command.SimpleSubCommand;
 import org.mineacademy.fo.debug.Debugger;
+import org.mineacademy.fo.debug.LagCatcher;
 import org.mineacademy.fo.event.SimpleListener;
 import org.mineacademy.fo.exception.FoException;
 import org.mineacademy.fo.menu.Menu;
@@ -53,6 +58,7 @@ import org.mineacademy.fo.metrics.Metrics;
 import org.mineacademy.fo.model.DiscordListener;
 import org.mineacademy.fo.model.FolderWatcher;
 import org.mineacademy.fo.model.HookManager;
+import org.mineacademy.fo.model.OfflineRegionScanner;
 import org.mineacademy.fo.model.SimpleHologram;
 import org.mineacademy.fo.model.SimpleScoreboard;
 import org.mineacademy.fo.model.SpigotUpdater;
@@ -321,6 +327,8 @@ public abstract class SimplePlugin extends JavaPlugin implements Listener {
 
 			this.startingReloadables = false;
 
+			LagCatcher.scheduleSummary();
+
 			this.onPluginStart();
 			// --------------------------------------------
 
@@ -689,6 +697,10 @@ public abstract class SimplePlugin extends JavaPlugin implements Listener {
 
 		this.unregisterReloadables();
 
+		BungeeOutbox.save();
+		BungeeRpc.clear();
+		ShardedExpiringMap.shutdownTicker();
+
 		try {
 			for (final Player online : Remain.getOnlinePlayers())
 				SimpleScoreboard.clearBoardsFor(online);
@@ -712,6 +724,8 @@ public abstract class SimplePlugin extends JavaPlugin implements Listener {
 			t.printStackTrace();
 		}
 
+		Debugger.flushErrors();
+
 		Objects.requireNonNull(instance, "Instance of " + this.getDataFolder().getName() + " already nulled!");
 		instance = null;
 	}
@@ -834,6 +848,8 @@ public abstract class SimplePlugin extends JavaPlugin implements Listener {
 
 			this.startingReloadables = false;
 
+			LagCatcher.scheduleSummary();
+
 			if (HookManager.isDiscordSRVLoaded()) {
 				DiscordListener.DiscordListenerImpl.getInstance().resubscribe();
 
@@ -853,11 +869,15 @@ public abstract class SimplePlugin extends JavaPlugin implements Listener {
 	}
 
 	private void unregisterReloadables() {
+		BungeeBatcher.flush();
+		BungeeRpc.cancelRequests();
+
 		SimpleSettings.resetSettingsCall();
 		SimpleLocalization.resetLocalizationCall();
 
 		BlockVisualizer.stopAll();
 		FolderWatcher.stopThreads();
+		OfflineRegionScanner.stopRawScans();
 
 		// Force metadata save on old MC versions upon reload/disable
 		CompMetadata.MetadataFile.saveOnce();
@@ -879,6 +899,7 @@ public abstract class SimplePlugin extends JavaPlugin implements Listener {
 		this.getServer().getMessenger().unregisterOutgoingPluginChannel(this);
 
 		Common.cancelTasks();
+		BungeeOutbox.cancelFlush();
 
 		this.mainCommand = null;
 	}
@@ -1,5 +1,6 @@
 package org.mineacademy.fo.region;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -18,6 +19,7 @@ import org.mineacademy.fo.Common;
 import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.collection.SerializedMap;
 import org.mineacademy.fo.model.ConfigSerializable;
+import org.mineacademy.fo.model.CuboidScanner;
 
 import lombok.Getter;
 import lombok.NonNull;
@@ -45,6 +47,21 @@ public class Region implements ConfigSerializable {
 	 */
 	private Location secondary;
 
+	/*
+	 * The corrected block bounds cached from the points, valid when boundsWorld is not null
+	 */
+	int minX, minY, minZ, maxX, maxY, maxZ;
+
+	/*
+	 * The world name of both points, null if the region is incomplete or spans two worlds
+	 */
+	String boundsWorld;
+
+	/*
+	 * The indexes this region is in, notified when its points change
+	 */
+	private List<RegionIndex<?>> indexes;
+
 	/**
 	 * Create a new region
 	 *
@@ -68,14 +85,79 @@ public class Region implements ConfigSerializable {
 		if (primary != null) {
 			Valid.checkNotNull(primary.getWorld(), "Primary location lacks a world!");
 
-			this.primary = primary;
+			this.primary = primary.clone();
 		}
 
 		if (secondary != null) {
 			Valid.checkNotNull(secondary.getWorld(), "Primary location lacks a world!");
 
-			this.secondary = secondary;
+			this.secondary = secondary.clone();
 		}
+
+		// Not calling onPointsChanged() since subclasses are not constructed yet
+		this.updateBounds();
+	}
+
+	/*
+	 * Recalculate the cached bounds, move this region in all indexes it is in and notify subclasses
+	 */
+	private void pointsChanged() {
+		this.updateBounds();
+
+		if (this.indexes != null)
+			for (final RegionIndex<?> index : this.indexes)
+				index.update(this);
+
+		this.onPointsChanged();
+	}
+
+	/*
+	 * Recalculate the cached bounds
+	 */
+	private void updateBounds() {
+		final World primaryWorld = this.primary != null ? this.primary.getWorld() : null;
+		final World secondaryWorld = this.secondary != null ? this.secondary.getWorld() : null;
+
+		if (primaryWorld != null && secondaryWorld != null && primaryWorld.getName().equals(secondaryWorld.getName())) {
+			final int x1 = this.primary.getBlockX(), x2 = this.secondary.getBlockX(),
+					y1 = this.primary.getBlockY(), y2 = this.secondary.getBlockY(),
+					z1 = this.primary.getBlockZ(), z2 = this.secondary.getBlockZ();
+
+			this.minX = Math.min(x1, x2);
+			this.minY = Math.min(y1, y2);
+			this.minZ = Math.min(z1, z2);
+			this.maxX = Math.max(x1, x2);
+			this.maxY = Math.max(y1, y2);
+			this.maxZ = Math.max(z1, z2);
+			this.boundsWorld = primaryWorld.getName();
+
+		} else
+			this.boundsWorld = null;
+	}
+
+	/**
+	 * Called after the primary or secondary point changes, override to drop data
+	 * you cached for the previous points. Not called from the constructor.
+	 */
+	protected void onPointsChanged() {
+	}
+
+	/*
+	 * Called by the index when this region is added to it
+	 */
+	final void addIndex(RegionIndex<?> index) {
+		if (this.indexes == null)
+			this.indexes = new ArrayList<>(1);
+
+		this.indexes.add(index);
+	}
+
+	/*
+	 * Called by the index when this region is removed from it
+	 */
+	final void removeIndex(RegionIndex<?> index) {
+		if (this.indexes != null)
+			this.indexes.remove(index);
 	}
 
 	/*
@@ -182,7 +264,8 @@ public class Region implements ConfigSerializable {
 	}
 
 	/**
-	 * Count all blocks within this region
+	 * Count all blocks within this region, creating a {@link Block} for each,
+	 * see {@link #getScanner()} for large regions
 	 *
 	 * @return
 	 */
@@ -193,6 +276,19 @@ public class Region implements ConfigSerializable {
 		return BlockUtil.getBlocks(centered[0], centered[1]);
 	}
 
+	/**
+	 * Return a scanner walking all blocks of this region chunk by chunk,
+	 * optionally off the main thread, without creating a {@link Block} for each
+	 *
+	 * @return
+	 */
+	public final CuboidScanner getScanner() {
+		Valid.checkBoolean(this.isWhole(), "Cannot perform getScanner on a non-complete region: " + this.toString());
+		this.checkOneWorld();
+
+		return new CuboidScanner(this.getWorld(), this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ);
+	}
+
 	/**
 	 * Return locations representing the bounding box of a cuboid region,
 	 * used when rendering particle effects
@@ -213,16 +309,14 @@ public class Region implements ConfigSerializable {
 	public final List<Entity> getEntities() {
 		Valid.checkBoolean(this.isWhole(), "Cannot perform getEntities on a non-complete region: " + this.toString());
 
-		final List<Entity> found = new LinkedList<>();
+		this.checkOneWorld();
 
-		final Location[] centered = this.getCorrectedPoints();
-		final Location primary = centered[0];
-		final Location secondary = centered[1];
+		final List<Entity> found = new LinkedList<>();
 
-		final int xMin = (int) primary.getX() >> 4;
-		final int xMax = (int) secondary.getX() >> 4;
-		final int zMin = (int) primary.getZ() >> 4;
-		final int zMax = (int) secondary.getZ() >> 4;
+		final int xMin = this.minX >> 4;
+		final int xMax = this.maxX >> 4;
+		final int zMin = this.minZ >> 4;
+		final int zMax = this.maxZ >> 4;
 
 		for (int cx = xMin; cx <= xMax; ++cx)
 			for (int cz = zMin; cz <= zMax; ++cz)
@@ -253,7 +347,8 @@ public class Region implements ConfigSerializable {
 	}
 
 	/**
-	 * Return true if the given point is within this region
+	 * Return true if the given point is within this region,
+	 * false if the region points are in different worlds
 	 *
 	 * @param location
 	 * @return
@@ -261,25 +356,45 @@ public class Region implements ConfigSerializable {
 	public final boolean isWithin(@NonNull final Location location) {
 		Valid.checkBoolean(this.isWhole(), "Cannot perform isWithin on a non-complete region: " + this.toString());
 
-		if (!location.getWorld().getName().equals(this.primary.getWorld().getName()))
-			return false;
-
-		final Location[] centered = this.getCorrectedPoints();
-		final Location primary = centered[0];
-		final Location secondary = centered[1];
+		return location.getWorld().getName().equals(this.boundsWorld) && this.isWithin(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
 
-		final int x = (int) location.getX();
-		final int y = (int) location.getY();
-		final int z = (int) location.getZ();
+	/**
+	 * Return true if the given block coordinates are within this region, ignoring the world
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public final boolean isWithin(final int x, final int y, final int z) {
+		return this.boundsWorld != null
+				&& x >= this.minX && x <= this.maxX
+				&& y >= this.minY && y <= this.maxY
+				&& z >= this.minZ && z <= this.maxZ;
+	}
 
-		return x >= primary.getX() && x <= secondary.getX()
-				&& y >= primary.getY() && y <= secondary.getY()
-				&& z >= primary.getZ() && z <= secondary.getZ();
+	/**
+	 * Return true if the given block box, in any order of corners, overlaps this region, ignoring the world
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return
+	 */
+	public final boolean intersects(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+		return this.boundsWorld != null
+				&& Math.min(minX, maxX) <= this.maxX && Math.max(minX, maxX) >= this.minX
+				&& Math.min(minY, maxY) <= this.maxY && Math.max(minY, maxY) >= this.minY
+				&& Math.min(minZ, maxZ) <= this.maxZ && Math.max(minZ, maxZ) >= this.minZ;
 	}
 
 	/**
 	 * Returns true if X and Z coordinates irrespective of height of the given location are within
-	 * this region.
+	 * this region, false if the region points are in different worlds.
 	 *
 	 * @param location
 	 * @return
@@ -287,18 +402,21 @@ public class Region implements ConfigSerializable {
 	public final boolean isWithinXZ(@NonNull final Location location) {
 		Valid.checkBoolean(this.isWhole(), "Cannot perform isWithinXZ on a non-complete region: " + this.toString());
 
-		if (!location.getWorld().getName().equals(this.primary.getWorld().getName()))
+		if (!location.getWorld().getName().equals(this.boundsWorld))
 			return false;
 
-		final Location[] centered = this.getCorrectedPoints();
-		final Location primary = centered[0];
-		final Location secondary = centered[1];
+		final int x = location.getBlockX();
+		final int z = location.getBlockZ();
 
-		final int x = (int) location.getX();
-		final int z = (int) location.getZ();
+		return x >= this.minX && x <= this.maxX
+				&& z >= this.minZ && z <= this.maxZ;
+	}
 
-		return x >= primary.getX() && x <= secondary.getX()
-				&& z >= primary.getZ() && z <= secondary.getZ();
+	/*
+	 * Fail if the points are in different worlds
+	 */
+	private void checkOneWorld() {
+		Valid.checkBoolean(this.boundsWorld != null, "Points must be in one world! Primary: " + this.primary + " != secondary: " + this.secondary);
 	}
 
 	/**
@@ -316,7 +434,9 @@ public class Region implements ConfigSerializable {
 	 * @param primary
 	 */
 	public final void setPrimary(final Location primary) {
-		this.primary = primary;
+		this.primary = primary == null ? null : primary.clone();
+
+		this.pointsChanged();
 	}
 
 	/**
@@ -325,7 +445,9 @@ public class Region implements ConfigSerializable {
 	 * @param secondary
 	 */
 	public final void setSecondary(final Location secondary) {
-		this.secondary = secondary;
+		this.secondary = secondary == null ? null : secondary.clone();
+
+		this.pointsChanged();
 	}
 
 	/**
@@ -347,10 +469,14 @@ public class Region implements ConfigSerializable {
 	 */
 	public final void updateLocation(@Nullable Location primary, @Nullable Location secondary) {
 		if (primary != null)
-			this.setPrimary(primary);
+			this.primary = primary.clone();
 
 		if (secondary != null)
-			this.setSecondary(secondary);
+			this.secondary = secondary.clone();
+
+		// Update once so indexes move the region only once
+		if (primary != null || secondary != null)
+			this.pointsChanged();
 	}
 
 	/**
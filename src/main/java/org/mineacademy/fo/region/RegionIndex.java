@@ -0,0 +1,473 @@
+package org.mineacademy.fo.region;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.mineacademy.fo.Valid;
+
+import lombok.NonNull;
+
+/**
+ * A spatial index answering which regions contain a point or intersect a box
+ * without testing every region.
+ * <p>
+ * Each world has a hash grid of cells, 16x16 blocks by default like chunks, and every
+ * region is stored in all cells it touches. Regions too large for the grid are kept
+ * in a separate list per world and tested one by one. Regions move in the index
+ * automatically when their points change.
+ * <p>
+ * This class is not thread-safe, use it from the main thread only.
+ *
+ * @param <T> the region type
+ */
+public final class RegionIndex<T extends Region> {
+
+	/**
+	 * Regions covering more cells than this are not put into the grid
+	 */
+	private static final int MAX_CELLS_PER_REGION = 4096;
+
+	/**
+	 * The cell size as a power of two
+	 */
+	private final int cellShift;
+
+	/**
+	 * The grids by world name, each mapping a packed cell key to regions in that cell
+	 */
+	private final Map<String, Map<Long, List<Entry<T>>>> grids = new HashMap<>();
+
+	/**
+	 * Regions too large for the grid by world name
+	 */
+	private final Map<String, List<Entry<T>>> largeRegions = new HashMap<>();
+
+	/**
+	 * All regions in this index, including incomplete ones, by identity since regions change
+	 */
+	private final Map<Region, Entry<T>> entries = new IdentityHashMap<>();
+
+	/**
+	 * Increased on every query to collect each region only once
+	 */
+	private int queryId = 0;
+
+	/**
+	 * Create a new index with chunk sized cells
+	 */
+	public RegionIndex() {
+		this(4);
+	}
+
+	/**
+	 * Create a new index with cells of 2^cellShift blocks, larger cells suit large regions better
+	 *
+	 * @param cellShift from 2 to 10
+	 */
+	public RegionIndex(int cellShift) {
+		Valid.checkBoolean(cellShift >= 2 && cellShift <= 10, "Cell shift must be between 2 and 10");
+
+		this.cellShift = cellShift;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Changing
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Add the region to the index. Incomplete regions are kept and indexed once they are whole.
+	 *
+	 * @param region
+	 * @return false if the region was already in this index
+	 */
+	public boolean add(@NonNull T region) {
+		if (this.entries.containsKey(region))
+			return false;
+
+		final Entry<T> entry = new Entry<>(region);
+
+		this.entries.put(region, entry);
+		this.insert(entry);
+
+		region.addIndex(this);
+		return true;
+	}
+
+	/**
+	 * Remove the region from the index
+	 *
+	 * @param region
+	 * @return false if the region was not in this index
+	 */
+	public boolean remove(@NonNull T region) {
+		final Entry<T> entry = this.entries.remove(region);
+
+		if (entry == null)
+			return false;
+
+		this.erase(entry);
+
+		region.removeIndex(this);
+		return true;
+	}
+
+	/**
+	 * Remove all regions from the index
+	 */
+	public void clear() {
+		for (final Region region : this.entries.keySet())
+			region.removeIndex(this);
+
+		this.entries.clear();
+		this.grids.clear();
+		this.largeRegions.clear();
+	}
+
+	/*
+	 * Called by the region when its points change
+	 */
+	void update(Region region) {
+		final Entry<T> entry = this.entries.get(region);
+
+		if (entry != null) {
+			this.erase(entry);
+			this.insert(entry);
+		}
+	}
+
+	/*
+	 * Store the entry under the region's current bounds
+	 */
+	private void insert(Entry<T> entry) {
+		final Region region = entry.region;
+
+		entry.world = region.boundsWorld;
+
+		if (entry.world == null)
+			return;
+
+		entry.minCellX = region.minX >> this.cellShift;
+		entry.minCellZ = region.minZ >> this.cellShift;
+		entry.maxCellX = region.maxX >> this.cellShift;
+		entry.maxCellZ = region.maxZ >> this.cellShift;
+
+		final long cells = (long) (entry.maxCellX - entry.minCellX + 1) * (entry.maxCellZ - entry.minCellZ + 1);
+
+		if (cells > MAX_CELLS_PER_REGION) {
+			entry.large = true;
+			this.largeRegions.computeIfAbsent(entry.world, world -> new ArrayList<>()).add(entry);
+
+			return;
+		}
+
+		entry.large = false;
+
+		final Map<Long, List<Entry<T>>> grid = this.grids.computeIfAbsent(entry.world, world -> new HashMap<>());
+
+		for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++)
+			for (int cellZ = entry.minCellZ; cellZ <= entry.maxCellZ; cellZ++)
+				grid.computeIfAbsent(key(cellX, cellZ), key -> new ArrayList<>(2)).add(entry);
+	}
+
+	/*
+	 * Remove the entry from where it was stored last time
+	 */
+	private void erase(Entry<T> entry) {
+		if (entry.world == null)
+			return;
+
+		if (entry.large) {
+			final List<Entry<T>> large = this.largeRegions.get(entry.world);
+
+			if (large != null && large.remove(entry) && large.isEmpty())
+				this.largeRegions.remove(entry.world);
+
+		} else {
+			final Map<Long, List<Entry<T>>> grid = this.grids.get(entry.world);
+
+			if (grid != null) {
+				for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++)
+					for (int cellZ = entry.minCellZ; cellZ <= entry.maxCellZ; cellZ++) {
+						final Long key = key(cellX, cellZ);
+						final List<Entry<T>> cell = grid.get(key);
+
+						if (cell != null && cell.remove(entry) && cell.isEmpty())
+							grid.remove(key);
+					}
+
+				if (grid.isEmpty())
+					this.grids.remove(entry.world);
+			}
+		}
+
+		entry.world = null;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Querying
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return regions containing the given location
+	 *
+	 * @param location
+	 * @return
+	 */
+	public List<T> getRegionsAt(@NonNull Location location) {
+		return this.getRegionsAt(location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+	/**
+	 * Return regions containing the given block
+	 *
+	 * @param block
+	 * @return
+	 */
+	public List<T> getRegionsAt(@NonNull Block block) {
+		return this.getRegionsAt(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+	}
+
+	/**
+	 * Return regions containing the given block coordinates in the given world
+	 *
+	 * @param world
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public List<T> getRegionsAt(@NonNull String world, int x, int y, int z) {
+		List<T> found = null;
+		final Map<Long, List<Entry<T>>> grid = this.grids.get(world);
+
+		if (grid != null) {
+			final List<Entry<T>> cell = grid.get(key(x >> this.cellShift, z >> this.cellShift));
+
+			if (cell != null)
+				for (final Entry<T> entry : cell)
+					if (entry.region.isWithin(x, y, z))
+						found = add(found, entry.region);
+		}
+
+		final List<Entry<T>> large = this.largeRegions.get(world);
+
+		if (large != null)
+			for (final Entry<T> entry : large)
+				if (entry.region.isWithin(x, y, z))
+					found = add(found, entry.region);
+
+		return found == null ? Collections.emptyList() : found;
+	}
+
+	/**
+	 * Return the first region found containing the given location, or null if none
+	 *
+	 * @param location
+	 * @return
+	 */
+	public T getRegionAt(@NonNull Location location) {
+		final List<T> regions = this.getRegionsAt(location);
+
+		return regions.isEmpty() ? null : regions.get(0);
+	}
+
+	/**
+	 * Return true if any region contains the given location
+	 *
+	 * @param location
+	 * @return
+	 */
+	public boolean isInAnyRegion(@NonNull Location location) {
+		return !this.getRegionsAt(location).isEmpty();
+	}
+
+	/**
+	 * Return regions overlapping the given chunk at any height
+	 *
+	 * @param chunk
+	 * @return
+	 */
+	public List<T> getRegionsInChunk(@NonNull Chunk chunk) {
+		return this.getRegionsInChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+	}
+
+	/**
+	 * Return regions overlapping the given chunk at any height
+	 *
+	 * @param world
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return
+	 */
+	public List<T> getRegionsInChunk(@NonNull String world, int chunkX, int chunkZ) {
+		return this.getRegionsIntersecting(world, chunkX << 4, Integer.MIN_VALUE, chunkZ << 4, (chunkX << 4) + 15, Integer.MAX_VALUE, (chunkZ << 4) + 15);
+	}
+
+	/**
+	 * Return regions overlapping the box between the given locations, in any order
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public List<T> getRegionsIntersecting(@NonNull Location first, @NonNull Location second) {
+		final World world = first.getWorld();
+
+		Valid.checkBoolean(world.equals(second.getWorld()), "Locations must be in one world! First: " + first + " != second: " + second);
+
+		return this.getRegionsIntersecting(world.getName(), first.getBlockX(), first.getBlockY(), first.getBlockZ(), second.getBlockX(), second.getBlockY(), second.getBlockZ());
+	}
+
+	/**
+	 * Return regions overlapping the given region
+	 *
+	 * @param region
+	 * @return
+	 */
+	public List<T> getRegionsIntersecting(@NonNull Region region) {
+		if (region.boundsWorld == null)
+			return Collections.emptyList();
+
+		return this.getRegionsIntersecting(region.boundsWorld, region.minX, region.minY, region.minZ, region.maxX, region.maxY, region.maxZ);
+	}
+
+	/**
+	 * Return regions overlapping the given block box, in any order of corners
+	 *
+	 * @param world
+	 * @param x1
+	 * @param y1
+	 * @param z1
+	 * @param x2
+	 * @param y2
+	 * @param z2
+	 * @return
+	 */
+	public List<T> getRegionsIntersecting(@NonNull String world, int x1, int y1, int z1, int x2, int y2, int z2) {
+		final int minX = Math.min(x1, x2), minY = Math.min(y1, y2), minZ = Math.min(z1, z2);
+		final int maxX = Math.max(x1, x2), maxY = Math.max(y1, y2), maxZ = Math.max(z1, z2);
+		final int query = ++this.queryId;
+
+		List<T> found = null;
+		final Map<Long, List<Entry<T>>> grid = this.grids.get(world);
+
+		if (grid != null) {
+			final int minCellX = minX >> this.cellShift, maxCellX = maxX >> this.cellShift;
+			final int minCellZ = minZ >> this.cellShift, maxCellZ = maxZ >> this.cellShift;
+
+			// Walk the grid cells the box covers, or the stored cells if there are fewer of them
+			if ((long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1) <= grid.size()) {
+				for (int cellX = minCellX; cellX <= maxCellX; cellX++)
+					for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+						final List<Entry<T>> cell = grid.get(key(cellX, cellZ));
+
+						if (cell != null)
+							found = this.collect(found, cell, query, minX, minY, minZ, maxX, maxY, maxZ);
+					}
+
+			} else
+				for (final List<Entry<T>> cell : grid.values())
+					found = this.collect(found, cell, query, minX, minY, minZ, maxX, maxY, maxZ);
+		}
+
+		final List<Entry<T>> large = this.largeRegions.get(world);
+
+		if (large != null)
+			found = this.collect(found, large, query, minX, minY, minZ, maxX, maxY, maxZ);
+
+		return found == null ? Collections.emptyList() : found;
+	}
+
+	/*
+	 * Add regions from the entries overlapping the box we did not yet see in this query
+	 */
+	private List<T> collect(List<T> found, List<Entry<T>> entries, int query, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		for (final Entry<T> entry : entries)
+			if (entry.lastQuery != query) {
+				entry.lastQuery = query;
+
+				if (entry.region.intersects(minX, minY, minZ, maxX, maxY, maxZ))
+					found = add(found, entry.region);
+			}
+
+		return found;
+	}
+
+	/**
+	 * Return true if the region is in this index
+	 *
+	 * @param region
+	 * @return
+	 */
+	public boolean contains(Region region) {
+		return this.entries.containsKey(region);
+	}
+
+	/**
+	 * Return all regions in this index
+	 *
+	 * @return
+	 */
+	public Collection<T> getRegions() {
+		final List<T> regions = new ArrayList<>(this.entries.size());
+
+		for (final Entry<T> entry : this.entries.values())
+			regions.add(entry.region);
+
+		return regions;
+	}
+
+	/**
+	 * Return how many regions are in this index
+	 *
+	 * @return
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	@Override
+	public String toString() {
+		return "RegionIndex{regions=" + this.entries.size() + ", worlds=" + this.grids.keySet() + "}";
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Helpers
+	// ------------------------------------------------------------------------------------------------------------
+
+	private static long key(int cellX, int cellZ) {
+		return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+	}
+
+	private static <T> List<T> add(List<T> list, T value) {
+		if (list == null)
+			list = new ArrayList<>(2);
+
+		list.add(value);
+		return list;
+	}
+
+	/*
+	 * A region with the cells it is stored in
+	 */
+	private static final class Entry<T extends Region> {
+		private final T region;
+		private String world;
+		private boolean large;
+		private int minCellX, minCellZ, maxCellX, maxCellZ;
+		private int lastQuery;
+
+		private Entry(T region) {
+			this.region = region;
+		}
+	}
+}
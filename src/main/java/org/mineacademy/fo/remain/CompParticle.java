@@ -266,6 +266,42 @@ public enum CompParticle {
 		}
 	}
 
+	/**
+	 * Spawns this particle only shown to the given player at many points.
+	 * <p>
+	 * This is a convenience loop, Bukkit has no call for many positions so each point
+	 * is still sent on its own. It only saves creating a location and the particle
+	 * data for each point.
+	 *
+	 * @param player
+	 * @param points the x, y and z of each point one after another
+	 * @param count how many points to send from the start of the array
+	 * @param color the color, only for {@link #REDSTONE}, or null
+	 * @param particleSize the particle size for colored particles, requires MC 1.13+
+	 */
+	public void spawn(Player player, double[] points, int count, @Nullable Color color, float particleSize) {
+		Valid.checkBoolean(color == null || this == REDSTONE, "Can only send colors for REDSTONE particle, not: " + this);
+		Valid.checkBoolean(count * 3 <= points.length, "Cannot send " + count + " points from an array of " + points.length / 3);
+
+		final Location location = new Location(player.getWorld(), 0, 0, 0);
+		final DustOptions dust = color != null && atLeast1_13 ? new DustOptions(color, particleSize) : null;
+
+		for (int index = 0; index < count * 3; index += 3) {
+			location.setX(points[index]);
+			location.setY(points[index + 1]);
+			location.setZ(points[index + 2]);
+
+			if (dust != null)
+				player.spawnParticle((Particle) this.bukkitEnumParticle, location, 1, 0, 0, 0, 0, dust);
+
+			else if (color != null)
+				this.spawn(player, location, color, particleSize);
+
+			else
+				this.spawn(player, location);
+		}
+	}
+
 	/**
 	 * Spawns a particle at the given location
 	 *
@@ -85,12 +85,14 @@ import org.mineacademy.fo.TimeUtil;
 import org.mineacademy.fo.Valid;
 import org.mineacademy.fo.collection.SerializedMap;
 import org.mineacademy.fo.collection.StrictMap;
+import org.mineacademy.fo.debug.Debugger;
 import org.mineacademy.fo.exception.FoException;
 import org.mineacademy.fo.model.SimpleComponent;
 import org.mineacademy.fo.model.UUIDToNameConverter;
 import org.mineacademy.fo.plugin.SimplePlugin;
 import org.mineacademy.fo.remain.internal.BossBarInternals;
 import org.mineacademy.fo.remain.internal.ChatInternals;
+import org.mineacademy.fo.remain.internal.NMSHandles;
 import org.mineacademy.fo.remain.nbt.NBTEntity;
 
 import com.google.gson.Gson;
@@ -133,26 +135,11 @@ public final class Remain {
 	 */
 	private static final Method getHealthMethod;
 
-	/**
-	 * The CraftPlayer.getHandle method
-	 */
-	private static Method getHandle;
-
-	/**
-	 * The EntityPlayer.playerConnection method
-	 */
-	private static Field fieldPlayerConnection;
-
 	/**
 	 * Get if entity is invulnerable on legacy MC
 	 */
 	private static Field fieldEntityInvulnerable;
 
-	/**
-	 * The PlayerConnection.sendPacket method
-	 */
-	private static Method sendPacket;
-
 	// ----------------------------------------------------------------------------------------------------
 	// Flags below
 	// ----------------------------------------------------------------------------------------------------
@@ -227,6 +214,11 @@ public final class Remain {
 	 */
 	private static boolean hasAddPassenger = true;
 
+	/**
+	 * Return if the {@link Player#sendBlockChanges(Collection)} method is available.
+	 */
+	private static boolean hasSendBlockChanges = true;
+
 	/**
 	 * Stores player cooldowns for old MC versions
 	 */
@@ -288,18 +280,15 @@ public final class Remain {
 		try {
 
 			final String version = Bukkit.getVersion();
-			final boolean hasNMS = MinecraftVersion.atLeast(V.v1_4);
 
 			// Load optional parts
 			try {
 
-				getHandle = getOBCClass("entity.CraftPlayer").getMethod("getHandle");
+				// Resolve packet and handle accessors now so that the first packet does not pay for it
+				NMSHandles.warmUp();
 
-				fieldPlayerConnection = getNMSClass("EntityPlayer", "net.minecraft.server.level.EntityPlayer")
-						.getField(MinecraftVersion.atLeast(V.v1_20) ? "c" : MinecraftVersion.atLeast(V.v1_17) ? "b" : hasNMS ? "playerConnection" : "netServerHandler");
-
-				sendPacket = getNMSClass(hasNMS ? "PlayerConnection" : "NetServerHandler", "net.minecraft.server.network.PlayerConnection")
-						.getMethod(MinecraftVersion.atLeast(V.v1_18) ? "a" : "sendPacket", getNMSClass("Packet", "net.minecraft.network.protocol.Packet"));
+				if (!NMSHandles.hasPacketAccess())
+					throw new ReflectionException(NMSHandles.getPacketAccessError(), "Unable to find player connection or send packet methods");
 
 				if (MinecraftVersion.olderThan(V.v1_12))
 					try {
@@ -320,10 +309,6 @@ public final class Remain {
 					Bukkit.getLogger().warning("Error: " + t.getClass().getSimpleName() + ": " + t.getMessage());
 					Bukkit.getLogger().warning("Ignore this if using Cauldron. Otherwise check if your server is compatibble.");
 				}
-
-				fieldPlayerConnection = null;
-				sendPacket = null;
-				getHandle = null;
 			}
 
 			// Load mandatory parts
@@ -408,6 +393,12 @@ public final class Remain {
 				hasAddPassenger = false;
 			}
 
+			try {
+				Player.class.getMethod("sendBlockChanges", Collection.class);
+			} catch (final Throwable ex) {
+				hasSendBlockChanges = false;
+			}
+
 			try {
 				sectionPathDataClass = ReflectionUtil.lookupClass("org.bukkit.configuration.SectionPathData");
 			} catch (final Throwable ex) {
@@ -426,39 +417,37 @@ public final class Remain {
 	// ----------------------------------------------------------------------------------------------------
 
 	/**
-	 * Returns Minecraft World class
+	 * Returns Minecraft World class, or null if it could not be obtained
 	 *
 	 * @param world
 	 * @return
 	 */
 	public static Object getHandleWorld(final World world) {
-		Object nms = null;
-		final Method handle = ReflectionUtil.getMethod(world.getClass(), "getHandle");
 		try {
-			nms = handle.invoke(world);
-		} catch (final ReflectiveOperationException e) {
-			e.printStackTrace();
+			return NMSHandles.getHandle(world);
+
+		} catch (final ReflectionException ex) {
+			Debugger.printStackTrace(ex);
+
+			return null;
 		}
-		return nms;
 	}
 
 	/**
-	 * Returns Minecraft Entity class
+	 * Returns Minecraft Entity class, or null if it could not be obtained
 	 *
 	 * @param entity
 	 * @return
 	 */
 	public static Object getHandleEntity(final Entity entity) {
-		Object nms_entity = null;
-		final Method handle = ReflectionUtil.getMethod(entity.getClass(), "getHandle");
-
 		try {
-			nms_entity = handle.invoke(entity);
-		} catch (final ReflectiveOperationException e) {
-			e.printStackTrace();
-		}
+			return NMSHandles.getHandle(entity);
+
+		} catch (final ReflectionException ex) {
+			Debugger.printStackTrace(ex);
 
-		return nms_entity;
+			return null;
+		}
 	}
 
 	/**
@@ -491,9 +480,9 @@ public final class Remain {
 			final Object playerConnection = getPlayerConnection(player);
 
 			if (playerConnection != null)
-				sendPacket.invoke(playerConnection, packet);
+				NMSHandles.sendPacket(playerConnection, packet);
 
-		} catch (final ReflectiveOperationException ex) {
+		} catch (final ReflectionException ex) {
 			throw new ReflectionException(ex, "Error sending packet " + packet.getClass() + " to player " + player.getName());
 		}
 	}
@@ -505,19 +494,16 @@ public final class Remain {
 	 * @return
 	 */
 	public static Object getPlayerConnection(Player player) {
-		if (getHandle == null || fieldPlayerConnection == null || sendPacket == null) {
+		if (!NMSHandles.hasPacketAccess()) {
 			Common.log("Cannot get player connection on your server sofware (known to be broken on Cauldron).");
 
 			return null;
 		}
 
 		try {
-			final Object handle = getHandle.invoke(player);
-			final Object playerConnection = fieldPlayerConnection.get(handle);
-
-			return playerConnection;
+			return NMSHandles.getPlayerConnection(NMSHandles.getHandle(player));
 
-		} catch (final ReflectiveOperationException ex) {
+		} catch (final ReflectionException ex) {
 			throw new ReflectionException(ex, "Error getting player connection for player " + player.getName());
 		}
 	}
@@ -655,7 +641,7 @@ public final class Remain {
 
 			final Constructor<?> entityConstructor = nmsItemClass.getConstructor(nmsWorldClass, double.class, double.class, double.class, nmsStackClass);
 
-			final Object nmsWorld = location.getWorld().getClass().getMethod("getHandle").invoke(location.getWorld());
+			final Object nmsWorld = getHandleWorld(location.getWorld());
 			final Method asNmsCopy = getOBCClass("inventory.CraftItemStack").getMethod("asNMSCopy", ItemStack.class);
 
 			final Object nmsEntity = entityConstructor.newInstance(nmsWorld, location.getX(), location.getY(), location.getZ(), asNmsCopy.invoke(null, item));
@@ -1799,6 +1785,75 @@ public final class Remain {
 		}
 	}
 
+	/**
+	 * Sends fake block updates for all given locations in one task, on MC 1.19.4+ the server
+	 * groups them into one packet per chunk section
+	 *
+	 * @param delayTicks the pause before sending
+	 * @param player     the player
+	 * @param blocks     the locations and their fake materials
+	 */
+	public static void sendBlockChanges(final int delayTicks, final Player player, final Map<Location, CompMaterial> blocks) {
+		Common.runLater(delayTicks, () -> sendBlockChanges(player, blocks));
+	}
+
+	/**
+	 * Sends fake block updates for all given locations right now, on MC 1.19.4+ the server
+	 * groups them into one packet per chunk section
+	 *
+	 * @param player the player
+	 * @param blocks the locations and their fake materials
+	 */
+	public static void sendBlockChanges(final Player player, final Map<Location, CompMaterial> blocks) {
+		if (hasSendBlockChanges) {
+			final List<BlockState> states = new ArrayList<>(blocks.size());
+
+			for (final Map.Entry<Location, CompMaterial> entry : blocks.entrySet()) {
+				final BlockState state = entry.getKey().getBlock().getState();
+
+				state.setBlockData(entry.getValue().getMaterial().createBlockData());
+				states.add(state);
+			}
+
+			player.sendBlockChanges(states);
+
+		} else
+			for (final Map.Entry<Location, CompMaterial> entry : blocks.entrySet())
+				sendBlockChange0(player, entry.getKey(), entry.getValue());
+	}
+
+	/**
+	 * Sends to the player the real state of all given blocks in one task, typically
+	 * to reset them after {@link #sendBlockChanges(int, Player, Map)}
+	 *
+	 * @param delayTicks
+	 * @param player
+	 * @param blocks
+	 */
+	public static void sendBlockChanges(final int delayTicks, final Player player, final Collection<Block> blocks) {
+		Common.runLater(delayTicks, () -> sendBlockChanges(player, blocks));
+	}
+
+	/**
+	 * Sends to the player the real state of all given blocks right now
+	 *
+	 * @param player
+	 * @param blocks
+	 */
+	public static void sendBlockChanges(final Player player, final Collection<Block> blocks) {
+		if (hasSendBlockChanges) {
+			final List<BlockState> states = new ArrayList<>(blocks.size());
+
+			for (final Block block : blocks)
+				states.add(block.getState());
+
+			player.sendBlockChanges(states);
+
+		} else
+			for (final Block block : blocks)
+				sendBlockChange0(player, block);
+	}
+
 	/**
 	 * Return how long the player has played on this server (pulled from your world statistics file)
 	 * in minutes
@@ -0,0 +1,194 @@
+package org.mineacademy.fo.remain.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.mineacademy.fo.MinecraftVersion;
+import org.mineacademy.fo.MinecraftVersion.V;
+import org.mineacademy.fo.ReflectionUtil;
+import org.mineacademy.fo.ReflectionUtil.ReflectionException;
+import org.mineacademy.fo.debug.Debugger;
+import org.mineacademy.fo.remain.Remain;
+
+/**
+ * Resolved-once method handles for the NMS calls we make the most,
+ * such as getting entity handles and sending packets to players.
+ * <p>
+ * Unlike {@link Method#invoke(Object, Object...)} these are not re-checked
+ * and boxed on every call and the JIT can inline them, which matters since
+ * titles, action bars, boss bars and custom packets go through here for
+ * every online player.
+ *
+ * @deprecated internal use only, please use {@link Remain}
+ * to call methods from this class for best performance
+ */
+@Deprecated
+public final class NMSHandles {
+
+	/**
+	 * The (Object)Object signature all our getters are adapted to
+	 */
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	/**
+	 * The (Object, Object)void signature of the send packet method
+	 */
+	private static final MethodType SEND_PACKET_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * The getHandle() method of CraftBukkit objects, cached per their runtime class
+	 * since entities and worlds each have their own Craft* implementation
+	 */
+	private static final ClassValue<MethodHandle> handleGetters = new ClassValue<MethodHandle>() {
+
+		@Override
+		protected MethodHandle computeValue(final Class<?> type) {
+			try {
+				return MethodHandles.publicLookup().unreflect(type.getMethod("getHandle")).asType(GETTER_TYPE);
+
+			} catch (final ReflectiveOperationException ex) {
+				Debugger.debug("reflection", "Class " + type.getName() + " has no usable getHandle() method: " + ex);
+
+				return null;
+			}
+		}
+	};
+
+	/**
+	 * The EntityPlayer.playerConnection field getter, null if unsupported
+	 */
+	private static final MethodHandle playerConnectionGetter;
+
+	/**
+	 * The PlayerConnection.sendPacket method, null if unsupported
+	 */
+	private static final MethodHandle sendPacketMethod;
+
+	/**
+	 * Why we could not resolve the two handles above, or null if we did
+	 */
+	private static final Throwable packetAccessError;
+
+	// Prevent new instance, always call static methods
+	private NMSHandles() {
+	}
+
+	static {
+		MethodHandle playerConnection = null;
+		MethodHandle sendPacket = null;
+		Throwable error = null;
+
+		try {
+			final boolean hasNMS = MinecraftVersion.atLeast(V.v1_4);
+			final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+			final Field connectionField = ReflectionUtil.getNMSClass("EntityPlayer", "net.minecraft.server.level.EntityPlayer")
+					.getField(MinecraftVersion.atLeast(V.v1_20) ? "c" : MinecraftVersion.atLeast(V.v1_17) ? "b" : hasNMS ? "playerConnection" : "netServerHandler");
+
+			final Method sendPacketReflect = ReflectionUtil.getNMSClass(hasNMS ? "PlayerConnection" : "NetServerHandler", "net.minecraft.server.network.PlayerConnection")
+					.getMethod(MinecraftVersion.atLeast(V.v1_18) ? "a" : "sendPacket", ReflectionUtil.getNMSClass("Packet", "net.minecraft.network.protocol.Packet"));
+
+			playerConnection = lookup.unreflectGetter(connectionField).asType(GETTER_TYPE);
+			sendPacket = lookup.unreflect(sendPacketReflect).asType(SEND_PACKET_TYPE);
+
+		} catch (final Throwable t) {
+
+			// Unavailable, such as on Cauldron, Remain prints the warning
+			playerConnection = null;
+			sendPacket = null;
+			error = t;
+		}
+
+		playerConnectionGetter = playerConnection;
+		sendPacketMethod = sendPacket;
+		packetAccessError = error;
+	}
+
+	/**
+	 * Resolve all handles and the getHandle() method of CraftPlayer and CraftWorld
+	 * so that the first packet sent does not pay for the lookup.
+	 * <p>
+	 * Called automatically when {@link Remain} loads.
+	 */
+	public static void warmUp() {
+		for (final String craftClass : new String[] { "entity.CraftPlayer", "CraftWorld" })
+			try {
+				handleGetters.get(ReflectionUtil.getOBCClass(craftClass));
+
+			} catch (final Throwable t) {
+				Debugger.debug("reflection", "Could not resolve " + craftClass + " getHandle(), not CraftBukkit? " + t);
+			}
+	}
+
+	/**
+	 * Return true if we can get player connections and send packets on this server
+	 *
+	 * @return
+	 */
+	public static boolean hasPacketAccess() {
+		return playerConnectionGetter != null && sendPacketMethod != null;
+	}
+
+	/**
+	 * Return why {@link #hasPacketAccess()} returns false, or null if it returns true
+	 *
+	 * @return
+	 */
+	public static Throwable getPacketAccessError() {
+		return packetAccessError;
+	}
+
+	/**
+	 * Invoke getHandle() on the given CraftBukkit object, such as CraftPlayer or CraftWorld
+	 *
+	 * @param craftObject
+	 * @return the NMS handle
+	 * @throws ReflectionException if the object has no getHandle() method
+	 */
+	public static Object getHandle(final Object craftObject) {
+		final MethodHandle getter = handleGetters.get(craftObject.getClass());
+
+		if (getter == null)
+			throw new ReflectionException("Class " + craftObject.getClass() + " has no getHandle() method (debug 'reflection' section for details)");
+
+		try {
+			return getter.invokeExact(craftObject);
+
+		} catch (final Throwable t) {
+			throw new ReflectionException(t, "Error getting handle of " + craftObject.getClass());
+		}
+	}
+
+	/**
+	 * Return the player connection of the given NMS EntityPlayer
+	 *
+	 * @param nmsPlayer
+	 * @return
+	 */
+	public static Object getPlayerConnection(final Object nmsPlayer) {
+		try {
+			return playerConnectionGetter.invokeExact(nmsPlayer);
+
+		} catch (final Throwable t) {
+			throw new ReflectionException(t, "Error getting player connection from " + nmsPlayer.getClass());
+		}
+	}
+
+	/**
+	 * Send the given NMS packet through the given player connection
+	 *
+	 * @param playerConnection
+	 * @param packet
+	 */
+	public static void sendPacket(final Object playerConnection, final Object packet) {
+		try {
+			sendPacketMethod.invokeExact(playerConnection, packet);
+
+		} catch (final Throwable t) {
+			throw new ReflectionException(t, "Error sending packet " + packet.getClass());
+		}
+	}
+}
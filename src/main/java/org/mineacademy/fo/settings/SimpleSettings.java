@@ -137,6 +137,13 @@ public class SimpleSettings extends YamlStaticConfig {
 	 */
 	public static Integer LAG_THRESHOLD_MILLIS = 100;
 
+	/**
+	 * How often to log the count, p50, p95, p99 and max of each {@link LagCatcher} section, in seconds. Set to -1 to disable.
+	 * <p>
+	 * Log_Lag_Summary_Seconds: -1
+	 */
+	public static Integer LAG_SUMMARY_SECONDS = -1;
+
 	/**
 	 * When processing regular expressions, limit executing to the specified time.
 	 * This prevents server freeze/crash on malformed regex (loops).
@@ -210,6 +217,9 @@ public class SimpleSettings extends YamlStaticConfig {
 				Common.log("&eLog_Lag_Over_Milis is 0, all performance is logged. Set to -1 to disable.");
 		}
 
+		if (isSetDefault("Log_Lag_Summary_Seconds"))
+			LAG_SUMMARY_SECONDS = getInteger("Log_Lag_Summary_Seconds");
+
 		if (isSetDefault("Debug"))
 			DEBUG_SECTIONS = new StrictList<>(getStringList("Debug"));
 
@@ -0,0 +1,352 @@
+package org.mineacademy.fo.visual;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.mineacademy.fo.Valid;
+import org.mineacademy.fo.model.PackedBlocks;
+import org.mineacademy.fo.remain.CompMaterial;
+import org.mineacademy.fo.remain.Remain;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A set of client-side fake blocks in one world shown to chosen players.
+ * <p>
+ * Nothing changes on the server and no entities are spawned. Changes are sent
+ * in batches, on MC 1.19.4+ as one packet per chunk section, and hiding the overlay
+ * restores the real blocks in one batch too. When a player sees several overlays
+ * covering the same block, the one shown last wins and hiding it reveals the one below.
+ * <p>
+ * Players lose fake blocks when their client reloads the chunks, such as after a long
+ * teleport, use {@link #refresh(Player)} to send them again. Use from the main thread only.
+ */
+public final class BlockOverlay {
+
+	/**
+	 * Overlays each player sees, in the order they were shown
+	 */
+	private static final Map<UUID, List<BlockOverlay>> shownOverlays = new HashMap<>();
+
+	/**
+	 * The world of this overlay
+	 */
+	@Getter
+	private final World world;
+
+	/**
+	 * The fake blocks by packed position, see {@link PackedBlocks#pack(int, int, int)}
+	 */
+	private final Map<Long, CompMaterial> blocks = new LinkedHashMap<>();
+
+	/**
+	 * Players seeing this overlay
+	 */
+	private final Set<UUID> viewers = new LinkedHashSet<>();
+
+	/**
+	 * Create a new empty overlay in the given world
+	 *
+	 * @param world
+	 */
+	public BlockOverlay(@NonNull World world) {
+		this.world = world;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Changing blocks
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Show the given fake block, updating current viewers right away
+	 *
+	 * @param block
+	 * @param material
+	 */
+	public void set(@NonNull Block block, @NonNull CompMaterial material) {
+		this.setAll(Collections.singletonList(block), material);
+	}
+
+	/**
+	 * Show all given blocks as the given material, updating current viewers in one batch
+	 *
+	 * @param blocks
+	 * @param material
+	 */
+	public void setAll(@NonNull Collection<Block> blocks, @NonNull CompMaterial material) {
+		final Map<Location, CompMaterial> changes = new LinkedHashMap<>();
+
+		for (final Block block : blocks) {
+			this.checkWorld(block);
+
+			this.blocks.put(key(block), material);
+			changes.put(block.getLocation(), material);
+		}
+
+		for (final Player viewer : this.getViewers())
+			Remain.sendBlockChanges(viewer, changes);
+	}
+
+	/**
+	 * Remove the fake block, restoring what the viewers saw before
+	 *
+	 * @param block
+	 * @return false if the block was not in this overlay
+	 */
+	public boolean remove(@NonNull Block block) {
+		final long key = key(block);
+
+		if (!block.getWorld().equals(this.world) || this.blocks.remove(key) == null)
+			return false;
+
+		for (final Player viewer : this.getViewers())
+			this.restore(viewer, Collections.singletonList(key));
+
+		return true;
+	}
+
+	/**
+	 * Remove all fake blocks, restoring what the viewers saw before in one batch
+	 */
+	public void clear() {
+		final List<Long> keys = new ArrayList<>(this.blocks.keySet());
+
+		this.blocks.clear();
+
+		for (final Player viewer : this.getViewers())
+			this.restore(viewer, keys);
+	}
+
+	/**
+	 * Return true if this overlay has a fake block at the given block
+	 *
+	 * @param block
+	 * @return
+	 */
+	public boolean contains(@NonNull Block block) {
+		return block.getWorld().equals(this.world) && this.blocks.containsKey(key(block));
+	}
+
+	/**
+	 * Return the fake material at the given block, or null if none
+	 *
+	 * @param block
+	 * @return
+	 */
+	public CompMaterial getType(@NonNull Block block) {
+		return block.getWorld().equals(this.world) ? this.blocks.get(key(block)) : null;
+	}
+
+	/**
+	 * Return how many fake blocks this overlay has
+	 *
+	 * @return
+	 */
+	public int size() {
+		return this.blocks.size();
+	}
+
+	/**
+	 * Return true if this overlay has no fake blocks
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.blocks.isEmpty();
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Viewers
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Show this overlay to the player in one batch
+	 *
+	 * @param player
+	 */
+	public void show(@NonNull Player player) {
+		Valid.checkBoolean(!this.isShownTo(player), "Player " + player.getName() + " already sees " + this);
+
+		this.viewers.add(player.getUniqueId());
+		shownOverlays.computeIfAbsent(player.getUniqueId(), uuid -> new ArrayList<>(2)).add(this);
+
+		this.refresh(player);
+	}
+
+	/**
+	 * Send all fake blocks to the player again, for example after their client reloaded chunks
+	 *
+	 * @param player
+	 */
+	public void refresh(@NonNull Player player) {
+		if (this.isShownTo(player) && player.getWorld().equals(this.world) && !this.blocks.isEmpty())
+			Remain.sendBlockChanges(player, this.toLocations(this.blocks.keySet()));
+	}
+
+	/**
+	 * Hide this overlay from the player, restoring what they saw before in one batch
+	 *
+	 * @param player
+	 */
+	public void hide(@NonNull Player player) {
+		Valid.checkBoolean(this.isShownTo(player), "Player " + player.getName() + " is not seeing " + this);
+
+		this.forget(player.getUniqueId());
+
+		this.restore(player, this.blocks.keySet());
+	}
+
+	/**
+	 * Hide this overlay from all viewers
+	 */
+	public void hideAll() {
+		for (final Player viewer : this.getViewers())
+			this.hide(viewer);
+
+		for (final UUID offline : new ArrayList<>(this.viewers))
+			this.forget(offline);
+	}
+
+	/**
+	 * Return true if the player sees this overlay
+	 *
+	 * @param player
+	 * @return
+	 */
+	public boolean isShownTo(@NonNull Player player) {
+		return this.viewers.contains(player.getUniqueId());
+	}
+
+	/**
+	 * Return online players seeing this overlay
+	 *
+	 * @return
+	 */
+	public List<Player> getViewers() {
+		final List<Player> players = new ArrayList<>(this.viewers.size());
+
+		for (final UUID uuid : this.viewers) {
+			final Player player = Bukkit.getPlayer(uuid);
+
+			if (player != null && player.isOnline())
+				players.add(player);
+		}
+
+		return players;
+	}
+
+	/*
+	 * Stop tracking the viewer without sending anything
+	 */
+	private void forget(UUID uuid) {
+		this.viewers.remove(uuid);
+
+		final List<BlockOverlay> overlays = shownOverlays.get(uuid);
+
+		if (overlays != null && overlays.remove(this) && overlays.isEmpty())
+			shownOverlays.remove(uuid);
+	}
+
+	/*
+	 * Send the player what they should see at the given positions now, either a fake block
+	 * from another overlay they see or the real block
+	 */
+	private void restore(Player player, Collection<Long> keys) {
+		if (keys.isEmpty() || !player.getWorld().equals(this.world))
+			return;
+
+		final List<BlockOverlay> overlays = shownOverlays.getOrDefault(player.getUniqueId(), Collections.emptyList());
+		final Map<Location, CompMaterial> covered = new LinkedHashMap<>();
+		final List<Block> real = new ArrayList<>();
+
+		for (final long key : keys) {
+			final Block block = this.world.getBlockAt(PackedBlocks.unpackX(key), PackedBlocks.unpackY(key), PackedBlocks.unpackZ(key));
+			CompMaterial material = null;
+
+			for (int i = overlays.size() - 1; i >= 0 && material == null; i--) {
+				final BlockOverlay other = overlays.get(i);
+
+				if (other != this && other.world.equals(this.world))
+					material = other.blocks.get(key);
+			}
+
+			if (material != null)
+				covered.put(block.getLocation(), material);
+
+			else
+				real.add(block);
+		}
+
+		if (!real.isEmpty())
+			Remain.sendBlockChanges(player, real);
+
+		if (!covered.isEmpty())
+			Remain.sendBlockChanges(player, covered);
+	}
+
+	/*
+	 * Convert the packed positions to locations with their fake materials
+	 */
+	private Map<Location, CompMaterial> toLocations(Collection<Long> keys) {
+		final Map<Location, CompMaterial> locations = new LinkedHashMap<>();
+
+		for (final long key : keys)
+			locations.put(new Location(this.world, PackedBlocks.unpackX(key), PackedBlocks.unpackY(key), PackedBlocks.unpackZ(key)), this.blocks.get(key));
+
+		return locations;
+	}
+
+	private void checkWorld(Block block) {
+		Valid.checkBoolean(block.getWorld().equals(this.world), "Block " + block + " is not in the overlay world " + this.world.getName());
+	}
+
+	private static long key(Block block) {
+		return PackedBlocks.pack(block.getX(), block.getY(), block.getZ());
+	}
+
+	@Override
+	public String toString() {
+		return "BlockOverlay{world=" + this.world.getName() + ", blocks=" + this.blocks.size() + ", viewers=" + this.viewers.size() + "}";
+	}
+
+	// ------------------------------------------------------------------------------------------------------------
+	// Static
+	// ------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Return overlays the player sees, in the order they were shown
+	 *
+	 * @param player
+	 * @return
+	 */
+	public static List<BlockOverlay> getShownOverlays(@NonNull Player player) {
+		return Collections.unmodifiableList(shownOverlays.getOrDefault(player.getUniqueId(), Collections.emptyList()));
+	}
+
+	/**
+	 * Stop tracking the player in all overlays without sending anything, called when they quit
+	 *
+	 * @param player
+	 */
+	public static void forgetViewer(@NonNull Player player) {
+		final List<BlockOverlay> overlays = shownOverlays.remove(player.getUniqueId());
+
+		if (overlays != null)
+			for (final BlockOverlay overlay : overlays)
+				overlay.viewers.remove(player.getUniqueId());
+	}
+}
@@ -1,72 +1,62 @@
 package org.mineacademy.fo.visual;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
-import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.entity.FallingBlock;
 import org.bukkit.entity.Player;
-import org.bukkit.util.Vector;
-import org.mineacademy.fo.MinecraftVersion;
-import org.mineacademy.fo.MinecraftVersion.V;
 import org.mineacademy.fo.Valid;
-import org.mineacademy.fo.collection.StrictMap;
 import org.mineacademy.fo.remain.CompMaterial;
-import org.mineacademy.fo.remain.CompProperty;
-import org.mineacademy.fo.remain.Remain;
 
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
 /**
- * A utility class for displaying glowing block corners.
+ * A utility class for displaying highlighted blocks to players in their world,
+ * using client-side fake blocks, see {@link BlockOverlay}.
  */
 @UtilityClass
 public class BlockVisualizer {
 
 	/**
-	 * Stores a map of currently visualized blocks.
+	 * The overlay holding visualized blocks in each world, by world UUID
 	 */
-	private final StrictMap<Location, Object /*Old Minecraft compatibility.*/> visualizedBlocks = new StrictMap<>();
+	private final Map<UUID, BlockOverlay> overlays = new HashMap<>();
 
 	/**
 	 * Starts visualizing the block at the given location.
 	 *
 	 * @param block
 	 * @param mask
-	 * @param blockName
 	 */
-	public void visualize(@NonNull final Block block, final CompMaterial mask, final String blockName) {
+	public void visualize(@NonNull final Block block, final CompMaterial mask) {
 		Valid.checkBoolean(!isVisualized(block), "Block at " + block.getLocation() + " already visualized");
-		final Location location = block.getLocation();
 
-		final FallingBlock falling = spawnFallingBlock(location, mask, blockName);
-
-		// Also send the block change packet to barrier (fixes lightning glitches)
-		for (final Player player : block.getWorld().getPlayers())
-			Remain.sendBlockChange(2, player, location, MinecraftVersion.olderThan(V.v1_9) ? mask : CompMaterial.BARRIER);
-
-		visualizedBlocks.put(location, falling == null ? false : falling);
+		visualize(Collections.singletonList(block), mask);
 	}
 
-	/*
-	 * Spawns a customized falling block at the given location.
+	/**
+	 * Starts visualizing all given blocks as the mask, sending them to each player in the world in one batch.
+	 *
+	 * @param blocks
+	 * @param mask
 	 */
-	private FallingBlock spawnFallingBlock(final Location location, final CompMaterial mask, final String blockName) {
-		if (MinecraftVersion.olderThan(V.v1_9))
-			return null;
-
-		final FallingBlock falling = Remain.spawnFallingBlock(location.clone().add(0.5, 0, 0.5), mask.getMaterial());
+	public void visualize(@NonNull final Collection<Block> blocks, @NonNull final CompMaterial mask) {
+		if (blocks.isEmpty())
+			return;
 
-		falling.setDropItem(false);
-		falling.setVelocity(new Vector(0, 0, 0));
+		final World world = blocks.iterator().next().getWorld();
+		final BlockOverlay overlay = overlays.computeIfAbsent(world.getUID(), uid -> new BlockOverlay(world));
 
-		Remain.setCustomName(falling, blockName);
+		overlay.setAll(blocks, mask);
 
-		CompProperty.GLOWING.apply(falling, true);
-		CompProperty.GRAVITY.apply(falling, false);
-
-		return falling;
+		for (final Player player : world.getPlayers())
+			if (!overlay.isShownTo(player))
+				overlay.show(player);
 	}
 
 	/**
@@ -77,27 +67,36 @@ public class BlockVisualizer {
 	public void stopVisualizing(@NonNull final Block block) {
 		Valid.checkBoolean(isVisualized(block), "Block at " + block.getLocation() + " not visualized");
 
-		final Object fallingBlock = visualizedBlocks.remove(block.getLocation());
+		final BlockOverlay overlay = overlays.get(block.getWorld().getUID());
 
-		// Mark the entity for removal on the next tick
-		if (fallingBlock instanceof FallingBlock)
-			((FallingBlock) fallingBlock).remove();
+		overlay.remove(block);
 
-		// Then restore the client's block back to normal
-		for (final Player player : block.getWorld().getPlayers())
-			Remain.sendBlockChange(1, player, block);
+		if (overlay.isEmpty()) {
+			overlay.hideAll();
+			overlays.remove(block.getWorld().getUID());
+		}
 	}
 
 	/**
-	 * Stop all blocks from being visualized.
+	 * Stop all blocks from being visualized, restoring them for each player in one batch.
 	 */
 	public void stopAll() {
-		for (final Location location : new HashSet<>(visualizedBlocks.keySet())) {
-			final Block block = location.getBlock();
+		for (final BlockOverlay overlay : overlays.values())
+			overlay.hideAll();
 
-			if (isVisualized(block))
-				stopVisualizing(block);
-		}
+		overlays.clear();
+	}
+
+	/**
+	 * Stop visualizing all blocks in the given world, called when it unloads
+	 *
+	 * @param world
+	 */
+	public void stopAll(@NonNull final World world) {
+		final BlockOverlay overlay = overlays.remove(world.getUID());
+
+		if (overlay != null)
+			overlay.hideAll();
 	}
 
 	/**
@@ -107,6 +106,8 @@ public class BlockVisualizer {
 	 * @return
 	 */
 	public boolean isVisualized(@NonNull final Block block) {
-		return visualizedBlocks.containsKey(block.getLocation());
+		final BlockOverlay overlay = overlays.get(block.getWorld().getUID());
+
+		return overlay != null && overlay.contains(block);
 	}
 }
@@ -143,26 +143,6 @@ public abstract class VisualTool extends BlockTool {
 		return null;
 	}
 
-	/**
-	 * Return the name above the glowing block for the given parameters
-	 *
-	 * @param block
-	 * @param player
-	 * @return
-	 */
-	protected String getBlockName(Block block, Player player) {
-		final Region region = this.getVisualizedRegion(player);
-		String name = "&7Point";
-
-		if (region != null) {
-			final Location location = block.getLocation();
-
-			name = region.isPrimary(location) ? "&cPrimary" : region.isSecondary(location) ? "&6Secondary" : name;
-		}
-
-		return "&8[" + name + "&8]";
-	}
-
 	/**
 	 * Return the block mask for the given parameters
 	 *
@@ -209,7 +189,7 @@ public abstract class VisualTool extends BlockTool {
 			final Block block = location.getBlock();
 
 			if (!BlockVisualizer.isVisualized(block))
-				BlockVisualizer.visualize(block, this.getBlockMask(block, player), this.getBlockName(block, player));
+				BlockVisualizer.visualize(block, this.getBlockMask(block, player));
 		}
 	}
 
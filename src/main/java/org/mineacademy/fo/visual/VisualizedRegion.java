@@ -1,7 +1,6 @@
 package org.mineacademy.fo.visual;
 
 import java.util.Map;
-import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -9,6 +8,7 @@ import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
 import org.mineacademy.fo.BlockUtil;
 import org.mineacademy.fo.Common;
 import org.mineacademy.fo.Valid;
@@ -26,6 +26,27 @@ import lombok.Setter;
  */
 public final class VisualizedRegion extends Region {
 
+	/*
+	 * Points closer than this are always shown, squared
+	 */
+	private static final double ALWAYS_VISIBLE_SQUARED = 6 * 6;
+
+	/*
+	 * Points farther than this are shown at half the density, squared
+	 */
+	private static final double LOD_NEAR_SQUARED = 24 * 24;
+
+	/*
+	 * Points farther than this are shown at a quarter of the density, squared
+	 */
+	private static final double LOD_FAR_SQUARED = 48 * 48;
+
+	/*
+	 * The squared cosine of half the view cone we show particles in, about 70 degrees
+	 * to each side which covers the default field of view with some margin
+	 */
+	private static final double VIEW_CONE_COS_SQUARED = Math.pow(Math.cos(Math.toRadians(70)), 2);
+
 	/**
 	 * @deprecated DOES NOT WORK, call new VisualizedRegion() instead
 	 */
@@ -56,6 +77,30 @@ public final class VisualizedRegion extends Region {
 	@Setter
 	private int delayTicks = 23;
 
+	/**
+	 * How far from viewers we show particles, in blocks
+	 */
+	@Getter
+	@Setter
+	private double viewDistance = 100;
+
+	/**
+	 * The most particles we send to all viewers together each time, far points are thinned out first
+	 */
+	@Getter
+	@Setter
+	private int maxParticles = 2_000;
+
+	/*
+	 * The outline points as x, y and z one after another, null until computed for the current corners
+	 */
+	private double[] outline;
+
+	/*
+	 * Reused buffer of points we send to one viewer
+	 */
+	private double[] sendBuffer = new double[0];
+
 	/**
 	 * Create a new visualizable empty region
 	 */
@@ -84,6 +129,11 @@ public final class VisualizedRegion extends Region {
 		super(name, primary, secondary);
 	}
 
+	@Override
+	protected void onPointsChanged() {
+		this.outline = null;
+	}
+
 	// ------–------–------–------–------–------–------–------–------–------–------–------–
 	// Rendering
 	// ------–------–------–------–------–------–------–------–------–------–------–------–
@@ -181,24 +231,110 @@ public final class VisualizedRegion extends Region {
 					return;
 				}
 
-				final Set<Location> blocks = BlockUtil.getBoundingBox(VisualizedRegion.this.getPrimary(), VisualizedRegion.this.getSecondary());
+				VisualizedRegion.this.render();
+			}
+		});
+	}
 
-				for (final Location location : blocks)
-					for (final Map.Entry<Player, Color> entry : VisualizedRegion.this.viewers.entrySet()) {
-						final Player viewer = entry.getKey();
-						final Color color = entry.getValue();
-						final Location viewerLocation = viewer.getLocation();
+	/*
+	 * Send the outline to all viewers, culled by distance and view direction
+	 * and thinned out with distance to fit the particle limit
+	 */
+	private void render() {
+		if (!this.isWhole())
+			return;
 
-						if (viewerLocation.getWorld().equals(location.getWorld()) && viewerLocation.distance(location) < 100)
-							if (color != null)
-								CompParticle.REDSTONE.spawn(viewer, location, color, 0.5F);
+		if (this.outline == null)
+			this.outline = this.computeOutline();
 
-							else
-								VisualizedRegion.this.particle.spawn(viewer, location);
-					}
+		final double[] outline = this.outline;
+		final String worldName = this.getPrimary().getWorld().getName();
+		final int share = Math.max(1, this.maxParticles / this.viewers.size());
 
-			}
-		});
+		if (this.sendBuffer.length < Math.min(outline.length, share * 3))
+			this.sendBuffer = new double[Math.min(outline.length, share * 3)];
+
+		for (final Map.Entry<Player, Color> entry : this.viewers.entrySet()) {
+			final Player viewer = entry.getKey();
+			final Location eye = viewer.getEyeLocation();
+
+			if (!eye.getWorld().getName().equals(worldName))
+				continue;
+
+			final int count = this.cull(outline, eye, share);
+
+			if (count > 0)
+				(entry.getValue() != null ? CompParticle.REDSTONE : this.particle).spawn(viewer, this.sendBuffer, count, entry.getValue(), 0.5F);
+		}
+	}
+
+	/*
+	 * Copy the points the viewer should see into the send buffer, returning how many
+	 */
+	private int cull(double[] outline, Location eye, int limit) {
+		final double eyeX = eye.getX(), eyeY = eye.getY(), eyeZ = eye.getZ();
+		final Vector direction = eye.getDirection();
+		final double dirX = direction.getX(), dirY = direction.getY(), dirZ = direction.getZ();
+		final double maxDistanceSquared = this.viewDistance * this.viewDistance;
+
+		int visible = 0;
+
+		// First count what is in range and in front of the viewer to know how much to thin out
+		for (int index = 0; index < outline.length; index += 3)
+			if (isVisible(outline[index] - eyeX, outline[index + 1] - eyeY, outline[index + 2] - eyeZ, dirX, dirY, dirZ, maxDistanceSquared))
+				visible++;
+
+		if (visible == 0)
+			return 0;
+
+		final int capStride = (visible + limit - 1) / limit;
+		int seen = 0, count = 0;
+
+		for (int index = 0; index < outline.length && count < limit; index += 3) {
+			final double x = outline[index] - eyeX, y = outline[index + 1] - eyeY, z = outline[index + 2] - eyeZ;
+
+			if (!isVisible(x, y, z, dirX, dirY, dirZ, maxDistanceSquared))
+				continue;
+
+			// Level of detail, far points are shown sparser, and everything sparser if over the limit
+			final double distanceSquared = x * x + y * y + z * z;
+			final int stride = capStride * (distanceSquared < LOD_NEAR_SQUARED ? 1 : distanceSquared < LOD_FAR_SQUARED ? 2 : 4);
+
+			if (seen++ % stride != 0)
+				continue;
+
+			this.sendBuffer[count * 3] = outline[index];
+			this.sendBuffer[count * 3 + 1] = outline[index + 1];
+			this.sendBuffer[count * 3 + 2] = outline[index + 2];
+			count++;
+		}
+
+		return count;
+	}
+
+	/*
+	 * Return true if the point relative to the eye is in range and roughly in the field of view,
+	 * close points are always visible since they may be at the edge of the screen
+	 */
+	private static boolean isVisible(double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistanceSquared) {
+		final double distanceSquared = x * x + y * y + z * z;
+
+		if (distanceSquared > maxDistanceSquared)
+			return false;
+
+		if (distanceSquared < ALWAYS_VISIBLE_SQUARED)
+			return true;
+
+		final double dot = x * dirX + y * dirY + z * dirZ;
+
+		return dot > 0 && dot * dot >= VIEW_CONE_COS_SQUARED * distanceSquared;
+	}
+
+	/*
+	 * Build the outline points from the current corners
+	 */
+	private double[] computeOutline() {
+		return BlockUtil.getBoundingBoxPoints(this.getPrimary(), this.getSecondary());
 	}
 
 	/*